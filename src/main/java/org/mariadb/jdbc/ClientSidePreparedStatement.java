@@ -100,7 +100,7 @@ public class ClientSidePreparedStatement extends BasePrepareStatement {
         connection, resultSetScrollType, resultSetConcurrency, autoGeneratedKeys, exceptionFactory);
     sqlQuery = sql;
 
-    if (options.rewriteBatchedStatements) {
+    if (options.rewriteBatchedStatements || options.useBatchLoadData) {
       prepareResult = ClientPrepareResult.rewritableParts(sqlQuery, protocol.noBackslashEscapes());
     } else {
       prepareResult = ClientPrepareResult.parameterParts(sqlQuery, protocol.noBackslashEscapes());
@@ -196,6 +196,8 @@ public class ClientSidePreparedStatement extends BasePrepareStatement {
       }
     }
 
+    connection.countClientPrepareExecution(sqlQuery);
+
     lock.lock();
     try {
       executeQueryPrologue(false);
@@ -353,6 +355,7 @@ public class ClientSidePreparedStatement extends BasePrepareStatement {
    * @throws SQLException if any error occur
    */
   private void executeInternalBatch(int size) throws SQLException {
+    connection.countClientPrepareExecution(sqlQuery);
     executeQueryPrologue(true);
     results =
         new Results(
@@ -0,0 +1,106 @@
+/*
+ *
+ * MariaDB Client for Java
+ *
+ * Copyright (c) 2012-2014 Monty Program Ab.
+ * Copyright (c) 2015-2020 MariaDB Corporation Ab.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this library; if not, write to Monty Program Ab info@montyprogram.com.
+ *
+ * This particular MariaDB Client for Java file is work
+ * derived from a Drizzle-JDBC. Drizzle-JDBC file which is covered by subject to
+ * the following copyright and notice provisions:
+ *
+ * Copyright (c) 2009-2011, Marcus Eriksson
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this list
+ * of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this
+ * list of conditions and the following disclaimer in the documentation and/or
+ * other materials provided with the distribution.
+ *
+ * Neither the name of the driver nor the names of its contributors may not be
+ * used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS  AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package org.mariadb.jdbc;
+
+import java.sql.SQLWarning;
+
+/** Result of a {@link MariaDbBulkLoader} load. */
+public class MariaDbBulkLoadResult {
+
+  private final long rowsLoaded;
+  private final long rowsSent;
+  private final SQLWarning warnings;
+
+  /**
+   * Constructor.
+   *
+   * @param rowsLoaded number of rows loaded, as reported by server
+   * @param rowsSent number of rows sent to server
+   * @param warnings load warnings, null if none
+   */
+  public MariaDbBulkLoadResult(long rowsLoaded, long rowsSent, SQLWarning warnings) {
+    this.rowsLoaded = rowsLoaded;
+    this.rowsSent = rowsSent;
+    this.warnings = warnings;
+  }
+
+  public long getRowsLoaded() {
+    return rowsLoaded;
+  }
+
+  public long getRowsSent() {
+    return rowsSent;
+  }
+
+  /**
+   * Warnings generated by the load (truncated values, skipped rows, ...).
+   *
+   * @return first warning, chaining the others, or null if none
+   */
+  public SQLWarning getWarnings() {
+    return warnings;
+  }
+
+  /**
+   * Number of warnings retrieved.
+   *
+   * @return warning number
+   */
+  public int getWarningCount() {
+    int count = 0;
+    for (SQLWarning warning = warnings; warning != null; warning = warning.getNextWarning()) {
+      count++;
+    }
+    return count;
+  }
+}
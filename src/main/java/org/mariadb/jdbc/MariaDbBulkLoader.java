@@ -0,0 +1,254 @@
+/*
+ *
+ * MariaDB Client for Java
+ *
+ * Copyright (c) 2012-2014 Monty Program Ab.
+ * Copyright (c) 2015-2020 MariaDB Corporation Ab.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this library; if not, write to Monty Program Ab info@montyprogram.com.
+ *
+ * This particular MariaDB Client for Java file is work
+ * derived from a Drizzle-JDBC. Drizzle-JDBC file which is covered by subject to
+ * the following copyright and notice provisions:
+ *
+ * Copyright (c) 2009-2011, Marcus Eriksson
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this list
+ * of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this
+ * list of conditions and the following disclaimer in the documentation and/or
+ * other materials provided with the distribution.
+ *
+ * Neither the name of the driver nor the names of its contributors may not be
+ * used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS  AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package org.mariadb.jdbc;
+
+import java.lang.reflect.Array;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.time.ZoneId;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.regex.Pattern;
+import org.mariadb.jdbc.internal.com.send.LocalInfileRowStream;
+import org.mariadb.jdbc.internal.protocol.Protocol;
+
+/**
+ * Bulk loader, streaming rows to a table using "LOAD DATA LOCAL INFILE".
+ *
+ * <p>Rows are encoded directly in the LOCAL INFILE packets using server default field and line
+ * escaping, without any intermediate file. Option "allowLocalInfile" must be enabled, and server
+ * must permit LOCAL INFILE. Example:
+ *
+ * <pre>
+ *   MariaDbBulkLoader loader = connection.unwrap(MariaDbConnection.class)
+ *       .bulkLoader("myTable", "id", "name");
+ *   MariaDbBulkLoadResult result = loader.load(rowIterator);
+ * </pre>
+ *
+ * <p>If row iterator throws an exception, rows already sent are loaded by server (if in a
+ * transaction, application is then responsible to roll back) and the exception is thrown once
+ * server has answered.
+ */
+public class MariaDbBulkLoader {
+
+  private static final Pattern QUOTED_IDENTIFIER = Pattern.compile("`(``|[^`])+`");
+  private static final Pattern QUOTED_TABLE = Pattern.compile("`(``|[^`])+`(\\.`(``|[^`])+`)?");
+
+  private final MariaDbConnection connection;
+  private final String sql;
+  private final int columnCount;
+
+  /**
+   * Constructor.
+   *
+   * @param connection connection
+   * @param table table name. can be qualified with database ("db.table")
+   * @param columns column names
+   * @throws SQLException if no column is indicated
+   */
+  protected MariaDbBulkLoader(MariaDbConnection connection, String table, String... columns)
+      throws SQLException {
+    if (table == null || columns == null || columns.length == 0) {
+      throw new SQLException("Bulk loader needs a table and at least one column", "42000");
+    }
+    this.connection = connection;
+    this.columnCount = columns.length;
+
+    StringBuilder sb =
+        new StringBuilder("LOAD DATA LOCAL INFILE 'rows' INTO TABLE ")
+            .append(quoteTable(table))
+            .append(" CHARACTER SET utf8mb4 (");
+    for (int i = 0; i < columns.length; i++) {
+      if (i > 0) {
+        sb.append(',');
+      }
+      sb.append(quote(columns[i]));
+    }
+    this.sql = sb.append(')').toString();
+  }
+
+  private static String quote(String identifier) {
+    if (QUOTED_IDENTIFIER.matcher(identifier).matches()) {
+      return identifier;
+    }
+    return MariaDbConnection.quoteIdentifier(identifier);
+  }
+
+  private static String quoteTable(String table) {
+    if (QUOTED_TABLE.matcher(table).matches()) {
+      return table;
+    }
+    int dot = table.indexOf('.');
+    if (dot == -1 || table.indexOf('`') != -1) {
+      return MariaDbConnection.quoteIdentifier(table);
+    }
+    return MariaDbConnection.quoteIdentifier(table.substring(0, dot))
+        + "."
+        + MariaDbConnection.quoteIdentifier(table.substring(dot + 1));
+  }
+
+  /**
+   * Load rows. Each row must have one value for each column. Supported values are null, String,
+   * byte[], Boolean, Number, java.util.Date and java.sql date/time types, java.time types (values
+   * with an offset or a zone, java.util.Date and Timestamp are converted to the session time zone,
+   * OffsetTime requiring a session time zone with a fixed offset). Other objects are sent using
+   * their toString() value.
+   *
+   * @param rows row iterator
+   * @return load result
+   * @throws SQLException if any error occur during load
+   */
+  public MariaDbBulkLoadResult load(Iterator<Object[]> rows) throws SQLException {
+    Protocol protocol = connection.getProtocol();
+    ZoneId zoneId =
+        protocol.getOptions().useLegacyDatetimeCode
+            ? ZoneId.systemDefault()
+            : protocol.getTimeZone().toZoneId();
+    LocalInfileRowStream stream = new LocalInfileRowStream(rows, columnCount, zoneId);
+    try (MariaDbStatement stmt = (MariaDbStatement) connection.createStatement()) {
+      stmt.setLocalInfileInputStream(stream);
+      long rowsLoaded;
+      try {
+        rowsLoaded = stmt.executeLargeUpdate(sql);
+      } catch (SQLException sqle) {
+        // error raised by rows (iterator, wrong value number) explains why stream ended early
+        if (stream.getException() != null) {
+          sqle.addSuppressed(stream.getException());
+        }
+        throw sqle;
+      }
+      SQLWarning warnings = stmt.getWarnings();
+
+      if (stream.getException() != null) {
+        throw stream.getException();
+      }
+      return new MariaDbBulkLoadResult(rowsLoaded, stream.getRowCounter(), warnings);
+    }
+  }
+
+  /**
+   * Load rows.
+   *
+   * @param rows rows
+   * @return load result
+   * @throws SQLException if any error occur during load
+   * @see #load(Iterator)
+   */
+  public MariaDbBulkLoadResult load(Iterable<Object[]> rows) throws SQLException {
+    return load(rows.iterator());
+  }
+
+  /**
+   * Load data by column: each parameter is an array (primitive or Object) containing values of
+   * corresponding column. All arrays must have the same length.
+   *
+   * @param columnArrays arrays of values, one per column
+   * @return load result
+   * @throws SQLException if arrays are not valid or if any error occur during load
+   */
+  public MariaDbBulkLoadResult loadColumns(final Object... columnArrays) throws SQLException {
+    if (columnArrays == null || columnArrays.length != columnCount) {
+      throw new SQLException(
+          "Expected "
+              + columnCount
+              + " column arrays, got "
+              + (columnArrays == null ? 0 : columnArrays.length),
+          "07001");
+    }
+
+    int length = -1;
+    for (Object columnArray : columnArrays) {
+      if (columnArray == null || !columnArray.getClass().isArray()) {
+        throw new SQLException("Column values must be an array", "07006");
+      }
+      int arrayLength = Array.getLength(columnArray);
+      if (length != -1 && arrayLength != length) {
+        throw new SQLException("All column arrays must have the same length", "07001");
+      }
+      length = arrayLength;
+    }
+
+    final int rowNumber = length;
+    return load(
+        new Iterator<Object[]>() {
+          private int index = 0;
+
+          @Override
+          public boolean hasNext() {
+            return index < rowNumber;
+          }
+
+          @Override
+          public Object[] next() {
+            if (index >= rowNumber) {
+              throw new NoSuchElementException();
+            }
+            Object[] row = new Object[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+              row[i] = Array.get(columnArrays[i], index);
+            }
+            index++;
+            return row;
+          }
+        });
+  }
+
+  /**
+   * Generated LOAD DATA command. For testing purpose.
+   *
+   * @return sql command
+   */
+  public String getSql() {
+    return sql;
+  }
+}
@@ -67,7 +67,9 @@ import org.mariadb.jdbc.internal.logging.LoggerFactory;
 import org.mariadb.jdbc.internal.protocol.Protocol;
 import org.mariadb.jdbc.internal.util.CallableStatementCache;
 import org.mariadb.jdbc.internal.util.ConnectionState;
+import org.mariadb.jdbc.internal.util.PrepareUsageCounter;
 import org.mariadb.jdbc.internal.util.Utils;
+import org.mariadb.jdbc.internal.util.constant.HaMode;
 import org.mariadb.jdbc.internal.util.dao.CallableStatementCacheKey;
 import org.mariadb.jdbc.internal.util.dao.CloneableCallableStatement;
 import org.mariadb.jdbc.internal.util.exceptions.ExceptionFactory;
@@ -106,6 +108,7 @@ public class MariaDbConnection implements Connection {
   public MariaDbPooledConnection pooledConnection;
   protected boolean nullCatalogMeansCurrent;
   private CallableStatementCache callableStatementCache;
+  private PrepareUsageCounter prepareUsageCounter;
   private volatile int lowercaseTableNames = -1;
   private boolean canUseServerTimeout;
   private boolean sessionStateAware;
@@ -129,6 +132,11 @@ public class MariaDbConnection implements Connection {
     if (options.cacheCallableStmts) {
       callableStatementCache = CallableStatementCache.newInstance(options.callableStmtCacheSize);
     }
+    if (!options.useServerPrepStmts && options.prepareThreshold > 0) {
+      prepareUsageCounter =
+          PrepareUsageCounter.newInstance(
+              Math.max(1, options.prepStmtCacheSize), options.prepareThreshold);
+    }
     this.lock = protocol.getLock();
     this.exceptionFactory = ExceptionFactory.of(this.getServerThreadId(), this.options);
   }
@@ -273,6 +281,20 @@ public class MariaDbConnection implements Connection {
         exceptionFactory);
   }
 
+  /**
+   * Create a bulk loader, streaming rows to table using LOAD DATA LOCAL INFILE.
+   *
+   * @param table table name
+   * @param columns column names
+   * @return a bulk loader
+   * @throws SQLException if connection is closed or no column is indicated
+   */
+  public MariaDbBulkLoader bulkLoader(final String table, final String... columns)
+      throws SQLException {
+    checkConnection();
+    return new MariaDbBulkLoader(this, table, columns);
+  }
+
   /**
    * creates a new prepared statement.
    *
@@ -453,6 +475,17 @@ public class MariaDbConnection implements Connection {
     return prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
   }
 
+  /**
+   * Count a client side PreparedStatement execution, when option "prepareThreshold" is set.
+   *
+   * @param sql query
+   */
+  protected void countClientPrepareExecution(String sql) {
+    if (prepareUsageCounter != null) {
+      prepareUsageCounter.increment(sql);
+    }
+  }
+
   /**
    * Send ServerPrepareStatement or ClientPrepareStatement depending on SQL query and options If
    * server side and PREPARE can be delayed, a facade will be return, to have a fallback on client
@@ -480,7 +513,10 @@ public class MariaDbConnection implements Connection {
 
       String sqlQuery = Utils.nativeSql(sql, protocol);
 
-      if (options.useServerPrepStmts && PREPARABLE_STATEMENT_PATTERN.matcher(sqlQuery).find()) {
+      boolean thresholdReached =
+          prepareUsageCounter != null && prepareUsageCounter.mustPrepare(sqlQuery);
+      if ((options.useServerPrepStmts || thresholdReached)
+          && PREPARABLE_STATEMENT_PATTERN.matcher(sqlQuery).find()) {
         // prepare isn't delayed -> if prepare fail, fallback to client preparedStatement?
         checkConnection();
         try {
@@ -496,6 +532,9 @@ public class MariaDbConnection implements Connection {
         } catch (SQLException e) {
           // on some specific case, server cannot prepared data (CONJ-238)
           // will use clientPreparedStatement
+          if (thresholdReached) {
+            prepareUsageCounter.markNotPreparable(sqlQuery);
+          }
         }
       }
       return new ClientSidePreparedStatement(
@@ -702,10 +741,13 @@ public class MariaDbConnection implements Connection {
       return;
     }
 
+    // change is restored by reset() : doesn't make session state dirty
+    boolean sessionStateChanged = protocol.isSessionStateChanged();
     try (Statement stmt = createStatement()) {
       stateFlag |= ConnectionState.STATE_AUTOCOMMIT;
       stmt.executeUpdate("set autocommit=" + ((autoCommit) ? "1" : "0"));
     }
+    protocol.setSessionStateChanged(sessionStateChanged);
   }
 
   /**
@@ -820,8 +862,10 @@ public class MariaDbConnection implements Connection {
           protocol.getServerThreadId(),
           protocol.isMasterConnection() ? "M" : "S",
           readOnly);
+      boolean sessionStateChanged = protocol.isSessionStateChanged();
       stateFlag |= ConnectionState.STATE_READ_ONLY;
       protocol.setReadonly(readOnly);
+      protocol.setSessionStateChanged(sessionStateChanged);
     } catch (SQLException e) {
       throw exceptionFactory.create(e);
     }
@@ -857,8 +901,10 @@ public class MariaDbConnection implements Connection {
       throw new SQLException("The catalog name may not be null", "XAE05");
     }
     try {
+      boolean sessionStateChanged = protocol.isSessionStateChanged();
       stateFlag |= ConnectionState.STATE_DATABASE;
       protocol.setCatalog(catalog);
+      protocol.setSessionStateChanged(sessionStateChanged);
     } catch (SQLException e) {
       throw exceptionFactory.create(e);
     }
@@ -940,8 +986,10 @@ public class MariaDbConnection implements Connection {
    */
   public void setTransactionIsolation(final int level) throws SQLException {
     try {
+      boolean sessionStateChanged = protocol.isSessionStateChanged();
       stateFlag |= ConnectionState.STATE_TRANSACTION_ISOLATION;
       protocol.setTransactionIsolation(level);
+      protocol.setSessionStateChanged(sessionStateChanged);
     } catch (SQLException e) {
       throw exceptionFactory.create(e);
     }
@@ -1698,13 +1746,16 @@ public class MariaDbConnection implements Connection {
     // but not possible to use it with mysql waiting for https://bugs.mysql.com/bug.php?id=97633
     // correction.
     // and mariadb only since https://jira.mariadb.org/browse/MDEV-18281
+    // Session state is tracked : if not changed, reset is replaced by targeted restores,
+    // keeping server prepared statements.
     boolean useComReset =
         options.useResetConnection
             && protocol.isServerMariaDb()
             && (protocol.versionGreaterOrEqual(10, 3, 13)
                 || (protocol.getMajorServerVersion() == 10
                     && protocol.getMinorServerVersion() == 2
-                    && protocol.versionGreaterOrEqual(10, 2, 22)));
+                    && protocol.versionGreaterOrEqual(10, 2, 22)))
+            && protocol.isSessionStateChanged();
 
     if (useComReset) {
       protocol.reset();
@@ -1745,6 +1796,32 @@ public class MariaDbConnection implements Connection {
     warningsCleared = true;
   }
 
+  /**
+   * Change connection user using COM_CHANGE_USER, to reuse an existing connection for other
+   * credentials. Server reset session state the same way than with COM_RESET_CONNECTION.
+   *
+   * <p>Not supported with replication and aurora high availability modes, since those use multiple
+   * connections.
+   *
+   * @param username new user
+   * @param password new user password
+   * @throws SQLException if authentication failed
+   */
+  public void changeUser(String username, String password) throws SQLException {
+    HaMode haMode = protocol.getUrlParser().getHaMode();
+    if (haMode == HaMode.REPLICATION || haMode == HaMode.AURORA) {
+      throw exceptionFactory.notSupported("changeUser is not supported with " + haMode + " mode");
+    }
+    lock.lock();
+    try {
+      protocol.changeUser(username, password);
+      stateFlag = 0;
+      warningsCleared = true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
   public boolean includeDeadLockInfo() {
     return options.includeInnodbStatusInDeadlockExceptions;
   }
@@ -0,0 +1,434 @@
+/*
+ *
+ * MariaDB Client for Java
+ *
+ * Copyright (c) 2012-2014 Monty Program Ab.
+ * Copyright (c) 2015-2020 MariaDB Corporation Ab.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this library; if not, write to Monty Program Ab info@montyprogram.com.
+ *
+ * This particular MariaDB Client for Java file is work
+ * derived from a Drizzle-JDBC. Drizzle-JDBC file which is covered by subject to
+ * the following copyright and notice provisions:
+ *
+ * Copyright (c) 2009-2011, Marcus Eriksson
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this list
+ * of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this
+ * list of conditions and the following disclaimer in the documentation and/or
+ * other materials provided with the distribution.
+ *
+ * Neither the name of the driver nor the names of its contributors may not be
+ * used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS  AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package org.mariadb.jdbc;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.mariadb.jdbc.internal.util.scheduler.MariaDbThreadFactory;
+
+/**
+ * Batch execution split in chunks, each chunk being executed as a JDBC batch on its own pooled
+ * connection, concurrently. Example:
+ *
+ * <pre>
+ *   MariaDbParallelBatch batch = poolDataSource.parallelBatch("INSERT INTO myTable VALUES (?, ?)");
+ *   batch.setParallelism(4);
+ *   batch.setChunkSize(10_000);
+ *   long[] updateCounts = batch.execute(rowIterator);
+ * </pre>
+ *
+ * <p>Rows are read from the row source by the calling thread, and at most maxChunksInFlight chunks
+ * are kept in memory, so a streaming row source can be bigger than available memory: once a chunk
+ * is executed, only its update counts are kept.
+ *
+ * <p>Chunks are executed in parallel, so there is no ordering guarantee between chunks. When
+ * chunkTransaction is enabled, each chunk is executed in its own transaction, and a failing chunk
+ * is rolled back entirely. Once all chunks are executed, if any chunk failed, a
+ * BatchUpdateException is thrown containing merged update counts (Statement.EXECUTE_FAILED for
+ * failed rows), the first error as cause, and following errors chained with getNextException().
+ */
+public class MariaDbParallelBatch {
+
+  private static final Chunk END = new Chunk(Collections.emptyList());
+  private static volatile ExecutorService sharedExecutor;
+
+  private final MariaDbPoolDataSource dataSource;
+  private final String sql;
+  private int parallelism;
+  private int chunkSize = 1000;
+  private int maxChunksInFlight;
+  private boolean chunkTransaction;
+
+  /**
+   * Constructor.
+   *
+   * @param dataSource pool datasource
+   * @param sql batch command
+   */
+  protected MariaDbParallelBatch(MariaDbPoolDataSource dataSource, String sql) {
+    this.dataSource = dataSource;
+    this.sql = sql;
+  }
+
+  /**
+   * Number of chunks executed simultaneously. 0 if not set, meaning pool maxPoolSize option.
+   *
+   * @return parallelism
+   */
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Number of chunks executed simultaneously, each one using a pooled connection. Default to pool
+   * maxPoolSize option.
+   *
+   * @param parallelism number of connections used simultaneously
+   * @throws SQLException if value is not positive
+   */
+  public void setParallelism(int parallelism) throws SQLException {
+    if (parallelism < 1) {
+      throw new SQLException("parallelism must be positive", "HY024");
+    }
+    this.parallelism = parallelism;
+  }
+
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  /**
+   * Number of rows executed in one JDBC batch. Default to 1000.
+   *
+   * @param chunkSize number of rows per chunk
+   * @throws SQLException if value is not positive
+   */
+  public void setChunkSize(int chunkSize) throws SQLException {
+    if (chunkSize < 1) {
+      throw new SQLException("chunkSize must be positive", "HY024");
+    }
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Maximum number of chunks read from row source and not executed yet. 0 if not set, meaning twice
+   * the parallelism.
+   *
+   * @return maximum number of chunks in memory
+   */
+  public int getMaxChunksInFlight() {
+    return maxChunksInFlight;
+  }
+
+  /**
+   * Maximum number of chunks read from row source and not executed yet, bounding memory usage.
+   * Default to twice the parallelism.
+   *
+   * @param maxChunksInFlight maximum number of chunks in memory
+   * @throws SQLException if value is not positive
+   */
+  public void setMaxChunksInFlight(int maxChunksInFlight) throws SQLException {
+    if (maxChunksInFlight < 1) {
+      throw new SQLException("maxChunksInFlight must be positive", "HY024");
+    }
+    this.maxChunksInFlight = maxChunksInFlight;
+  }
+
+  public boolean isChunkTransaction() {
+    return chunkTransaction;
+  }
+
+  /**
+   * Execute each chunk in its own transaction. Default to false (autocommit).
+   *
+   * @param chunkTransaction must use a transaction per chunk
+   */
+  public void setChunkTransaction(boolean chunkTransaction) {
+    this.chunkTransaction = chunkTransaction;
+  }
+
+  /**
+   * Execute batch.
+   *
+   * @param rows rows
+   * @return merged update counts, in row source order
+   * @throws SQLException if any chunk failed, or if row source failed
+   * @see #execute(Iterator)
+   */
+  public long[] execute(Iterable<Object[]> rows) throws SQLException {
+    return execute(rows.iterator());
+  }
+
+  /**
+   * Execute batch. Each row contains parameters values, set using PreparedStatement.setObject().
+   *
+   * @param rows row source
+   * @return merged update counts, in row source order
+   * @throws SQLException if any chunk failed, or if row source failed
+   */
+  public long[] execute(Iterator<Object[]> rows) throws SQLException {
+    final int workers = parallelism == 0 ? poolMaxSize() : parallelism;
+    final BlockingQueue<Chunk> queue =
+        new ArrayBlockingQueue<>(maxChunksInFlight == 0 ? workers * 2 : maxChunksInFlight);
+    final List<Chunk> chunks = new ArrayList<>();
+    SQLException sourceException = null;
+
+    for (int i = 0; i < workers; i++) {
+      executor().execute(() -> consume(queue));
+    }
+
+    try {
+      while (rows.hasNext()) {
+        List<Object[]> chunkRows = new ArrayList<>(Math.min(chunkSize, 1024));
+        while (chunkRows.size() < chunkSize && rows.hasNext()) {
+          chunkRows.add(rows.next());
+        }
+        Chunk chunk = new Chunk(chunkRows);
+        queue.put(chunk);
+        chunks.add(chunk);
+      }
+    } catch (InterruptedException interrupted) {
+      Thread.currentThread().interrupt();
+      sourceException = new SQLException("Interrupted during parallel batch", "70100", interrupted);
+    } catch (RuntimeException runtimeException) {
+      sourceException =
+          new SQLException(
+              "Error reading parallel batch rows : " + runtimeException.getMessage(),
+              "HY000",
+              runtimeException);
+    } finally {
+      // workers end when reaching end marker, after executing queued chunks
+      boolean interrupted = Thread.interrupted();
+      for (int i = 0; i < workers; ) {
+        try {
+          queue.put(END);
+          i++;
+        } catch (InterruptedException interruptedException) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    return merge(chunks, sourceException);
+  }
+
+  private int poolMaxSize() throws SQLException {
+    dataSource.initialize();
+    return dataSource.getUrlParser().getOptions().maxPoolSize;
+  }
+
+  private void consume(BlockingQueue<Chunk> queue) {
+    try {
+      Chunk chunk;
+      while ((chunk = queue.take()) != END) {
+        List<Object[]> rows = chunk.rows;
+        // rows are not needed anymore : only size and result are kept until batch end
+        chunk.rows = null;
+        try {
+          chunk.result.complete(executeChunk(rows));
+        } catch (Throwable throwable) {
+          chunk.result.completeExceptionally(throwable);
+        }
+      }
+    } catch (InterruptedException interrupted) {
+      // executor is shared and never shut down, so this is not expected
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static ExecutorService executor() {
+    ExecutorService executorService = sharedExecutor;
+    if (executorService == null) {
+      synchronized (MariaDbParallelBatch.class) {
+        executorService = sharedExecutor;
+        if (executorService == null) {
+          // no core thread: threads are created on demand and end after one minute of inactivity
+          sharedExecutor =
+              executorService =
+                  new ThreadPoolExecutor(
+                      0,
+                      Integer.MAX_VALUE,
+                      60,
+                      TimeUnit.SECONDS,
+                      new SynchronousQueue<>(),
+                      new MariaDbThreadFactory("MariaDbParallelBatch"));
+        }
+      }
+    }
+    return executorService;
+  }
+
+  private long[] executeChunk(List<Object[]> chunk) throws SQLException {
+    try (Connection connection = dataSource.getConnection()) {
+      if (chunkTransaction) {
+        connection.setAutoCommit(false);
+      }
+      try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        for (Object[] row : chunk) {
+          for (int i = 0; i < row.length; i++) {
+            stmt.setObject(i + 1, row[i]);
+          }
+          stmt.addBatch();
+        }
+        long[] updateCounts = stmt.executeLargeBatch();
+        if (chunkTransaction) {
+          connection.commit();
+        }
+        return updateCounts;
+
+      } catch (SQLException sqle) {
+        if (chunkTransaction) {
+          try {
+            connection.rollback();
+          } catch (SQLException rollbackException) {
+            // connection is probably closed, server will rollback transaction
+          }
+        }
+        throw sqle;
+      }
+    }
+  }
+
+  private long[] merge(List<Chunk> chunks, SQLException sourceException) throws SQLException {
+
+    long totalRows = 0;
+    for (Chunk chunk : chunks) {
+      totalRows += chunk.size;
+    }
+    if (totalRows > Integer.MAX_VALUE - 8) {
+      // update counts cannot be returned : wait for chunks end before reporting error
+      for (Chunk chunk : chunks) {
+        chunk.result.handle((counts, throwable) -> null).join();
+      }
+      throw new SQLException(
+          "Parallel batch of " + totalRows + " rows exceeds maximum update counts array size",
+          "HY000");
+    }
+
+    long[] updateCounts = new long[(int) totalRows];
+    SQLException firstException = sourceException;
+    boolean interrupted = false;
+    int offset = 0;
+
+    for (Chunk chunk : chunks) {
+      int chunkLength = chunk.size;
+      SQLException chunkException = null;
+      long[] chunkCounts = null;
+
+      try {
+        chunkCounts = chunk.result.get();
+      } catch (ExecutionException executionException) {
+        Throwable cause = executionException.getCause();
+        chunkException =
+            (cause instanceof SQLException)
+                ? (SQLException) cause
+                : new SQLException("Error executing parallel batch chunk", "HY000", cause);
+        if (!chunkTransaction && cause instanceof BatchUpdateException) {
+          chunkCounts = ((BatchUpdateException) cause).getLargeUpdateCounts();
+        }
+      } catch (InterruptedException interruptedException) {
+        interrupted = true;
+        chunkException =
+            new SQLException("Interrupted during parallel batch", "70100", interruptedException);
+      }
+
+      Arrays.fill(updateCounts, offset, offset + chunkLength, Statement.EXECUTE_FAILED);
+      if (chunkCounts != null) {
+        System.arraycopy(
+            chunkCounts, 0, updateCounts, offset, Math.min(chunkCounts.length, chunkLength));
+      }
+      offset += chunkLength;
+
+      if (chunkException != null) {
+        if (firstException == null) {
+          firstException = chunkException;
+        } else {
+          firstException.setNextException(chunkException);
+        }
+      }
+    }
+
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+
+    if (firstException != null) {
+      BatchUpdateException batchUpdateException =
+          new BatchUpdateException(
+              firstException.getMessage(),
+              firstException.getSQLState(),
+              firstException.getErrorCode(),
+              updateCounts,
+              firstException);
+      if (firstException.getNextException() != null) {
+        batchUpdateException.setNextException(firstException.getNextException());
+      }
+      throw batchUpdateException;
+    }
+    return updateCounts;
+  }
+
+  public String getSql() {
+    return sql;
+  }
+
+  private static class Chunk {
+    private final int size;
+    private final CompletableFuture<long[]> result = new CompletableFuture<>();
+    private List<Object[]> rows;
+
+    private Chunk(List<Object[]> rows) {
+      this.rows = rows;
+      this.size = rows.size();
+    }
+  }
+}
@@ -29,6 +29,7 @@ import java.sql.SQLException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
 import javax.sql.*;
 import org.mariadb.jdbc.internal.util.constant.HaMode;
@@ -240,6 +241,28 @@ public class MariaDbPoolDataSource
     }
   }
 
+  /**
+   * Retrieve a pool connection without blocking. Future is completed when a connection is
+   * available, requests waiting for a connection being served in FIFO order, and fails if no
+   * connection is available within "connectTimeout". When no connection is immediately available,
+   * future is completed by the thread making a connection available : dependent actions should use
+   * an executor to avoid running in that thread.
+   *
+   * @return future connection
+   */
+  public CompletableFuture<Connection> getConnectionAsync() {
+    try {
+      if (pool == null) {
+        initialize();
+      }
+    } catch (SQLException e) {
+      CompletableFuture<Connection> future = new CompletableFuture<>();
+      future.completeExceptionally(ExceptionFactory.INSTANCE.create(e));
+      return future;
+    }
+    return pool.getConnectionAsync();
+  }
+
   /**
    * Attempts to establish a connection with the data source that this <code>DataSource</code>
    * object represents.
@@ -269,6 +292,11 @@ public class MariaDbPoolDataSource
         return pool.getConnection();
       }
 
+      if (urlParser.getOptions().poolPerCredential) {
+        // connection from credential sub-pool
+        return pool.getConnection(username, password);
+      }
+
       // username / password are different from the one already used to initialize pool
       // -> return a real new connection.
 
@@ -284,6 +312,17 @@ public class MariaDbPoolDataSource
     }
   }
 
+  /**
+   * Create a parallel batch, executing batch chunks concurrently on pooled connections.
+   *
+   * @param sql batch command, with parameters
+   * @return parallel batch
+   * @see MariaDbParallelBatch
+   */
+  public MariaDbParallelBatch parallelBatch(String sql) {
+    return new MariaDbParallelBatch(this, sql);
+  }
+
   /**
    * Attempts to establish a physical database connection that can be used as a pooled connection.
    *
@@ -642,6 +681,32 @@ public class MariaDbPoolDataSource
     }
   }
 
+  /**
+   * Register a listener of pool events (connection borrowing, creation, validation, ...).
+   *
+   * @param listener listener
+   * @throws SQLException if connection string has error
+   */
+  public void addPoolListener(PoolListener listener) throws SQLException {
+    initialize();
+    pool.getMetrics().addListener(listener);
+  }
+
+  /**
+   * Initialize pool if needed, and wait until pool contains "minPoolSize" connections. Connections
+   * are created in parallel, according to option "poolCreationConcurrency".
+   *
+   * @throws SQLException if connection string has error or a connection cannot be created
+   */
+  public void prefill() throws SQLException {
+    try {
+      initialize();
+      pool.prefill();
+    } catch (SQLException e) {
+      throw ExceptionFactory.INSTANCE.create(e);
+    }
+  }
+
   /**
    * Get current idle threads. !! For testing purpose only !!
    *
@@ -58,15 +58,28 @@ import java.sql.Statement;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import javax.sql.*;
 
 public class MariaDbPooledConnection implements PooledConnection {
 
+  /** pool state : connection is idle, available for borrowing. */
+  public static final int STATE_NOT_IN_USE = 0;
+  /** pool state : connection is borrowed. */
+  public static final int STATE_IN_USE = 1;
+  /** pool state : connection is reserved by pool (for validation or removal). */
+  public static final int STATE_RESERVED = -1;
+  /** pool state : connection has been removed from pool. */
+  public static final int STATE_REMOVED = -2;
+
   private final MariaDbConnection connection;
   private final List<ConnectionEventListener> connectionEventListeners;
   private final List<StatementEventListener> statementEventListeners;
   private final AtomicLong lastUsed;
+  private volatile long lastValidated;
+  private long expirationTime = Long.MAX_VALUE;
+  private final AtomicInteger state = new AtomicInteger(STATE_NOT_IN_USE);
 
   /**
    * Constructor.
@@ -79,6 +92,7 @@ public class MariaDbPooledConnection implements PooledConnection {
     statementEventListeners = new CopyOnWriteArrayList<>();
     connectionEventListeners = new CopyOnWriteArrayList<>();
     lastUsed = new AtomicLong(System.nanoTime());
+    lastValidated = lastUsed.get();
   }
 
   /**
@@ -242,4 +256,55 @@ public class MariaDbPooledConnection implements PooledConnection {
   public void lastUsedToNow() {
     lastUsed.set(System.nanoTime());
   }
+
+  /**
+   * Last time connection has been used or validated, in nanoseconds.
+   *
+   * @return last validation time
+   */
+  public long getLastValidated() {
+    return Math.max(lastValidated, lastUsed.get());
+  }
+
+  /** Set last poolConnection validation to now. */
+  public void lastValidatedToNow() {
+    lastValidated = System.nanoTime();
+  }
+
+  /**
+   * Time after which pool must retire this connection, in nanoseconds (see option "maxLifetime").
+   *
+   * @return expiration time
+   */
+  public long getExpirationTime() {
+    return expirationTime;
+  }
+
+  public void setExpirationTime(long expirationTime) {
+    this.expirationTime = expirationTime;
+  }
+
+  /**
+   * Current pool state of this connection.
+   *
+   * @return one of the STATE_* value
+   */
+  public int getState() {
+    return state.get();
+  }
+
+  public void setState(int newState) {
+    state.set(newState);
+  }
+
+  /**
+   * Atomically change pool state if current state has the expected value.
+   *
+   * @param expect expected current state
+   * @param update new state
+   * @return true if successful
+   */
+  public boolean compareAndSetState(int expect, int update) {
+    return state.compareAndSet(expect, update);
+  }
 }
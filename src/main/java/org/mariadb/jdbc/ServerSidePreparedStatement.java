@@ -253,7 +253,9 @@ public class ServerSidePreparedStatement extends BasePrepareStatement implements
               null);
 
       // if  multi send capacity
-      if ((options.useBatchMultiSend || options.useBulkStmts)
+      if ((options.useBatchMultiSend
+              || options.useBulkStmts
+              || options.serverPrepMultiValuesRows > 1)
           && (protocol.executeBatchServer(
               mustExecuteOnMaster,
               serverPrepareResult,
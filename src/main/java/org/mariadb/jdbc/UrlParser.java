@@ -425,6 +425,25 @@ public class UrlParser implements Cloneable {
     options.password = password;
   }
 
+  /**
+   * Copy of this configuration, using other credentials.
+   *
+   * @param username user
+   * @param password password
+   * @return configuration with indicated credentials
+   */
+  public UrlParser withCredentials(String username, String password) {
+    try {
+      UrlParser tmpUrlParser = (UrlParser) clone();
+      tmpUrlParser.setUsername(username);
+      tmpUrlParser.setPassword(password);
+      return tmpUrlParser;
+    } catch (CloneNotSupportedException cloneException) {
+      // cannot occur
+      throw new IllegalStateException(cloneException);
+    }
+  }
+
   public String getDatabase() {
     return database;
   }
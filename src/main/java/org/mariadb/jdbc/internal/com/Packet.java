@@ -68,6 +68,7 @@ public class Packet {
   public static final byte COM_INIT_DB = (byte) 0x02;
   public static final byte COM_QUERY = (byte) 0x03;
   public static final byte COM_PING = (byte) 0x0e;
+  public static final byte COM_CHANGE_USER = (byte) 0x11;
   public static final byte COM_STMT_PREPARE = (byte) 0x16;
   public static final byte COM_STMT_EXECUTE = (byte) 0x17;
   public static final byte COM_STMT_FETCH = (byte) 0x1c;
@@ -52,6 +52,7 @@
 
 package org.mariadb.jdbc.internal.com.read.dao;
 
+import java.security.MessageDigest;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -251,6 +252,39 @@ public class Results {
     return resultSet;
   }
 
+  /**
+   * Update digest with results content: rows of result-sets and generated keys. Permit to check
+   * that a replayed command (option "transactionReplay") has the same results than the original
+   * execution.
+   *
+   * @param digest message digest
+   * @return false if content cannot be digested: result-set still streaming or multiple results
+   */
+  public boolean digest(MessageDigest digest) {
+    if (cmdInformation != null && !(cmdInformation instanceof CmdInformationSingle)) {
+      return false;
+    }
+    if (resultSet != null) {
+      if (!resultSet.isFullyLoaded()) {
+        return false;
+      }
+      resultSet.digest(digest);
+    }
+    if (executionResults != null) {
+      for (SelectResultSet selectResultSet : executionResults) {
+        if (!selectResultSet.isFullyLoaded()) {
+          return false;
+        }
+        selectResultSet.digest(digest);
+      }
+    }
+    if (cmdInformation != null) {
+      // generated keys, i.e. LAST_INSERT_ID value set by command
+      ((SelectResultSet) cmdInformation.getGeneratedKeys(null, sql)).digest(digest);
+    }
+    return true;
+  }
+
   public SelectResultSet getCallableResultSet() {
     return callableResultSet;
   }
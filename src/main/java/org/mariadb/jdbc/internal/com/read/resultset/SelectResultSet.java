@@ -33,6 +33,7 @@ import java.math.BigInteger;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.sql.*;
 import java.sql.Date;
 import java.time.*;
@@ -287,6 +288,22 @@ public class SelectResultSet implements ResultSet {
     return isEof;
   }
 
+  /**
+   * Update digest with raw rows of result-set.
+   *
+   * @param digest message digest
+   */
+  public void digest(MessageDigest digest) {
+    for (int i = 0; i < dataSize; i++) {
+      int length = data[i].length;
+      digest.update(
+          new byte[] {
+            (byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length
+          });
+      digest.update(data[i]);
+    }
+  }
+
   private void fetchAllResults() throws IOException, SQLException {
 
     dataSize = 0;
@@ -56,7 +56,10 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import org.mariadb.jdbc.internal.com.Packet;
+import org.mariadb.jdbc.internal.com.send.parameters.ByteArrayParameter;
+import org.mariadb.jdbc.internal.com.send.parameters.DefaultParameter;
 import org.mariadb.jdbc.internal.com.send.parameters.ParameterHolder;
+import org.mariadb.jdbc.internal.com.send.parameters.SerializableParameter;
 import org.mariadb.jdbc.internal.io.output.PacketOutputStream;
 import org.mariadb.jdbc.internal.util.dao.ClientPrepareResult;
 
@@ -362,4 +365,76 @@ public class ComQuery {
     }
     pos.flush();
   }
+
+  /**
+   * Check that batch parameters can be send as LOAD DATA LOCAL INFILE content : binary, stream,
+   * serializable or DEFAULT parameters have no representation in file content, and each row must
+   * fit in one packet.
+   *
+   * @param pos outputStream
+   * @param parameterList parameter list
+   * @return true if all rows can be send as file content
+   */
+  public static boolean isLoadDataCompatible(
+      final PacketOutputStream pos, List<ParameterHolder[]> parameterList) {
+    int maxRowLength = Math.min(0x00ffffff, pos.getMaxAllowedPacket()) - 8;
+    try {
+      for (ParameterHolder[] parameters : parameterList) {
+        int rowLength = 1;
+        for (ParameterHolder parameter : parameters) {
+          if (parameter.isLongData()
+              || parameter instanceof ByteArrayParameter
+              || parameter instanceof SerializableParameter
+              || parameter instanceof DefaultParameter) {
+            return false;
+          }
+          // separator and enclosing quotes are not always counted in approximate length
+          rowLength += parameter.getApproximateTextProtocolLength() + 3;
+          if (rowLength > maxRowLength) {
+            return false;
+          }
+        }
+      }
+    } catch (IOException ioe) {
+      // length cannot be known
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Client side PreparedStatement.executeBatch rows send as LOAD DATA LOCAL INFILE content. Each
+   * row is written as a line, parameters being written like in text protocol and separated by
+   * comma. Packets are flushed before reaching max packet size, to permit sending batch bigger than
+   * max_allowed_packet.
+   *
+   * @param pos outputStream
+   * @param seqNo first packet sequence number
+   * @param parameterList parameter list
+   * @throws IOException if connection fail
+   */
+  public static void sendLoadDataRows(
+      final PacketOutputStream pos, int seqNo, List<ParameterHolder[]> parameterList)
+      throws IOException {
+    pos.startPacket(seqNo);
+    for (ParameterHolder[] parameters : parameterList) {
+      int rowLength = 1;
+      for (ParameterHolder parameter : parameters) {
+        rowLength += parameter.getApproximateTextProtocolLength() + 3;
+      }
+      if (!pos.checkRemainingSize(rowLength)) {
+        // length is only an estimation: stream keeps sequence if row is finally split
+        pos.nextPacket();
+      }
+      for (int i = 0; i < parameters.length; i++) {
+        if (i > 0) {
+          pos.write(',');
+        }
+        parameters[i].writeTo(pos);
+      }
+      pos.write('\n');
+    }
+    pos.flush();
+    pos.writeEmptyPacket();
+  }
 }
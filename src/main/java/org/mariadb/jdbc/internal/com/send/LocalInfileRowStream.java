@@ -0,0 +1,325 @@
+/*
+ *
+ * MariaDB Client for Java
+ *
+ * Copyright (c) 2012-2014 Monty Program Ab.
+ * Copyright (c) 2015-2020 MariaDB Corporation Ab.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this library; if not, write to Monty Program Ab info@montyprogram.com.
+ *
+ * This particular MariaDB Client for Java file is work
+ * derived from a Drizzle-JDBC. Drizzle-JDBC file which is covered by subject to
+ * the following copyright and notice provisions:
+ *
+ * Copyright (c) 2009-2011, Marcus Eriksson
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this list
+ * of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this
+ * list of conditions and the following disclaimer in the documentation and/or
+ * other materials provided with the distribution.
+ *
+ * Neither the name of the driver nor the names of its contributors may not be
+ * used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS  AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package org.mariadb.jdbc.internal.com.send;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+
+/**
+ * InputStream that encodes rows on the fly in LOAD DATA INFILE default format (fields terminated by
+ * tab, escaped by backslash, lines terminated by newline, NULL as \N), using UTF-8 encoding.
+ *
+ * <p>Rows are encoded only when the protocol reads the stream, so no intermediate file or String is
+ * created. Errors raised by row iterator (or a row with a wrong number of values) end the stream
+ * without breaking the exchange with the server; those errors are then available using {@link
+ * #getException()}.
+ */
+public class LocalInfileRowStream extends InputStream {
+
+  private static final DateTimeFormatter DATETIME_FORMAT =
+      DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS", Locale.ENGLISH);
+  private static final DateTimeFormatter TIME_FORMAT =
+      DateTimeFormatter.ofPattern("HH:mm:ss.SSSSSS", Locale.ENGLISH);
+
+  private final Iterator<Object[]> rows;
+  private final int columnCount;
+  private final ZoneId zoneId;
+  private byte[] buf = new byte[8192];
+  private int pos;
+  private int limit;
+  private long rowCounter;
+  private SQLException exception;
+
+  /**
+   * Constructor.
+   *
+   * @param rows rows to encode
+   * @param columnCount expected number of values per row
+   * @param zoneId zone in which temporal values with offset or zone are written
+   */
+  public LocalInfileRowStream(Iterator<Object[]> rows, int columnCount, ZoneId zoneId) {
+    this.rows = rows;
+    this.columnCount = columnCount;
+    this.zoneId = zoneId;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (pos >= limit && !fill(1)) {
+      return -1;
+    }
+    return buf[pos++] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (pos >= limit && !fill(len)) {
+      return -1;
+    }
+    int count = Math.min(len, limit - pos);
+    System.arraycopy(buf, pos, b, off, count);
+    pos += count;
+    return count;
+  }
+
+  /**
+   * Encode rows until having at least <code>len</code> bytes available, or no more rows.
+   *
+   * @param len wanted length
+   * @return true if some bytes are available
+   */
+  private boolean fill(int len) {
+    pos = 0;
+    limit = 0;
+    while (limit < len && exception == null) {
+      int rowStart = limit;
+      try {
+        if (!rows.hasNext()) {
+          break;
+        }
+        Object[] row = rows.next();
+        if (row == null || row.length != columnCount) {
+          exception =
+              new SQLException(
+                  "Row "
+                      + (rowCounter + 1)
+                      + " has "
+                      + (row == null ? 0 : row.length)
+                      + " values, expected "
+                      + columnCount,
+                  "07001");
+          break;
+        }
+        writeRow(row);
+        rowCounter++;
+      } catch (RuntimeException runtimeException) {
+        // value that cannot be written : row is not sent partially
+        limit = rowStart;
+        exception =
+            new SQLException(
+                "Error retrieving row " + (rowCounter + 1) + " : " + runtimeException.getMessage(),
+                "HY000",
+                runtimeException);
+      }
+    }
+    return limit > 0;
+  }
+
+  private void writeRow(Object[] row) {
+    for (int i = 0; i < row.length; i++) {
+      if (i > 0) {
+        writeByte('\t');
+      }
+      writeValue(row[i]);
+    }
+    writeByte('\n');
+  }
+
+  private void writeValue(Object value) {
+    if (value == null) {
+      writeByte('\\');
+      writeByte('N');
+    } else if (value instanceof byte[]) {
+      for (byte b : (byte[]) value) {
+        writeEscaped(b);
+      }
+    } else if (value instanceof CharSequence) {
+      writeChars((CharSequence) value);
+    } else if (value instanceof Boolean) {
+      writeByte(((Boolean) value) ? '1' : '0');
+    } else if (value instanceof BigDecimal) {
+      writeChars(((BigDecimal) value).toPlainString());
+    } else if (value instanceof java.util.Date
+        && !(value instanceof java.sql.Date)
+        && !(value instanceof java.sql.Time)) {
+      // java.util.Date and Timestamp are instants (Timestamp keeping nanoseconds)
+      writeChars(
+          DATETIME_FORMAT.format(
+              LocalDateTime.ofInstant(((java.util.Date) value).toInstant(), zoneId)));
+    } else if (value instanceof LocalDateTime) {
+      writeChars(value.toString().replace('T', ' '));
+    } else if (value instanceof OffsetDateTime) {
+      writeChars(
+          DATETIME_FORMAT.format(
+              ((OffsetDateTime) value).atZoneSameInstant(zoneId).toLocalDateTime()));
+    } else if (value instanceof ZonedDateTime) {
+      writeChars(
+          DATETIME_FORMAT.format(
+              ((ZonedDateTime) value).withZoneSameInstant(zoneId).toLocalDateTime()));
+    } else if (value instanceof Instant) {
+      writeChars(DATETIME_FORMAT.format(LocalDateTime.ofInstant((Instant) value, zoneId)));
+    } else if (value instanceof OffsetTime) {
+      // a time without date can only be converted to a zone having a fixed offset
+      if (!zoneId.getRules().isFixedOffset()) {
+        throw new IllegalArgumentException(
+            "OffsetTime value cannot be converted to session time zone "
+                + zoneId
+                + " that has no fixed offset");
+      }
+      writeChars(
+          TIME_FORMAT.format(
+              ((OffsetTime) value)
+                  .withOffsetSameInstant(zoneId.getRules().getOffset(Instant.EPOCH))
+                  .toLocalTime()));
+    } else {
+      writeChars(value.toString());
+    }
+  }
+
+  /**
+   * Write characters using UTF-8 encoding, escaping special characters.
+   *
+   * @param value characters
+   */
+  private void writeChars(CharSequence value) {
+    int length = value.length();
+    for (int i = 0; i < length; i++) {
+      char currChar = value.charAt(i);
+      if (currChar < 0x80) {
+        writeEscaped((byte) currChar);
+      } else if (currChar < 0x800) {
+        ensureCapacity(2);
+        buf[limit++] = (byte) (0xc0 | (currChar >> 6));
+        buf[limit++] = (byte) (0x80 | (currChar & 0x3f));
+      } else if (Character.isHighSurrogate(currChar)
+          && i + 1 < length
+          && Character.isLowSurrogate(value.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(currChar, value.charAt(++i));
+        ensureCapacity(4);
+        buf[limit++] = (byte) (0xf0 | (codePoint >> 18));
+        buf[limit++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+        buf[limit++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+        buf[limit++] = (byte) (0x80 | (codePoint & 0x3f));
+      } else if (Character.isSurrogate(currChar)) {
+        // malformed surrogate pair
+        writeByte('?');
+      } else {
+        ensureCapacity(3);
+        buf[limit++] = (byte) (0xe0 | (currChar >> 12));
+        buf[limit++] = (byte) (0x80 | ((currChar >> 6) & 0x3f));
+        buf[limit++] = (byte) (0x80 | (currChar & 0x3f));
+      }
+    }
+  }
+
+  private void writeEscaped(byte b) {
+    switch (b) {
+      case '\\':
+        writeByte('\\');
+        writeByte('\\');
+        break;
+      case '\t':
+        writeByte('\\');
+        writeByte('t');
+        break;
+      case '\n':
+        writeByte('\\');
+        writeByte('n');
+        break;
+      case '\r':
+        writeByte('\\');
+        writeByte('r');
+        break;
+      case 0:
+        writeByte('\\');
+        writeByte('0');
+        break;
+      default:
+        writeByte(b);
+    }
+  }
+
+  private void writeByte(int b) {
+    ensureCapacity(1);
+    buf[limit++] = (byte) b;
+  }
+
+  private void ensureCapacity(int len) {
+    if (limit + len > buf.length) {
+      buf = Arrays.copyOf(buf, Math.max(buf.length << 1, limit + len));
+    }
+  }
+
+  /**
+   * Number of rows encoded.
+   *
+   * @return number of rows
+   */
+  public long getRowCounter() {
+    return rowCounter;
+  }
+
+  /**
+   * Error that occurred while retrieving rows, if any.
+   *
+   * @return exception or null
+   */
+  public SQLException getException() {
+    return exception;
+  }
+}
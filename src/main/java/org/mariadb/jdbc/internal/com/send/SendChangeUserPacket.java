@@ -0,0 +1,140 @@
+/*
+ *
+ * MariaDB Client for Java
+ *
+ * Copyright (c) 2012-2014 Monty Program Ab.
+ * Copyright (c) 2015-2020 MariaDB Corporation Ab.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this library; if not, write to Monty Program Ab info@montyprogram.com.
+ *
+ * This particular MariaDB Client for Java file is work
+ * derived from a Drizzle-JDBC. Drizzle-JDBC file which is covered by subject to
+ * the following copyright and notice provisions:
+ *
+ * Copyright (c) 2009-2011, Marcus Eriksson
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this list
+ * of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this
+ * list of conditions and the following disclaimer in the documentation and/or
+ * other materials provided with the distribution.
+ *
+ * Neither the name of the driver nor the names of its contributors may not be
+ * used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS  AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package org.mariadb.jdbc.internal.com.send;
+
+import java.io.IOException;
+import java.security.NoSuchAlgorithmException;
+import org.mariadb.jdbc.credential.Credential;
+import org.mariadb.jdbc.internal.MariaDbServerCapabilities;
+import org.mariadb.jdbc.internal.com.Packet;
+import org.mariadb.jdbc.internal.com.send.authentication.NativePasswordPlugin;
+import org.mariadb.jdbc.internal.io.output.PacketOutputStream;
+import org.mariadb.jdbc.internal.util.Utils;
+import org.mariadb.jdbc.util.Options;
+
+/** See https://mariadb.com/kb/en/library/com_change_user/ for reference. */
+public class SendChangeUserPacket {
+
+  /**
+   * Send a COM_CHANGE_USER request, authenticating with native password using initial handshake
+   * seed. Server will send an authentication switch request if user use another plugin.
+   *
+   * @param pos output stream
+   * @param credential new credential
+   * @param host current hostname
+   * @param database database name
+   * @param serverCapabilities server capabilities
+   * @param serverLanguage server language (utf8 / utf8mb4 collation)
+   * @param options user options
+   * @param seed initial handshake seed
+   * @throws IOException if socket exception occur
+   */
+  public static void send(
+      final PacketOutputStream pos,
+      final Credential credential,
+      final String host,
+      final String database,
+      final long serverCapabilities,
+      final byte serverLanguage,
+      final Options options,
+      final byte[] seed)
+      throws IOException {
+
+    final byte[] authData;
+    try {
+      authData =
+          Utils.encryptPassword(credential.getPassword(), seed, options.passwordCharacterEncoding);
+    } catch (NoSuchAlgorithmException e) {
+      // cannot occur :
+      throw new IOException("Unknown algorithm SHA-1. Cannot encrypt password", e);
+    }
+
+    pos.startPacket(0);
+    pos.permitTrace(false);
+    pos.write(Packet.COM_CHANGE_USER);
+
+    if (credential.getUser() == null || credential.getUser().isEmpty()) {
+      pos.write(System.getProperty("user.name").getBytes()); // to permit SSO
+    } else {
+      pos.write(credential.getUser().getBytes());
+    }
+    pos.write((byte) 0);
+
+    if ((serverCapabilities & MariaDbServerCapabilities.SECURE_CONNECTION) != 0) {
+      pos.write((byte) authData.length);
+      pos.write(authData);
+    } else {
+      pos.write(authData);
+      pos.write((byte) 0);
+    }
+
+    if (database != null) {
+      pos.write(database);
+    }
+    pos.write((byte) 0);
+
+    pos.writeShort((short) (serverLanguage & 0xFF));
+
+    if ((serverCapabilities & MariaDbServerCapabilities.PLUGIN_AUTH) != 0) {
+      pos.write(NativePasswordPlugin.TYPE);
+      pos.write((byte) 0);
+    }
+
+    if ((serverCapabilities & MariaDbServerCapabilities.CONNECT_ATTRS) != 0) {
+      SendHandshakeResponsePacket.writeConnectAttributes(pos, options.connectionAttributes, host);
+    }
+
+    pos.flush();
+    pos.permitTrace(true);
+  }
+}
@@ -191,7 +191,7 @@ public class SendHandshakeResponsePacket {
     pos.permitTrace(true);
   }
 
-  private static void writeConnectAttributes(
+  static void writeConnectAttributes(
       PacketOutputStream pos, String connectionAttributes, String host) throws IOException {
     Buffer buffer = new Buffer(new byte[200]);
 
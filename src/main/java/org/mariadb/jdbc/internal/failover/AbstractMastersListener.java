@@ -73,6 +73,7 @@ import org.mariadb.jdbc.MariaDbStatement;
 import org.mariadb.jdbc.UrlParser;
 import org.mariadb.jdbc.internal.failover.thread.ConnectionValidator;
 import org.mariadb.jdbc.internal.failover.tools.SearchFilter;
+import org.mariadb.jdbc.internal.failover.tools.TransactionReplayBuffer;
 import org.mariadb.jdbc.internal.logging.Logger;
 import org.mariadb.jdbc.internal.logging.LoggerFactory;
 import org.mariadb.jdbc.internal.protocol.Protocol;
@@ -89,7 +90,7 @@ public abstract class AbstractMastersListener implements Listener {
   private static final Logger logger = LoggerFactory.getLogger(AbstractMastersListener.class);
 
   /* =========================== Failover variables ========================================= */
-  public final UrlParser urlParser;
+  public volatile UrlParser urlParser;
   protected final AtomicInteger currentConnectionAttempts = new AtomicInteger();
   protected final AtomicBoolean explicitClosed = new AtomicBoolean(false);
   protected final GlobalStateInfo globalInfo;
@@ -102,10 +103,15 @@ public abstract class AbstractMastersListener implements Listener {
   protected long lastRetry = 0;
   protected long lastQueryNanos = 0;
   private volatile long masterHostFailNanos = 0;
+  private final TransactionReplayBuffer transactionReplayBuffer;
 
   protected AbstractMastersListener(UrlParser urlParser, final GlobalStateInfo globalInfo) {
     this.urlParser = urlParser;
     this.globalInfo = globalInfo;
+    this.transactionReplayBuffer =
+        urlParser.getOptions().transactionReplay
+            ? new TransactionReplayBuffer(urlParser.getOptions().transactionReplaySize)
+            : null;
     this.masterHostFail.set(true);
     this.lastQueryNanos = System.nanoTime();
   }
@@ -264,6 +270,100 @@ public abstract class AbstractMastersListener implements Listener {
     return currentProtocol;
   }
 
+  /**
+   * Protocol on which a query can be executed instead of current protocol (see option
+   * "autoReadRouting").
+   *
+   * @param sql query
+   * @return protocol, or null to use current protocol
+   */
+  public Protocol getReadRoutingProtocol(String sql) {
+    return null;
+  }
+
+  /**
+   * Query about to be executed, whatever the execution path (see option "autoReadRouting").
+   *
+   * @param sql query
+   */
+  public void checkReadRoutingPin(String sql) {
+    // no routing
+  }
+
+  /**
+   * Connection error when executing a query on the protocol returned by {@link
+   * #getReadRoutingProtocol(String)}.
+   *
+   * @param protocol failing protocol
+   */
+  public void readRoutingFailed(Protocol protocol) {
+    // no routing
+  }
+
+  /**
+   * Command successfully executed, to be recorded for transaction replay (see option
+   * "transactionReplay"). Only commands executed on current master connection are recorded.
+   *
+   * @param protocol connection that executed command
+   * @param method executed method, null if command cannot be replayed
+   * @param args method arguments
+   */
+  public void recordTransactionCommand(Protocol protocol, Method method, Object[] args) {
+    if (transactionReplayBuffer != null
+        && protocol != null
+        && protocol == currentProtocol
+        && isMasterConnection()) {
+      transactionReplayBuffer.record(protocol, method, args);
+    }
+  }
+
+  /**
+   * After a failover during a transaction, replay recorded transaction on new master connection,
+   * then relaunch the operation that was in progress. Operation that may have committed the
+   * transaction on the failed connection (COMMIT, or any query not known to stay in transaction) is
+   * never replayed.
+   *
+   * @param method the method accessed
+   * @param args the parameters
+   * @return operation result, or null if transaction cannot be replayed
+   */
+  protected HandleErrorResult replayTransaction(Method method, Object[] args) {
+    if (transactionReplayBuffer == null || method == null) {
+      // no operation in progress : failover not done by connection thread
+      return null;
+    }
+    int size = transactionReplayBuffer.size();
+    try {
+      if (TransactionReplayBuffer.isReplaySafe(method, args)
+          && currentProtocol != null
+          && isMasterConnection()
+          && transactionReplayBuffer.replay(currentProtocol)) {
+        HandleErrorResult handleErrorResult = relaunchOperation(method, args);
+        if (!handleErrorResult.mustThrowError) {
+          logger.info(
+              "Transaction replayed ({} commands) on new connection (conn={})",
+              size,
+              currentProtocol.getServerThreadId());
+          transactionReplayBuffer.record(currentProtocol, method, args);
+          return handleErrorResult;
+        }
+      }
+    } catch (SQLException sqle) {
+      logger.debug("Transaction replay failed : {}", sqle.getMessage());
+    }
+
+    // partially replayed transaction must not be committed by next commands
+    transactionReplayBuffer.clear();
+    if (currentProtocol != null && currentProtocol.inTransaction()) {
+      try {
+        currentProtocol.rollback();
+      } catch (SQLException sqle) {
+        // eat
+      }
+    }
+    return null;
+  }
+
   public long getMasterHostFailNanos() {
     return masterHostFailNanos;
   }
@@ -489,6 +589,16 @@ public abstract class AbstractMastersListener implements Listener {
     return urlParser;
   }
 
+  /**
+   * Use new credentials for next connections, after user has been changed.
+   *
+   * @param username user
+   * @param password password
+   */
+  public void changeCredentials(String username, String password) {
+    urlParser = urlParser.withCredentials(username, password);
+  }
+
   public abstract void preExecute() throws SQLException;
 
   public abstract void preClose();
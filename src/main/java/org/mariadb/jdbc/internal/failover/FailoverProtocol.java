@@ -0,0 +1,1729 @@
+/*
+ *
+ * MariaDB Client for Java
+ *
+ * Copyright (c) 2012-2014 Monty Program Ab.
+ * Copyright (c) 2015-2020 MariaDB Corporation Ab.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this library; if not, write to Monty Program Ab info@montyprogram.com.
+ *
+ * This particular MariaDB Client for Java file is work
+ * derived from a Drizzle-JDBC. Drizzle-JDBC file which is covered by subject to
+ * the following copyright and notice provisions:
+ *
+ * Copyright (c) 2009-2011, Marcus Eriksson
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this list
+ * of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this
+ * list of conditions and the following disclaimer in the documentation and/or
+ * other materials provided with the distribution.
+ *
+ * Neither the name of the driver nor the names of its contributors may not be
+ * used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS  AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package org.mariadb.jdbc.internal.failover;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.Charset;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.locks.ReentrantLock;
+import org.mariadb.jdbc.HostAddress;
+import org.mariadb.jdbc.MariaDbConnection;
+import org.mariadb.jdbc.MariaDbStatement;
+import org.mariadb.jdbc.UrlParser;
+import org.mariadb.jdbc.internal.com.read.dao.Results;
+import org.mariadb.jdbc.internal.com.send.parameters.ParameterHolder;
+import org.mariadb.jdbc.internal.io.input.PacketInputStream;
+import org.mariadb.jdbc.internal.logging.Logger;
+import org.mariadb.jdbc.internal.logging.LoggerFactory;
+import org.mariadb.jdbc.internal.protocol.Protocol;
+import org.mariadb.jdbc.internal.util.ServerPrepareStatementCache;
+import org.mariadb.jdbc.internal.util.dao.ClientPrepareResult;
+import org.mariadb.jdbc.internal.util.dao.ServerPrepareResult;
+import org.mariadb.jdbc.util.Options;
+
+/**
+ * Protocol used for high availability modes, delegating calls to listener current protocol.
+ *
+ * <p>Same behaviour than {@link FailoverProxy#invoke(Object, Method, Object[])}, without using a
+ * dynamic proxy : methods are called directly, and reflection is only used when an error needs
+ * failover handling (to relaunch the method on the new connection).
+ */
+public class FailoverProtocol implements Protocol {
+
+  private static final Logger logger = LoggerFactory.getLogger(FailoverProtocol.class);
+
+  private static final Method PREPARE = method("prepare", String.class, boolean.class);
+  private static final Method GET_AUTOCOMMIT = method("getAutocommit");
+  private static final Method CONNECT = method("connect");
+  private static final Method SET_PROXY = method("setProxy", FailoverProxy.class);
+  private static final Method HAS_MORE_RESULTS = method("hasMoreResults");
+  private static final Method CLOSE = method("close");
+  private static final Method CHANGE_USER = method("changeUser", String.class, String.class);
+  private static final Method RESET_DATABASE = method("resetDatabase");
+  private static final Method SET_CATALOG = method("setCatalog", String.class);
+  private static final Method GET_SERVER_VERSION = method("getServerVersion");
+  private static final Method IS_CONNECTED = method("isConnected");
+  private static final Method MUST_BE_MASTER_CONNECTION = method("mustBeMasterConnection");
+  private static final Method GET_HOST_ADDRESS = method("getHostAddress");
+  private static final Method SET_HOST_ADDRESS = method("setHostAddress", HostAddress.class);
+  private static final Method GET_HOST = method("getHost");
+  private static final Method GET_PORT = method("getPort");
+  private static final Method ROLLBACK = method("rollback");
+  private static final Method GET_DATABASE = method("getDatabase");
+  private static final Method GET_USERNAME = method("getUsername");
+  private static final Method PING = method("ping");
+  private static final Method EXECUTE_QUERY = method("executeQuery", String.class);
+  private static final Method EXECUTE_QUERY_RESULTS =
+      method("executeQuery", boolean.class, Results.class, String.class);
+  private static final Method EXECUTE_QUERY_CHARSET =
+      method("executeQuery", boolean.class, Results.class, String.class, Charset.class);
+  private static final Method EXECUTE_QUERY_CLIENT =
+      method(
+          "executeQuery",
+          boolean.class,
+          Results.class,
+          ClientPrepareResult.class,
+          ParameterHolder[].class);
+  private static final Method EXECUTE_QUERY_CLIENT_TIMEOUT =
+      method(
+          "executeQuery",
+          boolean.class,
+          Results.class,
+          ClientPrepareResult.class,
+          ParameterHolder[].class,
+          int.class);
+  private static final Method EXECUTE_BATCH_CLIENT =
+      method(
+          "executeBatchClient",
+          boolean.class,
+          Results.class,
+          ClientPrepareResult.class,
+          List.class,
+          boolean.class);
+  private static final Method EXECUTE_BATCH_STMT =
+      method("executeBatchStmt", boolean.class, Results.class, List.class);
+  private static final Method EXECUTE_PREPARED_QUERY =
+      method(
+          "executePreparedQuery",
+          boolean.class,
+          ServerPrepareResult.class,
+          Results.class,
+          ParameterHolder[].class);
+  private static final Method EXECUTE_BATCH_SERVER =
+      method(
+          "executeBatchServer",
+          boolean.class,
+          ServerPrepareResult.class,
+          Results.class,
+          String.class,
+          List.class,
+          boolean.class);
+  private static final Method GET_RESULT = method("getResult", Results.class);
+  private static final Method CANCEL_CURRENT_QUERY = method("cancelCurrentQuery");
+  private static final Method INTERRUPT = method("interrupt");
+  private static final Method SKIP = method("skip");
+  private static final Method CHECK_IF_MASTER = method("checkIfMaster");
+  private static final Method HAS_WARNINGS = method("hasWarnings");
+  private static final Method GET_MAX_ROWS = method("getMaxRows");
+  private static final Method SET_MAX_ROWS = method("setMaxRows", long.class);
+  private static final Method GET_MINOR_SERVER_VERSION = method("getMinorServerVersion");
+  private static final Method SET_LOCAL_INFILE_INPUT_STREAM =
+      method("setLocalInfileInputStream", InputStream.class);
+  private static final Method SET_TIMEOUT = method("setTimeout", int.class);
+  private static final Method GET_PIN_GLOBAL_TX_TO_PHYSICAL_CONNECTION =
+      method("getPinGlobalTxToPhysicalConnection");
+  private static final Method GET_SOCKET = method("getSocket");
+  private static final Method SET_TRANSACTION_ISOLATION =
+      method("setTransactionIsolation", int.class);
+  private static final Method GET_TRANSACTION_ISOLATION_LEVEL =
+      method("getTransactionIsolationLevel");
+  private static final Method CONNECT_WITHOUT_PROXY = method("connectWithoutProxy");
+  private static final Method SHOULD_RECONNECT_WITHOUT_PROXY =
+      method("shouldReconnectWithoutProxy");
+  private static final Method SET_HOST_FAILED_WITHOUT_PROXY = method("setHostFailedWithoutProxy");
+  private static final Method RELEASE_PREPARE_STATEMENT =
+      method("releasePrepareStatement", ServerPrepareResult.class);
+  private static final Method FORCE_RELEASE_PREPARE_STATEMENT =
+      method("forceReleasePrepareStatement", int.class);
+  private static final Method FORCE_RELEASE_WAITING_PREPARE_STATEMENT =
+      method("forceReleaseWaitingPrepareStatement");
+  private static final Method PREPARE_STATEMENT_CACHE = method("prepareStatementCache");
+  private static final Method GET_TIME_ZONE = method("getTimeZone");
+  private static final Method PROLOG_PROXY =
+      method(
+          "prologProxy",
+          ServerPrepareResult.class,
+          long.class,
+          boolean.class,
+          MariaDbConnection.class,
+          MariaDbStatement.class);
+  private static final Method GET_ACTIVE_STREAMING_RESULT = method("getActiveStreamingResult");
+  private static final Method SET_ACTIVE_STREAMING_RESULT =
+      method("setActiveStreamingResult", Results.class);
+  private static final Method SET_SERVER_STATUS = method("setServerStatus", short.class);
+  private static final Method IS_SESSION_STATE_CHANGED = method("isSessionStateChanged");
+  private static final Method SET_SESSION_STATE_CHANGED =
+      method("setSessionStateChanged", boolean.class);
+  private static final Method REMOVE_HAS_MORE_RESULTS = method("removeHasMoreResults");
+  private static final Method SET_HAS_WARNINGS = method("setHasWarnings", boolean.class);
+  private static final Method ADD_PREPARE_IN_CACHE =
+      method("addPrepareInCache", String.class, ServerPrepareResult.class);
+  private static final Method READ_EOF_PACKET = method("readEofPacket");
+  private static final Method SKIP_EOF_PACKET = method("skipEofPacket");
+  private static final Method CHANGE_SOCKET_TCP_NO_DELAY =
+      method("changeSocketTcpNoDelay", boolean.class);
+  private static final Method CHANGE_SOCKET_SO_TIMEOUT = method("changeSocketSoTimeout", int.class);
+  private static final Method REMOVE_ACTIVE_STREAMING_RESULT =
+      method("removeActiveStreamingResult");
+  private static final Method RESET_STATE_AFTER_FAILOVER =
+      method("resetStateAfterFailover", long.class, int.class, String.class, boolean.class);
+  private static final Method SET_ACTIVE_FUTURE_TASK =
+      method("setActiveFutureTask", FutureTask.class);
+  private static final Method HANDLE_IO_EXCEPTION = method("handleIoException", Exception.class);
+  private static final Method GET_READER = method("getReader");
+  private static final Method IS_EOF_DEPRECATED = method("isEofDeprecated");
+  private static final Method GET_AUTO_INCREMENT_INCREMENT = method("getAutoIncrementIncrement");
+  private static final Method GET_TRACES = method("getTraces");
+  private static final Method GET_LAST_GTID = method("getLastGtid");
+  private static final Method IS_INTERRUPTED = method("isInterrupted");
+  private static final Method STOP_IF_INTERRUPTED = method("stopIfInterrupted");
+
+  private final FailoverProxy proxy;
+  private final Listener listener;
+  private final boolean transactionReplay;
+
+  /**
+   * Constructor.
+   *
+   * @param proxy failover handler
+   */
+  public FailoverProtocol(FailoverProxy proxy) {
+    this.proxy = proxy;
+    this.listener = proxy.getListener();
+    this.transactionReplay = listener.getUrlParser().getOptions().transactionReplay;
+  }
+
+  private static Method method(String name, Class<?>... parameterTypes) {
+    try {
+      return Protocol.class.getMethod(name, parameterTypes);
+    } catch (NoSuchMethodException noSuchMethodException) {
+      throw new IllegalStateException(noSuchMethodException);
+    }
+  }
+
+  /**
+   * Execute method on listener current protocol using reflection, when listener has no current
+   * protocol (listener will then try to reconnect).
+   *
+   * @param method protocol method
+   * @param args method arguments
+   * @return method result
+   * @throws SQLException if method throws an exception
+   */
+  private Object invokeProxy(Method method, Object... args) throws SQLException {
+    try {
+      return proxy.executeInvocation(method, args, false);
+    } catch (SQLException | RuntimeException | Error exception) {
+      throw exception;
+    } catch (Throwable throwable) {
+      throw new UndeclaredThrowableException(throwable);
+    }
+  }
+
+  /**
+   * Replica protocol to use for a read-only query, when listener permits automatic read routing.
+   * Streaming results are never routed.
+   *
+   * @param results results
+   * @param sql query
+   * @return replica protocol, or null to execute query on current protocol
+   */
+  private Protocol readRoutingProtocol(Results results, String sql) {
+    listener.checkReadRoutingPin(sql);
+    return results.getFetchSize() == 0 ? listener.getReadRoutingProtocol(sql) : null;
+  }
+
+  /**
+   * Error executing a routed query: on connection error, replica is marked as failed and query will
+   * be executed on current protocol.
+   *
+   * @param replica replica protocol
+   * @param exception error
+   * @throws SQLException if not a connection error
+   */
+  private void readRoutingFailed(Protocol replica, SQLException exception) throws SQLException {
+    if (!proxy.hasToHandleFailover(exception)) {
+      throw exception;
+    }
+    listener.readRoutingFailed(replica);
+  }
+
+  /**
+   * Record command successfully executed on protocol, for transaction replay after failover (see
+   * option "transactionReplay").
+   *
+   * @param protocol protocol that executed command
+   * @param method protocol method, null if command cannot be replayed
+   * @param args method arguments
+   */
+  private void recordTransactionCommand(Protocol protocol, Method method, Object... args) {
+    listener.recordTransactionCommand(protocol, method, args);
+  }
+
+  private Object invokeProxyUnchecked(Method method, Object... args) {
+    try {
+      return proxy.executeInvocation(method, args, false);
+    } catch (RuntimeException | Error exception) {
+      throw exception;
+    } catch (Throwable throwable) {
+      throw new UndeclaredThrowableException(throwable);
+    }
+  }
+
+  /**
+   * Handle error thrown by current protocol, launching failover if needed.
+   *
+   * @param exception error
+   * @param method protocol method
+   * @param args method arguments
+   * @param wasClosed was connection closed before method call
+   * @return method result if relaunched after failover
+   * @throws SQLException if error cannot be handled by failover
+   */
+  private Object handleException(
+      SQLException exception, Method method, Object[] args, boolean wasClosed) throws SQLException {
+    try {
+      return proxy.handleInvocationException(exception, method, args, false, wasClosed);
+    } catch (SQLException e) {
+      if (transactionReplay) {
+        // server may have rolled back transaction (deadlock, ...)
+        recordTransactionCommand(listener.getCurrentProtocol(), null);
+      }
+      throw e;
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable throwable) {
+      throw new UndeclaredThrowableException(throwable);
+    }
+  }
+
+  private void handleTimeoutException(
+      SQLTimeoutException exception, Method method, Object[] args, boolean wasClosed)
+      throws SQLTimeoutException {
+    try {
+      handleException(exception, method, args, wasClosed);
+    } catch (SQLTimeoutException timeoutException) {
+      throw timeoutException;
+    } catch (SQLException sqlException) {
+      throw new UndeclaredThrowableException(sqlException);
+    }
+  }
+
+  private void handleFailover(
+      SQLException exception, Method method, Object[] args, Protocol protocol, boolean wasClosed)
+      throws SQLException {
+    try {
+      proxy.handleFailOver(exception, method, args, protocol, wasClosed);
+    } catch (SQLException | RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable throwable) {
+      throw new UndeclaredThrowableException(throwable);
+    }
+  }
+
+  @Override
+  public ServerPrepareResult prepare(String sql, boolean executeOnMaster) throws SQLException {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      return (ServerPrepareResult) invokeProxy(PREPARE, sql, executeOnMaster);
+    }
+    boolean wasClosed = listener.isClosed();
+    try {
+      return protocol.prepare(sql, executeOnMaster);
+    } catch (SQLException exception) {
+      return (ServerPrepareResult)
+          handleException(exception, PREPARE, new Object[] {sql, executeOnMaster}, wasClosed);
+    }
+  }
+
+  @Override
+  public boolean getAutocommit() throws SQLException {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      return (boolean) invokeProxy(GET_AUTOCOMMIT);
+    }
+    boolean wasClosed = listener.isClosed();
+    try {
+      return protocol.getAutocommit();
+    } catch (SQLException exception) {
+      return (boolean) handleException(exception, GET_AUTOCOMMIT, null, wasClosed);
+    }
+  }
+
+  @Override
+  public boolean noBackslashEscapes() {
+    return listener.noBackslashEscapes();
+  }
+
+  @Override
+  public void connect() throws SQLException {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxy(CONNECT);
+      return;
+    }
+    boolean wasClosed = listener.isClosed();
+    try {
+      protocol.connect();
+    } catch (SQLException exception) {
+      handleException(exception, CONNECT, null, wasClosed);
+    }
+  }
+
+  @Override
+  public UrlParser getUrlParser() {
+    return listener.getUrlParser();
+  }
+
+  @Override
+  public boolean inTransaction() {
+    return listener.inTransaction();
+  }
+
+  @Override
+  public FailoverProxy getProxy() {
+    return proxy;
+  }
+
+  @Override
+  public void setProxy(FailoverProxy proxy) {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxyUnchecked(SET_PROXY, proxy);
+      return;
+    }
+    protocol.setProxy(proxy);
+  }
+
+  @Override
+  public Options getOptions() {
+    return listener.getUrlParser().getOptions();
+  }
+
+  @Override
+  public boolean hasMoreResults() {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      return (boolean) invokeProxyUnchecked(HAS_MORE_RESULTS);
+    }
+    return protocol.hasMoreResults();
+  }
+
+  @Override
+  public void close() {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxyUnchecked(CLOSE);
+      return;
+    }
+    protocol.close();
+  }
+
+  @Override
+  public void abort() {
+    listener.preAbort();
+  }
+
+  @Override
+  public void reset() throws SQLException {
+    listener.reset();
+    if (transactionReplay) {
+      recordTransactionCommand(listener.getCurrentProtocol(), null);
+    }
+  }
+
+  @Override
+  public void changeUser(String username, String password) throws SQLException {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxy(CHANGE_USER, username, password);
+      return;
+    }
+    boolean wasClosed = listener.isClosed();
+    try {
+      protocol.changeUser(username, password);
+      listener.changeCredentials(username, password);
+    } catch (SQLException exception) {
+      handleException(exception, CHANGE_USER, new Object[] {username, password}, wasClosed);
+    }
+  }
+
+  @Override
+  public void closeExplicit() {
+    listener.preClose();
+  }
+
+  @Override
+  public boolean isClosed() {
+    return listener.isClosed();
+  }
+
+  @Override
+  public void resetDatabase() throws SQLException {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxy(RESET_DATABASE);
+      return;
+    }
+    boolean wasClosed = listener.isClosed();
+    try {
+      protocol.resetDatabase();
+    } catch (SQLException exception) {
+      handleException(exception, RESET_DATABASE, null, wasClosed);
+    }
+  }
+
+  @Override
+  public String getCatalog() throws SQLException {
+    return listener.getCatalog();
+  }
+
+  @Override
+  public void setCatalog(String database) throws SQLException {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxy(SET_CATALOG, database);
+      return;
+    }
+    boolean wasClosed = listener.isClosed();
+    try {
+      protocol.setCatalog(database);
+    } catch (SQLException exception) {
+      handleException(exception, SET_CATALOG, new Object[] {database}, wasClosed);
+    }
+  }
+
+  @Override
+  public String getServerVersion() {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      return (String) invokeProxyUnchecked(GET_SERVER_VERSION);
+    }
+    return protocol.getServerVersion();
+  }
+
+  @Override
+  public boolean isConnected() {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      return (boolean) invokeProxyUnchecked(IS_CONNECTED);
+    }
+    return protocol.isConnected();
+  }
+
+  @Override
+  public boolean getReadonly() throws SQLException {
+    return listener.isReadOnly();
+  }
+
+  @Override
+  public void setReadonly(boolean readOnly) throws SQLException {
+    listener.switchReadOnlyConnection(readOnly);
+  }
+
+  @Override
+  public boolean isMasterConnection() {
+    return listener.isMasterConnection();
+  }
+
+  @Override
+  public boolean mustBeMasterConnection() {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      return (boolean) invokeProxyUnchecked(MUST_BE_MASTER_CONNECTION);
+    }
+    return protocol.mustBeMasterConnection();
+  }
+
+  @Override
+  public HostAddress getHostAddress() {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      return (HostAddress) invokeProxyUnchecked(GET_HOST_ADDRESS);
+    }
+    return protocol.getHostAddress();
+  }
+
+  @Override
+  public void setHostAddress(HostAddress hostAddress) {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxyUnchecked(SET_HOST_ADDRESS, hostAddress);
+      return;
+    }
+    protocol.setHostAddress(hostAddress);
+  }
+
+  @Override
+  public String getHost() {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      return (String) invokeProxyUnchecked(GET_HOST);
+    }
+    return protocol.getHost();
+  }
+
+  @Override
+  public int getPort() {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      return (int) invokeProxyUnchecked(GET_PORT);
+    }
+    return protocol.getPort();
+  }
+
+  @Override
+  public void rollback() throws SQLException {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxy(ROLLBACK);
+      return;
+    }
+    boolean wasClosed = listener.isClosed();
+    try {
+      protocol.rollback();
+      if (transactionReplay) {
+        recordTransactionCommand(protocol, null);
+      }
+    } catch (SQLException exception) {
+      handleException(exception, ROLLBACK, null, wasClosed);
+    }
+  }
+
+  @Override
+  public String getDatabase() {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      return (String) invokeProxyUnchecked(GET_DATABASE);
+    }
+    return protocol.getDatabase();
+  }
+
+  @Override
+  public String getUsername() {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      return (String) invokeProxyUnchecked(GET_USERNAME);
+    }
+    return protocol.getUsername();
+  }
+
+  @Override
+  public boolean ping() throws SQLException {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      return (boolean) invokeProxy(PING);
+    }
+    boolean wasClosed = listener.isClosed();
+    try {
+      return protocol.ping();
+    } catch (SQLException exception) {
+      return (boolean) handleException(exception, PING, null, wasClosed);
+    }
+  }
+
+  @Override
+  public boolean isValid(int timeout) throws SQLException {
+    return listener.isValid(timeout);
+  }
+
+  @Override
+  public void executeQuery(String sql) throws SQLException {
+    boolean isClosed = listener.isClosed();
+    try {
+      listener.preExecute();
+    } catch (SQLException exception) {
+      // handle failover only if connection error
+      // normal error can be thrown upon reconnection if there was a transaction in progress.
+      if (proxy.hasToHandleFailover(exception)) {
+        handleFailover(
+            exception, EXECUTE_QUERY, new Object[] {sql}, listener.getCurrentProtocol(), isClosed);
+        return;
+      }
+    }
+
+    listener.checkReadRoutingPin(sql);
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxy(EXECUTE_QUERY, sql);
+      return;
+    }
+    boolean wasClosed = listener.isClosed();
+    try {
+      protocol.executeQuery(sql);
+      if (transactionReplay) {
+        recordTransactionCommand(protocol, null);
+      }
+    } catch (SQLException exception) {
+      handleException(exception, EXECUTE_QUERY, new Object[] {sql}, wasClosed);
+    }
+  }
+
+  @Override
+  public void executeQuery(boolean mustExecuteOnMaster, Results results, String sql)
+      throws SQLException {
+    boolean isClosed = listener.isClosed();
+    try {
+      listener.preExecute();
+    } catch (SQLException exception) {
+      // handle failover only if connection error
+      // normal error can be thrown upon reconnection if there was a transaction in progress.
+      if (proxy.hasToHandleFailover(exception)) {
+        handleFailover(
+            exception,
+            EXECUTE_QUERY_RESULTS,
+            new Object[] {mustExecuteOnMaster, results, sql},
+            listener.getCurrentProtocol(),
+            isClosed);
+        return;
+      }
+    }
+
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxy(EXECUTE_QUERY_RESULTS, mustExecuteOnMaster, results, sql);
+      return;
+    }
+    Protocol replica = readRoutingProtocol(results, sql);
+    if (replica != null) {
+      try {
+        replica.executeQuery(false, results, sql);
+        return;
+      } catch (SQLException exception) {
+        readRoutingFailed(replica, exception);
+      }
+    }
+    boolean wasClosed = listener.isClosed();
+    try {
+      protocol.executeQuery(mustExecuteOnMaster, results, sql);
+      if (transactionReplay) {
+        recordTransactionCommand(
+            protocol, EXECUTE_QUERY_RESULTS, mustExecuteOnMaster, results, sql);
+      }
+    } catch (SQLException exception) {
+      handleException(
+          exception,
+          EXECUTE_QUERY_RESULTS,
+          new Object[] {mustExecuteOnMaster, results, sql},
+          wasClosed);
+    }
+  }
+
+  @Override
+  public void executeQuery(
+      boolean mustExecuteOnMaster, Results results, String sql, Charset charset)
+      throws SQLException {
+    boolean isClosed = listener.isClosed();
+    try {
+      listener.preExecute();
+    } catch (SQLException exception) {
+      // handle failover only if connection error
+      // normal error can be thrown upon reconnection if there was a transaction in progress.
+      if (proxy.hasToHandleFailover(exception)) {
+        handleFailover(
+            exception,
+            EXECUTE_QUERY_CHARSET,
+            new Object[] {mustExecuteOnMaster, results, sql, charset},
+            listener.getCurrentProtocol(),
+            isClosed);
+        return;
+      }
+    }
+
+    listener.checkReadRoutingPin(sql);
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxy(EXECUTE_QUERY_CHARSET, mustExecuteOnMaster, results, sql, charset);
+      return;
+    }
+    boolean wasClosed = listener.isClosed();
+    try {
+      protocol.executeQuery(mustExecuteOnMaster, results, sql, charset);
+      if (transactionReplay) {
+        recordTransactionCommand(
+            protocol, EXECUTE_QUERY_CHARSET, mustExecuteOnMaster, results, sql, charset);
+      }
+    } catch (SQLException exception) {
+      handleException(
+          exception,
+          EXECUTE_QUERY_CHARSET,
+          new Object[] {mustExecuteOnMaster, results, sql, charset},
+          wasClosed);
+    }
+  }
+
+  @Override
+  public void executeQuery(
+      boolean mustExecuteOnMaster,
+      Results results,
+      ClientPrepareResult clientPrepareResult,
+      ParameterHolder[] parameters)
+      throws SQLException {
+    boolean isClosed = listener.isClosed();
+    try {
+      listener.preExecute();
+    } catch (SQLException exception) {
+      // handle failover only if connection error
+      // normal error can be thrown upon reconnection if there was a transaction in progress.
+      if (proxy.hasToHandleFailover(exception)) {
+        handleFailover(
+            exception,
+            EXECUTE_QUERY_CLIENT,
+            new Object[] {mustExecuteOnMaster, results, clientPrepareResult, parameters},
+            listener.getCurrentProtocol(),
+            isClosed);
+        return;
+      }
+    }
+
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxy(
+          EXECUTE_QUERY_CLIENT, mustExecuteOnMaster, results, clientPrepareResult, parameters);
+      return;
+    }
+    Protocol replica = readRoutingProtocol(results, clientPrepareResult.getSql());
+    if (replica != null) {
+      try {
+        replica.executeQuery(false, results, clientPrepareResult, parameters);
+        return;
+      } catch (SQLException exception) {
+        readRoutingFailed(replica, exception);
+      }
+    }
+    boolean wasClosed = listener.isClosed();
+    try {
+      protocol.executeQuery(mustExecuteOnMaster, results, clientPrepareResult, parameters);
+      if (transactionReplay) {
+        recordTransactionCommand(
+            protocol,
+            EXECUTE_QUERY_CLIENT,
+            mustExecuteOnMaster,
+            results,
+            clientPrepareResult,
+            parameters);
+      }
+    } catch (SQLException exception) {
+      handleException(
+          exception,
+          EXECUTE_QUERY_CLIENT,
+          new Object[] {mustExecuteOnMaster, results, clientPrepareResult, parameters},
+          wasClosed);
+    }
+  }
+
+  @Override
+  public void executeQuery(
+      boolean mustExecuteOnMaster,
+      Results results,
+      ClientPrepareResult clientPrepareResult,
+      ParameterHolder[] parameters,
+      int timeout)
+      throws SQLException {
+    boolean isClosed = listener.isClosed();
+    try {
+      listener.preExecute();
+    } catch (SQLException exception) {
+      // handle failover only if connection error
+      // normal error can be thrown upon reconnection if there was a transaction in progress.
+      if (proxy.hasToHandleFailover(exception)) {
+        handleFailover(
+            exception,
+            EXECUTE_QUERY_CLIENT_TIMEOUT,
+            new Object[] {mustExecuteOnMaster, results, clientPrepareResult, parameters, timeout},
+            listener.getCurrentProtocol(),
+            isClosed);
+        return;
+      }
+    }
+
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxy(
+          EXECUTE_QUERY_CLIENT_TIMEOUT,
+          mustExecuteOnMaster,
+          results,
+          clientPrepareResult,
+          parameters,
+          timeout);
+      return;
+    }
+    Protocol replica = readRoutingProtocol(results, clientPrepareResult.getSql());
+    if (replica != null) {
+      try {
+        replica.executeQuery(false, results, clientPrepareResult, parameters, timeout);
+        return;
+      } catch (SQLException exception) {
+        readRoutingFailed(replica, exception);
+      }
+    }
+    boolean wasClosed = listener.isClosed();
+    try {
+      protocol.executeQuery(mustExecuteOnMaster, results, clientPrepareResult, parameters, timeout);
+      if (transactionReplay) {
+        recordTransactionCommand(
+            protocol,
+            EXECUTE_QUERY_CLIENT_TIMEOUT,
+            mustExecuteOnMaster,
+            results,
+            clientPrepareResult,
+            parameters,
+            timeout);
+      }
+    } catch (SQLException exception) {
+      handleException(
+          exception,
+          EXECUTE_QUERY_CLIENT_TIMEOUT,
+          new Object[] {mustExecuteOnMaster, results, clientPrepareResult, parameters, timeout},
+          wasClosed);
+    }
+  }
+
+  @Override
+  public boolean executeBatchClient(
+      boolean mustExecuteOnMaster,
+      Results results,
+      ClientPrepareResult prepareResult,
+      List<ParameterHolder[]> parametersList,
+      boolean hasLongData)
+      throws SQLException {
+    listener.checkReadRoutingPin(prepareResult.getSql());
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      return (boolean)
+          invokeProxy(
+              EXECUTE_BATCH_CLIENT,
+              mustExecuteOnMaster,
+              results,
+              prepareResult,
+              parametersList,
+              hasLongData);
+    }
+    boolean wasClosed = listener.isClosed();
+    try {
+      boolean result =
+          protocol.executeBatchClient(
+              mustExecuteOnMaster, results, prepareResult, parametersList, hasLongData);
+      if (transactionReplay) {
+        recordTransactionCommand(protocol, null);
+      }
+      return result;
+    } catch (SQLException exception) {
+      return (boolean)
+          handleException(
+              exception,
+              EXECUTE_BATCH_CLIENT,
+              new Object[] {
+                mustExecuteOnMaster, results, prepareResult, parametersList, hasLongData
+              },
+              wasClosed);
+    }
+  }
+
+  @Override
+  public void executeBatchStmt(boolean mustExecuteOnMaster, Results results, List<String> queries)
+      throws SQLException {
+    for (String query : queries) {
+      listener.checkReadRoutingPin(query);
+    }
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxy(EXECUTE_BATCH_STMT, mustExecuteOnMaster, results, queries);
+      return;
+    }
+    boolean wasClosed = listener.isClosed();
+    try {
+      protocol.executeBatchStmt(mustExecuteOnMaster, results, queries);
+      if (transactionReplay) {
+        recordTransactionCommand(protocol, null);
+      }
+    } catch (SQLException exception) {
+      handleException(
+          exception,
+          EXECUTE_BATCH_STMT,
+          new Object[] {mustExecuteOnMaster, results, queries},
+          wasClosed);
+    }
+  }
+
+  @Override
+  public void executePreparedQuery(
+      boolean mustExecuteOnMaster,
+      ServerPrepareResult serverPrepareResult,
+      Results results,
+      ParameterHolder[] parameters)
+      throws SQLException {
+    if (serverPrepareResult != null) {
+      listener.checkReadRoutingPin(serverPrepareResult.getSql());
+      if (!mustExecuteOnMaster
+          && serverPrepareResult.getUnProxiedProtocol().isMasterConnection()
+          && !listener.hasHostFail()) {
+        // PrepareStatement was to be executed on slave, but since a failover was running on
+        // master connection. Slave connection is up again, so has to be re-prepared on slave
+        try {
+          logger.trace(
+              "re-prepare query \"{}\" on slave (was temporary on master since failover)",
+              serverPrepareResult.getSql());
+          listener.rePrepareOnSlave(serverPrepareResult, false);
+        } catch (SQLException q) {
+          // error during re-prepare, will do executed on master.
+        }
+      }
+      boolean wasClosed = listener.isClosed();
+      Protocol protocol = serverPrepareResult.getUnProxiedProtocol();
+      try {
+        protocol.executePreparedQuery(
+            mustExecuteOnMaster, serverPrepareResult, results, parameters);
+        if (transactionReplay) {
+          recordTransactionCommand(
+              protocol,
+              EXECUTE_PREPARED_QUERY,
+              mustExecuteOnMaster,
+              serverPrepareResult,
+              results,
+              parameters);
+        }
+      } catch (SQLException exception) {
+        if (proxy.hasToHandleFailover(exception)) {
+          handleFailover(
+              exception,
+              EXECUTE_PREPARED_QUERY,
+              new Object[] {mustExecuteOnMaster, serverPrepareResult, results, parameters},
+              protocol,
+              wasClosed);
+          return;
+        }
+        if (transactionReplay) {
+          // server may have rolled back transaction (deadlock, ...)
+          recordTransactionCommand(protocol, null);
+        }
+        throw exception;
+      }
+      return;
+    }
+
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxy(
+          EXECUTE_PREPARED_QUERY, mustExecuteOnMaster, serverPrepareResult, results, parameters);
+      return;
+    }
+    boolean wasClosed = listener.isClosed();
+    try {
+      protocol.executePreparedQuery(mustExecuteOnMaster, serverPrepareResult, results, parameters);
+      if (transactionReplay) {
+        recordTransactionCommand(
+            protocol,
+            EXECUTE_PREPARED_QUERY,
+            mustExecuteOnMaster,
+            serverPrepareResult,
+            results,
+            parameters);
+      }
+    } catch (SQLException exception) {
+      handleException(
+          exception,
+          EXECUTE_PREPARED_QUERY,
+          new Object[] {mustExecuteOnMaster, serverPrepareResult, results, parameters},
+          wasClosed);
+    }
+  }
+
+  @Override
+  public boolean executeBatchServer(
+      boolean mustExecuteOnMaster,
+      ServerPrepareResult serverPrepareResult,
+      Results results,
+      String sql,
+      List<ParameterHolder[]> parameterList,
+      boolean hasLongData)
+      throws SQLException {
+    listener.checkReadRoutingPin(sql);
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      return (boolean)
+          invokeProxy(
+              EXECUTE_BATCH_SERVER,
+              mustExecuteOnMaster,
+              serverPrepareResult,
+              results,
+              sql,
+              parameterList,
+              hasLongData);
+    }
+    boolean wasClosed = listener.isClosed();
+    try {
+      boolean result =
+          protocol.executeBatchServer(
+              mustExecuteOnMaster, serverPrepareResult, results, sql, parameterList, hasLongData);
+      if (transactionReplay) {
+        recordTransactionCommand(protocol, null);
+      }
+      return result;
+    } catch (SQLException exception) {
+      return (boolean)
+          handleException(
+              exception,
+              EXECUTE_BATCH_SERVER,
+              new Object[] {
+                mustExecuteOnMaster, serverPrepareResult, results, sql, parameterList, hasLongData
+              },
+              wasClosed);
+    }
+  }
+
+  @Override
+  public void getResult(Results results) throws SQLException {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxy(GET_RESULT, results);
+      return;
+    }
+    boolean wasClosed = listener.isClosed();
+    try {
+      protocol.getResult(results);
+    } catch (SQLException exception) {
+      handleException(exception, GET_RESULT, new Object[] {results}, wasClosed);
+    }
+  }
+
+  @Override
+  public void cancelCurrentQuery() throws SQLException {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxy(CANCEL_CURRENT_QUERY);
+      return;
+    }
+    boolean wasClosed = listener.isClosed();
+    try {
+      protocol.cancelCurrentQuery();
+    } catch (SQLException exception) {
+      handleException(exception, CANCEL_CURRENT_QUERY, null, wasClosed);
+    }
+  }
+
+  @Override
+  public void interrupt() {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxyUnchecked(INTERRUPT);
+      return;
+    }
+    protocol.interrupt();
+  }
+
+  @Override
+  public void skip() throws SQLException {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxy(SKIP);
+      return;
+    }
+    boolean wasClosed = listener.isClosed();
+    try {
+      protocol.skip();
+    } catch (SQLException exception) {
+      handleException(exception, SKIP, null, wasClosed);
+    }
+  }
+
+  @Override
+  public boolean checkIfMaster() throws SQLException {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      return (boolean) invokeProxy(CHECK_IF_MASTER);
+    }
+    boolean wasClosed = listener.isClosed();
+    try {
+      return protocol.checkIfMaster();
+    } catch (SQLException exception) {
+      return (boolean) handleException(exception, CHECK_IF_MASTER, null, wasClosed);
+    }
+  }
+
+  @Override
+  public boolean hasWarnings() {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      return (boolean) invokeProxyUnchecked(HAS_WARNINGS);
+    }
+    return protocol.hasWarnings();
+  }
+
+  @Override
+  public long getMaxRows() {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      return (long) invokeProxyUnchecked(GET_MAX_ROWS);
+    }
+    return protocol.getMaxRows();
+  }
+
+  @Override
+  public void setMaxRows(long max) throws SQLException {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxy(SET_MAX_ROWS, max);
+      return;
+    }
+    boolean wasClosed = listener.isClosed();
+    try {
+      protocol.setMaxRows(max);
+    } catch (SQLException exception) {
+      handleException(exception, SET_MAX_ROWS, new Object[] {max}, wasClosed);
+    }
+  }
+
+  @Override
+  public int getMajorServerVersion() {
+    return listener.getMajorServerVersion();
+  }
+
+  @Override
+  public int getMinorServerVersion() {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      return (int) invokeProxyUnchecked(GET_MINOR_SERVER_VERSION);
+    }
+    return protocol.getMinorServerVersion();
+  }
+
+  @Override
+  public boolean versionGreaterOrEqual(int major, int minor, int patch) {
+    return listener.versionGreaterOrEqual(major, minor, patch);
+  }
+
+  @Override
+  public void setLocalInfileInputStream(InputStream inputStream) {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxyUnchecked(SET_LOCAL_INFILE_INPUT_STREAM, inputStream);
+      return;
+    }
+    protocol.setLocalInfileInputStream(inputStream);
+  }
+
+  @Override
+  public int getTimeout() {
+    try {
+      return listener.getTimeout();
+    } catch (SocketException socketException) {
+      throw new UndeclaredThrowableException(socketException);
+    }
+  }
+
+  @Override
+  public void setTimeout(int timeout) throws SocketException {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxyUnchecked(SET_TIMEOUT, timeout);
+      return;
+    }
+    protocol.setTimeout(timeout);
+  }
+
+  @Override
+  public boolean getPinGlobalTxToPhysicalConnection() {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      return (boolean) invokeProxyUnchecked(GET_PIN_GLOBAL_TX_TO_PHYSICAL_CONNECTION);
+    }
+    return protocol.getPinGlobalTxToPhysicalConnection();
+  }
+
+  @Override
+  public long getServerThreadId() {
+    return listener.getServerThreadId();
+  }
+
+  @Override
+  public Socket getSocket() {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      return (Socket) invokeProxyUnchecked(GET_SOCKET);
+    }
+    return protocol.getSocket();
+  }
+
+  @Override
+  public void setTransactionIsolation(int level) throws SQLException {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxy(SET_TRANSACTION_ISOLATION, level);
+      return;
+    }
+    boolean wasClosed = listener.isClosed();
+    try {
+      protocol.setTransactionIsolation(level);
+    } catch (SQLException exception) {
+      handleException(exception, SET_TRANSACTION_ISOLATION, new Object[] {level}, wasClosed);
+    }
+  }
+
+  @Override
+  public int getTransactionIsolationLevel() {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      return (int) invokeProxyUnchecked(GET_TRANSACTION_ISOLATION_LEVEL);
+    }
+    return protocol.getTransactionIsolationLevel();
+  }
+
+  @Override
+  public boolean isExplicitClosed() {
+    return listener.isExplicitClosed();
+  }
+
+  @Override
+  public void connectWithoutProxy() throws SQLException {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxy(CONNECT_WITHOUT_PROXY);
+      return;
+    }
+    boolean wasClosed = listener.isClosed();
+    try {
+      protocol.connectWithoutProxy();
+    } catch (SQLException exception) {
+      handleException(exception, CONNECT_WITHOUT_PROXY, null, wasClosed);
+    }
+  }
+
+  @Override
+  public boolean shouldReconnectWithoutProxy() {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      return (boolean) invokeProxyUnchecked(SHOULD_RECONNECT_WITHOUT_PROXY);
+    }
+    return protocol.shouldReconnectWithoutProxy();
+  }
+
+  @Override
+  public void setHostFailedWithoutProxy() {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxyUnchecked(SET_HOST_FAILED_WITHOUT_PROXY);
+      return;
+    }
+    protocol.setHostFailedWithoutProxy();
+  }
+
+  @Override
+  public void releasePrepareStatement(ServerPrepareResult serverPrepareResult) throws SQLException {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxy(RELEASE_PREPARE_STATEMENT, serverPrepareResult);
+      return;
+    }
+    boolean wasClosed = listener.isClosed();
+    try {
+      protocol.releasePrepareStatement(serverPrepareResult);
+    } catch (SQLException exception) {
+      handleException(
+          exception, RELEASE_PREPARE_STATEMENT, new Object[] {serverPrepareResult}, wasClosed);
+    }
+  }
+
+  @Override
+  public boolean forceReleasePrepareStatement(int statementId) throws SQLException {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      return (boolean) invokeProxy(FORCE_RELEASE_PREPARE_STATEMENT, statementId);
+    }
+    boolean wasClosed = listener.isClosed();
+    try {
+      return protocol.forceReleasePrepareStatement(statementId);
+    } catch (SQLException exception) {
+      return (boolean)
+          handleException(
+              exception, FORCE_RELEASE_PREPARE_STATEMENT, new Object[] {statementId}, wasClosed);
+    }
+  }
+
+  @Override
+  public void forceReleaseWaitingPrepareStatement() throws SQLException {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxy(FORCE_RELEASE_WAITING_PREPARE_STATEMENT);
+      return;
+    }
+    boolean wasClosed = listener.isClosed();
+    try {
+      protocol.forceReleaseWaitingPrepareStatement();
+    } catch (SQLException exception) {
+      handleException(exception, FORCE_RELEASE_WAITING_PREPARE_STATEMENT, null, wasClosed);
+    }
+  }
+
+  @Override
+  public ServerPrepareStatementCache prepareStatementCache() {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      return (ServerPrepareStatementCache) invokeProxyUnchecked(PREPARE_STATEMENT_CACHE);
+    }
+    return protocol.prepareStatementCache();
+  }
+
+  @Override
+  public TimeZone getTimeZone() {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      return (TimeZone) invokeProxyUnchecked(GET_TIME_ZONE);
+    }
+    return protocol.getTimeZone();
+  }
+
+  @Override
+  public void prolog(
+      long maxRows, boolean hasProxy, MariaDbConnection connection, MariaDbStatement statement)
+      throws SQLException {
+    listener.prolog(maxRows, connection, statement);
+  }
+
+  @Override
+  public void prologProxy(
+      ServerPrepareResult serverPrepareResult,
+      long maxRows,
+      boolean hasProxy,
+      MariaDbConnection connection,
+      MariaDbStatement statement)
+      throws SQLException {
+    boolean wasClosed = listener.isClosed();
+    if (serverPrepareResult == null) {
+      return;
+    }
+    Protocol protocol = serverPrepareResult.getUnProxiedProtocol();
+    try {
+      protocol.prologProxy(serverPrepareResult, maxRows, hasProxy, connection, statement);
+    } catch (SQLException exception) {
+      if (proxy.hasToHandleFailover(exception)) {
+        handleFailover(
+            exception,
+            PROLOG_PROXY,
+            new Object[] {serverPrepareResult, maxRows, hasProxy, connection, statement},
+            protocol,
+            wasClosed);
+        return;
+      }
+      throw exception;
+    }
+  }
+
+  @Override
+  public Results getActiveStreamingResult() {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      return (Results) invokeProxyUnchecked(GET_ACTIVE_STREAMING_RESULT);
+    }
+    return protocol.getActiveStreamingResult();
+  }
+
+  @Override
+  public void setActiveStreamingResult(Results mariaSelectResultSet) {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxyUnchecked(SET_ACTIVE_STREAMING_RESULT, mariaSelectResultSet);
+      return;
+    }
+    protocol.setActiveStreamingResult(mariaSelectResultSet);
+  }
+
+  @Override
+  public ReentrantLock getLock() {
+    return proxy.lock;
+  }
+
+  @Override
+  public void setServerStatus(short serverStatus) {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxyUnchecked(SET_SERVER_STATUS, serverStatus);
+      return;
+    }
+    protocol.setServerStatus(serverStatus);
+  }
+
+  @Override
+  public boolean isSessionStateChanged() {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      return (boolean) invokeProxyUnchecked(IS_SESSION_STATE_CHANGED);
+    }
+    return protocol.isSessionStateChanged();
+  }
+
+  @Override
+  public void setSessionStateChanged(boolean sessionStateChanged) {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxyUnchecked(SET_SESSION_STATE_CHANGED, sessionStateChanged);
+      return;
+    }
+    protocol.setSessionStateChanged(sessionStateChanged);
+  }
+
+  @Override
+  public void removeHasMoreResults() {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxyUnchecked(REMOVE_HAS_MORE_RESULTS);
+      return;
+    }
+    protocol.removeHasMoreResults();
+  }
+
+  @Override
+  public void setHasWarnings(boolean hasWarnings) {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxyUnchecked(SET_HAS_WARNINGS, hasWarnings);
+      return;
+    }
+    protocol.setHasWarnings(hasWarnings);
+  }
+
+  @Override
+  public ServerPrepareResult addPrepareInCache(
+      String key, ServerPrepareResult serverPrepareResult) {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      return (ServerPrepareResult)
+          invokeProxyUnchecked(ADD_PREPARE_IN_CACHE, key, serverPrepareResult);
+    }
+    return protocol.addPrepareInCache(key, serverPrepareResult);
+  }
+
+  @Override
+  public void readEofPacket() throws SQLException, IOException {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxy(READ_EOF_PACKET);
+      return;
+    }
+    boolean wasClosed = listener.isClosed();
+    try {
+      protocol.readEofPacket();
+    } catch (SQLException exception) {
+      handleException(exception, READ_EOF_PACKET, null, wasClosed);
+    }
+  }
+
+  @Override
+  public void skipEofPacket() throws SQLException, IOException {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxy(SKIP_EOF_PACKET);
+      return;
+    }
+    boolean wasClosed = listener.isClosed();
+    try {
+      protocol.skipEofPacket();
+    } catch (SQLException exception) {
+      handleException(exception, SKIP_EOF_PACKET, null, wasClosed);
+    }
+  }
+
+  @Override
+  public void changeSocketTcpNoDelay(boolean setTcpNoDelay) {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxyUnchecked(CHANGE_SOCKET_TCP_NO_DELAY, setTcpNoDelay);
+      return;
+    }
+    protocol.changeSocketTcpNoDelay(setTcpNoDelay);
+  }
+
+  @Override
+  public void changeSocketSoTimeout(int setSoTimeout) throws SocketException {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxyUnchecked(CHANGE_SOCKET_SO_TIMEOUT, setSoTimeout);
+      return;
+    }
+    protocol.changeSocketSoTimeout(setSoTimeout);
+  }
+
+  @Override
+  public void removeActiveStreamingResult() {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxyUnchecked(REMOVE_ACTIVE_STREAMING_RESULT);
+      return;
+    }
+    protocol.removeActiveStreamingResult();
+  }
+
+  @Override
+  public void resetStateAfterFailover(
+      long maxRows, int transactionIsolationLevel, String database, boolean autocommit)
+      throws SQLException {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxy(
+          RESET_STATE_AFTER_FAILOVER, maxRows, transactionIsolationLevel, database, autocommit);
+      return;
+    }
+    boolean wasClosed = listener.isClosed();
+    try {
+      protocol.resetStateAfterFailover(maxRows, transactionIsolationLevel, database, autocommit);
+    } catch (SQLException exception) {
+      handleException(
+          exception,
+          RESET_STATE_AFTER_FAILOVER,
+          new Object[] {maxRows, transactionIsolationLevel, database, autocommit},
+          wasClosed);
+    }
+  }
+
+  @Override
+  public void setActiveFutureTask(FutureTask activeFutureTask) {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxyUnchecked(SET_ACTIVE_FUTURE_TASK, activeFutureTask);
+      return;
+    }
+    protocol.setActiveFutureTask(activeFutureTask);
+  }
+
+  @Override
+  public boolean isServerMariaDb() {
+    return listener.isServerMariaDb();
+  }
+
+  @Override
+  public SQLException handleIoException(Exception initialException) {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      return (SQLException) invokeProxyUnchecked(HANDLE_IO_EXCEPTION, initialException);
+    }
+    return protocol.handleIoException(initialException);
+  }
+
+  @Override
+  public PacketInputStream getReader() {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      return (PacketInputStream) invokeProxyUnchecked(GET_READER);
+    }
+    return protocol.getReader();
+  }
+
+  @Override
+  public boolean isEofDeprecated() {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      return (boolean) invokeProxyUnchecked(IS_EOF_DEPRECATED);
+    }
+    return protocol.isEofDeprecated();
+  }
+
+  @Override
+  public int getAutoIncrementIncrement() throws SQLException {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      return (int) invokeProxy(GET_AUTO_INCREMENT_INCREMENT);
+    }
+    boolean wasClosed = listener.isClosed();
+    try {
+      return protocol.getAutoIncrementIncrement();
+    } catch (SQLException exception) {
+      return (int) handleException(exception, GET_AUTO_INCREMENT_INCREMENT, null, wasClosed);
+    }
+  }
+
+  @Override
+  public boolean sessionStateAware() {
+    return listener.sessionStateAware();
+  }
+
+  @Override
+  public String getLastGtid() {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      return (String) invokeProxyUnchecked(GET_LAST_GTID);
+    }
+    return protocol.getLastGtid();
+  }
+
+  @Override
+  public String getTraces() {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      return (String) invokeProxyUnchecked(GET_TRACES);
+    }
+    return protocol.getTraces();
+  }
+
+  @Override
+  public boolean isInterrupted() {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      return (boolean) invokeProxyUnchecked(IS_INTERRUPTED);
+    }
+    return protocol.isInterrupted();
+  }
+
+  @Override
+  public void stopIfInterrupted() throws SQLTimeoutException {
+    Protocol protocol = listener.getCurrentProtocol();
+    if (protocol == null) {
+      invokeProxyUnchecked(STOP_IF_INTERRUPTED);
+      return;
+    }
+    boolean wasClosed = listener.isClosed();
+    try {
+      protocol.stopIfInterrupted();
+    } catch (SQLTimeoutException exception) {
+      handleTimeoutException(exception, STOP_IF_INTERRUPTED, null, wasClosed);
+    }
+  }
+}
@@ -294,7 +294,16 @@ public class FailoverProxy implements InvocationHandler {
     return executeInvocation(method, args, false);
   }
 
-  private Object executeInvocation(Method method, Object[] args, boolean isSecondExecution)
+  /**
+   * Execute method on current protocol, handling failover if needed.
+   *
+   * @param method the called method on the protocol
+   * @param args methods parameters
+   * @param isSecondExecution is method relaunched after master has been demoted to read-only
+   * @return protocol method result
+   * @throws Throwable the method throwed error if not catch by failover
+   */
+  Object executeInvocation(Method method, Object[] args, boolean isSecondExecution)
       throws Throwable {
     boolean isClosed = listener.isClosed();
     try {
@@ -302,68 +311,88 @@ public class FailoverProxy implements InvocationHandler {
     } catch (InvocationTargetException e) {
       if (e.getTargetException() != null) {
         if (e.getTargetException() instanceof SQLException) {
+          return handleInvocationException(
+              (SQLException) e.getTargetException(), method, args, isSecondExecution, isClosed);
+        }
+        throw e.getTargetException();
+      }
+      throw e;
+    }
+  }
 
-          SQLException queryException = (SQLException) e.getTargetException();
-          Protocol protocol = listener.getCurrentProtocol();
-
-          queryException = addHostInformationToException(queryException, protocol);
+  /**
+   * Handle an exception thrown by current protocol method.
+   *
+   * @param exception the exception thrown
+   * @param method the called method on the protocol
+   * @param args methods parameters
+   * @param isSecondExecution is method relaunched after master has been demoted to read-only
+   * @param isClosed was connection closed before method call
+   * @return protocol method result if method has been relaunched
+   * @throws Throwable the method throwed error if not catch by failover
+   */
+  Object handleInvocationException(
+      SQLException exception,
+      Method method,
+      Object[] args,
+      boolean isSecondExecution,
+      boolean isClosed)
+      throws Throwable {
+    Protocol protocol = listener.getCurrentProtocol();
 
-          // check that failover is due to kill command
-          boolean killCmd =
-              queryException != null
-                  && queryException.getSQLState() != null
-                  && queryException.getSQLState().equals("70100")
-                  && 1927 == queryException.getErrorCode();
+    SQLException queryException = addHostInformationToException(exception, protocol);
 
-          if (killCmd) {
-            handleFailOver(queryException, method, args, protocol, isClosed);
-            return null;
-          }
+    // check that failover is due to kill command
+    boolean killCmd =
+        queryException != null
+            && queryException.getSQLState() != null
+            && queryException.getSQLState().equals("70100")
+            && 1927 == queryException.getErrorCode();
 
-          if (hasToHandleFailover(queryException)) {
-            return handleFailOver(queryException, method, args, protocol, isClosed);
-          }
+    if (killCmd) {
+      handleFailOver(queryException, method, args, protocol, isClosed);
+      return null;
+    }
 
-          // error is "The MariaDB server is running with the %s option so it cannot execute this
-          // statement"
-          // checking that server was master has not been demote to slave without resetting
-          // connections
-          if (queryException.getErrorCode() == 1290
-              && !isSecondExecution
-              && protocol != null
-              && protocol.isMasterConnection()
-              && !protocol.checkIfMaster()) {
+    if (hasToHandleFailover(queryException)) {
+      return handleFailOver(queryException, method, args, protocol, isClosed);
+    }
 
-            boolean inTransaction = protocol.inTransaction();
-            boolean isReconnected;
+    // error is "The MariaDB server is running with the %s option so it cannot execute this
+    // statement"
+    // checking that server was master has not been demote to slave without resetting
+    // connections
+    if (queryException.getErrorCode() == 1290
+        && !isSecondExecution
+        && protocol != null
+        && protocol.isMasterConnection()
+        && !protocol.checkIfMaster()) {
 
-            // connection state has changed, master connection is now read-only
-            // reconnect to master, to re-execute command if wasn't in a transaction since
-            // we are sure has not been executed.
+      boolean inTransaction = protocol.inTransaction();
+      boolean isReconnected;
 
-            // reconnection
-            lock.lock();
-            try {
-              protocol.close();
-              isReconnected = listener.primaryFail(null, null, false, isClosed).isReconnected;
-            } finally {
-              lock.unlock();
-            }
+      // connection state has changed, master connection is now read-only
+      // reconnect to master, to re-execute command if wasn't in a transaction since
+      // we are sure has not been executed.
 
-            // relaunch command
-            if (isReconnected && !inTransaction) {
-              return executeInvocation(method, args, true);
-            }
+      // reconnection
+      lock.lock();
+      try {
+        protocol.close();
+        isReconnected = listener.primaryFail(null, null, false, isClosed).isReconnected;
+      } finally {
+        lock.unlock();
+      }
 
-            // throw exception if not reconnected, or was in a transaction
-            return handleFailOver(
-                queryException, method, args, listener.getCurrentProtocol(), isClosed);
-          }
-        }
-        throw e.getTargetException();
+      // relaunch command
+      if (isReconnected && !inTransaction) {
+        return executeInvocation(method, args, true);
       }
-      throw e;
+
+      // throw exception if not reconnected, or was in a transaction
+      return handleFailOver(queryException, method, args, listener.getCurrentProtocol(), isClosed);
     }
+    throw exception;
   }
 
   /**
@@ -375,7 +404,7 @@ public class FailoverProxy implements InvocationHandler {
    * @return the object return from the method
    * @throws Throwable throwable
    */
-  private Object handleFailOver(
+  Object handleFailOver(
       SQLException qe, Method method, Object[] args, Protocol protocol, boolean isClosed)
       throws Throwable {
     HostAddress failHostAddress = null;
@@ -151,6 +151,16 @@ public interface Listener {
 
   Protocol getCurrentProtocol();
 
+  Protocol getReadRoutingProtocol(String sql);
+
+  void checkReadRoutingPin(String sql);
+
+  void readRoutingFailed(Protocol protocol);
+
+  void recordTransactionCommand(Protocol protocol, Method method, Object[] args);
+
+  void changeCredentials(String username, String password);
+
   boolean hasHostFail();
 
   boolean canRetryFailLoop();
@@ -64,6 +64,8 @@ import java.util.regex.Pattern;
 import org.mariadb.jdbc.HostAddress;
 import org.mariadb.jdbc.UrlParser;
 import org.mariadb.jdbc.internal.com.read.dao.Results;
+import org.mariadb.jdbc.internal.failover.thread.FailoverLoop;
+import org.mariadb.jdbc.internal.failover.tools.ClusterTopology;
 import org.mariadb.jdbc.internal.failover.tools.SearchFilter;
 import org.mariadb.jdbc.internal.protocol.AuroraProtocol;
 import org.mariadb.jdbc.internal.protocol.Protocol;
@@ -80,6 +82,7 @@ public class AuroraListener extends MastersSlavesListener {
           Pattern.CASE_INSENSITIVE);
   private final HostAddress clusterHostAddress;
   private String clusterDnsSuffix = null;
+  private volatile String lastWriterInstance;
 
   /**
    * Constructor for Aurora. This differ from standard failover because : - we don't know current
@@ -180,12 +183,12 @@ public class AuroraListener extends MastersSlavesListener {
     resetOldsBlackListHosts();
 
     // put the list in the following order
-    // - random order not connected host and not blacklisted
+    // - random (or latency-aware) order not connected host and not blacklisted
     // - random blacklisted host
     // - connected host at end.
     List<HostAddress> loopAddress = new LinkedList<>(hostAddresses);
     loopAddress.removeAll(getBlacklistKeys());
-    Collections.shuffle(loopAddress);
+    orderHosts(loopAddress);
     List<HostAddress> blacklistShuffle = new LinkedList<>(getBlacklistKeys());
     blacklistShuffle.retainAll(hostAddresses);
     Collections.shuffle(blacklistShuffle);
@@ -258,6 +261,16 @@ public class AuroraListener extends MastersSlavesListener {
    */
   private List<String> getCurrentEndpointIdentifiers(Protocol protocol) throws SQLException {
     List<String> endpoints = new ArrayList<>();
+    ClusterTopology topology = getTopology();
+    if (topology != null && !topology.getInstances().isEmpty()) {
+      // already retrieved by topology monitor
+      for (String instance : topology.getInstances()) {
+        endpoints.add(instance + "." + clusterDnsSuffix);
+      }
+      Collections.shuffle(endpoints);
+      return endpoints;
+    }
+
     try {
       proxy.lock.lock();
       try {
@@ -385,6 +398,42 @@ public class AuroraListener extends MastersSlavesListener {
   private HostAddress searchForMasterHostAddress(Protocol protocol, List<HostAddress> loopAddress)
       throws SQLException {
     String masterHostName;
+    ClusterTopology topology = getTopology();
+    if (topology != null && topology.getWriterInstance() != null) {
+      // already retrieved by topology monitor
+      masterHostName = topology.getWriterInstance();
+    } else {
+      masterHostName = queryMasterHostName(protocol);
+      if (masterHostName == null) {
+        return null;
+      }
+    }
+
+    Matcher matcher;
+    for (HostAddress hostAddress : loopAddress) {
+      matcher = auroraDnsPattern.matcher(hostAddress.host);
+      if (hostAddress.host.startsWith(masterHostName) && !matcher.find()) {
+        return hostAddress;
+      }
+    }
+
+    HostAddress masterHostAddress;
+    if (clusterDnsSuffix == null && protocol.getHost().contains(".")) {
+      clusterDnsSuffix = protocol.getHost().substring(protocol.getHost().indexOf(".") + 1);
+    } else {
+      return null;
+    }
+
+    masterHostAddress =
+        new HostAddress(masterHostName + "." + clusterDnsSuffix, protocol.getPort(), null);
+    loopAddress.add(masterHostAddress);
+    if (!hostAddresses.contains(masterHostAddress)) {
+      hostAddresses.add(masterHostAddress);
+    }
+    return masterHostAddress;
+  }
+
+  private String queryMasterHostName(Protocol protocol) throws SQLException {
     proxy.lock.lock();
     try {
       Results results = new Results();
@@ -398,42 +447,41 @@ public class AuroraListener extends MastersSlavesListener {
       results.commandEnd();
       ResultSet queryResult = results.getResultSet();
 
-      if (!queryResult.isBeforeFirst()) {
+      if (!queryResult.next()) {
         return null;
-      } else {
-        queryResult.next();
-        masterHostName = queryResult.getString(1);
       }
+      return queryResult.getString(1);
     } finally {
       proxy.lock.unlock();
     }
+  }
 
-    Matcher matcher;
-    if (masterHostName != null) {
-      for (HostAddress hostAddress : loopAddress) {
-        matcher = auroraDnsPattern.matcher(hostAddress.host);
-        if (hostAddress.host.startsWith(masterHostName) && !matcher.find()) {
-          return hostAddress;
-        }
-      }
-
-      HostAddress masterHostAddress;
-      if (clusterDnsSuffix == null && protocol.getHost().contains(".")) {
-        clusterDnsSuffix = protocol.getHost().substring(protocol.getHost().indexOf(".") + 1);
-      } else {
-        return null;
-      }
-
-      masterHostAddress =
-          new HostAddress(masterHostName + "." + clusterDnsSuffix, protocol.getPort(), null);
-      loopAddress.add(masterHostAddress);
-      if (!hostAddresses.contains(masterHostAddress)) {
-        hostAddresses.add(masterHostAddress);
-      }
-      return masterHostAddress;
+  /**
+   * Called by topology monitor thread when cluster topology changes. When aurora writer has
+   * changed, connections status is checked right away if connection is not in use, instead of
+   * waiting for next validation or next query failure.
+   *
+   * @param topology new cluster topology
+   */
+  @Override
+  protected void topologyChanged(ClusterTopology topology) {
+    super.topologyChanged(topology);
+    String previousWriterInstance = lastWriterInstance;
+    lastWriterInstance = topology.getWriterInstance();
+    if (previousWriterInstance == null
+        || previousWriterInstance.equals(lastWriterInstance)
+        || isExplicitClosed()
+        || !proxy.lock.tryLock()) {
+      return;
+    }
+    try {
+      checkMasterStatus(null);
+    } finally {
+      proxy.lock.unlock();
+    }
+    if (hasHostFail()) {
+      FailoverLoop.addListener(this);
     }
-
-    return null;
   }
 
   @Override
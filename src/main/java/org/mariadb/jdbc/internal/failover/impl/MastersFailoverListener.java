@@ -170,6 +170,12 @@ public class MastersFailoverListener extends AbstractMastersListener {
             currentProtocol.getHostAddress());
         return relaunchOperation(method, args);
       }
+      if (inTransaction) {
+        HandleErrorResult replayResult = replayTransaction(method, args);
+        if (replayResult != null) {
+          return replayResult;
+        }
+      }
       return new HandleErrorResult(true);
     } catch (Exception e) {
       // we will throw a Connection exception that will close connection
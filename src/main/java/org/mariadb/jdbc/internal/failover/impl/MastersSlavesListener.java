@@ -57,23 +57,31 @@ import static org.mariadb.jdbc.internal.util.SqlStates.CONNECTION_EXCEPTION;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.SocketException;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.SQLNonTransientConnectionException;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 import org.mariadb.jdbc.HostAddress;
 import org.mariadb.jdbc.MariaDbConnection;
 import org.mariadb.jdbc.MariaDbStatement;
 import org.mariadb.jdbc.UrlParser;
+import org.mariadb.jdbc.internal.com.read.dao.Results;
 import org.mariadb.jdbc.internal.failover.AbstractMastersSlavesListener;
 import org.mariadb.jdbc.internal.failover.HandleErrorResult;
+import org.mariadb.jdbc.internal.failover.thread.ClusterMonitor;
 import org.mariadb.jdbc.internal.failover.thread.FailoverLoop;
+import org.mariadb.jdbc.internal.failover.tools.ClusterTopology;
+import org.mariadb.jdbc.internal.failover.tools.HostLatencyTracker;
 import org.mariadb.jdbc.internal.failover.tools.SearchFilter;
 import org.mariadb.jdbc.internal.logging.Logger;
 import org.mariadb.jdbc.internal.logging.LoggerFactory;
 import org.mariadb.jdbc.internal.protocol.MastersSlavesProtocol;
 import org.mariadb.jdbc.internal.protocol.Protocol;
+import org.mariadb.jdbc.internal.util.dao.ClientPrepareResult;
 import org.mariadb.jdbc.internal.util.dao.ReconnectDuringTransactionException;
 import org.mariadb.jdbc.internal.util.dao.ServerPrepareResult;
 import org.mariadb.jdbc.internal.util.pool.GlobalStateInfo;
@@ -85,6 +93,12 @@ public class MastersSlavesListener extends AbstractMastersSlavesListener {
 
   private static final AtomicInteger listenerCount = new AtomicInteger();
   private static final Logger logger = LoggerFactory.getLogger(MastersSlavesListener.class);
+  private static final Pattern READ_ROUTING_PIN_PATTERN =
+      Pattern.compile(
+          "(?:^|;)(?:\\s|/\\*.*?\\*/|--(?=\\s|$)[^\\n]*+|#[^\\n]*+)*"
+              + "(CREATE\\s+TEMPORARY|SET\\s+(?!AUTOCOMMIT|(SESSION\\s+)?TRANSACTION))",
+          Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+  private static final Pattern GTID_PATTERN = Pattern.compile("[0-9a-fA-F:,\\-\\s]+");
   private static DynamicSizedSchedulerInterface dynamicSizedScheduler;
 
   static {
@@ -94,6 +108,11 @@ public class MastersSlavesListener extends AbstractMastersSlavesListener {
   protected Protocol masterProtocol;
   protected Protocol secondaryProtocol;
   protected List<HostAddress> hostAddresses;
+  private Protocol causalReadsProtocol;
+  private String causalReadsGtid;
+  private final Consumer<ClusterTopology> topologyConsumer = this::topologyChanged;
+  private volatile boolean readRoutingPinned;
+  private volatile ClusterMonitor clusterMonitor;
 
   /**
    * Initialisation.
@@ -162,6 +181,10 @@ public class MastersSlavesListener extends AbstractMastersSlavesListener {
     super.removeListenerFromSchedulers();
     FailoverLoop.removeListener(this);
     listenerCount.addAndGet(-1);
+    if (clusterMonitor != null) {
+      clusterMonitor.unregister(urlParser, topologyMonitored() ? topologyConsumer : null);
+      clusterMonitor = null;
+    }
   }
 
   /**
@@ -178,6 +201,48 @@ public class MastersSlavesListener extends AbstractMastersSlavesListener {
       // initializeConnection failed
       checkInitialConnection(e);
     }
+    if (urlParser.getOptions().maxReplicationLag > 0 || topologyMonitored()) {
+      clusterMonitor =
+          ClusterMonitor.register(urlParser, topologyMonitored() ? topologyConsumer : null);
+    }
+  }
+
+  private boolean topologyMonitored() {
+    return urlParser.getOptions().topologyRefreshInterval > 0;
+  }
+
+  /**
+   * Last cluster topology published by the shared monitor (option "topologyRefreshInterval").
+   *
+   * @return cluster topology, null if monitor is disabled or has not checked cluster yet
+   */
+  protected ClusterTopology getTopology() {
+    ClusterMonitor monitor = clusterMonitor;
+    return monitor == null || !topologyMonitored() ? null : monitor.getTopology();
+  }
+
+  /**
+   * Called by topology monitor thread when cluster topology changes. Unreachable hosts are
+   * blacklisted, reachable ones removed from blacklist, and a failed connection is queued for
+   * failover loop as soon as a host it can use is reachable.
+   *
+   * @param topology new cluster topology
+   */
+  protected void topologyChanged(ClusterTopology topology) {
+    for (HostAddress hostAddress : topology.getUnreachable()) {
+      addToBlacklist(hostAddress);
+    }
+    for (HostAddress hostAddress : topology.getReachable()) {
+      removeFromBlacklist(hostAddress);
+    }
+    if (!isExplicitClosed() && canReconnect(topology)) {
+      FailoverLoop.addListener(this);
+    }
+  }
+
+  private boolean canReconnect(ClusterTopology topology) {
+    return (isMasterHostFail() && topology.getWriter() != null)
+        || (isSecondaryHostFail() && topology.hasReachableReader());
   }
 
   @Override
@@ -476,6 +541,46 @@ public class MastersSlavesListener extends AbstractMastersSlavesListener {
     }
   }
 
+  /**
+   * Order hosts before trying to connect them: random order, or when option
+   * "loadBalanceLatencyAware" is set, power-of-two-choices on observed host latency.
+   *
+   * @param hosts hosts to reorder in place
+   */
+  public void orderHosts(List<HostAddress> hosts) {
+    if (urlParser.getOptions().loadBalanceLatencyAware) {
+      HostLatencyTracker.order(hosts);
+    } else {
+      Collections.shuffle(hosts);
+    }
+
+    // lagging replicas last
+    if (urlParser.getOptions().maxReplicationLag > 0) {
+      List<HostAddress> lagging = new ArrayList<>();
+      for (HostAddress host : hosts) {
+        if (isReplicationLagging(host)) {
+          lagging.add(host);
+        }
+      }
+      if (!lagging.isEmpty()) {
+        hosts.removeAll(lagging);
+        hosts.addAll(lagging);
+      }
+    }
+  }
+
+  /**
+   * Indicate if host is a replica lagging more than option "maxReplicationLag".
+   *
+   * @param host host
+   * @return true if host must not be used as replica
+   */
+  public boolean isReplicationLagging(HostAddress host) {
+    int maxReplicationLag = urlParser.getOptions().maxReplicationLag;
+    ClusterMonitor monitor = clusterMonitor;
+    return maxReplicationLag > 0 && monitor != null && monitor.isLagging(host, maxReplicationLag);
+  }
+
   /**
    * Loop to connect.
    *
@@ -503,15 +608,22 @@ public class MastersSlavesListener extends AbstractMastersSlavesListener {
     }
 
     currentConnectionAttempts.incrementAndGet();
+
+    // no need to probe hosts when monitor knows none of the needed ones is reachable
+    ClusterTopology topology = getTopology();
+    if (searchFilter.isFailoverLoop() && topology != null && !canReconnect(topology)) {
+      return;
+    }
+
     resetOldsBlackListHosts();
 
     // put the list in the following order
-    // - random order not blacklist and not connected host
+    // - random (or latency-aware) order not blacklist and not connected host
     // - random order blacklist host
     // - connected host
     List<HostAddress> loopAddress = new LinkedList<>(hostAddresses);
     loopAddress.removeAll(getBlacklistKeys());
-    Collections.shuffle(loopAddress);
+    orderHosts(loopAddress);
     List<HostAddress> blacklistShuffle = new LinkedList<>(getBlacklistKeys());
     blacklistShuffle.retainAll(hostAddresses);
     Collections.shuffle(blacklistShuffle);
@@ -651,8 +763,9 @@ public class MastersSlavesListener extends AbstractMastersSlavesListener {
       secondaryProtocol.close();
     }
 
-    // if asked to be on read only connection, switching to this new connection
-    if (currentReadOnlyAsked
+    // if asked to be on read only connection, switching to this new connection, unless reads are
+    // done on master because replica has not applied last write yet
+    if ((currentReadOnlyAsked && !stayOnMasterForCausalReads(newSecondaryProtocol))
         || (urlParser.getOptions().failOnReadOnly && !currentReadOnlyAsked && isMasterHostFail())) {
       if (currentProtocol != null) {
         try {
@@ -673,6 +786,27 @@ public class MastersSlavesListener extends AbstractMastersSlavesListener {
     resetSecondaryFailoverData();
   }
 
+  /**
+   * With option "causalReads", indicate if a read-only connection currently on master must stay
+   * there because the new secondary connection has not applied the last write yet.
+   *
+   * @param newSecondaryProtocol new secondary connection
+   * @return true if current connection must not change
+   */
+  private boolean stayOnMasterForCausalReads(Protocol newSecondaryProtocol) {
+    if (currentProtocol == null
+        || currentProtocol != masterProtocol
+        || isMasterHostFail()
+        || !masterProtocol.isConnected()) {
+      return false;
+    }
+    try {
+      return !waitLastWrite(newSecondaryProtocol);
+    } catch (SQLException sqle) {
+      return true;
+    }
+  }
+
   /**
    * Switch to a read-only(secondary) or read and write connection(master).
    *
@@ -696,10 +830,22 @@ public class MastersSlavesListener extends AbstractMastersSlavesListener {
             currentProtocol = this.secondaryProtocol;
           } else if (currentProtocol.isMasterConnection()) {
             // must change to replica connection
+            if (!isSecondaryHostFail()
+                && isReplicationLagging(secondaryProtocol.getHostAddress())) {
+              // replica is lagging: close it without blacklisting, failover loop will search
+              // another
+              if (setSecondaryHostFail()) {
+                closeConnection(secondaryProtocol);
+              }
+            }
             if (!isSecondaryHostFail()) {
               try {
                 // switching to secondary connection
                 syncConnection(this.masterProtocol, this.secondaryProtocol);
+                if (!waitLastWriteOnSecondary()) {
+                  // replica has not applied last write yet: stay on master until next switch
+                  return;
+                }
                 currentProtocol = this.secondaryProtocol;
                 // current connection is now secondary
                 return;
@@ -778,6 +924,170 @@ public class MastersSlavesListener extends AbstractMastersSlavesListener {
     }
   }
 
+  /**
+   * With option "autoReadRouting", permit a SELECT in autocommit mode to be executed on secondary
+   * connection while master connection is in use. Queries using session state stay on master, and
+   * once connection creates a temporary table or changes a session variable, all queries stay on
+   * master.
+   *
+   * @param sql query
+   * @return secondary protocol, or null if query must be executed on current protocol
+   */
+  @Override
+  public Protocol getReadRoutingProtocol(String sql) {
+    if (!urlParser.getOptions().autoReadRouting || readRoutingPinned) {
+      return null;
+    }
+    proxy.lock.lock();
+    try {
+      Protocol master = masterProtocol;
+      Protocol secondary = secondaryProtocol;
+      if (master == null
+          || currentProtocol != master
+          || secondary == null
+          || isSecondaryHostFail()
+          || master.inTransaction()
+          || !master.getAutocommit()) {
+        return null;
+      }
+
+      if (!ClientPrepareResult.isReadOnlySelect(sql, master.noBackslashEscapes())) {
+        return null;
+      }
+
+      if (master.getMaxRows() != secondary.getMaxRows()
+          || !Objects.equals(master.getDatabase(), secondary.getDatabase())
+          || isReplicationLagging(secondary.getHostAddress())
+          || !waitLastWriteOnSecondary()) {
+        return null;
+      }
+      return secondary;
+
+    } catch (SQLException sqle) {
+      readRoutingFailed(secondaryProtocol);
+      return null;
+    } finally {
+      proxy.lock.unlock();
+    }
+  }
+
+  /**
+   * With option "autoReadRouting", once connection creates a temporary table or changes a session
+   * variable, all queries stay on master. Called before each execution, whatever the execution
+   * path.
+   *
+   * @param sql query
+   */
+  @Override
+  public void checkReadRoutingPin(String sql) {
+    if (urlParser.getOptions().autoReadRouting && !readRoutingPinned && pinsReadRouting(sql)) {
+      readRoutingPinned = true;
+    }
+  }
+
+  @Override
+  public void changeCredentials(String username, String password) {
+    super.changeCredentials(username, password);
+    // changing user resets session state : temporary tables and session variables are dropped
+    readRoutingPinned = false;
+  }
+
+  boolean isReadRoutingPinned() {
+    return readRoutingPinned;
+  }
+
+  /**
+   * Indicate if a query changes session state that a replica connection doesn't have: temporary
+   * table creation or session variable change, in any statement of a multi-statement query.
+   *
+   * @param sql query
+   * @return true if query must pin read routing to master
+   */
+  static boolean pinsReadRouting(String sql) {
+    return sql != null && READ_ROUTING_PIN_PATTERN.matcher(sql).find();
+  }
+
+  @Override
+  public void readRoutingFailed(Protocol protocol) {
+    if (protocol != null && protocol == secondaryProtocol && setSecondaryHostFail()) {
+      blackListAndCloseConnection(protocol);
+      FailoverLoop.addListener(this);
+    }
+  }
+
+  /**
+   * With option "causalReads", wait for the secondary connection to have applied the last
+   * transaction committed by this connection on master.
+   *
+   * @return true if reads can be done on secondary connection
+   * @throws SQLException if secondary connection fails
+   */
+  private boolean waitLastWriteOnSecondary() throws SQLException {
+    return waitLastWrite(secondaryProtocol);
+  }
+
+  /**
+   * With option "causalReads", wait for a secondary connection to have applied the last transaction
+   * committed by this connection on master.
+   *
+   * @param secondary secondary connection
+   * @return true if reads can be done on secondary connection
+   * @throws SQLException if secondary connection fails
+   */
+  private boolean waitLastWrite(Protocol secondary) throws SQLException {
+    if (!urlParser.getOptions().causalReads || masterProtocol == null) {
+      return true;
+    }
+    String gtid = masterProtocol.getLastGtid();
+    if (gtid == null
+        || gtid.isEmpty()
+        || (secondary == causalReadsProtocol && gtid.equals(causalReadsGtid))) {
+      return true;
+    }
+    String sql =
+        gtidWaitQuery(gtid, secondary.isServerMariaDb(), urlParser.getOptions().causalReadsTimeout);
+    if (sql == null) {
+      return false;
+    }
+    try {
+      Results results = new Results();
+      secondary.executeQuery(false, results, sql);
+      results.commandEnd();
+      ResultSet resultSet = results.getResultSet();
+      // 0 if applied, -1 (MariaDB) or 1 (MySQL) on timeout
+      if (resultSet.next() && resultSet.getInt(1) == 0) {
+        causalReadsProtocol = secondary;
+        causalReadsGtid = gtid;
+        return true;
+      }
+      return false;
+    } catch (SQLException sqle) {
+      if (sqle.getSQLState() != null && sqle.getSQLState().startsWith("08")) {
+        throw sqle;
+      }
+      logger.debug("Waiting for GTID {} on replica failed : {}", gtid, sqle.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Query waiting for a replica to apply a GTID.
+   *
+   * @param gtid GTID (set) given by the master
+   * @param serverMariaDb is replica a MariaDB server
+   * @param timeoutMillis maximum wait time in milliseconds
+   * @return query, null if GTID is not a valid GTID set
+   */
+  static String gtidWaitQuery(String gtid, boolean serverMariaDb, int timeoutMillis) {
+    if (!GTID_PATTERN.matcher(gtid).matches()) {
+      return null;
+    }
+    double timeout = timeoutMillis / 1000d;
+    return serverMariaDb
+        ? "SELECT MASTER_GTID_WAIT('" + gtid + "'," + timeout + ")"
+        : "SELECT WAIT_FOR_EXECUTED_GTID_SET('" + gtid + "'," + timeout + ")";
+  }
+
   /**
    * To handle the newly detected failover on the master connection.
    *
@@ -848,6 +1158,12 @@ public class MastersSlavesListener extends AbstractMastersSlavesListener {
               currentProtocol.getServerThreadId());
           return relaunchOperation(method, args);
         }
+        if (inTransaction) {
+          HandleErrorResult replayResult = replayTransaction(method, args);
+          if (replayResult != null) {
+            return replayResult;
+          }
+        }
         // throw Exception because must inform client, even if connection is reconnected
         return new HandleErrorResult(true);
       } else {
@@ -1116,6 +1432,8 @@ public class MastersSlavesListener extends AbstractMastersSlavesListener {
    * @throws SQLException if command fail.
    */
   public void reset() throws SQLException {
+    // temporary tables and session variables are reset
+    readRoutingPinned = false;
 
     if (!isMasterHostFail()) {
       masterProtocol.reset();
@@ -0,0 +1,564 @@
+/*
+ *
+ * MariaDB Client for Java
+ *
+ * Copyright (c) 2012-2014 Monty Program Ab.
+ * Copyright (c) 2015-2020 MariaDB Corporation Ab.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this library; if not, write to Monty Program Ab info@montyprogram.com.
+ *
+ * This particular MariaDB Client for Java file is work
+ * derived from a Drizzle-JDBC. Drizzle-JDBC file which is covered by subject to
+ * the following copyright and notice provisions:
+ *
+ * Copyright (c) 2009-2011, Marcus Eriksson
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this list
+ * of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this
+ * list of conditions and the following disclaimer in the documentation and/or
+ * other materials provided with the distribution.
+ *
+ * Neither the name of the driver nor the names of its contributors may not be
+ * used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS  AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package org.mariadb.jdbc.internal.failover.thread;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import org.mariadb.jdbc.HostAddress;
+import org.mariadb.jdbc.UrlParser;
+import org.mariadb.jdbc.internal.com.read.dao.Results;
+import org.mariadb.jdbc.internal.failover.tools.ClusterTopology;
+import org.mariadb.jdbc.internal.logging.Logger;
+import org.mariadb.jdbc.internal.logging.LoggerFactory;
+import org.mariadb.jdbc.internal.protocol.AuroraProtocol;
+import org.mariadb.jdbc.internal.protocol.MasterProtocol;
+import org.mariadb.jdbc.internal.util.Utils;
+import org.mariadb.jdbc.internal.util.constant.HaMode;
+import org.mariadb.jdbc.internal.util.pool.GlobalStateInfo;
+import org.mariadb.jdbc.internal.util.scheduler.MariaDbThreadFactory;
+import org.mariadb.jdbc.util.Options;
+
+/**
+ * Background monitor of a cluster, shared by all replication and aurora connections using the same
+ * credentials and host list.
+ *
+ * <p>One monitor is started per user and host list when the first connection with option
+ * "maxReplicationLag" or "topologyRefreshInterval" registers, and stopped when the last one is
+ * closed. The monitor has a single dedicated connection to each host, used for both checks:
+ *
+ * <ul>
+ *   <li>replica lag: each "replicationLagCheckInterval", "SHOW SLAVE STATUS" is run on every host
+ *       and the value of "Seconds_Behind_Master" is kept per host.
+ *   <li>topology: each "topologyRefreshInterval", every host is checked, and an immutable {@link
+ *       ClusterTopology} is built. If it differs from the previous one, registered connections are
+ *       notified.
+ * </ul>
+ *
+ * <p>Cluster is then queried once per cluster, not once per connection. Hosts are checked
+ * independently: an unreachable host doesn't delay the check of the others.
+ */
+public class ClusterMonitor {
+
+  /** Lag published for a replica whose replication is stopped. */
+  public static final long REPLICATION_STOPPED = Long.MAX_VALUE;
+
+  private static final int ER_SPECIFIC_ACCESS_DENIED = 1227;
+  private static final String AURORA_TOPOLOGY_QUERY =
+      "select server_id, session_id from information_schema.replica_host_status "
+          + "where last_update_timestamp > now() - INTERVAL 3 MINUTE "
+          + "ORDER BY last_update_timestamp DESC";
+  private static final Logger logger = LoggerFactory.getLogger(ClusterMonitor.class);
+  private static final ConcurrentHashMap<List<Object>, ClusterMonitor> monitors =
+      new ConcurrentHashMap<>();
+  private static ScheduledExecutorService scheduler;
+  private static ExecutorService checkExecutor;
+
+  private final List<Object> key;
+  private final boolean aurora;
+  private final List<HostMonitor> hostMonitors = new ArrayList<>();
+  private final ConcurrentHashMap<HostAddress, Long> lags = new ConcurrentHashMap<>();
+  private final List<Consumer<ClusterTopology>> consumers = new CopyOnWriteArrayList<>();
+
+  // topology state, guarded by this
+  private final Map<HostAddress, Boolean> writerStates = new HashMap<>();
+  private String writerInstance;
+  private List<String> instances = Collections.emptyList();
+
+  private int references;
+  private int lagReferences;
+  private ScheduledFuture<?> lagFuture;
+  private ScheduledFuture<?> topologyFuture;
+  private volatile ClusterTopology topology;
+  private volatile boolean closed;
+
+  ClusterMonitor(List<Object> key, UrlParser urlParser) {
+    this.key = key;
+    this.aurora = urlParser.getHaMode() == HaMode.AURORA;
+    for (HostAddress hostAddress : urlParser.getHostAddresses()) {
+      hostMonitors.add(new HostMonitor(urlParser, hostAddress));
+    }
+  }
+
+  private static synchronized ScheduledExecutorService getScheduler() {
+    if (scheduler == null) {
+      ScheduledThreadPoolExecutor executor =
+          new ScheduledThreadPoolExecutor(1, new MariaDbThreadFactory("MariaDb-cluster-monitor"));
+      executor.setRemoveOnCancelPolicy(true);
+      scheduler = executor;
+    }
+    return scheduler;
+  }
+
+  private static synchronized ExecutorService getCheckExecutor() {
+    if (checkExecutor == null) {
+      // one thread per host being checked, so that a host not answering blocks only its own check
+      checkExecutor =
+          new ThreadPoolExecutor(
+              0,
+              Integer.MAX_VALUE,
+              60,
+              TimeUnit.SECONDS,
+              new SynchronousQueue<>(),
+              new MariaDbThreadFactory("MariaDb-cluster-monitor-check"));
+    }
+    return checkExecutor;
+  }
+
+  /**
+   * Monitor identifier: monitor connections use registrant credentials, so connections with
+   * different users don't share a monitor. Password is only kept as a digest.
+   *
+   * @param urlParser connection string object
+   * @return monitor key
+   */
+  static List<Object> key(UrlParser urlParser) {
+    // copy: aurora connections may add discovered instances to their host list
+    return Arrays.asList(
+        urlParser.getUsername(),
+        Utils.sha256Hex(urlParser.getPassword()),
+        urlParser.getHaMode(),
+        new ArrayList<>(urlParser.getHostAddresses()));
+  }
+
+  /**
+   * Register a connection, starting the monitor of its credentials and host list if needed. Lag is
+   * checked if option "maxReplicationLag" is set, and topology if a consumer is given.
+   *
+   * @param urlParser connection string object
+   * @param consumer callback called on monitor thread each time topology changes, null if topology
+   *     is not monitored
+   * @return cluster monitor
+   */
+  public static ClusterMonitor register(UrlParser urlParser, Consumer<ClusterTopology> consumer) {
+    Options options = urlParser.getOptions();
+    return monitors.compute(
+        key(urlParser),
+        (monitorKey, monitor) -> {
+          if (monitor == null) {
+            monitor = new ClusterMonitor(monitorKey, urlParser);
+          }
+          monitor.references++;
+          if (options.maxReplicationLag > 0 && monitor.lagReferences++ == 0) {
+            monitor.lagFuture =
+                monitor.schedule(monitor::checkLags, options.replicationLagCheckInterval);
+          }
+          if (consumer != null) {
+            monitor.consumers.add(consumer);
+            if (monitor.topologyFuture == null) {
+              monitor.topologyFuture =
+                  monitor.schedule(monitor::checkTopology, options.topologyRefreshInterval);
+            }
+          }
+          return monitor;
+        });
+  }
+
+  /**
+   * Unregister a connection, stopping checks and monitor when no more connection use them.
+   *
+   * @param urlParser connection string object given at registration
+   * @param consumer callback given at registration
+   */
+  public void unregister(UrlParser urlParser, Consumer<ClusterTopology> consumer) {
+    monitors.computeIfPresent(
+        key,
+        (monitorKey, monitor) -> {
+          if (urlParser.getOptions().maxReplicationLag > 0 && --monitor.lagReferences == 0) {
+            monitor.lagFuture.cancel(false);
+            monitor.lagFuture = null;
+            monitor.lags.clear();
+          }
+          if (consumer != null
+              && monitor.consumers.remove(consumer)
+              && monitor.consumers.isEmpty()) {
+            monitor.topologyFuture.cancel(false);
+            monitor.topologyFuture = null;
+          }
+          if (--monitor.references > 0) {
+            return monitor;
+          }
+          monitor.close();
+          return null;
+        });
+  }
+
+  private ScheduledFuture<?> schedule(Runnable check, long interval) {
+    return getScheduler().scheduleWithFixedDelay(check, 0, interval, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Last lag observed for a host.
+   *
+   * @param hostAddress host
+   * @return lag in seconds, 0 if host is not a replica, -1 if unknown and {@link
+   *     #REPLICATION_STOPPED} if replication is stopped
+   */
+  public long getLag(HostAddress hostAddress) {
+    Long lag = lags.get(hostAddress);
+    return lag == null ? -1 : lag;
+  }
+
+  /**
+   * Indicate if a replica is lagging more than permitted. Unknown lag is not considered lagging.
+   *
+   * @param hostAddress host
+   * @param maxReplicationLag maximum lag in seconds
+   * @return true if host lag exceed maxReplicationLag
+   */
+  public boolean isLagging(HostAddress hostAddress, int maxReplicationLag) {
+    return getLag(hostAddress) > maxReplicationLag;
+  }
+
+  void setLag(HostAddress hostAddress, long lag) {
+    if (closed || lag < 0) {
+      lags.remove(hostAddress);
+    } else {
+      lags.put(hostAddress, lag);
+    }
+  }
+
+  /**
+   * Last topology published.
+   *
+   * @return cluster topology, null if not checked yet
+   */
+  public ClusterTopology getTopology() {
+    return topology;
+  }
+
+  /**
+   * Record the result of a host topology check, and publish the new topology once every host has
+   * been checked.
+   *
+   * @param hostAddress host
+   * @param isWriter true if host accepts writes, false if not, null if host is unreachable
+   */
+  void hostChecked(HostAddress hostAddress, Boolean isWriter) {
+    ClusterTopology newTopology;
+    synchronized (this) {
+      writerStates.put(hostAddress, isWriter);
+      HostAddress writer = null;
+      Set<HostAddress> reachable = new LinkedHashSet<>();
+      Set<HostAddress> unreachable = new LinkedHashSet<>();
+      for (HostMonitor hostMonitor : hostMonitors) {
+        if (!writerStates.containsKey(hostMonitor.hostAddress)) {
+          // first check of this host has not ended yet
+          return;
+        }
+        Boolean state = writerStates.get(hostMonitor.hostAddress);
+        if (state == null) {
+          unreachable.add(hostMonitor.hostAddress);
+          continue;
+        }
+        reachable.add(hostMonitor.hostAddress);
+        if (writer == null && state) {
+          writer = hostMonitor.hostAddress;
+        }
+      }
+
+      newTopology = new ClusterTopology(writer, reachable, unreachable, writerInstance, instances);
+      if (closed || newTopology.equals(topology)) {
+        return;
+      }
+      topology = newTopology;
+    }
+
+    logger.debug("Cluster topology changed : {}", newTopology);
+    for (Consumer<ClusterTopology> consumer : consumers) {
+      try {
+        consumer.accept(newTopology);
+      } catch (Throwable t) {
+        logger.debug("Cluster topology notification failed : {}", t.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Indicate if host must query aurora instances: only the first host known as reachable does.
+   *
+   * @param hostAddress host
+   * @return true if host is the first reachable one
+   */
+  private synchronized boolean isInstancesHost(HostAddress hostAddress) {
+    for (HostMonitor hostMonitor : hostMonitors) {
+      if (hostMonitor.hostAddress.equals(hostAddress)) {
+        return true;
+      }
+      if (writerStates.get(hostMonitor.hostAddress) != null) {
+        return false;
+      }
+    }
+    return false;
+  }
+
+  private synchronized void instancesChecked(String writerInstance, List<String> instances) {
+    this.writerInstance = writerInstance;
+    this.instances = instances;
+  }
+
+  boolean isClosed() {
+    return closed;
+  }
+
+  private void checkLags() {
+    for (HostMonitor hostMonitor : hostMonitors) {
+      execute(hostMonitor.lagRunning, hostMonitor::checkLag);
+    }
+  }
+
+  private void checkTopology() {
+    for (HostMonitor hostMonitor : hostMonitors) {
+      execute(hostMonitor.topologyRunning, hostMonitor::checkTopology);
+    }
+  }
+
+  /**
+   * Start a check, unless previous one has not ended.
+   *
+   * @param running flag set while check is running
+   * @param check check
+   */
+  private void execute(AtomicBoolean running, Runnable check) {
+    if (closed || !running.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      getCheckExecutor()
+          .execute(
+              () -> {
+                try {
+                  if (!closed) {
+                    check.run();
+                  }
+                } finally {
+                  running.set(false);
+                }
+              });
+    } catch (RejectedExecutionException rejected) {
+      running.set(false);
+    }
+  }
+
+  private void close() {
+    closed = true;
+    if (lagFuture != null) {
+      lagFuture.cancel(false);
+    }
+    if (topologyFuture != null) {
+      topologyFuture.cancel(false);
+    }
+    lags.clear();
+    for (HostMonitor hostMonitor : hostMonitors) {
+      try {
+        getCheckExecutor().execute(hostMonitor::close);
+      } catch (RejectedExecutionException rejected) {
+        // executor is never shut down, so this is not expected
+      }
+    }
+  }
+
+  /** Checks of one host, through a dedicated connection shared by lag and topology checks. */
+  private class HostMonitor {
+
+    private final UrlParser urlParser;
+    private final HostAddress hostAddress;
+    private final AtomicBoolean lagRunning = new AtomicBoolean();
+    private final AtomicBoolean topologyRunning = new AtomicBoolean();
+    private MasterProtocol protocol;
+    private boolean accessDeniedLogged;
+
+    HostMonitor(UrlParser urlParser, HostAddress hostAddress) {
+      this.urlParser = urlParser;
+      this.hostAddress = hostAddress;
+    }
+
+    private MasterProtocol connect() throws SQLException {
+      if (protocol == null || !protocol.isConnected()) {
+        // aurora connection must read the pipelined writer check sent when connecting
+        protocol =
+            aurora
+                ? new AuroraProtocol(urlParser, new GlobalStateInfo(), new ReentrantLock(), null)
+                : new MasterProtocol(urlParser, new GlobalStateInfo(), new ReentrantLock(), null);
+        protocol.setHostAddress(hostAddress);
+        protocol.connect();
+      }
+      return protocol;
+    }
+
+    synchronized void checkLag() {
+      setLag(hostAddress, queryLag());
+    }
+
+    private long queryLag() {
+      try {
+        Results results = new Results();
+        connect().executeQuery(false, results, "SHOW SLAVE STATUS");
+        results.commandEnd();
+        ResultSet resultSet = results.getResultSet();
+
+        // no row: host is not a replica. Multi-source replica: keep the worst lag
+        long lag = 0;
+        while (resultSet.next()) {
+          long secondsBehindMaster = resultSet.getLong("Seconds_Behind_Master");
+          lag = Math.max(lag, resultSet.wasNull() ? REPLICATION_STOPPED : secondsBehindMaster);
+        }
+        return lag;
+
+      } catch (SQLException sqle) {
+        if (sqle.getErrorCode() == ER_SPECIFIC_ACCESS_DENIED && !accessDeniedLogged) {
+          accessDeniedLogged = true;
+          logger.warn(
+              "Replication lag of {} is unknown, user {} needs REPLICATION CLIENT privilege : {}",
+              hostAddress,
+              urlParser.getUsername(),
+              sqle.getMessage());
+        } else {
+          logger.debug("Replication lag check failed on {} : {}", hostAddress, sqle.getMessage());
+        }
+        close();
+        return -1;
+      }
+    }
+
+    synchronized void checkTopology() {
+      Boolean isWriter = queryWriter();
+      if (aurora && isWriter != null && isInstancesHost(hostAddress)) {
+        queryInstances();
+      }
+      hostChecked(hostAddress, isWriter);
+    }
+
+    /**
+     * Check if host accepts writes, connecting if needed.
+     *
+     * @return true if host accepts writes, false if not, null if host is unreachable
+     */
+    private Boolean queryWriter() {
+      try {
+        boolean connected = protocol != null && protocol.isConnected();
+        MasterProtocol connection = connect();
+        if (!aurora) {
+          if (connected) {
+            connection.ping();
+          }
+          return connection.isMasterConnection();
+        }
+
+        // aurora writer may change at any time: same check than AuroraProtocol.checkIfMaster()
+        Results results = new Results();
+        connection.executeQuery(false, results, "select @@innodb_read_only");
+        results.commandEnd();
+        ResultSet resultSet = results.getResultSet();
+        return !resultSet.next() || resultSet.getInt(1) == 0;
+      } catch (SQLException sqle) {
+        logger.debug("Topology check failed on {} : {}", hostAddress, sqle.getMessage());
+        close();
+        return null;
+      }
+    }
+
+    private void queryInstances() {
+      String writerInstance = null;
+      List<String> instances = new ArrayList<>();
+      try {
+        Results results = new Results();
+        protocol.executeQuery(false, results, AURORA_TOPOLOGY_QUERY);
+        results.commandEnd();
+        ResultSet resultSet = results.getResultSet();
+        while (resultSet.next()) {
+          String instance = resultSet.getString(1);
+          if (writerInstance == null && "MASTER_SESSION_ID".equals(resultSet.getString(2))) {
+            writerInstance = instance;
+          }
+          instances.add(instance);
+        }
+        Collections.sort(instances);
+      } catch (SQLException sqle) {
+        logger.debug("Aurora topology check failed : {}", sqle.getMessage());
+        close();
+        writerInstance = null;
+        instances.clear();
+      }
+      instancesChecked(writerInstance, instances);
+    }
+
+    synchronized void close() {
+      // failed connection has already released its socket
+      if (protocol != null && protocol.isConnected()) {
+        protocol.close();
+      }
+      protocol = null;
+    }
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ *
+ * MariaDB Client for Java
+ *
+ * Copyright (c) 2012-2014 Monty Program Ab.
+ * Copyright (c) 2015-2020 MariaDB Corporation Ab.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this library; if not, write to Monty Program Ab info@montyprogram.com.
+ *
+ * This particular MariaDB Client for Java file is work
+ * derived from a Drizzle-JDBC. Drizzle-JDBC file which is covered by subject to
+ * the following copyright and notice provisions:
+ *
+ * Copyright (c) 2009-2011, Marcus Eriksson
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this list
+ * of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this
+ * list of conditions and the following disclaimer in the documentation and/or
+ * other materials provided with the distribution.
+ *
+ * Neither the name of the driver nor the names of its contributors may not be
+ * used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS  AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package org.mariadb.jdbc.internal.failover.tools;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import org.mariadb.jdbc.HostAddress;
+
+/** Immutable snapshot of a cluster state, as seen by the topology monitor. */
+public final class ClusterTopology {
+
+  private final HostAddress writer;
+  private final Set<HostAddress> reachable;
+  private final Set<HostAddress> unreachable;
+  private final String writerInstance;
+  private final List<String> instances;
+
+  /**
+   * Constructor.
+   *
+   * @param writer reachable host accepting writes, null if none
+   * @param reachable hosts that accepted a connection
+   * @param unreachable hosts that didn't
+   * @param writerInstance aurora writer instance identifier, null if unknown
+   * @param instances aurora instance identifiers, empty if unknown
+   */
+  public ClusterTopology(
+      HostAddress writer,
+      Set<HostAddress> reachable,
+      Set<HostAddress> unreachable,
+      String writerInstance,
+      List<String> instances) {
+    this.writer = writer;
+    this.reachable = Collections.unmodifiableSet(new LinkedHashSet<>(reachable));
+    this.unreachable = Collections.unmodifiableSet(new LinkedHashSet<>(unreachable));
+    this.writerInstance = writerInstance;
+    this.instances = Collections.unmodifiableList(instances);
+  }
+
+  public HostAddress getWriter() {
+    return writer;
+  }
+
+  public Set<HostAddress> getReachable() {
+    return reachable;
+  }
+
+  public Set<HostAddress> getUnreachable() {
+    return unreachable;
+  }
+
+  public String getWriterInstance() {
+    return writerInstance;
+  }
+
+  public List<String> getInstances() {
+    return instances;
+  }
+
+  /**
+   * Indicate if a host other than the writer is reachable.
+   *
+   * @return true if a read-only connection can be established
+   */
+  public boolean hasReachableReader() {
+    for (HostAddress hostAddress : reachable) {
+      if (!hostAddress.equals(writer)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (obj == null || getClass() != obj.getClass()) {
+      return false;
+    }
+    ClusterTopology that = (ClusterTopology) obj;
+    return Objects.equals(writer, that.writer)
+        && reachable.equals(that.reachable)
+        && unreachable.equals(that.unreachable)
+        && Objects.equals(writerInstance, that.writerInstance)
+        && instances.equals(that.instances);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(writer, reachable, unreachable, writerInstance, instances);
+  }
+
+  @Override
+  public String toString() {
+    return "ClusterTopology{writer="
+        + writer
+        + ", reachable="
+        + reachable
+        + ", unreachable="
+        + unreachable
+        + ", writerInstance="
+        + writerInstance
+        + ", instances="
+        + instances
+        + "}";
+  }
+}
@@ -0,0 +1,280 @@
+/*
+ *
+ * MariaDB Client for Java
+ *
+ * Copyright (c) 2012-2014 Monty Program Ab.
+ * Copyright (c) 2015-2020 MariaDB Corporation Ab.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this library; if not, write to Monty Program Ab info@montyprogram.com.
+ *
+ * This particular MariaDB Client for Java file is work
+ * derived from a Drizzle-JDBC. Drizzle-JDBC file which is covered by subject to
+ * the following copyright and notice provisions:
+ *
+ * Copyright (c) 2009-2011, Marcus Eriksson
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this list
+ * of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this
+ * list of conditions and the following disclaimer in the documentation and/or
+ * other materials provided with the distribution.
+ *
+ * Neither the name of the driver nor the names of its contributors may not be
+ * used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS  AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package org.mariadb.jdbc.internal.failover.tools;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import org.mariadb.jdbc.HostAddress;
+import org.mariadb.jdbc.internal.failover.Listener;
+import org.mariadb.jdbc.internal.protocol.Protocol;
+import org.mariadb.jdbc.internal.util.scheduler.MariaDbThreadFactory;
+
+/**
+ * "Happy eyeballs" connection strategy used when searching hosts (option "parallelConnectDelay").
+ *
+ * <p>Connecting to a host starts the attempt in background. If it has not completed after the
+ * delay, or as soon as it fails, an attempt to the next host starts too, and so on. The first
+ * successful connection is returned. Remaining hosts are taken from the search loop list and kept
+ * in the racer own list, so they are neither attempted twice nor lost: as long as {@link
+ * #hasAttempts()}, the search loop must get its next connection from {@link #next()}, that returns
+ * attempts still running or starts the remaining hosts. Attempts not used when the search ends are
+ * closed by {@link #close()}.
+ *
+ * <p>Not thread-safe: a racer is used by a single search loop.
+ *
+ * @param <T> protocol type
+ */
+public class ConnectionRacer<T extends Protocol> {
+
+  private static ExecutorService executor;
+
+  private final Listener listener;
+  private final Function<HostAddress, T> protocolFactory;
+  private final Predicate<HostAddress> skipHost;
+  private final long delayNanos;
+  private final Deque<HostAddress> hosts = new ArrayDeque<>();
+  private final LinkedBlockingQueue<Attempt<T>> completed = new LinkedBlockingQueue<>();
+  private int inFlight;
+  private long lastStart;
+  private volatile boolean closed;
+
+  /**
+   * Constructor.
+   *
+   * @param listener current listener, used to blacklist failing hosts
+   * @param protocolFactory create a new (not connected) protocol for a host
+   * @param delayMillis delay before starting an attempt to next host
+   * @param skipHost hosts not to attempt in parallel (like lagging replicas), null if none
+   */
+  public ConnectionRacer(
+      Listener listener,
+      Function<HostAddress, T> protocolFactory,
+      long delayMillis,
+      Predicate<HostAddress> skipHost) {
+    this.listener = listener;
+    this.protocolFactory = protocolFactory;
+    this.skipHost = skipHost;
+    this.delayNanos = TimeUnit.MILLISECONDS.toNanos(delayMillis);
+  }
+
+  private static synchronized ExecutorService getExecutor() {
+    if (executor == null) {
+      executor = Executors.newCachedThreadPool(new MariaDbThreadFactory("MariaDb-connect-race"));
+    }
+    return executor;
+  }
+
+  /**
+   * Connect protocol, racing with following hosts of the list.
+   *
+   * @param protocol protocol with host address set
+   * @param loopHosts remaining hosts of the search loop. They are moved to the racer list, and
+   *     attempted in parallel if protocol doesn't connect fast enough.
+   * @return a connected protocol, not necessary the one given
+   * @throws SQLException if all attempts failed
+   */
+  public T connect(T protocol, Deque<HostAddress> loopHosts) throws SQLException {
+    HostAddress host;
+    while ((host = loopHosts.pollFirst()) != null) {
+      hosts.add(host);
+    }
+    start(protocol);
+    return next();
+  }
+
+  /**
+   * Indicate if racer has attempts running, or hosts to attempt. Search loop must then use {@link
+   * #next()} instead of starting a new connection.
+   *
+   * @return true if racer can give another connection
+   */
+  public boolean hasAttempts() {
+    return inFlight > 0 || hasHosts();
+  }
+
+  private boolean hasHosts() {
+    while (!hosts.isEmpty()) {
+      if (skipHost == null || !skipHost.test(hosts.peekFirst())) {
+        return true;
+      }
+      hosts.pollFirst();
+    }
+    return false;
+  }
+
+  /**
+   * Remove a host from the racer list, if not attempted yet.
+   *
+   * @param hostAddress host
+   */
+  public void removeHost(HostAddress hostAddress) {
+    hosts.remove(hostAddress);
+  }
+
+  /**
+   * Next connected protocol: first attempt to succeed among running ones, starting remaining hosts
+   * after delay, or as soon as an attempt fails.
+   *
+   * @return a connected protocol
+   * @throws SQLException if all attempts failed
+   */
+  public T next() throws SQLException {
+    SQLException lastException = null;
+    while (true) {
+      Attempt<T> attempt = completed.poll();
+      if (attempt == null) {
+        if (inFlight == 0) {
+          if (!startNext()) {
+            throw lastException != null ? lastException : new SQLException("No host to connect to");
+          }
+          continue;
+        }
+
+        long wait = delayNanos - (System.nanoTime() - lastStart);
+        if (wait <= 0 && startNext()) {
+          continue;
+        }
+        try {
+          attempt = hasHosts() ? completed.poll(wait, TimeUnit.NANOSECONDS) : completed.take();
+        } catch (InterruptedException interrupted) {
+          Thread.currentThread().interrupt();
+          throw new SQLException("Interrupted while connecting");
+        }
+        if (attempt == null) {
+          continue;
+        }
+      }
+
+      inFlight--;
+      if (attempt.exception == null) {
+        return attempt.protocol;
+      }
+      lastException = failed(attempt);
+      // no need to wait for delay to try next host
+      lastStart = System.nanoTime() - delayNanos;
+    }
+  }
+
+  /**
+   * Start an attempt to next host of racer list.
+   *
+   * @return false if there is no host left to attempt
+   */
+  private boolean startNext() {
+    HostAddress host;
+    while ((host = hosts.pollFirst()) != null) {
+      if (skipHost == null || !skipHost.test(host)) {
+        start(protocolFactory.apply(host));
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void start(T protocol) {
+    inFlight++;
+    lastStart = System.nanoTime();
+    getExecutor()
+        .execute(
+            () -> {
+              SQLException exception = null;
+              try {
+                protocol.connect();
+              } catch (SQLException sqle) {
+                exception = sqle;
+              }
+              completed.add(new Attempt<>(protocol, exception));
+              if (closed) {
+                closeCompleted();
+              }
+            });
+  }
+
+  private SQLException failed(Attempt<T> attempt) {
+    listener.addToBlacklist(attempt.protocol.getHostAddress());
+    return attempt.exception;
+  }
+
+  private void closeCompleted() {
+    Attempt<T> attempt;
+    while ((attempt = completed.poll()) != null) {
+      if (attempt.exception == null) {
+        attempt.protocol.close();
+      }
+    }
+  }
+
+  /** End of search: close connections that have not been used, now or when they complete. */
+  public void close() {
+    closed = true;
+    hosts.clear();
+    closeCompleted();
+  }
+
+  private static class Attempt<T> {
+    private final T protocol;
+    private final SQLException exception;
+
+    private Attempt(T protocol, SQLException exception) {
+      this.protocol = protocol;
+      this.exception = exception;
+    }
+  }
+}
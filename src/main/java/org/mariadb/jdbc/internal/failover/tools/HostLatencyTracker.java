@@ -0,0 +1,152 @@
+/*
+ *
+ * MariaDB Client for Java
+ *
+ * Copyright (c) 2012-2014 Monty Program Ab.
+ * Copyright (c) 2015-2020 MariaDB Corporation Ab.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this library; if not, write to Monty Program Ab info@montyprogram.com.
+ *
+ * This particular MariaDB Client for Java file is work
+ * derived from a Drizzle-JDBC. Drizzle-JDBC file which is covered by subject to
+ * the following copyright and notice provisions:
+ *
+ * Copyright (c) 2009-2011, Marcus Eriksson
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this list
+ * of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this
+ * list of conditions and the following disclaimer in the documentation and/or
+ * other materials provided with the distribution.
+ *
+ * Neither the name of the driver nor the names of its contributors may not be
+ * used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS  AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package org.mariadb.jdbc.internal.failover.tools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import org.mariadb.jdbc.HostAddress;
+
+/**
+ * Classloader-wide exponentially weighted moving average of the latency observed per host.
+ *
+ * <p>Samples come from pings and queries executed on replication connections, so every connection
+ * sharing a host contributes to, and benefits from, the same estimate. The average decays toward
+ * zero while a host is not used, so a host that was slow once is tried again later instead of being
+ * starved.
+ */
+public class HostLatencyTracker {
+
+  private static final double ALPHA = 0.2;
+  private static final long HALF_LIFE_NANOS = 60_000_000_000L;
+
+  private static final ConcurrentHashMap<HostAddress, Ewma> latencies = new ConcurrentHashMap<>();
+
+  private HostLatencyTracker() {
+    // static utility
+  }
+
+  /**
+   * Add a latency sample for a host.
+   *
+   * @param hostAddress host
+   * @param nanos observed latency in nanoseconds
+   */
+  public static void record(HostAddress hostAddress, long nanos) {
+    if (hostAddress == null || nanos < 0) {
+      return;
+    }
+    latencies.computeIfAbsent(hostAddress, key -> new Ewma()).update(nanos, System.nanoTime());
+  }
+
+  /**
+   * Current decayed latency estimate of a host.
+   *
+   * @param hostAddress host
+   * @return estimate in nanoseconds, 0 if host has never been measured
+   */
+  public static double latency(HostAddress hostAddress) {
+    Ewma ewma = latencies.get(hostAddress);
+    return ewma == null ? 0 : Math.max(0, ewma.value(System.nanoTime()));
+  }
+
+  /**
+   * Reorder hosts using power-of-two-choices: each position is filled by drawing two remaining
+   * hosts at random and keeping the one with the lowest latency estimate. Fastest hosts are
+   * favoured without sending every new connection to the same one.
+   *
+   * @param hosts hosts to reorder in place
+   */
+  public static void order(List<HostAddress> hosts) {
+    if (hosts.size() < 2) {
+      return;
+    }
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    List<HostAddress> remaining = new ArrayList<>(hosts);
+    hosts.clear();
+    while (remaining.size() > 1) {
+      int first = random.nextInt(remaining.size());
+      int second = random.nextInt(remaining.size() - 1);
+      if (second >= first) {
+        second++;
+      }
+      int chosen = latency(remaining.get(first)) <= latency(remaining.get(second)) ? first : second;
+      hosts.add(remaining.remove(chosen));
+    }
+    hosts.add(remaining.get(0));
+  }
+
+  /** Clear all samples. */
+  public static void clear() {
+    latencies.clear();
+  }
+
+  private static class Ewma {
+    private double value = -1;
+    private long lastUpdate;
+
+    synchronized void update(long sample, long now) {
+      double current = value(now);
+      value = current < 0 ? sample : current + ALPHA * (sample - current);
+      lastUpdate = now;
+    }
+
+    synchronized double value(long now) {
+      if (value < 0) {
+        return value;
+      }
+      return value * Math.pow(0.5, (double) (now - lastUpdate) / HALF_LIFE_NANOS);
+    }
+  }
+}
@@ -0,0 +1,348 @@
+/*
+ *
+ * MariaDB Client for Java
+ *
+ * Copyright (c) 2012-2014 Monty Program Ab.
+ * Copyright (c) 2015-2020 MariaDB Corporation Ab.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this library; if not, write to Monty Program Ab info@montyprogram.com.
+ *
+ * This particular MariaDB Client for Java file is work
+ * derived from a Drizzle-JDBC. Drizzle-JDBC file which is covered by subject to
+ * the following copyright and notice provisions:
+ *
+ * Copyright (c) 2009-2011, Marcus Eriksson
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this list
+ * of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this
+ * list of conditions and the following disclaimer in the documentation and/or
+ * other materials provided with the distribution.
+ *
+ * Neither the name of the driver nor the names of its contributors may not be
+ * used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS  AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package org.mariadb.jdbc.internal.failover.tools;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+import org.mariadb.jdbc.MariaDbStatement;
+import org.mariadb.jdbc.internal.com.read.dao.CmdInformation;
+import org.mariadb.jdbc.internal.com.read.dao.Results;
+import org.mariadb.jdbc.internal.com.send.parameters.ParameterHolder;
+import org.mariadb.jdbc.internal.protocol.Protocol;
+import org.mariadb.jdbc.internal.util.dao.ClientPrepareResult;
+import org.mariadb.jdbc.internal.util.dao.ServerPrepareResult;
+
+/**
+ * Commands of current transaction, kept to be replayed on a new master connection after failover
+ * (option "transactionReplay").
+ *
+ * <p>Only single queries (text or prepared) are recorded, with their parameters, update counts and
+ * a digest of their result-sets and generated keys. Transaction becomes non-replayable when it
+ * contains another command (batch, internal query, multiple results), a long data parameter
+ * (streams cannot be read twice), a streaming result-set, or when it exceeds the maximum size.
+ */
+public class TransactionReplayBuffer {
+
+  // single statement, that cannot have committed transaction
+  private static final Pattern REPLAY_SAFE_PATTERN =
+      Pattern.compile(
+          "\\s*(SELECT|INSERT|UPDATE|DELETE|REPLACE|SAVEPOINT)\\b[^;]*;?\\s*",
+          Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+  private static final Pattern LAST_INSERT_ID_PATTERN =
+      Pattern.compile("\\bLAST_INSERT_ID\\s*\\(", Pattern.CASE_INSENSITIVE);
+  private static final Pattern SELECT_PATTERN =
+      Pattern.compile("\\s*SELECT\\b", Pattern.CASE_INSENSITIVE);
+
+  private final int maxSize;
+  private final List<Command> commands = new ArrayList<>();
+  private Protocol protocol;
+  private boolean replayable = true;
+
+  public TransactionReplayBuffer(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Record a command successfully executed on master connection.
+   *
+   * @param protocol connection that executed command
+   * @param method executed method, null if command cannot be replayed
+   * @param args method arguments
+   */
+  public void record(Protocol protocol, Method method, Object[] args) {
+    if (this.protocol != protocol) {
+      // new connection : previous transaction has been lost
+      clear();
+      this.protocol = protocol;
+    }
+
+    if (!protocol.inTransaction()) {
+      clear();
+      return;
+    }
+
+    if (!replayable) {
+      return;
+    }
+
+    Command command = method == null ? null : Command.of(method, args);
+    if (command == null || commands.size() >= maxSize) {
+      commands.clear();
+      replayable = false;
+      return;
+    }
+    commands.add(command);
+  }
+
+  /**
+   * Indicate if command that failed can be relaunched after replay : a single statement, that
+   * cannot have committed the transaction on failed connection. Statements separated by ";" are
+   * never considered safe, even if separator is in a string or comment. Command using
+   * LAST_INSERT_ID() is not safe either, since value of new connection may differ when transaction
+   * has not inserted any row.
+   *
+   * @param method protocol method
+   * @param args method arguments
+   * @return true if command can be relaunched
+   */
+  public static boolean isReplaySafe(Method method, Object[] args) {
+    String sql = sql(method, args);
+    return sql != null
+        && REPLAY_SAFE_PATTERN.matcher(sql).matches()
+        && !LAST_INSERT_ID_PATTERN.matcher(sql).find();
+  }
+
+  private static String sql(Method method, Object[] args) {
+    switch (method.getName()) {
+      case "executeQuery":
+        if (args.length < 3) {
+          return null;
+        }
+        if (args[2] instanceof String) {
+          return (String) args[2];
+        }
+        if (args[2] instanceof ClientPrepareResult) {
+          return ((ClientPrepareResult) args[2]).getSql();
+        }
+        return null;
+      case "executePreparedQuery":
+        return ((ServerPrepareResult) args[1]).getSql();
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Replay recorded commands on new connection. Replay fails if a command has a different result
+   * than the original execution: update count, result-set content, or generated keys (and so
+   * LAST_INSERT_ID value).
+   *
+   * @param newProtocol new master connection
+   * @return true if all commands have been replayed with the same results
+   * @throws SQLException if a command fails
+   */
+  public boolean replay(Protocol newProtocol) throws SQLException {
+    if (!replayable) {
+      return false;
+    }
+    for (Command command : commands) {
+      if (!command.replay(newProtocol)) {
+        return false;
+      }
+    }
+    protocol = newProtocol;
+    return true;
+  }
+
+  /** Indicate that current transaction is finished or lost. */
+  public void clear() {
+    commands.clear();
+    replayable = true;
+  }
+
+  public int size() {
+    return commands.size();
+  }
+
+  public boolean isReplayable() {
+    return replayable;
+  }
+
+  private static class Command {
+
+    private final Method method;
+    private final Object[] args;
+    private final int resultsIndex;
+    private final MariaDbStatement statement;
+    private final int expectedSize;
+    private final boolean binaryFormat;
+    private final int autoGeneratedKeys;
+    private final String sql;
+    private final long[] updateCounts;
+    private final byte[] digest;
+
+    private Command(
+        Method method, Object[] args, int resultsIndex, Results results, byte[] digest) {
+      this.method = method;
+      this.args = args;
+      this.resultsIndex = resultsIndex;
+      this.statement = results.getStatement();
+      this.expectedSize = results.getExpectedSize();
+      this.binaryFormat = results.isBinaryFormat();
+      this.autoGeneratedKeys = results.getAutoGeneratedKeys();
+      this.sql = results.getSql();
+      this.updateCounts = updateCounts(results);
+      this.digest = digest;
+    }
+
+    /**
+     * Create a command from protocol method call, copying arguments that may be reused by
+     * statements.
+     *
+     * @param method protocol method
+     * @param args method arguments
+     * @return command, or null if method call cannot be replayed
+     */
+    static Command of(Method method, Object[] args) {
+      if (!"executeQuery".equals(method.getName())
+          && !"executePreparedQuery".equals(method.getName())) {
+        return null;
+      }
+      Object[] copy = args.clone();
+      int resultsIndex = -1;
+      for (int i = 0; i < copy.length; i++) {
+        if (copy[i] instanceof Results) {
+          resultsIndex = i;
+        } else if (copy[i] instanceof ParameterHolder[]) {
+          ParameterHolder[] parameters = ((ParameterHolder[]) copy[i]).clone();
+          for (ParameterHolder parameter : parameters) {
+            if (parameter != null && parameter.isLongData()) {
+              return null;
+            }
+          }
+          copy[i] = parameters;
+        }
+      }
+      if (resultsIndex == -1) {
+        return null;
+      }
+      String sql = sql(method, args);
+      if (sql != null
+          && LAST_INSERT_ID_PATTERN.matcher(sql).find()
+          && !SELECT_PATTERN.matcher(sql).lookingAt()) {
+        // LAST_INSERT_ID() value is only compared when returned in a result-set
+        return null;
+      }
+      Results results = (Results) copy[resultsIndex];
+      byte[] digest = digest(results);
+      if (digest == null) {
+        return null;
+      }
+      // results are not kept, to avoid retaining result-sets until the end of transaction
+      copy[resultsIndex] = null;
+      return new Command(method, copy, resultsIndex, results, digest);
+    }
+
+    private static long[] updateCounts(Results results) {
+      CmdInformation cmdInformation = results.getCmdInformation();
+      return cmdInformation == null ? null : cmdInformation.getLargeUpdateCounts();
+    }
+
+    /**
+     * Digest of result-sets and generated keys.
+     *
+     * @param results command results
+     * @return digest, or null if results cannot be compared
+     */
+    private static byte[] digest(Results results) {
+      try {
+        MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+        return results.digest(messageDigest) ? messageDigest.digest() : null;
+      } catch (NoSuchAlgorithmException noSuchAlgorithmException) {
+        // every java platform must support SHA-256
+        throw new IllegalStateException(noSuchAlgorithmException);
+      }
+    }
+
+    boolean replay(Protocol protocol) throws SQLException {
+      Object[] replayArgs = args.clone();
+      Results results =
+          statement == null
+              ? new Results()
+              : new Results(
+                  statement,
+                  0,
+                  false,
+                  expectedSize,
+                  binaryFormat,
+                  ResultSet.TYPE_FORWARD_ONLY,
+                  ResultSet.CONCUR_READ_ONLY,
+                  autoGeneratedKeys,
+                  protocol.getAutoIncrementIncrement(),
+                  sql,
+                  null);
+      replayArgs[resultsIndex] = results;
+
+      if (replayArgs[1] instanceof ServerPrepareResult) {
+        // statement id has been discarded with previous connection
+        ServerPrepareResult serverPrepareResult = (ServerPrepareResult) replayArgs[1];
+        if (serverPrepareResult.getUnProxiedProtocol() != protocol) {
+          ServerPrepareResult newServerPrepareResult =
+              protocol.prepare(serverPrepareResult.getSql(), true);
+          serverPrepareResult.failover(newServerPrepareResult.getStatementId(), protocol);
+        }
+      }
+
+      try {
+        method.invoke(protocol, replayArgs);
+      } catch (IllegalAccessException e) {
+        throw new SQLException(e);
+      } catch (InvocationTargetException e) {
+        if (e.getCause() instanceof SQLException) {
+          throw (SQLException) e.getCause();
+        }
+        throw new SQLException(e.getCause());
+      }
+      return Arrays.equals(digest, digest(results))
+          && Arrays.equals(updateCounts, updateCounts(results));
+    }
+  }
+}
@@ -177,6 +177,18 @@ public abstract class AbstractPacketOutputStream extends FilterOutputStream
 
   public abstract void writeEmptyPacket() throws IOException;
 
+  /**
+   * Send current packet and start next one, for data sent as independent packets (LOCAL INFILE
+   * content). Sequence number is continued by stream, whatever the number of packets current data
+   * has been split into.
+   *
+   * @throws IOException if socket error occur.
+   */
+  public void nextPacket() throws IOException {
+    flushBuffer(true);
+    cmdLength = 0;
+  }
+
   /**
    * Send packet to socket.
    *
@@ -68,6 +68,8 @@ public interface PacketOutputStream {
 
   void writeEmptyPacket() throws IOException;
 
+  void nextPacket() throws IOException;
+
   void write(int arr) throws IOException;
 
   void write(byte[] arr) throws IOException;
@@ -98,6 +98,7 @@ import org.mariadb.jdbc.internal.io.output.StandardPacketOutputStream;
 import org.mariadb.jdbc.internal.logging.Logger;
 import org.mariadb.jdbc.internal.logging.LoggerFactory;
 import org.mariadb.jdbc.internal.util.ServerPrepareStatementCache;
+import org.mariadb.jdbc.internal.util.SessionMetadataCache;
 import org.mariadb.jdbc.internal.util.Utils;
 import org.mariadb.jdbc.internal.util.constant.HaMode;
 import org.mariadb.jdbc.internal.util.constant.ParameterConstant;
@@ -106,6 +107,7 @@ import org.mariadb.jdbc.internal.util.exceptions.ExceptionFactory;
 import org.mariadb.jdbc.internal.util.pool.GlobalStateInfo;
 import org.mariadb.jdbc.tls.TlsSocketPlugin;
 import org.mariadb.jdbc.tls.TlsSocketPluginLoader;
+import org.mariadb.jdbc.tls.TlsStatistics;
 import org.mariadb.jdbc.util.Options;
 
 public abstract class AbstractConnectProtocol implements Protocol {
@@ -122,10 +124,10 @@ public abstract class AbstractConnectProtocol implements Protocol {
 
   private static final Logger logger = LoggerFactory.getLogger(AbstractConnectProtocol.class);
   protected final ReentrantLock lock;
-  protected final UrlParser urlParser;
+  protected UrlParser urlParser;
   protected final Options options;
   protected final LruTraceCache traceCache;
-  private final String username;
+  private String username;
   private final GlobalStateInfo globalInfo;
   public boolean hasWarnings = false;
   public Results activeStreamingResult = null;
@@ -142,7 +144,11 @@ public abstract class AbstractConnectProtocol implements Protocol {
   protected long serverThreadId;
   protected ServerPrepareStatementCache serverPrepareStatementCache;
   protected boolean eofDeprecated = false;
+  protected boolean sessionStateTracked = false;
+  protected boolean sessionStateChanged = true;
   protected long serverCapabilities;
+  protected byte exchangeCharset;
+  protected byte[] seed;
   protected int socketTimeout;
   protected ExceptionFactory exceptionFactory;
   protected final List<String> galeraAllowedStates;
@@ -469,6 +475,24 @@ public abstract class AbstractConnectProtocol implements Protocol {
 
   public void setServerStatus(short serverStatus) {
     this.serverStatus = serverStatus;
+    if ((serverStatus & ServerStatus.SERVER_SESSION_STATE_CHANGED) != 0) {
+      sessionStateChanged = true;
+    }
+  }
+
+  /**
+   * Indicate if session state may have changed since connection creation or last reset. Without
+   * session state tracking (server without CLIENT_SESSION_TRACK capability, or option
+   * "useResetConnection" not set), session is always considered changed.
+   *
+   * @return true if session state may have changed.
+   */
+  public boolean isSessionStateChanged() {
+    return !sessionStateTracked || sessionStateChanged;
+  }
+
+  public void setSessionStateChanged(boolean sessionStateChanged) {
+    this.sessionStateChanged = sessionStateChanged;
   }
 
   /** Remove flag has more results. */
@@ -526,6 +550,8 @@ public abstract class AbstractConnectProtocol implements Protocol {
       parseVersion(greetingPacket.getServerVersion());
 
       byte exchangeCharset = decideLanguage(greetingPacket.getServerLanguage() & 0xFF);
+      this.exchangeCharset = exchangeCharset;
+      this.seed = greetingPacket.getSeed();
       long clientCapabilities = initializeClientCapabilities(options, serverCapabilities, database);
       exceptionFactory = ExceptionFactory.of(serverThreadId, options);
 
@@ -646,7 +672,9 @@ public abstract class AbstractConnectProtocol implements Protocol {
       enabledSslCipherSuites(sslSocket, options);
 
       sslSocket.setUseClientMode(true);
+      long handshakeStart = System.currentTimeMillis();
       sslSocket.startHandshake();
+      TlsStatistics.handshake(sslSocket.getSession(), handshakeStart);
 
       // perform hostname verification
       // (rfc2818 indicate that if "client has external information as to the expected identity of
@@ -695,7 +723,21 @@ public abstract class AbstractConnectProtocol implements Protocol {
         seed);
 
     writer.permitTrace(false);
+    readAuthenticationResult(seed, credential);
+    writer.permitTrace(true);
+  }
 
+  /**
+   * Read authentication result, handling authentication switch requests until server send an
+   * OK_Packet or an ERR_Packet.
+   *
+   * @param seed seed used for initial authentication response
+   * @param credential credential
+   * @throws SQLException if authentication fails
+   * @throws IOException if socket exception occur
+   */
+  protected void readAuthenticationResult(byte[] seed, Credential credential)
+      throws SQLException, IOException {
     Buffer buffer = reader.getPacket(false);
     AtomicInteger sequence = new AtomicInteger(reader.getLastPacketSeq());
 
@@ -786,7 +828,6 @@ public abstract class AbstractConnectProtocol implements Protocol {
               "08000");
       }
     }
-    writer.permitTrace(true);
   }
 
   private void compressionHandler(Options options) {
@@ -867,20 +908,33 @@ public abstract class AbstractConnectProtocol implements Protocol {
 
       if (mustLoadAdditionalInfo) {
         Map<String, String> serverData = new TreeMap<>();
+        String sessionCacheKey = sessionMetadataCacheKey();
+        Map<String, String> cachedData =
+            sessionCacheKey == null
+                ? null
+                : SessionMetadataCache.get(sessionCacheKey, serverVersion);
+        boolean loadVariables = cachedData == null;
         if (options.usePipelineAuth && !options.createDatabaseIfNotExist) {
           try {
-            sendPipelineAdditionalData();
-            readPipelineAdditionalData(serverData);
+            sendPipelineAdditionalData(loadVariables);
+            readPipelineAdditionalData(serverData, loadVariables);
           } catch (SQLException sqle) {
             if ("08".equals(sqle.getSQLState())) {
               throw sqle;
             }
             // in case pipeline is not supported
             // (proxy flush socket after reading first packet)
-            additionalData(serverData);
+            additionalData(serverData, loadVariables);
           }
         } else {
-          additionalData(serverData);
+          additionalData(serverData, loadVariables);
+        }
+
+        if (cachedData != null) {
+          serverData.putAll(cachedData);
+        } else if (sessionCacheKey != null) {
+          SessionMetadataCache.put(
+              sessionCacheKey, serverVersion, serverData, options.sessionMetadataCacheTtl);
         }
 
         writer.setMaxAllowedPacket(Integer.parseInt(serverData.get("max_allowed_packet")));
@@ -894,6 +948,9 @@ public abstract class AbstractConnectProtocol implements Protocol {
         loadCalendar(globalInfo.getTimeZone(), globalInfo.getSystemTimeZone());
       }
 
+      // initial session state : changes made by connection queries are not considered
+      sessionStateChanged = false;
+
       reader.setServerThreadId(this.serverThreadId, isMasterConnection());
       writer.setServerThreadId(this.serverThreadId, isMasterConnection());
 
@@ -929,20 +986,63 @@ public abstract class AbstractConnectProtocol implements Protocol {
     }
   }
 
+  /**
+   * Key identifying server in session metadata cache, or null if cache is disabled.
+   *
+   * @return cache key
+   */
+  private String sessionMetadataCacheKey() {
+    if (options.sessionMetadataCacheTtl == 0 || currentHost == null || serverVersion == null) {
+      return null;
+    }
+    // session variables and init_connect (depending on user) may change returned values
+    StringBuilder sb =
+        new StringBuilder(username)
+            .append('@')
+            .append(currentHost.host)
+            .append(':')
+            .append(currentHost.port);
+    if (options.sessionVariables != null) {
+      sb.append('?').append(options.sessionVariables);
+    }
+    return sb.toString();
+  }
+
   /**
    * Send all additional needed values. Command are send one after the other, assuming that command
    * are less than 65k (minimum hosts TCP/IP buffer size)
    *
+   * @param loadVariables must request server variables (not already cached)
    * @throws IOException if socket exception occur
    */
-  private void sendPipelineAdditionalData() throws IOException {
+  private void sendPipelineAdditionalData(boolean loadVariables) throws IOException {
     sendSessionInfos();
-    sendRequestSessionVariables();
+    if (loadVariables) {
+      sendRequestSessionVariables();
+    }
     // for aurora, check that connection is master
     sendPipelineCheckMaster();
   }
 
-  private void sendSessionInfos() throws IOException {
+  protected void sendSessionInfos() throws IOException {
+    sessionStateTracked =
+        (serverCapabilities & MariaDbServerCapabilities.CLIENT_SESSION_TRACK) != 0
+            && options.useResetConnection;
+    writer.startPacket(0);
+    writer.write(COM_QUERY);
+    writer.write("set " + sessionOptions(options, serverCapabilities, isServerMariaDb()));
+    writer.flush();
+  }
+
+  /**
+   * Session variables set when connection is created.
+   *
+   * @param options connection options
+   * @param serverCapabilities server capabilities
+   * @param serverMariaDb is server a MariaDB server (not MySQL)
+   * @return variables assignments, separated by commas
+   */
+  static String sessionOptions(Options options, long serverCapabilities, boolean serverMariaDb) {
     // In JDBC, connection must start in autocommit mode
     // [CONJ-269] we cannot rely on serverStatus & ServerStatus.AUTOCOMMIT before this command to
     // avoid this command.
@@ -952,11 +1052,29 @@ public abstract class AbstractConnectProtocol implements Protocol {
     StringBuilder sessionOption =
         new StringBuilder("autocommit=").append(options.autocommit ? "1" : "0");
     if ((serverCapabilities & MariaDbServerCapabilities.CLIENT_SESSION_TRACK) != 0) {
+      if (options.useResetConnection) {
+        // permit to know if reset is needed when connection is given back to pool
+        sessionOption.append(", session_track_state_change=1");
+      }
       if (options.trackSchema) {
         sessionOption.append(", session_track_schema=1");
       }
-      if (options.rewriteBatchedStatements) {
-        sessionOption.append(", session_track_system_variables='auto_increment_increment' ");
+      String trackedVariables =
+          options.rewriteBatchedStatements ? "auto_increment_increment" : null;
+      if (options.causalReads) {
+        // last committed GTID, to permit replica to wait for it
+        if (serverMariaDb) {
+          trackedVariables =
+              trackedVariables == null ? "last_gtid" : trackedVariables + ",last_gtid";
+        } else {
+          sessionOption.append(", session_track_gtids=OWN_GTID");
+        }
+      }
+      if (trackedVariables != null) {
+        sessionOption
+            .append(", session_track_system_variables='")
+            .append(trackedVariables)
+            .append("' ");
       }
     }
 
@@ -967,11 +1085,7 @@ public abstract class AbstractConnectProtocol implements Protocol {
     if (options.sessionVariables != null && !options.sessionVariables.isEmpty()) {
       sessionOption.append(",").append(Utils.parseSessionVariables(options.sessionVariables));
     }
-
-    writer.startPacket(0);
-    writer.write(COM_QUERY);
-    writer.write("set " + sessionOption.toString());
-    writer.flush();
+    return sessionOption.toString();
   }
 
   private void sendRequestSessionVariables() throws IOException {
@@ -1016,7 +1130,8 @@ public abstract class AbstractConnectProtocol implements Protocol {
     writer.flush();
   }
 
-  private void readPipelineAdditionalData(Map<String, String> serverData) throws SQLException {
+  private void readPipelineAdditionalData(Map<String, String> serverData, boolean loadVariables)
+      throws SQLException {
 
     SQLException resultingException = null;
     // read set session OKPacket
@@ -1028,13 +1143,15 @@ public abstract class AbstractConnectProtocol implements Protocol {
     }
 
     boolean canTrySessionWithShow = false;
-    try {
-      readRequestSessionVariables(serverData);
-    } catch (SQLException sqlException) {
-      if (resultingException == null) {
-        resultingException =
-            exceptionFactory.create("could not load system variables", "08000", sqlException);
-        canTrySessionWithShow = true;
+    if (loadVariables) {
+      try {
+        readRequestSessionVariables(serverData);
+      } catch (SQLException sqlException) {
+        if (resultingException == null) {
+          resultingException =
+              exceptionFactory.create("could not load system variables", "08000", sqlException);
+          canTrySessionWithShow = true;
+        }
       }
     }
 
@@ -1094,16 +1211,19 @@ public abstract class AbstractConnectProtocol implements Protocol {
     }
   }
 
-  private void additionalData(Map<String, String> serverData) throws IOException, SQLException {
+  private void additionalData(Map<String, String> serverData, boolean loadVariables)
+      throws IOException, SQLException {
 
     sendSessionInfos();
     getResult(new Results());
 
-    try {
-      sendRequestSessionVariables();
-      readRequestSessionVariables(serverData);
-    } catch (SQLException sqlException) {
-      requestSessionDataWithShow(serverData);
+    if (loadVariables) {
+      try {
+        sendRequestSessionVariables();
+        readRequestSessionVariables(serverData);
+      } catch (SQLException sqlException) {
+        requestSessionDataWithShow(serverData);
+      }
     }
 
     // for aurora, check that connection is master
@@ -1237,7 +1357,7 @@ public abstract class AbstractConnectProtocol implements Protocol {
       case EOF:
         buffer.skipByte();
         this.hasWarnings = buffer.readShort() > 0;
-        this.serverStatus = buffer.readShort();
+        setServerStatus(buffer.readShort());
         break;
 
       case ERROR:
@@ -1439,6 +1559,10 @@ public abstract class AbstractConnectProtocol implements Protocol {
     return username;
   }
 
+  protected void setUsername(String username) {
+    this.username = username;
+  }
+
   private void parseVersion(String serverVersion) {
     int length = serverVersion.length();
     char car;
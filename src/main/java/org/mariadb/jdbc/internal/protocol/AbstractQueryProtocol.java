@@ -74,9 +74,11 @@ import org.mariadb.jdbc.LocalInfileInterceptor;
 import org.mariadb.jdbc.MariaDbConnection;
 import org.mariadb.jdbc.MariaDbStatement;
 import org.mariadb.jdbc.UrlParser;
+import org.mariadb.jdbc.credential.Credential;
 import org.mariadb.jdbc.internal.MariaDbServerCapabilities;
 import org.mariadb.jdbc.internal.com.read.Buffer;
 import org.mariadb.jdbc.internal.com.read.ErrorPacket;
+import org.mariadb.jdbc.internal.com.read.dao.CmdInformation;
 import org.mariadb.jdbc.internal.com.read.dao.Results;
 import org.mariadb.jdbc.internal.com.read.resultset.ColumnDefinition;
 import org.mariadb.jdbc.internal.com.read.resultset.SelectResultSet;
@@ -85,6 +87,7 @@ import org.mariadb.jdbc.internal.com.send.ComQuery;
 import org.mariadb.jdbc.internal.com.send.ComStmtExecute;
 import org.mariadb.jdbc.internal.com.send.ComStmtPrepare;
 import org.mariadb.jdbc.internal.com.send.SendChangeDbPacket;
+import org.mariadb.jdbc.internal.com.send.SendChangeUserPacket;
 import org.mariadb.jdbc.internal.com.send.parameters.ParameterHolder;
 import org.mariadb.jdbc.internal.io.LruTraceCache;
 import org.mariadb.jdbc.internal.io.output.PacketOutputStream;
@@ -114,10 +117,12 @@ public class AbstractQueryProtocol extends AbstractConnectProtocol implements Pr
   private ThreadPoolExecutor readScheduler = null;
   private int transactionIsolationLevel = 0;
   private InputStream localInfileInputStream;
+  private List<ParameterHolder[]> localInfileParameterList;
   private long maxRows; /* max rows returned by a statement */
   private volatile int statementIdToRelease = -1;
   private FutureTask activeFutureTask = null;
   private boolean interrupted;
+  private volatile String lastGtid;
 
   /**
    * Get a protocol instance.
@@ -154,7 +159,19 @@ public class AbstractQueryProtocol extends AbstractConnectProtocol implements Pr
       writer.startPacket(0);
       writer.write(COM_RESET_CONNECTION);
       writer.flush();
-      getResult(new Results());
+
+      if (sessionStateTracked) {
+        // reset session variables : state tracking must be enabled again (pipelined)
+        writer.startPacket(0);
+        writer.write(COM_QUERY);
+        writer.write("set session_track_state_change=1");
+        writer.flush();
+        getResult(new Results());
+        getResult(new Results());
+      } else {
+        getResult(new Results());
+      }
+      sessionStateChanged = false;
 
       // clear prepare statement cache
       if (options.cachePrepStmts && options.useServerPrepStmts) {
@@ -169,6 +186,55 @@ public class AbstractQueryProtocol extends AbstractConnectProtocol implements Pr
     }
   }
 
+  /**
+   * Change connection user using COM_CHANGE_USER. Server reset session state the same way than
+   * COM_RESET_CONNECTION, so session options are set again.
+   *
+   * @param username new user
+   * @param password new user password
+   * @throws SQLException if authentication fails or connection error occurs
+   */
+  @Override
+  public void changeUser(String username, String password) throws SQLException {
+    lock.lock();
+    try {
+      cmdPrologue();
+      Credential credential = new Credential(username, password);
+      SendChangeUserPacket.send(
+          writer,
+          credential,
+          getHost(),
+          database,
+          serverCapabilities,
+          exchangeCharset,
+          options,
+          seed);
+      writer.permitTrace(false);
+      readAuthenticationResult(seed, credential);
+      writer.permitTrace(true);
+      setUsername(username == null ? "" : username);
+      // reconnection must use new credentials
+      urlParser = urlParser.withCredentials(username, password);
+
+      // server has reset session : set session options again
+      sendSessionInfos();
+      getResult(new Results());
+      sessionStateChanged = false;
+
+      // server prepared statements have been closed
+      if (options.cachePrepStmts && options.useServerPrepStmts) {
+        serverPrepareStatementCache.clear();
+      }
+
+    } catch (SQLException sqlException) {
+      throw exceptionWithQuery("COM_CHANGE_USER failed.", sqlException, explicitClosed);
+    } catch (IOException e) {
+      throw exceptionWithQuery("COM_CHANGE_USER failed.", handleIoException(e), explicitClosed);
+    } finally {
+      lock.unlock();
+    }
+  }
+
   private MariaDbSqlException exceptionWithQuery(
       ParameterHolder[] parameters,
       PrepareResult serverPrepareResult,
@@ -385,6 +451,7 @@ public class AbstractQueryProtocol extends AbstractConnectProtocol implements Pr
 
     // ***********************************************************************************************************
     // Multiple solution for batching :
+    // - LOAD DATA LOCAL INFILE (only if option is set, batch is big and query is a plain INSERT)
     // - rewrite as multi-values (only if generated keys are not needed and query can be rewritten)
     // - multiple INSERT separate by semi-columns
     // - use pipeline
@@ -392,6 +459,15 @@ public class AbstractQueryProtocol extends AbstractConnectProtocol implements Pr
     // - one after the other
     // ***********************************************************************************************************
 
+    if (options.useBatchLoadData
+        && options.allowLocalInfile
+        && !hasLongData
+        && parametersList.size() >= options.useBatchLoadDataThreshold
+        && results.getAutoGeneratedKeys() == Statement.NO_GENERATED_KEYS
+        && executeBatchLoadData(results, prepareResult, parametersList)) {
+      return true;
+    }
+
     if (options.rewriteBatchedStatements) {
       if (prepareResult.isQueryMultiValuesRewritable()
           && results.getAutoGeneratedKeys() == Statement.NO_GENERATED_KEYS) {
@@ -436,6 +512,65 @@ public class AbstractQueryProtocol extends AbstractConnectProtocol implements Pr
     return false;
   }
 
+  /**
+   * Execute clientPrepareQuery batch using a LOAD DATA LOCAL INFILE command, batch rows being
+   * streamed as file content. Only plain "INSERT INTO tableName (cols) VALUES (?, ...)" can be
+   * converted.
+   *
+   * <p>LOAD DATA LOCAL has IGNORE semantic: rows in error are skipped and invalid values truncated
+   * with only a warning. An exception is then thrown if inserted rows don't correspond to batch
+   * size or if any warning has been raised, so that no row is silently lost.
+   *
+   * @param results results
+   * @param prepareResult ClientPrepareResult
+   * @param parametersList List of parameters
+   * @return if executed
+   * @throws SQLException exception
+   */
+  private boolean executeBatchLoadData(
+      Results results,
+      final ClientPrepareResult prepareResult,
+      final List<ParameterHolder[]> parametersList)
+      throws SQLException {
+
+    String sql = prepareResult.getLoadDataSql(noBackslashEscapes());
+    if (sql == null || !ComQuery.isLoadDataCompatible(writer, parametersList)) {
+      return false;
+    }
+
+    cmdPrologue();
+    try {
+      localInfileParameterList = parametersList;
+      ComQuery.sendDirect(writer, sql.getBytes(StandardCharsets.UTF_8));
+      getResult(results);
+
+      CmdInformation cmdInformation = results.getCmdInformation();
+      long insertedRows = cmdInformation == null ? -1 : cmdInformation.getLargeUpdateCount();
+      if (insertedRows != parametersList.size() || hasWarnings) {
+        results.addStatsError(false);
+        throw new SQLException(
+            "Batch executed with LOAD DATA LOCAL INFILE inserted "
+                + insertedRows
+                + " rows for "
+                + parametersList.size()
+                + " batch rows"
+                + (hasWarnings ? ", with warnings" : "")
+                + " : rows have been skipped (duplicate key, constraint violation) or values"
+                + " truncated",
+            "HY000",
+            -1);
+      }
+    } catch (SQLException sqlEx) {
+      throw MariaDbSqlException.of(sqlEx, prepareResult.getSql());
+    } catch (IOException e) {
+      throw MariaDbSqlException.of(handleIoException(e), prepareResult.getSql());
+    } finally {
+      localInfileParameterList = null;
+      results.setRewritten(true);
+    }
+    return true;
+  }
+
   /**
    * Execute clientPrepareQuery batch.
    *
@@ -1014,6 +1149,13 @@ public class AbstractQueryProtocol extends AbstractConnectProtocol implements Pr
       return true;
     }
 
+    if (options.serverPrepMultiValuesRows > 1
+        && !hasLongData
+        && results.getAutoGeneratedKeys() == Statement.NO_GENERATED_KEYS
+        && executeBatchMultiValues(results, sql, serverPrepareResult, parametersList)) {
+      return true;
+    }
+
     if (!options.useBatchMultiSend) {
       return false;
     }
@@ -1090,6 +1232,101 @@ public class AbstractQueryProtocol extends AbstractConnectProtocol implements Pr
     return true;
   }
 
+  /**
+   * Execute server prepared batch of an INSERT using a prepared multi-values form of the query
+   * ("INSERT INTO tableName (col1, col2) VALUES (?, ?), (?, ?), ..."), with
+   * options.serverPrepMultiValuesRows rows by execution, remaining rows (or all rows of a smaller
+   * batch) being sent with a client side rewritten multi-values query. Multi-values statement is
+   * kept in prepare cache, permitting batch with binary protocol on servers without
+   * COM_STMT_BULK_EXECUTE.
+   *
+   * @param results results
+   * @param sql initial sql command
+   * @param serverPrepareResult prepare result of initial sql command. can be null if not prepared.
+   * @param parametersList List of parameters
+   * @return if executed
+   * @throws SQLException exception
+   */
+  private boolean executeBatchMultiValues(
+      Results results,
+      String sql,
+      ServerPrepareResult serverPrepareResult,
+      final List<ParameterHolder[]> parametersList)
+      throws SQLException {
+
+    int totalRows = parametersList.size();
+    if (totalRows < 2) {
+      return false;
+    }
+
+    ClientPrepareResult prepareResult =
+        serverPrepareResult != null
+            ? serverPrepareResult.getRewritableParts(noBackslashEscapes())
+            : ClientPrepareResult.rewritableParts(sql, noBackslashEscapes());
+    int paramCount = prepareResult.getParamCount();
+    if (!prepareResult.isQueryMultiValuesRewritable() || paramCount == 0) {
+      return false;
+    }
+
+    // a prepared statement is limited to 65535 placeholders
+    int rowsByExecution = Math.min(options.serverPrepMultiValuesRows, 65535 / paramCount);
+    if (rowsByExecution < 2) {
+      return false;
+    }
+
+    int currentIndex = 0;
+    try {
+      if (totalRows >= rowsByExecution) {
+        ServerPrepareResult multiValuesPrepare =
+            prepare(prepareResult.getMultiValuesSql(rowsByExecution), true);
+        try {
+          while (totalRows - currentIndex >= rowsByExecution) {
+            executeMultiValues(
+                results, multiValuesPrepare, parametersList, currentIndex, rowsByExecution);
+            currentIndex += rowsByExecution;
+            stopIfInterrupted();
+          }
+        } finally {
+          releasePrepareStatement(multiValuesPrepare);
+        }
+      }
+
+      if (currentIndex < totalRows) {
+        // remaining rows are sent with text protocol: preparing a statement for each possible
+        // number of remaining rows would fill the prepare cache
+        executeBatchRewrite(
+            results, prepareResult, parametersList.subList(currentIndex, totalRows), true);
+      }
+      return true;
+
+    } catch (SQLException sqlEx) {
+      throw MariaDbSqlException.of(sqlEx, sql);
+    } finally {
+      results.setRewritten(true);
+    }
+  }
+
+  private void executeMultiValues(
+      Results results,
+      ServerPrepareResult serverPrepareResult,
+      List<ParameterHolder[]> parametersList,
+      int fromIndex,
+      int rows)
+      throws SQLException {
+    int paramCount = serverPrepareResult.getParameters().length / rows;
+    ParameterHolder[] parameters = new ParameterHolder[paramCount * rows];
+    for (int row = 0; row < rows; row++) {
+      ParameterHolder[] rowParameters = parametersList.get(fromIndex + row);
+      if (rowParameters.length < paramCount) {
+        throw new SQLException(
+            "Parameter at position " + (rowParameters.length + 1) + " is not set", "07004");
+      }
+      System.arraycopy(rowParameters, 0, parameters, row * paramCount, paramCount);
+    }
+    serverPrepareResult.resetParameterTypeHeader();
+    executePreparedQuery(true, serverPrepareResult, results, parameters);
+  }
+
   /**
    * Execute a query that is already prepared.
    *
@@ -1581,13 +1818,14 @@ public class AbstractQueryProtocol extends AbstractConnectProtocol implements Pr
     hasWarnings = (buffer.readShort() > 0);
 
     if ((serverStatus & ServerStatus.SERVER_SESSION_STATE_CHANGED) != 0) {
+      sessionStateChanged = true;
       handleStateChange(buffer, results);
     }
 
     results.addStats(updateCount, insertId, hasMoreResults());
   }
 
-  private void handleStateChange(Buffer buf, Results results) {
+  void handleStateChange(Buffer buf, Results results) {
     buf.skipLengthEncodedBytes(); // info
     while (buf.remaining() > 0) {
       Buffer stateInfo = buf.getLengthEncodedBuffer();
@@ -1606,6 +1844,10 @@ public class AbstractQueryProtocol extends AbstractConnectProtocol implements Pr
                 results.setAutoIncrement(autoIncrementIncrement);
                 break;
 
+              case "last_gtid":
+                lastGtid = value;
+                break;
+
               default:
                 // variable not used by driver
             }
@@ -1617,6 +1859,13 @@ public class AbstractQueryProtocol extends AbstractConnectProtocol implements Pr
             logger.debug("Database change : now is '{}'", database);
             break;
 
+          case StateChange.SESSION_TRACK_GTIDS:
+            Buffer sessionGtidBuf = stateInfo.getLengthEncodedBuffer();
+            sessionGtidBuf.readByte(); // encoding specification
+            lastGtid = sessionGtidBuf.readStringLengthEncoded(StandardCharsets.UTF_8);
+            logger.debug("GTID change : now is '{}'", lastGtid);
+            break;
+
           default:
             stateInfo.skipLengthEncodedBytes();
         }
@@ -1652,6 +1901,15 @@ public class AbstractQueryProtocol extends AbstractConnectProtocol implements Pr
     return autoIncrementIncrement;
   }
 
+  /**
+   * Get GTID of last transaction committed by this session, when tracked (option "causalReads").
+   *
+   * @return last GTID, or null if unknown
+   */
+  public String getLastGtid() {
+    return lastGtid;
+  }
+
   /**
    * Read ERR_Packet.
    *
@@ -1705,6 +1963,15 @@ public class AbstractQueryProtocol extends AbstractConnectProtocol implements Pr
       // Server request the local file (LOCAL DATA LOCAL INFILE)
       // We do accept general URLs, too. If the localInfileStream is
       // set, use that.
+      if (localInfileParameterList != null) {
+        // batch rows send as file content (option useBatchLoadData)
+        List<ParameterHolder[]> parameterList = localInfileParameterList;
+        localInfileParameterList = null;
+        ComQuery.sendLoadDataRows(writer, seq, parameterList);
+        getResult(results);
+        return;
+      }
+
       InputStream is;
       writer.startPacket(seq);
       if (localInfileInputStream == null) {
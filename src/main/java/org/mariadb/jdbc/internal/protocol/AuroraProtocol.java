@@ -64,6 +64,7 @@ import org.mariadb.jdbc.UrlParser;
 import org.mariadb.jdbc.internal.com.read.dao.Results;
 import org.mariadb.jdbc.internal.failover.FailoverProxy;
 import org.mariadb.jdbc.internal.failover.impl.AuroraListener;
+import org.mariadb.jdbc.internal.failover.tools.ConnectionRacer;
 import org.mariadb.jdbc.internal.failover.tools.SearchFilter;
 import org.mariadb.jdbc.internal.io.LruTraceCache;
 import org.mariadb.jdbc.internal.util.pool.GlobalStateInfo;
@@ -128,6 +129,37 @@ public class AuroraProtocol extends MastersSlavesProtocol {
       final List<HostAddress> addresses,
       SearchFilter initialSearchFilter)
       throws SQLException {
+    ConnectionRacer<AuroraProtocol> racer = null;
+    int parallelConnectDelay = listener.getUrlParser().getOptions().parallelConnectDelay;
+    if (parallelConnectDelay > 0) {
+      racer =
+          new ConnectionRacer<>(
+              listener,
+              host -> {
+                AuroraProtocol newProtocol =
+                    getNewProtocol(listener.getProxy(), globalInfo, listener.getUrlParser());
+                newProtocol.setHostAddress(host);
+                return newProtocol;
+              },
+              parallelConnectDelay,
+              null);
+    }
+    try {
+      loop(listener, globalInfo, addresses, initialSearchFilter, racer);
+    } finally {
+      if (racer != null) {
+        racer.close();
+      }
+    }
+  }
+
+  private static void loop(
+      AuroraListener listener,
+      final GlobalStateInfo globalInfo,
+      final List<HostAddress> addresses,
+      SearchFilter initialSearchFilter,
+      ConnectionRacer<AuroraProtocol> racer)
+      throws SQLException {
 
     SearchFilter searchFilter = initialSearchFilter;
     AuroraProtocol protocol;
@@ -140,7 +172,9 @@ public class AuroraProtocol extends MastersSlavesProtocol {
     SQLException lastQueryException = null;
     HostAddress probableMasterHost = null;
     boolean firstLoop = true;
-    while (!loopAddresses.isEmpty() || (!searchFilter.isFailoverLoop() && maxConnectionTry > 0)) {
+    while (!loopAddresses.isEmpty()
+        || (racer != null && racer.hasAttempts())
+        || (!searchFilter.isFailoverLoop() && maxConnectionTry > 0)) {
       protocol = getNewProtocol(listener.getProxy(), globalInfo, listener.getUrlParser());
 
       if (listener.isExplicitClosed()
@@ -150,24 +184,33 @@ public class AuroraProtocol extends MastersSlavesProtocol {
       maxConnectionTry--;
 
       try {
-        HostAddress host = loopAddresses.pollFirst();
-        if (host == null) {
-          for (HostAddress hostAddress : listener.getUrlParser().getHostAddresses()) {
-            if (!hostAddress.equals(listener.getClusterHostAddress())) {
-              loopAddresses.add(hostAddress);
+        if (racer != null && racer.hasAttempts()) {
+          // hosts already handed to racer: wait for attempts running or start remaining ones
+          protocol = racer.next();
+        } else {
+          HostAddress host = loopAddresses.pollFirst();
+          if (host == null) {
+            for (HostAddress hostAddress : listener.getUrlParser().getHostAddresses()) {
+              if (!hostAddress.equals(listener.getClusterHostAddress())) {
+                loopAddresses.add(hostAddress);
+              }
             }
+            // Use cluster last as backup
+            if (listener.getClusterHostAddress() != null
+                && (listener.getUrlParser().getHostAddresses().size() < 2
+                    || loopAddresses.isEmpty())) {
+              loopAddresses.add(listener.getClusterHostAddress());
+            }
+
+            host = loopAddresses.pollFirst();
           }
-          // Use cluster last as backup
-          if (listener.getClusterHostAddress() != null
-              && (listener.getUrlParser().getHostAddresses().size() < 2
-                  || loopAddresses.isEmpty())) {
-            loopAddresses.add(listener.getClusterHostAddress());
+          protocol.setHostAddress(host);
+          if (racer == null) {
+            protocol.connect();
+          } else {
+            protocol = racer.connect(protocol, loopAddresses);
           }
-
-          host = loopAddresses.pollFirst();
         }
-        protocol.setHostAddress(host);
-        protocol.connect();
 
         if (listener.isExplicitClosed()) {
           protocol.close();
@@ -223,6 +266,9 @@ public class AuroraProtocol extends MastersSlavesProtocol {
                         protocol, listener.getUrlParser().getHostAddresses());
                 if (probableMasterHost != null) {
                   loopAddresses.remove(probableMasterHost);
+                  if (racer != null) {
+                    racer.removeHost(probableMasterHost);
+                  }
                   AuroraProtocol.searchProbableMaster(listener, globalInfo, probableMasterHost);
                   if (listener.isMasterHostFailReconnect()
                       && searchFilter.isFineIfFoundOnlySlave()) {
@@ -247,8 +293,11 @@ public class AuroraProtocol extends MastersSlavesProtocol {
         return;
       }
 
+      // all hosts have been tried, and no attempt is still running
+      boolean noHostLeft = loopAddresses.isEmpty() && (racer == null || !racer.hasAttempts());
+
       // in case master not found but slave is , and allowing master down
-      if (loopAddresses.isEmpty()
+      if (noHostLeft
           && (listener.isMasterHostFailReconnect()
               && listener.urlParser.getOptions().allowMasterDownConnection
               && !listener.isSecondaryHostFailReconnect())) {
@@ -256,7 +305,7 @@ public class AuroraProtocol extends MastersSlavesProtocol {
       }
 
       // on connection and all slaves have been tested, use master if on
-      if (loopAddresses.isEmpty()
+      if (noHostLeft
           && searchFilter.isInitialConnection()
           && !listener.isMasterHostFailReconnect()) {
         return;
@@ -264,7 +313,7 @@ public class AuroraProtocol extends MastersSlavesProtocol {
 
       // if server has try to connect to all host, and there is remaining master or slave that fail
       // add all servers back to continue looping until maxConnectionTry is reached
-      if (loopAddresses.isEmpty() && !searchFilter.isFailoverLoop() && maxConnectionTry > 0) {
+      if (noHostLeft && !searchFilter.isFailoverLoop() && maxConnectionTry > 0) {
         resetHostList(listener, loopAddresses);
         if (firstLoop) {
           firstLoop = false;
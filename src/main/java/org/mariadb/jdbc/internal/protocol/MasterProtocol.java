@@ -60,8 +60,10 @@ import org.mariadb.jdbc.HostAddress;
 import org.mariadb.jdbc.UrlParser;
 import org.mariadb.jdbc.internal.failover.FailoverProxy;
 import org.mariadb.jdbc.internal.failover.Listener;
+import org.mariadb.jdbc.internal.failover.tools.ConnectionRacer;
 import org.mariadb.jdbc.internal.failover.tools.SearchFilter;
 import org.mariadb.jdbc.internal.io.LruTraceCache;
+import org.mariadb.jdbc.internal.util.constant.HaMode;
 import org.mariadb.jdbc.internal.util.pool.GlobalStateInfo;
 
 public class MasterProtocol extends AbstractQueryProtocol implements Closeable {
@@ -112,6 +114,37 @@ public class MasterProtocol extends AbstractQueryProtocol implements Closeable {
       final List<HostAddress> addresses,
       SearchFilter searchFilter)
       throws SQLException {
+    ConnectionRacer<MasterProtocol> racer = null;
+    int parallelConnectDelay = listener.getUrlParser().getOptions().parallelConnectDelay;
+    if (parallelConnectDelay > 0 && listener.getUrlParser().getHaMode() != HaMode.SEQUENTIAL) {
+      racer =
+          new ConnectionRacer<>(
+              listener,
+              host -> {
+                MasterProtocol newProtocol =
+                    getNewProtocol(listener.getProxy(), globalInfo, listener.getUrlParser());
+                newProtocol.setHostAddress(host);
+                return newProtocol;
+              },
+              parallelConnectDelay,
+              null);
+    }
+    try {
+      loop(listener, globalInfo, addresses, searchFilter, racer);
+    } finally {
+      if (racer != null) {
+        racer.close();
+      }
+    }
+  }
+
+  private static void loop(
+      Listener listener,
+      final GlobalStateInfo globalInfo,
+      final List<HostAddress> addresses,
+      SearchFilter searchFilter,
+      ConnectionRacer<MasterProtocol> racer)
+      throws SQLException {
 
     MasterProtocol protocol;
     ArrayDeque<HostAddress> loopAddresses = new ArrayDeque<>(addresses);
@@ -122,7 +155,9 @@ public class MasterProtocol extends AbstractQueryProtocol implements Closeable {
     int maxConnectionTry = listener.getRetriesAllDown();
     boolean firstLoop = true;
     SQLException lastQueryException = null;
-    while (!loopAddresses.isEmpty() || (!searchFilter.isFailoverLoop() && maxConnectionTry > 0)) {
+    while (!loopAddresses.isEmpty()
+        || (racer != null && racer.hasAttempts())
+        || (!searchFilter.isFailoverLoop() && maxConnectionTry > 0)) {
       protocol = getNewProtocol(listener.getProxy(), globalInfo, listener.getUrlParser());
 
       if (listener.isExplicitClosed()) {
@@ -131,13 +166,22 @@ public class MasterProtocol extends AbstractQueryProtocol implements Closeable {
       maxConnectionTry--;
 
       try {
-        HostAddress host = loopAddresses.pollFirst();
-        if (host == null) {
-          loopAddresses.addAll(listener.getUrlParser().getHostAddresses());
-          host = loopAddresses.pollFirst();
+        if (racer != null && racer.hasAttempts()) {
+          // hosts already handed to racer: wait for attempts running or start remaining ones
+          protocol = racer.next();
+        } else {
+          HostAddress host = loopAddresses.pollFirst();
+          if (host == null) {
+            loopAddresses.addAll(listener.getUrlParser().getHostAddresses());
+            host = loopAddresses.pollFirst();
+          }
+          protocol.setHostAddress(host);
+          if (racer == null) {
+            protocol.connect();
+          } else {
+            protocol = racer.connect(protocol, loopAddresses);
+          }
         }
-        protocol.setHostAddress(host);
-        protocol.connect();
         if (listener.isExplicitClosed()) {
           protocol.close();
           return;
@@ -153,7 +197,10 @@ public class MasterProtocol extends AbstractQueryProtocol implements Closeable {
 
       // if server has try to connect to all host, and master still fail
       // add all servers back to continue looping until maxConnectionTry is reached
-      if (loopAddresses.isEmpty() && !searchFilter.isFailoverLoop() && maxConnectionTry > 0) {
+      if (loopAddresses.isEmpty()
+          && (racer == null || !racer.hasAttempts())
+          && !searchFilter.isFailoverLoop()
+          && maxConnectionTry > 0) {
         resetHostList(listener, loopAddresses);
         if (firstLoop) {
           firstLoop = false;
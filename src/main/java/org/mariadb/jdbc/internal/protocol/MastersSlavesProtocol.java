@@ -52,15 +52,22 @@
 
 package org.mariadb.jdbc.internal.protocol;
 
+import java.nio.charset.Charset;
 import java.sql.SQLException;
 import java.util.*;
 import java.util.concurrent.locks.ReentrantLock;
 import org.mariadb.jdbc.HostAddress;
 import org.mariadb.jdbc.UrlParser;
+import org.mariadb.jdbc.internal.com.read.dao.Results;
+import org.mariadb.jdbc.internal.com.send.parameters.ParameterHolder;
 import org.mariadb.jdbc.internal.failover.FailoverProxy;
 import org.mariadb.jdbc.internal.failover.impl.MastersSlavesListener;
+import org.mariadb.jdbc.internal.failover.tools.ConnectionRacer;
+import org.mariadb.jdbc.internal.failover.tools.HostLatencyTracker;
 import org.mariadb.jdbc.internal.failover.tools.SearchFilter;
 import org.mariadb.jdbc.internal.io.LruTraceCache;
+import org.mariadb.jdbc.internal.util.dao.ClientPrepareResult;
+import org.mariadb.jdbc.internal.util.dao.ServerPrepareResult;
 import org.mariadb.jdbc.internal.util.pool.GlobalStateInfo;
 
 public class MastersSlavesProtocol extends MasterProtocol {
@@ -91,6 +98,37 @@ public class MastersSlavesProtocol extends MasterProtocol {
       final List<HostAddress> addresses,
       SearchFilter searchFilter)
       throws SQLException {
+    ConnectionRacer<MastersSlavesProtocol> racer = null;
+    int parallelConnectDelay = listener.getUrlParser().getOptions().parallelConnectDelay;
+    if (parallelConnectDelay > 0) {
+      racer =
+          new ConnectionRacer<>(
+              listener,
+              host -> {
+                MastersSlavesProtocol newProtocol =
+                    getNewProtocol(listener.getProxy(), globalInfo, listener.getUrlParser());
+                newProtocol.setHostAddress(host);
+                return newProtocol;
+              },
+              parallelConnectDelay,
+              host -> skipLagging(listener, searchFilter, host));
+    }
+    try {
+      loop(listener, globalInfo, addresses, searchFilter, racer);
+    } finally {
+      if (racer != null) {
+        racer.close();
+      }
+    }
+  }
+
+  private static void loop(
+      MastersSlavesListener listener,
+      final GlobalStateInfo globalInfo,
+      final List<HostAddress> addresses,
+      SearchFilter searchFilter,
+      ConnectionRacer<MastersSlavesProtocol> racer)
+      throws SQLException {
 
     MastersSlavesProtocol protocol;
     ArrayDeque<HostAddress> loopAddresses = new ArrayDeque<>(addresses);
@@ -101,7 +139,9 @@ public class MastersSlavesProtocol extends MasterProtocol {
     int maxConnectionTry = listener.getRetriesAllDown();
     SQLException lastQueryException = null;
     boolean firstLoop = true;
-    while (!loopAddresses.isEmpty() || (!searchFilter.isFailoverLoop() && maxConnectionTry > 0)) {
+    while (!loopAddresses.isEmpty()
+        || (racer != null && racer.hasAttempts())
+        || (!searchFilter.isFailoverLoop() && maxConnectionTry > 0)) {
       protocol = getNewProtocol(listener.getProxy(), globalInfo, listener.getUrlParser());
 
       if (listener.isExplicitClosed()
@@ -110,15 +150,28 @@ public class MastersSlavesProtocol extends MasterProtocol {
       }
       maxConnectionTry--;
       try {
-        HostAddress host = loopAddresses.pollFirst();
-        if (host == null) {
-          loopAddresses.addAll(listener.getUrlParser().getHostAddresses());
-          host = loopAddresses.pollFirst();
-        }
+        if (racer != null && racer.hasAttempts()) {
+          // hosts already handed to racer: wait for attempts running or start remaining ones
+          protocol = racer.next();
+        } else {
+          HostAddress host = loopAddresses.pollFirst();
+          if (host == null) {
+            loopAddresses.addAll(listener.getUrlParser().getHostAddresses());
+            host = loopAddresses.pollFirst();
+          }
 
-        protocol.setHostAddress(host);
+          if (skipLagging(listener, searchFilter, host)) {
+            continue;
+          }
+
+          protocol.setHostAddress(host);
 
-        protocol.connect();
+          if (racer == null) {
+            protocol.connect();
+          } else {
+            protocol = racer.connect(protocol, loopAddresses);
+          }
+        }
         if (listener.isExplicitClosed()) {
           protocol.close();
           return;
@@ -130,7 +183,9 @@ public class MastersSlavesProtocol extends MasterProtocol {
           if (foundMaster(listener, protocol, searchFilter)) {
             return;
           }
-        } else if (listener.isSecondaryHostFailReconnect() && !protocol.isMasterConnection()) {
+        } else if (listener.isSecondaryHostFailReconnect()
+            && !protocol.isMasterConnection()
+            && !listener.isReplicationLagging(protocol.getHostAddress())) {
           if (foundSecondary(listener, protocol, searchFilter)) {
             return;
           }
@@ -147,8 +202,11 @@ public class MastersSlavesProtocol extends MasterProtocol {
         return;
       }
 
+      // all hosts have been tried, and no attempt is still running
+      boolean noHostLeft = loopAddresses.isEmpty() && (racer == null || !racer.hasAttempts());
+
       // in case master not found but slave is , and allowing master down
-      if (loopAddresses.isEmpty()
+      if (noHostLeft
           && (listener.isMasterHostFailReconnect()
               && listener.urlParser.getOptions().allowMasterDownConnection
               && !listener.isSecondaryHostFailReconnect())) {
@@ -156,7 +214,7 @@ public class MastersSlavesProtocol extends MasterProtocol {
       }
 
       // on connection and all slaves have been tested, use master if on
-      if (loopAddresses.isEmpty()
+      if (noHostLeft
           && searchFilter.isInitialConnection()
           && !listener.isMasterHostFailReconnect()) {
         return;
@@ -164,7 +222,7 @@ public class MastersSlavesProtocol extends MasterProtocol {
 
       // if server has try to connect to all host, and there is remaining master or slave that fail
       // add all servers back to continue looping until maxConnectionTry is reached
-      if (loopAddresses.isEmpty() && !searchFilter.isFailoverLoop() && maxConnectionTry > 0) {
+      if (noHostLeft && !searchFilter.isFailoverLoop() && maxConnectionTry > 0) {
         resetHostList(listener, loopAddresses);
 
         if (firstLoop) {
@@ -196,6 +254,21 @@ public class MastersSlavesProtocol extends MasterProtocol {
     }
   }
 
+  /**
+   * Background search of a replica only: no need to connect to a lagging one.
+   *
+   * @param listener current listener
+   * @param searchFilter search parameter
+   * @param host host to connect to
+   * @return true if host must not be attempted
+   */
+  private static boolean skipLagging(
+      MastersSlavesListener listener, SearchFilter searchFilter, HostAddress host) {
+    return searchFilter.isFailoverLoop()
+        && !listener.isMasterHostFailReconnect()
+        && listener.isReplicationLagging(host);
+  }
+
   /**
    * Reinitialize loopAddresses with all servers in randomize order.
    *
@@ -208,7 +281,7 @@ public class MastersSlavesProtocol extends MasterProtocol {
     // add back all servers
     List<HostAddress> servers = new ArrayList<>();
     servers.addAll(listener.getUrlParser().getHostAddresses());
-    Collections.shuffle(servers);
+    listener.orderHosts(servers);
 
     // remove current connected hosts to avoid reconnect them
     servers.removeAll(listener.connectedHosts());
@@ -276,4 +349,78 @@ public class MastersSlavesProtocol extends MasterProtocol {
   public void setMustBeMasterConnection(boolean mustBeMasterConnection) {
     this.mustBeMasterConnection = mustBeMasterConnection;
   }
+
+  @Override
+  public boolean ping() throws SQLException {
+    long start = System.nanoTime();
+    boolean valid = super.ping();
+    recordLatency(start);
+    return valid;
+  }
+
+  @Override
+  public void executeQuery(boolean mustExecuteOnMaster, Results results, final String sql)
+      throws SQLException {
+    long start = System.nanoTime();
+    super.executeQuery(mustExecuteOnMaster, results, sql);
+    recordLatency(start);
+  }
+
+  @Override
+  public void executeQuery(
+      boolean mustExecuteOnMaster, Results results, final String sql, Charset charset)
+      throws SQLException {
+    long start = System.nanoTime();
+    super.executeQuery(mustExecuteOnMaster, results, sql, charset);
+    recordLatency(start);
+  }
+
+  @Override
+  public void executeQuery(
+      boolean mustExecuteOnMaster,
+      Results results,
+      final ClientPrepareResult clientPrepareResult,
+      ParameterHolder[] parameters)
+      throws SQLException {
+    long start = System.nanoTime();
+    super.executeQuery(mustExecuteOnMaster, results, clientPrepareResult, parameters);
+    recordLatency(start);
+  }
+
+  @Override
+  public void executeQuery(
+      boolean mustExecuteOnMaster,
+      Results results,
+      final ClientPrepareResult clientPrepareResult,
+      ParameterHolder[] parameters,
+      int queryTimeout)
+      throws SQLException {
+    long start = System.nanoTime();
+    super.executeQuery(mustExecuteOnMaster, results, clientPrepareResult, parameters, queryTimeout);
+    recordLatency(start);
+  }
+
+  @Override
+  public void executePreparedQuery(
+      boolean mustExecuteOnMaster,
+      ServerPrepareResult serverPrepareResult,
+      Results results,
+      ParameterHolder[] parameters)
+      throws SQLException {
+    long start = System.nanoTime();
+    super.executePreparedQuery(mustExecuteOnMaster, serverPrepareResult, results, parameters);
+    recordLatency(start);
+  }
+
+  /**
+   * Feed host latency statistics used by latency-aware replica selection. Only successful commands
+   * are measured, failures being handled by the blacklist.
+   *
+   * @param start command start in nanoseconds
+   */
+  private void recordLatency(long start) {
+    if (options.loadBalanceLatencyAware) {
+      HostLatencyTracker.record(getHostAddress(), System.nanoTime() - start);
+    }
+  }
 }
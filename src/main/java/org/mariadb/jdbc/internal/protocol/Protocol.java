@@ -104,6 +104,8 @@ public interface Protocol {
 
   void reset() throws SQLException;
 
+  void changeUser(String username, String password) throws SQLException;
+
   void closeExplicit();
 
   boolean isClosed();
@@ -271,6 +273,10 @@ public interface Protocol {
 
   void setServerStatus(short serverStatus);
 
+  boolean isSessionStateChanged();
+
+  void setSessionStateChanged(boolean sessionStateChanged);
+
   void removeHasMoreResults();
 
   void setHasWarnings(boolean hasWarnings);
@@ -303,6 +309,8 @@ public interface Protocol {
 
   int getAutoIncrementIncrement() throws SQLException;
 
+  String getLastGtid();
+
   boolean sessionStateAware();
 
   String getTraces();
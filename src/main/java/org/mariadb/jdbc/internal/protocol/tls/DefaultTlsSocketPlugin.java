@@ -22,10 +22,12 @@
 
 package org.mariadb.jdbc.internal.protocol.tls;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.MalformedURLException;
 import java.net.URL;
 import java.security.GeneralSecurityException;
 import java.security.KeyManagementException;
@@ -34,16 +36,49 @@ import java.security.NoSuchAlgorithmException;
 import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import javax.net.ssl.*;
 import org.mariadb.jdbc.internal.logging.Logger;
 import org.mariadb.jdbc.internal.logging.LoggerFactory;
+import org.mariadb.jdbc.internal.util.Utils;
 import org.mariadb.jdbc.internal.util.exceptions.ExceptionFactory;
 import org.mariadb.jdbc.tls.TlsSocketPlugin;
+import org.mariadb.jdbc.tls.TlsStatistics;
 import org.mariadb.jdbc.util.Options;
 
 public class DefaultTlsSocketPlugin implements TlsSocketPlugin {
   private static final Logger logger = LoggerFactory.getLogger(DefaultTlsSocketPlugin.class);
 
+  static final int MAX_CONTEXTS = 32;
+
+  /**
+   * SSL contexts by digest of TLS configuration and key material file stamps. Sharing context
+   * between connections avoids reloading key material for each connection, and permits session
+   * resumption, since sessions are cached by context. A context is loaded once, without lock, other
+   * connections needing it waiting for its loading.
+   */
+  private static final ConcurrentHashMap<String, CompletableFuture<SSLSocketFactory>> contexts =
+      new ConcurrentHashMap<>();
+
+  /** Context keys by use order, least recently used contexts being removed. */
+  private static final Map<String, Boolean> recentlyUsed =
+      new LinkedHashMap<String, Boolean>(MAX_CONTEXTS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+          if (size() > MAX_CONTEXTS) {
+            contexts.remove(eldest.getKey());
+            return true;
+          }
+          return false;
+        }
+      };
+
   private static KeyManager loadClientCerts(
       String keyStoreUrl, String keyStorePassword, String keyPassword, String storeType)
       throws SQLException {
@@ -94,11 +129,173 @@ public class DefaultTlsSocketPlugin implements TlsSocketPlugin {
     return "DEFAULT";
   }
 
+  /**
+   * Get socket factory from the SSL context shared by connections with the same TLS configuration.
+   * Context is reloaded when a key material file has changed (last modification time or size).
+   * Configuration is only kept as a digest, so passwords are not retained by the cache.
+   *
+   * @param options connection string option
+   * @return SSL socket factory
+   * @throws SQLException if SSL context configuration failed.
+   */
   @Override
   public SSLSocketFactory getSocketFactory(Options options) throws SQLException {
+    boolean hasTrustManager =
+        options.trustServerCertificate
+            || options.serverSslCert != null
+            || options.trustStore != null;
+    String systemKeyStore = System.getProperty("javax.net.ssl.keyStore");
+    String systemTrustStore = System.getProperty("javax.net.ssl.trustStore");
+
+    List<Long> stamp = new ArrayList<>();
+    if (!options.trustServerCertificate) {
+      addFileStamp(stamp, options.trustStore != null ? options.trustStore : options.serverSslCert);
+    }
+    addFileStamp(stamp, options.keyStore != null ? options.keyStore : systemKeyStore);
+    if (!hasTrustManager) {
+      addFileStamp(stamp, systemTrustStore);
+    }
+
+    String key =
+        Utils.sha256Hex(
+            String.valueOf(options.trustServerCertificate),
+            options.serverSslCert,
+            options.trustStore,
+            options.trustStorePassword,
+            options.trustStoreType,
+            options.keyStore,
+            options.keyStorePassword,
+            options.keyPassword,
+            options.keyStoreType,
+            options.keyStore == null ? systemKeyStore : null,
+            options.keyStore == null ? System.getProperty("javax.net.ssl.keyStorePassword") : null,
+            hasTrustManager ? null : systemTrustStore,
+            stamp.toString());
+
+    CompletableFuture<SSLSocketFactory> context = contexts.get(key);
+    if (context == null) {
+      CompletableFuture<SSLSocketFactory> loading = new CompletableFuture<>();
+      context = contexts.putIfAbsent(key, loading);
+      if (context == null) {
+        return loadContext(key, loading, options);
+      }
+    }
+
+    try {
+      SSLSocketFactory socketFactory = context.get();
+      markUsed(key);
+      return socketFactory;
+    } catch (ExecutionException executionException) {
+      if (executionException.getCause() instanceof SQLException) {
+        throw (SQLException) executionException.getCause();
+      }
+      throw ExceptionFactory.INSTANCE.create(
+          "Could not initialize SSL context", "08000", executionException);
+    } catch (InterruptedException interrupted) {
+      Thread.currentThread().interrupt();
+      throw ExceptionFactory.INSTANCE.create("Thread was interrupted", "70100", interrupted);
+    }
+  }
+
+  /**
+   * Load SSL context registered in cache. Context is removed from cache if loading fails, or if key
+   * material from system properties could not be loaded, so next connection retries.
+   *
+   * @param key context key
+   * @param loading registered future context
+   * @param options connection string option
+   * @return SSL socket factory
+   * @throws SQLException if SSL context configuration failed.
+   */
+  private static SSLSocketFactory loadContext(
+      String key, CompletableFuture<SSLSocketFactory> loading, Options options)
+      throws SQLException {
+    try {
+      KeyManager[] keyManager = loadKeyManager(options);
+      SSLSocketFactory socketFactory = createSocketFactory(options, keyManager);
+      TlsStatistics.contextLoaded();
+      loading.complete(socketFactory);
+      if (keyManager == null
+          && options.keyStore == null
+          && System.getProperty("javax.net.ssl.keyStore") != null) {
+        contexts.remove(key, loading);
+      } else {
+        markUsed(key);
+      }
+      return socketFactory;
+    } catch (SQLException | RuntimeException | Error exception) {
+      loading.completeExceptionally(exception);
+      contexts.remove(key, loading);
+      throw exception;
+    }
+  }
+
+  private static void markUsed(String key) {
+    synchronized (recentlyUsed) {
+      recentlyUsed.put(key, Boolean.TRUE);
+    }
+  }
+
+  /**
+   * Add last modification time and size of a local key material file, so a change can be detected.
+   * PEM content, classpath resources and remote URLs are not checked.
+   *
+   * @param stamp file stamps
+   * @param location file path or URL
+   */
+  private static void addFileStamp(List<Long> stamp, String location) {
+    if (location == null
+        || location.startsWith("-----BEGIN CERTIFICATE-----")
+        || location.startsWith("classpath:")) {
+      return;
+    }
+    File file;
+    try {
+      URL url = new URL(location);
+      if (!"file".equals(url.getProtocol())) {
+        return;
+      }
+      file = new File(url.getPath());
+    } catch (MalformedURLException malformedUrlException) {
+      file = new File(location);
+    }
+    stamp.add(file.lastModified());
+    stamp.add(file.length());
+  }
+
+  /**
+   * Load client key material, from "keyStore" option or else from system properties.
+   *
+   * @param options connection string option
+   * @return key managers, or null if none configured or system properties key store failed to load
+   * @throws SQLException if "keyStore" option key store cannot be loaded
+   */
+  private static KeyManager[] loadKeyManager(Options options) throws SQLException {
+    if (options.keyStore != null) {
+      return new KeyManager[] {
+        loadClientCerts(
+            options.keyStore, options.keyStorePassword, options.keyPassword, options.keyStoreType)
+      };
+    }
+
+    String keyStore = System.getProperty("javax.net.ssl.keyStore");
+    String keyStorePassword = System.getProperty("javax.net.ssl.keyStorePassword");
+    if (keyStore != null) {
+      try {
+        return new KeyManager[] {
+          loadClientCerts(keyStore, keyStorePassword, keyStorePassword, options.keyStoreType)
+        };
+      } catch (SQLException queryException) {
+        logger.error("Error loading keymanager from system properties", queryException);
+      }
+    }
+    return null;
+  }
+
+  private static SSLSocketFactory createSocketFactory(Options options, KeyManager[] keyManager)
+      throws SQLException {
 
     TrustManager[] trustManager = null;
-    KeyManager[] keyManager = null;
 
     if (options.trustServerCertificate
         || options.serverSslCert != null
@@ -106,31 +303,6 @@ public class DefaultTlsSocketPlugin implements TlsSocketPlugin {
       trustManager = new X509TrustManager[] {new MariaDbX509TrustManager(options)};
     }
 
-    if (options.keyStore != null) {
-      keyManager =
-          new KeyManager[] {
-            loadClientCerts(
-                options.keyStore,
-                options.keyStorePassword,
-                options.keyPassword,
-                options.keyStoreType)
-          };
-    } else {
-      String keyStore = System.getProperty("javax.net.ssl.keyStore");
-      String keyStorePassword = System.getProperty("javax.net.ssl.keyStorePassword");
-      if (keyStore != null) {
-        try {
-          keyManager =
-              new KeyManager[] {
-                loadClientCerts(keyStore, keyStorePassword, keyStorePassword, options.keyStoreType)
-              };
-        } catch (SQLException queryException) {
-          keyManager = null;
-          logger.error("Error loading keymanager from system properties", queryException);
-        }
-      }
-    }
-
     try {
       SSLContext sslContext = SSLContext.getInstance("TLS");
       sslContext.init(keyManager, trustManager, null);
@@ -144,6 +316,14 @@ public class DefaultTlsSocketPlugin implements TlsSocketPlugin {
     }
   }
 
+  /** Remove all cached SSL contexts. */
+  public static void clearCache() {
+    synchronized (recentlyUsed) {
+      recentlyUsed.clear();
+      contexts.clear();
+    }
+  }
+
   @Override
   public void verify(String host, SSLSession session, Options options, long serverThreadId)
       throws SSLException {
@@ -0,0 +1,119 @@
+/*
+ *
+ * MariaDB Client for Java
+ *
+ * Copyright (c) 2012-2014 Monty Program Ab.
+ * Copyright (c) 2015-2020 MariaDB Corporation Ab.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this library; if not, write to Monty Program Ab info@montyprogram.com.
+ *
+ * This particular MariaDB Client for Java file is work
+ * derived from a Drizzle-JDBC. Drizzle-JDBC file which is covered by subject to
+ * the following copyright and notice provisions:
+ *
+ * Copyright (c) 2009-2011, Marcus Eriksson
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this list
+ * of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this
+ * list of conditions and the following disclaimer in the documentation and/or
+ * other materials provided with the distribution.
+ *
+ * Neither the name of the driver nor the names of its contributors may not be
+ * used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS  AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package org.mariadb.jdbc.internal.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Count client side PreparedStatement executions by query, to prepare on server side queries that
+ * are frequently executed (option "prepareThreshold"). Least recently used queries are evicted.
+ */
+public class PrepareUsageCounter extends LinkedHashMap<String, Integer> {
+
+  /** value indicating that server cannot prepare query. */
+  private static final int NOT_PREPARABLE = Integer.MIN_VALUE;
+
+  private final int maxSize;
+  private final int threshold;
+
+  private PrepareUsageCounter(int size, int threshold) {
+    super(size, .75f, true);
+    this.maxSize = size;
+    this.threshold = threshold;
+  }
+
+  public static PrepareUsageCounter newInstance(int size, int threshold) {
+    return new PrepareUsageCounter(size, threshold);
+  }
+
+  /**
+   * Count one execution of a query.
+   *
+   * @param sql query
+   */
+  public synchronized void increment(String sql) {
+    Integer count = get(sql);
+    if (count == null) {
+      put(sql, 1);
+    } else if (count != NOT_PREPARABLE && count < threshold) {
+      put(sql, count + 1);
+    }
+  }
+
+  /**
+   * Indicate if query has been executed enough to be prepared on server side.
+   *
+   * @param sql query
+   * @return true if query must be prepared on server side
+   */
+  public synchronized boolean mustPrepare(String sql) {
+    Integer count = get(sql);
+    return count != null && count >= threshold;
+  }
+
+  /**
+   * Server failed to prepare query. Query will then always be executed using client side
+   * PreparedStatement.
+   *
+   * @param sql query
+   */
+  public synchronized void markNotPreparable(String sql) {
+    put(sql, NOT_PREPARABLE);
+  }
+
+  @Override
+  protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+    return this.size() > maxSize;
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ *
+ * MariaDB Client for Java
+ *
+ * Copyright (c) 2012-2014 Monty Program Ab.
+ * Copyright (c) 2015-2020 MariaDB Corporation Ab.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this library; if not, write to Monty Program Ab info@montyprogram.com.
+ *
+ * This particular MariaDB Client for Java file is work
+ * derived from a Drizzle-JDBC. Drizzle-JDBC file which is covered by subject to
+ * the following copyright and notice provisions:
+ *
+ * Copyright (c) 2009-2011, Marcus Eriksson
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this list
+ * of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this
+ * list of conditions and the following disclaimer in the documentation and/or
+ * other materials provided with the distribution.
+ *
+ * Neither the name of the driver nor the names of its contributors may not be
+ * used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS  AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package org.mariadb.jdbc.internal.util;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per host cache of the server variables read after authentication (max_allowed_packet,
+ * system_time_zone, time_zone, auto_increment_increment), shared by all connections of the JVM.
+ *
+ * <p>Entries expire after a TTL and are ignored when the server version of a new connection differs
+ * from the one that loaded them (server upgraded or restarted on another version).
+ */
+public final class SessionMetadataCache {
+
+  private static final Map<String, Entry> cache = new ConcurrentHashMap<>();
+
+  private SessionMetadataCache() {}
+
+  /**
+   * Get cached server variables.
+   *
+   * @param key host key
+   * @param serverVersion server version of the current connection
+   * @return cached variables, or null if none, expired or loaded from another server version
+   */
+  public static Map<String, String> get(String key, String serverVersion) {
+    Entry entry = cache.get(key);
+    if (entry == null) {
+      return null;
+    }
+    if (entry.expiration - System.nanoTime() <= 0 || !entry.serverVersion.equals(serverVersion)) {
+      cache.remove(key, entry);
+      return null;
+    }
+    return entry.serverData;
+  }
+
+  /**
+   * Store server variables.
+   *
+   * @param key host key
+   * @param serverVersion server version that returned those variables
+   * @param serverData server variables
+   * @param ttlSeconds time to live in seconds
+   */
+  public static void put(
+      String key, String serverVersion, Map<String, String> serverData, int ttlSeconds) {
+    cache.put(
+        key,
+        new Entry(
+            serverVersion,
+            Collections.unmodifiableMap(new TreeMap<>(serverData)),
+            System.nanoTime() + ttlSeconds * 1_000_000_000L));
+  }
+
+  /**
+   * Remove host entry.
+   *
+   * @param key host key
+   */
+  public static void invalidate(String key) {
+    cache.remove(key);
+  }
+
+  /** Remove all entries. */
+  public static void clear() {
+    cache.clear();
+  }
+
+  private static class Entry {
+    private final String serverVersion;
+    private final Map<String, String> serverData;
+    private final long expiration;
+
+    private Entry(String serverVersion, Map<String, String> serverData, long expiration) {
+      this.serverVersion = serverVersion;
+      this.serverData = serverData;
+      this.expiration = expiration;
+    }
+  }
+}
@@ -58,6 +58,7 @@ import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Proxy;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.sql.Connection;
@@ -69,6 +70,7 @@ import java.util.regex.Pattern;
 import javax.net.SocketFactory;
 import org.mariadb.jdbc.UrlParser;
 import org.mariadb.jdbc.internal.com.send.parameters.ParameterHolder;
+import org.mariadb.jdbc.internal.failover.FailoverProtocol;
 import org.mariadb.jdbc.internal.failover.FailoverProxy;
 import org.mariadb.jdbc.internal.failover.impl.AuroraListener;
 import org.mariadb.jdbc.internal.failover.impl.MastersFailoverListener;
@@ -77,9 +79,7 @@ import org.mariadb.jdbc.internal.io.LruTraceCache;
 import org.mariadb.jdbc.internal.io.socket.SocketHandlerFunction;
 import org.mariadb.jdbc.internal.io.socket.SocketUtility;
 import org.mariadb.jdbc.internal.logging.ProtocolLoggingProxy;
-import org.mariadb.jdbc.internal.protocol.AuroraProtocol;
 import org.mariadb.jdbc.internal.protocol.MasterProtocol;
-import org.mariadb.jdbc.internal.protocol.MastersSlavesProtocol;
 import org.mariadb.jdbc.internal.protocol.Protocol;
 import org.mariadb.jdbc.internal.util.pool.GlobalStateInfo;
 import org.mariadb.jdbc.util.ConfigurableSocketFactory;
@@ -258,6 +258,33 @@ public class Utils {
     return result;
   }
 
+  /**
+   * Hexadecimal SHA-256 digest of values, permitting to identify secrets like passwords without
+   * keeping them in memory.
+   *
+   * @param values values to digest, null permitted
+   * @return hexadecimal digest
+   */
+  public static String sha256Hex(String... values) {
+    try {
+      MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+      for (String value : values) {
+        // length prefix, so that ("ab", "c"), ("a", "bc") and (null, "") differ
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        int length = value == null ? -1 : bytes.length;
+        messageDigest.update(
+            new byte[] {
+              (byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length
+            });
+        messageDigest.update(bytes);
+      }
+      return getHex(messageDigest.digest());
+    } catch (NoSuchAlgorithmException noSuchAlgorithmException) {
+      // every java platform must support SHA-256
+      throw new IllegalStateException(noSuchAlgorithmException);
+    }
+  }
+
   /**
    * Helper function to replace function parameters in escaped string. 3 functions are handles :
    *
@@ -603,31 +630,21 @@ public class Utils {
       case AURORA:
         return getProxyLoggingIfNeeded(
             urlParser,
-            (Protocol)
-                Proxy.newProxyInstance(
-                    AuroraProtocol.class.getClassLoader(),
-                    new Class[] {Protocol.class},
-                    new FailoverProxy(
-                        new AuroraListener(urlParser, globalInfo), lock, traceCache)));
+            new FailoverProtocol(
+                new FailoverProxy(new AuroraListener(urlParser, globalInfo), lock, traceCache)));
       case REPLICATION:
         return getProxyLoggingIfNeeded(
             urlParser,
-            (Protocol)
-                Proxy.newProxyInstance(
-                    MastersSlavesProtocol.class.getClassLoader(),
-                    new Class[] {Protocol.class},
-                    new FailoverProxy(
-                        new MastersSlavesListener(urlParser, globalInfo), lock, traceCache)));
+            new FailoverProtocol(
+                new FailoverProxy(
+                    new MastersSlavesListener(urlParser, globalInfo), lock, traceCache)));
       case LOADBALANCE:
       case SEQUENTIAL:
         return getProxyLoggingIfNeeded(
             urlParser,
-            (Protocol)
-                Proxy.newProxyInstance(
-                    MasterProtocol.class.getClassLoader(),
-                    new Class[] {Protocol.class},
-                    new FailoverProxy(
-                        new MastersFailoverListener(urlParser, globalInfo), lock, traceCache)));
+            new FailoverProtocol(
+                new FailoverProxy(
+                    new MastersFailoverListener(urlParser, globalInfo), lock, traceCache)));
       default:
         protocol =
             getProxyLoggingIfNeeded(
@@ -54,10 +54,46 @@ package org.mariadb.jdbc.internal.util.dao;
 
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class ClientPrepareResult implements PrepareResult {
 
+  private static final Pattern INSERT_VALUES_PATTERN =
+      Pattern.compile(
+          "^\\s*INSERT\\s+(?:(?:LOW_PRIORITY|DELAYED|HIGH_PRIORITY|IGNORE)\\s+)*(?:INTO\\s+)?"
+              + "((?:`[^`]*`|[^\\s`(])+)\\s*(\\([^()]*\\))?\\s*VALUES$",
+          Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+  // keywords and functions that make a SELECT depend on, or change, master session state
+  private static final Set<String> NOT_READ_ONLY_WORDS =
+      new HashSet<>(
+          Arrays.asList(
+              "FOR",
+              "LOCK",
+              "INTO",
+              "SQL_CALC_FOUND_ROWS",
+              "FOUND_ROWS",
+              "LAST_INSERT_ID",
+              "ROW_COUNT",
+              "CONNECTION_ID",
+              "GET_LOCK",
+              "RELEASE_LOCK",
+              "RELEASE_ALL_LOCKS",
+              "IS_FREE_LOCK",
+              "IS_USED_LOCK",
+              "NEXTVAL",
+              "LASTVAL",
+              "SETVAL",
+              "MASTER_POS_WAIT",
+              "MASTER_GTID_WAIT",
+              "WAIT_FOR_EXECUTED_GTID_SET"));
+
   private final String sql;
   private final List<byte[]> queryParts;
   private final boolean rewriteType;
@@ -220,6 +256,155 @@ public class ClientPrepareResult implements PrepareResult {
         queryString, partList, reWritablePrepare, multipleQueriesPrepare, false);
   }
 
+  /**
+   * Cheap classification of a query as a read-only SELECT that can be executed on a replica: a
+   * single SELECT statement, without locking clause, INTO clause, user or system variable, nor
+   * function depending on session state. Strings, quoted identifiers and comments are skipped.
+   *
+   * @param queryString query
+   * @param noBackslashEscapes escape mode
+   * @return true if query is a pure SELECT
+   */
+  public static boolean isReadOnlySelect(String queryString, boolean noBackslashEscapes) {
+    LexState state = LexState.Normal;
+    char lastChar = '\0';
+    boolean singleQuotes = false;
+    boolean endingSemicolon = false;
+    boolean firstWord = true;
+    int wordStart = -1;
+
+    char[] query = queryString.toCharArray();
+    int queryLength = query.length;
+    for (int i = 0; i <= queryLength; i++) {
+      char car = i < queryLength ? query[i] : ' ';
+
+      if (state == LexState.Normal && (Character.isLetterOrDigit(car) || car == '_')) {
+        if (endingSemicolon) {
+          // multiple queries
+          return false;
+        }
+        if (wordStart == -1) {
+          wordStart = i;
+        }
+        lastChar = car;
+        continue;
+      }
+      if (wordStart != -1) {
+        String word = queryString.substring(wordStart, i).toUpperCase(Locale.ROOT);
+        wordStart = -1;
+        if (firstWord) {
+          if (!"SELECT".equals(word)) {
+            return false;
+          }
+          firstWord = false;
+        } else if (NOT_READ_ONLY_WORDS.contains(word)) {
+          return false;
+        }
+      }
+
+      if (state == LexState.Escape
+          && !((car == '\'' && singleQuotes) || (car == '"' && !singleQuotes))) {
+        state = LexState.String;
+        lastChar = car;
+        continue;
+      }
+      switch (car) {
+        case '*':
+          if (state == LexState.Normal && lastChar == '/') {
+            state = LexState.SlashStarComment;
+          }
+          break;
+
+        case '/':
+          if (state == LexState.SlashStarComment && lastChar == '*') {
+            state = LexState.Normal;
+          } else if (state == LexState.Normal && lastChar == '/') {
+            state = LexState.EOLComment;
+          }
+          break;
+
+        case '#':
+          if (state == LexState.Normal) {
+            state = LexState.EOLComment;
+          }
+          break;
+
+        case '-':
+          if (state == LexState.Normal && lastChar == '-') {
+            state = LexState.EOLComment;
+          }
+          break;
+
+        case '\n':
+          if (state == LexState.EOLComment) {
+            state = LexState.Normal;
+          }
+          break;
+
+        case '"':
+          if (state == LexState.Normal) {
+            state = LexState.String;
+            singleQuotes = false;
+          } else if (state == LexState.String && !singleQuotes) {
+            state = LexState.Normal;
+          } else if (state == LexState.Escape && !singleQuotes) {
+            state = LexState.String;
+          }
+          break;
+
+        case '\'':
+          if (state == LexState.Normal) {
+            state = LexState.String;
+            singleQuotes = true;
+          } else if (state == LexState.String && singleQuotes) {
+            state = LexState.Normal;
+          } else if (state == LexState.Escape && singleQuotes) {
+            state = LexState.String;
+          }
+          break;
+
+        case '\\':
+          if (noBackslashEscapes) {
+            break;
+          }
+          if (state == LexState.String) {
+            state = LexState.Escape;
+          }
+          break;
+
+        case ';':
+          if (state == LexState.Normal) {
+            endingSemicolon = true;
+          }
+          break;
+
+        case '@':
+          if (state == LexState.Normal) {
+            // user or system variable
+            return false;
+          }
+          break;
+
+        case '`':
+          if (state == LexState.Backtick) {
+            state = LexState.Normal;
+          } else if (state == LexState.Normal) {
+            state = LexState.Backtick;
+          }
+          break;
+
+        default:
+          if (state == LexState.Normal && endingSemicolon && !Character.isWhitespace(car)) {
+            // multiple queries
+            return false;
+          }
+          break;
+      }
+      lastChar = car;
+    }
+    return !firstWord;
+  }
+
   /**
    * Valid that query is valid (no ending semi colon, or end-of line comment ).
    *
@@ -675,6 +860,82 @@ public class ClientPrepareResult implements PrepareResult {
     return paramCount;
   }
 
+  /**
+   * Build the LOAD DATA LOCAL INFILE command equivalent to this INSERT, when query is a plain
+   * "INSERT INTO tableName (col1, col2) VALUES (?, ?)". Rows are then expected as file content,
+   * with fields written like text protocol parameters (separated by comma, strings enclosed by
+   * quote), one row per line.
+   *
+   * @param noBackslashEscapes escape mode
+   * @return LOAD DATA command, or null if query cannot be converted
+   */
+  public String getLoadDataSql(boolean noBackslashEscapes) {
+    if (!rewriteType || !isQueryMultiValuesRewritable || paramCount == 0) {
+      return null;
+    }
+
+    // values must only be parameters : "(?, ?, ?)" without any trailing part
+    if (!"(".equals(partToString(1))
+        || !")".equals(partToString(paramCount + 1))
+        || !partToString(paramCount + 2).isEmpty()) {
+      return null;
+    }
+    for (int i = 2; i < paramCount + 1; i++) {
+      if (!",".equals(partToString(i))) {
+        return null;
+      }
+    }
+
+    Matcher matcher =
+        INSERT_VALUES_PATTERN.matcher(new String(queryParts.get(0), StandardCharsets.UTF_8));
+    if (!matcher.matches()) {
+      return null;
+    }
+
+    StringBuilder sb = new StringBuilder("LOAD DATA LOCAL INFILE 'batch' INTO TABLE ");
+    sb.append(matcher.group(1))
+        .append(" CHARACTER SET utf8mb4 FIELDS TERMINATED BY ',' OPTIONALLY ENCLOSED BY ''''");
+    if (noBackslashEscapes) {
+      sb.append(" ESCAPED BY ''");
+    }
+    if (matcher.group(2) != null) {
+      sb.append(' ').append(matcher.group(2));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Build the multi-values form of this INSERT, with the values part repeated for the indicated
+   * number of rows : "INSERT INTO tableName (col1, col2) VALUES (?, ?), (?, ?), ...".
+   *
+   * @param rows number of rows
+   * @return multi-values query, or null if query cannot be rewritten
+   */
+  public String getMultiValuesSql(int rows) {
+    if (!rewriteType || !isQueryMultiValuesRewritable || paramCount == 0) {
+      return null;
+    }
+    StringBuilder sb = new StringBuilder(partToRawString(0));
+    for (int row = 0; row < rows; row++) {
+      if (row > 0) {
+        sb.append(',');
+      }
+      sb.append(partToRawString(1));
+      for (int i = 0; i < paramCount; i++) {
+        sb.append('?').append(partToRawString(i + 2));
+      }
+    }
+    return sb.append(partToRawString(paramCount + 2)).toString();
+  }
+
+  private String partToRawString(int index) {
+    return new String(queryParts.get(index), StandardCharsets.UTF_8);
+  }
+
+  private String partToString(int index) {
+    return partToRawString(index).trim();
+  }
+
   enum LexState {
     Normal, /* inside  query */
     String, /* inside string */
@@ -69,6 +69,9 @@ public class ServerPrepareResult implements PrepareResult {
   // share indicator
   private volatile int shareCounter = 1;
   private volatile boolean isBeingDeallocate;
+  // query parts for multi-values rewriting, parsed once (depends on NO_BACKSLASH_ESCAPES mode)
+  private volatile ClientPrepareResult rewritableParts;
+  private volatile ClientPrepareResult noBackslashRewritableParts;
 
   /**
    * PrepareStatement Result object.
@@ -111,6 +114,25 @@ public class ServerPrepareResult implements PrepareResult {
     this.isBeingDeallocate = false;
   }
 
+  /**
+   * Query split in parts permitting multi-values rewriting, parsed on first use only.
+   *
+   * @param noBackslashEscapes must backslash be escaped
+   * @return query parts
+   */
+  public ClientPrepareResult getRewritableParts(boolean noBackslashEscapes) {
+    ClientPrepareResult parts = noBackslashEscapes ? noBackslashRewritableParts : rewritableParts;
+    if (parts == null) {
+      parts = ClientPrepareResult.rewritableParts(sql, noBackslashEscapes);
+      if (noBackslashEscapes) {
+        noBackslashRewritableParts = parts;
+      } else {
+        rewritableParts = parts;
+      }
+    }
+    return parts;
+  }
+
   public void setAddToCache() {
     inCache.set(true);
   }
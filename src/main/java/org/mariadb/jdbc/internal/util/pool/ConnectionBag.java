@@ -0,0 +1,347 @@
+/*
+ *
+ * MariaDB Client for Java
+ *
+ * Copyright (c) 2012-2014 Monty Program Ab.
+ * Copyright (c) 2015-2020 MariaDB Corporation Ab.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this library; if not, write to Monty Program Ab info@montyprogram.com.
+ *
+ * This particular MariaDB Client for Java file is work
+ * derived from a Drizzle-JDBC. Drizzle-JDBC file which is covered by subject to
+ * the following copyright and notice provisions:
+ *
+ * Copyright (c) 2009-2011, Marcus Eriksson
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this list
+ * of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this
+ * list of conditions and the following disclaimer in the documentation and/or
+ * other materials provided with the distribution.
+ *
+ * Neither the name of the driver nor the names of its contributors may not be
+ * used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS  AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package org.mariadb.jdbc.internal.util.pool;
+
+import static org.mariadb.jdbc.MariaDbPooledConnection.STATE_IN_USE;
+import static org.mariadb.jdbc.MariaDbPooledConnection.STATE_NOT_IN_USE;
+import static org.mariadb.jdbc.MariaDbPooledConnection.STATE_REMOVED;
+import static org.mariadb.jdbc.MariaDbPooledConnection.STATE_RESERVED;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import org.mariadb.jdbc.MariaDbPooledConnection;
+
+/**
+ * Lock-free container of pool connections.
+ *
+ * <p>Each connection has an atomic state (see MariaDbPooledConnection.STATE_*), so ownership is
+ * taken with a single compare-and-set. Borrowing first looks into a thread-local list of
+ * connections recently released by the current thread, then into the shared list, then waits on a
+ * handoff queue where released connections are directly given to waiting threads.
+ *
+ * <p>Borrow and release don't take any lock, except when no connection is available.
+ */
+public class ConnectionBag {
+
+  private static final int MAX_THREAD_LOCAL_SIZE = 16;
+
+  private final CopyOnWriteArrayList<MariaDbPooledConnection> sharedList =
+      new CopyOnWriteArrayList<>();
+  private final ThreadLocal<List<WeakReference<MariaDbPooledConnection>>> threadList =
+      ThreadLocal.withInitial(() -> new ArrayList<>(MAX_THREAD_LOCAL_SIZE));
+  private final SynchronousQueue<MariaDbPooledConnection> handoffQueue =
+      new SynchronousQueue<>(true);
+  private final AtomicInteger waiters = new AtomicInteger();
+  private final ConcurrentLinkedQueue<CompletableFuture<MariaDbPooledConnection>> asyncWaiters =
+      new ConcurrentLinkedQueue<>();
+
+  /**
+   * Borrow a connection, waiting up to the specified time if none is available.
+   *
+   * @param timeout time to wait. 0 means return immediately.
+   * @param timeUnit timeout unit
+   * @return a connection in STATE_IN_USE state, or null if timeout occurs
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public MariaDbPooledConnection borrow(long timeout, TimeUnit timeUnit)
+      throws InterruptedException {
+
+    // most recently released connections by this thread first
+    List<WeakReference<MariaDbPooledConnection>> list = threadList.get();
+    for (int i = list.size() - 1; i >= 0; i--) {
+      MariaDbPooledConnection item = list.remove(i).get();
+      if (item != null && item.compareAndSetState(STATE_NOT_IN_USE, STATE_IN_USE)) {
+        return item;
+      }
+    }
+
+    waiters.incrementAndGet();
+    try {
+      for (MariaDbPooledConnection item : sharedList) {
+        if (item.compareAndSetState(STATE_NOT_IN_USE, STATE_IN_USE)) {
+          return item;
+        }
+      }
+
+      long remaining = timeUnit.toNanos(timeout);
+      do {
+        long start = System.nanoTime();
+        MariaDbPooledConnection item = handoffQueue.poll(remaining, TimeUnit.NANOSECONDS);
+        if (item == null || item.compareAndSetState(STATE_NOT_IN_USE, STATE_IN_USE)) {
+          return item;
+        }
+        remaining -= System.nanoTime() - start;
+      } while (remaining > 10_000);
+
+      return null;
+    } finally {
+      waiters.decrementAndGet();
+    }
+  }
+
+  /**
+   * Register an asynchronous borrow request. Requests are served in FIFO order, before threads
+   * waiting in {@link #borrow(long, TimeUnit)}: future is completed with a connection in
+   * STATE_IN_USE state by the thread making a connection available. A future completed meanwhile
+   * (timeout) is skipped.
+   *
+   * @param future borrow request
+   */
+  public void borrowAsync(CompletableFuture<MariaDbPooledConnection> future) {
+    asyncWaiters.add(future);
+
+    // a connection may have been made available before registration
+    for (MariaDbPooledConnection item : sharedList) {
+      if (asyncWaiters.isEmpty()) {
+        return;
+      }
+      if (item.getState() == STATE_NOT_IN_USE) {
+        handOff(item);
+      }
+    }
+  }
+
+  /**
+   * Remove an asynchronous borrow request that has been completed without connection.
+   *
+   * @param future borrow request
+   */
+  public void cancelAsync(CompletableFuture<MariaDbPooledConnection> future) {
+    asyncWaiters.remove(future);
+  }
+
+  /**
+   * Fail all pending asynchronous borrow requests.
+   *
+   * @param exception exception
+   */
+  public void failAsyncWaiters(Throwable exception) {
+    CompletableFuture<MariaDbPooledConnection> future;
+    while ((future = asyncWaiters.poll()) != null) {
+      future.completeExceptionally(exception);
+    }
+  }
+
+  /**
+   * Give back a borrowed connection. Connection is directly handed to a waiting thread if any.
+   *
+   * @param item connection
+   */
+  public void requite(MariaDbPooledConnection item) {
+    int state = item.getState();
+    if (state == STATE_REMOVED) {
+      return;
+    }
+
+    // connection still belongs to caller : queued asynchronous requests are served before it
+    // becomes borrowable by other threads
+    if (handOffAsync(item, state)) {
+      return;
+    }
+    item.setState(STATE_NOT_IN_USE);
+    handOff(item);
+
+    List<WeakReference<MariaDbPooledConnection>> list = threadList.get();
+    if (list.size() < MAX_THREAD_LOCAL_SIZE) {
+      list.add(new WeakReference<>(item));
+    }
+  }
+
+  /**
+   * Add a new connection, in STATE_NOT_IN_USE state.
+   *
+   * @param item new connection
+   */
+  public void add(MariaDbPooledConnection item) {
+    boolean handedOff = handOffAsync(item, STATE_NOT_IN_USE);
+    sharedList.add(item);
+    if (!handedOff) {
+      handOff(item);
+    }
+  }
+
+  /**
+   * Add a connection directly in STATE_IN_USE state.
+   *
+   * @param item connection already in use
+   */
+  public void addInUse(MariaDbPooledConnection item) {
+    item.setState(STATE_IN_USE);
+    sharedList.add(item);
+  }
+
+  /**
+   * Give connection to the oldest asynchronous request still pending.
+   *
+   * @param item connection
+   * @param state current connection state
+   * @return true if connection has been given to an asynchronous request
+   */
+  private boolean handOffAsync(MariaDbPooledConnection item, int state) {
+    // loop, since an asynchronous request may be registered while connection is taken
+    while (!asyncWaiters.isEmpty() && item.compareAndSetState(state, STATE_IN_USE)) {
+      CompletableFuture<MariaDbPooledConnection> future;
+      while ((future = asyncWaiters.poll()) != null) {
+        if (future.complete(item)) {
+          return true;
+        }
+      }
+      item.setState(state);
+    }
+    return false;
+  }
+
+  private void handOff(MariaDbPooledConnection item) {
+    if (handOffAsync(item, STATE_NOT_IN_USE)) {
+      return;
+    }
+
+    for (int i = 0; waiters.get() > 0; i++) {
+      if (item.getState() != STATE_NOT_IN_USE || handoffQueue.offer(item)) {
+        return;
+      }
+      if ((i & 0xff) == 0xff) {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+      } else {
+        Thread.yield();
+      }
+    }
+  }
+
+  /**
+   * Reserve an idle connection, so it cannot be borrowed (for validation or removal).
+   *
+   * @param item connection
+   * @return true if connection was idle and is now reserved
+   */
+  public boolean reserve(MariaDbPooledConnection item) {
+    return item.compareAndSetState(STATE_NOT_IN_USE, STATE_RESERVED);
+  }
+
+  /**
+   * Make a reserved connection available again.
+   *
+   * @param item connection
+   */
+  public void unreserve(MariaDbPooledConnection item) {
+    if (handOffAsync(item, STATE_RESERVED)) {
+      return;
+    }
+    if (item.compareAndSetState(STATE_RESERVED, STATE_NOT_IN_USE)) {
+      handOff(item);
+    }
+  }
+
+  /**
+   * Remove connection from bag, whatever its state.
+   *
+   * @param item connection
+   * @return true if connection was in bag and has been removed by this call
+   */
+  public boolean remove(MariaDbPooledConnection item) {
+    while (true) {
+      int state = item.getState();
+      if (state == STATE_REMOVED) {
+        return false;
+      }
+      if (item.compareAndSetState(state, STATE_REMOVED)) {
+        return sharedList.remove(item);
+      }
+    }
+  }
+
+  /**
+   * Snapshot of all connections in bag.
+   *
+   * @return connection list
+   */
+  public List<MariaDbPooledConnection> values() {
+    return new ArrayList<>(sharedList);
+  }
+
+  /**
+   * Count connections with the indicated state.
+   *
+   * @param state state
+   * @return number of connections
+   */
+  public int getCount(int state) {
+    int count = 0;
+    for (MariaDbPooledConnection item : sharedList) {
+      if (item.getState() == state) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  public int size() {
+    return sharedList.size();
+  }
+
+  public int getWaitingThreadCount() {
+    return waiters.get();
+  }
+
+  public int getAsyncWaiterCount() {
+    return asyncWaiters.size();
+  }
+}
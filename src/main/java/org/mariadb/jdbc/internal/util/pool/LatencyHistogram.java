@@ -0,0 +1,179 @@
+/*
+ *
+ * MariaDB Client for Java
+ *
+ * Copyright (c) 2012-2014 Monty Program Ab.
+ * Copyright (c) 2015-2020 MariaDB Corporation Ab.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this library; if not, write to Monty Program Ab info@montyprogram.com.
+ *
+ * This particular MariaDB Client for Java file is work
+ * derived from a Drizzle-JDBC. Drizzle-JDBC file which is covered by subject to
+ * the following copyright and notice provisions:
+ *
+ * Copyright (c) 2009-2011, Marcus Eriksson
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this list
+ * of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this
+ * list of conditions and the following disclaimer in the documentation and/or
+ * other materials provided with the distribution.
+ *
+ * Neither the name of the driver nor the names of its contributors may not be
+ * used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS  AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package org.mariadb.jdbc.internal.util.pool;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free, allocation-free histogram of durations, in microseconds.
+ *
+ * <p>Values are recorded in logarithmic buckets : each power of 2 is split in 8 sub-buckets, so a
+ * percentile is known with a relative precision of 12.5%, whatever the magnitude (HDR-like
+ * histogram). Recording is a single atomic increment.
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKET_NUMBER = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_NUMBER);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final AtomicLong max = new AtomicLong();
+
+  private static int bucketIndex(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+    return (shift + 1) * SUB_BUCKET_COUNT + (int) ((value >>> shift) & (SUB_BUCKET_COUNT - 1));
+  }
+
+  /**
+   * Highest value corresponding to bucket.
+   *
+   * @param index bucket index
+   * @return highest value
+   */
+  private static long bucketHighestValue(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int shift = index / SUB_BUCKET_COUNT - 1;
+    long subBucket = SUB_BUCKET_COUNT + (index % SUB_BUCKET_COUNT);
+    return ((subBucket + 1) << shift) - 1;
+  }
+
+  /**
+   * Record a duration.
+   *
+   * @param nanos duration in nanoseconds
+   */
+  public void recordNanos(long nanos) {
+    record(nanos < 0 ? 0 : nanos / 1000);
+  }
+
+  /**
+   * Record a value.
+   *
+   * @param micros duration in microseconds
+   */
+  public void record(long micros) {
+    buckets.incrementAndGet(bucketIndex(micros));
+    count.increment();
+    sum.add(micros);
+    long currentMax;
+    while (micros > (currentMax = max.get())) {
+      if (max.compareAndSet(currentMax, micros)) {
+        break;
+      }
+    }
+  }
+
+  /** Clear recorded values. Values recorded concurrently to this call may be partially lost. */
+  public void reset() {
+    for (int i = 0; i < BUCKET_NUMBER; i++) {
+      buckets.set(i, 0);
+    }
+    count.reset();
+    sum.reset();
+    max.set(0);
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * Mean value, in microseconds.
+   *
+   * @return mean value
+   */
+  public long getMean() {
+    long total = count.sum();
+    return total == 0 ? 0 : sum.sum() / total;
+  }
+
+  /**
+   * Value at the indicated percentile, in microseconds.
+   *
+   * @param percentile percentile, between 0 and 100
+   * @return value at percentile, 0 if no value has been recorded
+   */
+  public long getPercentile(double percentile) {
+    long total = 0;
+    for (int i = 0; i < BUCKET_NUMBER; i++) {
+      total += buckets.get(i);
+    }
+    if (total == 0) {
+      return 0;
+    }
+
+    long rank = Math.max(1, (long) Math.ceil(total * Math.min(100, percentile) / 100));
+    long current = 0;
+    for (int i = 0; i < BUCKET_NUMBER; i++) {
+      current += buckets.get(i);
+      if (current >= rank) {
+        return Math.min(bucketHighestValue(i), max.get());
+      }
+    }
+    return max.get();
+  }
+}
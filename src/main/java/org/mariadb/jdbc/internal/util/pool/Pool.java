@@ -23,27 +23,32 @@
 package org.mariadb.jdbc.internal.util.pool;
 
 import java.lang.management.ManagementFactory;
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.text.NumberFormat;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
 import javax.sql.ConnectionEvent;
 import javax.sql.ConnectionEventListener;
 import org.mariadb.jdbc.MariaDbConnection;
 import org.mariadb.jdbc.MariaDbPooledConnection;
+import org.mariadb.jdbc.PoolListener.DiscardReason;
 import org.mariadb.jdbc.UrlParser;
 import org.mariadb.jdbc.internal.logging.Logger;
 import org.mariadb.jdbc.internal.logging.LoggerFactory;
 import org.mariadb.jdbc.internal.protocol.Protocol;
 import org.mariadb.jdbc.internal.util.Utils;
+import org.mariadb.jdbc.internal.util.constant.HaMode;
 import org.mariadb.jdbc.internal.util.exceptions.ExceptionFactory;
 import org.mariadb.jdbc.internal.util.scheduler.MariaDbThreadFactory;
 import org.mariadb.jdbc.util.Options;
@@ -54,24 +59,45 @@ public class Pool implements AutoCloseable, PoolMBean {
 
   private static final int POOL_STATE_OK = 0;
   private static final int POOL_STATE_CLOSING = 1;
+  private static final int KEEP_ALIVE_BATCH_SIZE = 16;
+  private static final int ADAPTIVE_SHRINK_DELAY = 10;
 
   private final AtomicInteger poolState = new AtomicInteger();
 
   private final UrlParser urlParser;
   private final Options options;
+  private final Pool parentPool;
+  private final ConcurrentHashMap<List<String>, Pool> credentialPools = new ConcurrentHashMap<>();
+  private final boolean changeUserEnabled;
   private final AtomicInteger pendingRequestNumber = new AtomicInteger();
   private final AtomicInteger totalConnection = new AtomicInteger();
-
-  private final LinkedBlockingDeque<MariaDbPooledConnection> idleConnections;
+  private final AtomicInteger creatingConnection = new AtomicInteger();
+  private final AtomicLong nextCreationSlot = new AtomicLong(Long.MIN_VALUE);
+  private final Semaphore creationPermits;
+  // "maxPoolSize" budget, shared with credential sub-pools
+  private final ConnectionBudget sizeBudget;
+  // "poolConnectionBudget" budget, shared by all pools connecting to the same hosts
+  private final ConnectionBudget serverBudget;
+
+  private final ConnectionBag connectionBag;
   private final ThreadPoolExecutor connectionAppender;
   private final BlockingQueue<Runnable> connectionAppenderQueue;
+  private final ThreadPoolExecutor connectionResetter;
+  private final ThreadPoolExecutor connectionValidator;
 
   private final String poolTag;
+  private final PoolMetrics metrics;
   private final ScheduledThreadPoolExecutor poolExecutor;
   private final ScheduledFuture scheduledFuture;
+  private final ScheduledFuture keepAliveFuture;
+  private final ScheduledFuture adaptiveSizingFuture;
+  private final ScheduledFuture rotationFuture;
   private GlobalStateInfo globalInfo;
+  private volatile Integer defaultTransactionIsolation;
 
   private int maxIdleTime;
+  private volatile int targetPoolSize;
+  private int underusedPeriods;
   private long timeToConnectNanos;
   private long connectionTime = 0;
 
@@ -83,27 +109,84 @@ public class Pool implements AutoCloseable, PoolMBean {
    * @param poolExecutor pools common executor
    */
   public Pool(UrlParser urlParser, int poolIndex, ScheduledThreadPoolExecutor poolExecutor) {
+    this(urlParser, null, generatePoolTag(urlParser.getOptions(), poolIndex), poolExecutor);
+  }
+
+  /**
+   * Create pool, or credential sub-pool of indicated parent pool.
+   *
+   * @param urlParser configuration parser
+   * @param parentPool parent pool if pool is a credential sub-pool, null otherwise
+   * @param poolTag pool tag
+   * @param poolExecutor pools common executor
+   */
+  private Pool(
+      UrlParser urlParser,
+      Pool parentPool,
+      String poolTag,
+      ScheduledThreadPoolExecutor poolExecutor) {
 
     this.urlParser = urlParser;
+    this.parentPool = parentPool;
     options = urlParser.getOptions();
     this.maxIdleTime = options.maxIdleTime;
-    poolTag = generatePoolTag(poolIndex);
-
-    // one thread to add new connection to pool.
+    this.targetPoolSize = options.minPoolSize;
+    this.poolTag = poolTag;
+    // a connection can change user only if it will never reconnect using initial credentials
+    changeUserEnabled =
+        options.poolPerCredential
+            && options.poolChangeUser
+            && urlParser.getHaMode() == HaMode.NONE
+            && urlParser.getCredentialPlugin() == null;
+    metrics = new PoolMetrics(poolTag);
+
+    // "poolCreationConcurrency" threads to add new connection to pool.
+    creationPermits = new Semaphore(options.poolCreationConcurrency);
+    sizeBudget = parentPool != null ? parentPool.sizeBudget : new ConnectionBudget();
+    serverBudget = Pools.serverBudget(urlParser.getHostAddresses());
     connectionAppenderQueue = new ArrayBlockingQueue<>(options.maxPoolSize);
     connectionAppender =
         new ThreadPoolExecutor(
-            1,
-            1,
+            options.poolCreationConcurrency,
+            options.poolCreationConcurrency,
             10,
             TimeUnit.SECONDS,
             connectionAppenderQueue,
             new MariaDbThreadFactory(poolTag + "-appender"));
     connectionAppender.allowCoreThreadTimeOut(true);
     // create workers, since driver only interact with queue after that (i.e. not using .execute() )
-    connectionAppender.prestartCoreThread();
+    connectionAppender.prestartAllCoreThreads();
+
+    connectionBag = new ConnectionBag();
+
+    if (options.poolAsyncReset) {
+      // threads resetting connections given back to pool
+      int resetThreads = Math.min(options.maxPoolSize, Runtime.getRuntime().availableProcessors());
+      connectionResetter =
+          new ThreadPoolExecutor(
+              resetThreads,
+              resetThreads,
+              10,
+              TimeUnit.SECONDS,
+              new LinkedBlockingQueue<>(),
+              new MariaDbThreadFactory(poolTag + "-resetter"));
+      connectionResetter.allowCoreThreadTimeOut(true);
+    } else {
+      connectionResetter = null;
+    }
 
-    idleConnections = new LinkedBlockingDeque<>();
+    // threads validating connections, so that network exchanges are not done in scheduler thread
+    // or in threads completing asynchronous requests
+    int validateThreads = Math.min(options.maxPoolSize, KEEP_ALIVE_BATCH_SIZE);
+    connectionValidator =
+        new ThreadPoolExecutor(
+            validateThreads,
+            validateThreads,
+            10,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            new MariaDbThreadFactory(poolTag + "-validator"));
+    connectionValidator.allowCoreThreadTimeOut(true);
 
     int scheduleDelay = Math.min(30, maxIdleTime / 2);
     this.poolExecutor = poolExecutor;
@@ -111,6 +194,35 @@ public class Pool implements AutoCloseable, PoolMBean {
         poolExecutor.scheduleAtFixedRate(
             this::removeIdleTimeoutConnection, scheduleDelay, scheduleDelay, TimeUnit.SECONDS);
 
+    if (options.poolKeepAliveTime > 0) {
+      // check several times per interval, so connections are validated before reaching it
+      long keepAlivePeriod = Math.max(100, options.poolKeepAliveTime / 4);
+      keepAliveFuture =
+          poolExecutor.scheduleAtFixedRate(
+              this::keepAliveIdleConnections,
+              keepAlivePeriod + ThreadLocalRandom.current().nextLong(keepAlivePeriod),
+              keepAlivePeriod,
+              TimeUnit.MILLISECONDS);
+    } else {
+      keepAliveFuture = null;
+    }
+
+    if (options.maxLifetime > 0) {
+      long rotationPeriod = Math.max(1, Math.min(30, options.maxLifetime / 10));
+      rotationFuture =
+          poolExecutor.scheduleAtFixedRate(
+              this::rotateExpiredConnections, rotationPeriod, rotationPeriod, TimeUnit.SECONDS);
+    } else {
+      rotationFuture = null;
+    }
+
+    if (options.poolAdaptiveSizing) {
+      adaptiveSizingFuture =
+          poolExecutor.scheduleAtFixedRate(this::adaptPoolSize, 1, 1, TimeUnit.SECONDS);
+    } else {
+      adaptiveSizingFuture = null;
+    }
+
     if (options.registerJmxPool) {
       try {
         registerJmx();
@@ -121,29 +233,98 @@ public class Pool implements AutoCloseable, PoolMBean {
 
     // create minimal connection in pool
     try {
-      for (int i = 0; i < options.minPoolSize; i++) {
-        addConnection();
-      }
+      prefill();
     } catch (SQLException sqle) {
       logger.error("error initializing pool connection", sqle);
     }
   }
 
+  /**
+   * Create connections until reaching "minPoolSize", with up to "poolCreationConcurrency"
+   * connections created in parallel. Blocks until connections are created. Creation stops at the
+   * first error.
+   *
+   * @throws SQLException if a connection creation fails
+   */
+  public void prefill() throws SQLException {
+    int missing = options.minPoolSize - totalConnection.get() - creatingConnection.get();
+    if (missing <= 0 || poolState.get() != POOL_STATE_OK) {
+      return;
+    }
+
+    if (options.poolCreationConcurrency == 1 || missing == 1) {
+      for (int i = 0; i < missing; i++) {
+        createConnection();
+      }
+      return;
+    }
+
+    ExecutorService prefillExecutor =
+        Executors.newFixedThreadPool(
+            Math.min(missing, options.poolCreationConcurrency),
+            new MariaDbThreadFactory(poolTag + "-prefill"));
+    AtomicBoolean failed = new AtomicBoolean();
+    List<Future<Void>> futures = new ArrayList<>(missing);
+    for (int i = 0; i < missing; i++) {
+      futures.add(
+          prefillExecutor.submit(
+              () -> {
+                // stop creating connections after first error
+                if (!failed.get()) {
+                  try {
+                    createConnection();
+                  } catch (SQLException sqle) {
+                    failed.set(true);
+                    throw sqle;
+                  }
+                }
+                return null;
+              }));
+    }
+    prefillExecutor.shutdown();
+
+    SQLException error = null;
+    try {
+      for (Future<Void> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException executionException) {
+          if (error == null) {
+            error =
+                (executionException.getCause() instanceof SQLException)
+                    ? (SQLException) executionException.getCause()
+                    : ExceptionFactory.INSTANCE.create(
+                        "Error creating pool connection", "08000", executionException);
+          }
+        }
+      }
+    } catch (InterruptedException interrupted) {
+      prefillExecutor.shutdownNow();
+      Thread.currentThread().interrupt();
+      throw ExceptionFactory.INSTANCE.create("Thread was interrupted", "70100", interrupted);
+    }
+
+    if (error != null) {
+      throw error;
+    }
+  }
+
   /**
    * Add new connection if needed. Only one thread create new connection, so new connection request
    * will wait to newly created connection or for a released connection.
    */
   private void addConnectionRequest() {
-    if (totalConnection.get() < options.maxPoolSize && poolState.get() == POOL_STATE_OK) {
+    if (globalConnections() < options.maxPoolSize && poolState.get() == POOL_STATE_OK) {
 
-      // ensure to have one worker if was timeout
-      connectionAppender.prestartCoreThread();
+      // ensure to have workers if was timeout
+      connectionAppender.prestartAllCoreThreads();
       connectionAppenderQueue.offer(
           () -> {
-            if ((totalConnection.get() < options.minPoolSize || pendingRequestNumber.get() > 0)
-                && totalConnection.get() < options.maxPoolSize) {
+            int current = totalConnection.get() + creatingConnection.get();
+            if ((current < targetPoolSize || pendingRequestNumber.get() > creatingConnection.get())
+                && globalConnections() + creatingConnection.get() < options.maxPoolSize) {
               try {
-                addConnection();
+                createConnection();
               } catch (SQLException sqle) {
                 // eat
               }
@@ -158,13 +339,10 @@ public class Pool implements AutoCloseable, PoolMBean {
    */
   private void removeIdleTimeoutConnection() {
 
-    // descending iterator since first from queue are the first to be used
-    Iterator<MariaDbPooledConnection> iterator = idleConnections.descendingIterator();
-
-    MariaDbPooledConnection item;
-
-    while (iterator.hasNext()) {
-      item = iterator.next();
+    for (MariaDbPooledConnection item : connectionBag.values()) {
+      if (item.getState() != MariaDbPooledConnection.STATE_NOT_IN_USE) {
+        continue;
+      }
 
       long idleTime = System.nanoTime() - item.getLastUsed().get();
       boolean timedOut = idleTime > TimeUnit.SECONDS.toNanos(maxIdleTime);
@@ -179,7 +357,7 @@ public class Pool implements AutoCloseable, PoolMBean {
         }
 
         //  idle has reach option maxIdleTime value and pool has more connections than minPoolSiz
-        if (timedOut && totalConnection.get() > options.minPoolSize) {
+        if (timedOut && totalConnection.get() > targetPoolSize) {
           shouldBeReleased = true;
         }
 
@@ -187,9 +365,11 @@ public class Pool implements AutoCloseable, PoolMBean {
         shouldBeReleased = true;
       }
 
-      if (shouldBeReleased && idleConnections.remove(item)) {
+      // reserve connection first, so it cannot be borrowed meanwhile
+      if (shouldBeReleased
+          && connectionBag.reserve(item)
+          && removeConnection(item, DiscardReason.IDLE_TIMEOUT)) {
 
-        totalConnection.decrementAndGet();
         silentCloseConnection(item);
         addConnectionRequest();
         if (logger.isDebugEnabled()) {
@@ -204,17 +384,276 @@ public class Pool implements AutoCloseable, PoolMBean {
     }
   }
 
+  /**
+   * Rolling replacement of connections that have reached "maxLifetime". Only idle connections are
+   * retired, and no more than "maxLifetimeRotation" at a time : next ones are retired only when
+   * replacement connections have been created.
+   */
+  private void rotateExpiredConnections() {
+    if (poolState.get() != POOL_STATE_OK) {
+      return;
+    }
+    long now = System.nanoTime();
+    int permits = options.maxLifetimeRotation - creatingConnection.get();
+    for (MariaDbPooledConnection item : connectionBag.values()) {
+      if (permits <= 0) {
+        return;
+      }
+      if (now - item.getExpirationTime() > 0
+          && connectionBag.reserve(item)
+          && removeConnection(item, DiscardReason.MAX_LIFETIME)) {
+        permits--;
+        silentCloseConnection(item);
+        addReplacementConnection();
+        if (logger.isDebugEnabled()) {
+          logger.debug(
+              "pool {} connection removed due to maxLifetime (total:{}, active:{}, pending:{})",
+              poolTag,
+              totalConnection.get(),
+              getActiveConnections(),
+              pendingRequestNumber.get());
+        }
+      }
+    }
+  }
+
+  /** Ask for a new connection replacing a retired one, whatever the current demand is. */
+  private void addReplacementConnection() {
+    connectionAppender.prestartAllCoreThreads();
+    connectionAppenderQueue.offer(
+        () -> {
+          if (totalConnection.get() + creatingConnection.get() < options.maxPoolSize) {
+            try {
+              createConnection();
+            } catch (SQLException sqle) {
+              // eat
+            }
+          }
+        });
+  }
+
+  /**
+   * Validate idle connections in background, so borrowing thread doesn't have to. Connections that
+   * have not been used or validated since "poolKeepAliveTime" (minus some jitter to spread
+   * validations) are reserved, oldest first, by batch, and validated by pool validator threads, so
+   * that scheduler thread, shared by all pools, never waits for the network.
+   */
+  private void keepAliveIdleConnections() {
+    long now = System.nanoTime();
+    long keepAliveNanos = TimeUnit.MILLISECONDS.toNanos(options.poolKeepAliveTime);
+    List<MariaDbPooledConnection> candidates = new ArrayList<>();
+    for (MariaDbPooledConnection item : connectionBag.values()) {
+      long jitter = ThreadLocalRandom.current().nextLong(keepAliveNanos / 5 + 1);
+      if (item.getState() == MariaDbPooledConnection.STATE_NOT_IN_USE
+          && now - item.getLastValidated() > keepAliveNanos - jitter) {
+        candidates.add(item);
+      }
+    }
+    candidates.sort(Comparator.comparingLong(MariaDbPooledConnection::getLastValidated));
+
+    int validated = 0;
+    for (MariaDbPooledConnection item : candidates) {
+      if (validated >= KEEP_ALIVE_BATCH_SIZE || poolState.get() != POOL_STATE_OK) {
+        return;
+      }
+
+      // reserve connection, so it cannot be borrowed during validation
+      if (!connectionBag.reserve(item)) {
+        continue;
+      }
+      try {
+        connectionValidator.execute(() -> keepAlive(item));
+        validated++;
+      } catch (RejectedExecutionException rejected) {
+        // pool is closing
+        connectionBag.unreserve(item);
+        return;
+      }
+    }
+  }
+
+  /**
+   * Validate a reserved idle connection, making it available again if valid.
+   *
+   * @param item reserved connection
+   */
+  private void keepAlive(MariaDbPooledConnection item) {
+    if (validateConnection(item)) {
+      item.lastValidatedToNow();
+      connectionBag.unreserve(item);
+      return;
+    }
+
+    // validation failed
+    removeConnection(item, DiscardReason.VALIDATION_FAILED);
+    silentAbortConnection(item);
+    addConnectionRequest();
+    if (logger.isDebugEnabled()) {
+      logger.debug(
+          "pool {} idle connection removed due to failed keep-alive validation (total:{}, active:{}, pending:{})",
+          poolTag,
+          totalConnection.get(),
+          getActiveConnections(),
+          pendingRequestNumber.get());
+    }
+  }
+
+  /**
+   * Adaptive pool sizing, run every second when option "poolAdaptiveSizing" is set. Target pool
+   * size grows ahead of demand when borrowing threads wait more than "poolTargetWaitTime" or
+   * requests are pending, and shrinks by one connection when connections stay unused for some time.
+   */
+  private void adaptPoolSize() {
+    if (poolState.get() != POOL_STATE_OK) {
+      return;
+    }
+
+    LatencyHistogram recentWaitTime = metrics.getRecentBorrowWaitTime();
+    long waitTimeP99 = recentWaitTime.getPercentile(99);
+    long borrows = recentWaitTime.getCount();
+    recentWaitTime.reset();
+
+    long targetWaitTime = TimeUnit.MILLISECONDS.toMicros(options.poolTargetWaitTime);
+    int pending = pendingRequestNumber.get();
+    int total = totalConnection.get();
+
+    if (pending > 0 || (borrows > 0 && waitTimeP99 > targetWaitTime)) {
+      // grow ahead of demand : add a quarter of current size, or at least pending requests
+      underusedPeriods = 0;
+      int step = Math.max(Math.max(1, pending), total / 4);
+      targetPoolSize = Math.min(options.maxPoolSize, Math.max(targetPoolSize, total) + step);
+      for (int i = total + creatingConnection.get(); i < targetPoolSize; i++) {
+        addConnectionRequest();
+      }
+      if (logger.isDebugEnabled()) {
+        logger.debug(
+            "pool {} growing to {} connections (wait p99:{}us, pending:{})",
+            poolTag,
+            targetPoolSize,
+            waitTimeP99,
+            pending);
+      }
+      return;
+    }
+
+    if (getIdleConnections() == 0 || waitTimeP99 > targetWaitTime / 2) {
+      underusedPeriods = 0;
+      return;
+    }
+
+    // connections are unused : shrink gradually
+    if (++underusedPeriods < ADAPTIVE_SHRINK_DELAY) {
+      return;
+    }
+    underusedPeriods = 0;
+    targetPoolSize = Math.max(options.minPoolSize, Math.min(targetPoolSize, total) - 1);
+    if (total > targetPoolSize) {
+      MariaDbPooledConnection oldest = null;
+      for (MariaDbPooledConnection item : connectionBag.values()) {
+        if (item.getState() == MariaDbPooledConnection.STATE_NOT_IN_USE
+            && (oldest == null || item.getLastUsed().get() < oldest.getLastUsed().get())) {
+          oldest = item;
+        }
+      }
+      if (oldest != null
+          && connectionBag.reserve(oldest)
+          && removeConnection(oldest, DiscardReason.POOL_SHRINK)) {
+        silentCloseConnection(oldest);
+        if (logger.isDebugEnabled()) {
+          logger.debug(
+              "pool {} shrinking to {} connections (total:{}, active:{}, pending:{})",
+              poolTag,
+              targetPoolSize,
+              totalConnection.get(),
+              getActiveConnections(),
+              pendingRequestNumber.get());
+        }
+      }
+    }
+  }
+
+  /**
+   * Create new connection, respecting "poolCreationConcurrency" and "poolCreationRate" limits.
+   *
+   * @throws SQLException if connection creation failed
+   */
+  private void createConnection() throws SQLException {
+    // reserve slots before connecting, so concurrent creations cannot exceed limits
+    if (!sizeBudget.tryAcquire(options.maxPoolSize)) {
+      return;
+    }
+    if (!serverBudget.tryAcquire(options.poolConnectionBudget)) {
+      sizeBudget.release();
+      logger.debug("pool {} connection budget reached, no connection created", poolTag);
+      return;
+    }
+
+    boolean added = false;
+    creatingConnection.incrementAndGet();
+    try {
+      creationPermits.acquire();
+      try {
+        waitCreationSlot();
+        added = addConnection();
+      } finally {
+        creationPermits.release();
+      }
+    } catch (InterruptedException interrupted) {
+      Thread.currentThread().interrupt();
+      throw ExceptionFactory.INSTANCE.create("Thread was interrupted", "70100", interrupted);
+    } finally {
+      creatingConnection.decrementAndGet();
+      if (!added) {
+        releaseBudget();
+      }
+    }
+  }
+
+  /** Release budget slots of a connection that is discarded, or that could not be created. */
+  private void releaseBudget() {
+    sizeBudget.release();
+    serverBudget.release();
+  }
+
+  /**
+   * When option "poolCreationRate" is set, wait until next connection creation is permitted.
+   *
+   * @throws InterruptedException if interrupted while waiting
+   */
+  private void waitCreationSlot() throws InterruptedException {
+    if (options.poolCreationRate > 0) {
+      long interval = TimeUnit.SECONDS.toNanos(1) / options.poolCreationRate;
+      long now = System.nanoTime();
+      long slot =
+          Math.max(
+              now,
+              nextCreationSlot.getAndAccumulate(
+                  now, (prev, time) -> Math.max(prev, time) + interval));
+      if (slot > now) {
+        TimeUnit.NANOSECONDS.sleep(slot - now);
+      }
+    }
+  }
+
   /**
    * Create new connection.
    *
+   * @return true if connection has been added to pool
    * @throws SQLException if connection creation failed
    */
-  private void addConnection() throws SQLException {
+  private boolean addConnection() throws SQLException {
 
     // create new connection
+    long start = System.nanoTime();
     Protocol protocol = Utils.retrieveProxy(urlParser, globalInfo);
     MariaDbConnection connection = new MariaDbConnection(protocol);
     MariaDbPooledConnection pooledConnection = createPoolConnection(connection);
+    if (options.maxLifetime > 0) {
+      // jitter of up to 10%, so connections created together don't expire together
+      long lifetime = TimeUnit.SECONDS.toNanos(options.maxLifetime);
+      pooledConnection.setExpirationTime(
+          System.nanoTime() + lifetime - ThreadLocalRandom.current().nextLong(lifetime / 10 + 1));
+    }
 
     if (options.staticGlobal) {
       // on first connection load initial state
@@ -224,13 +663,24 @@ public class Pool implements AutoCloseable, PoolMBean {
       // set default transaction isolation level to permit resetting to initial state
       connection.setDefaultTransactionIsolation(globalInfo.getDefaultTransactionIsolation());
     } else {
-      // set default transaction isolation level to permit resetting to initial state
-      connection.setDefaultTransactionIsolation(connection.getTransactionIsolation());
+      // set default transaction isolation level to permit resetting to initial state.
+      // All pool connections share the same configuration : it is loaded by first connection, and
+      // loaded again when pool reconnects after having lost all its connections.
+      Integer isolation = defaultTransactionIsolation;
+      if (isolation == null || totalConnection.get() == 0) {
+        isolation = connection.getTransactionIsolation();
+        defaultTransactionIsolation = isolation;
+      }
+      connection.setDefaultTransactionIsolation(isolation);
     }
+    if (serverBudget.getServerMaxConnections() == 0 || totalConnection.get() == 0) {
+      loadServerMaxConnections(connection);
+    }
+    metrics.created(System.nanoTime() - start);
 
-    if (poolState.get() == POOL_STATE_OK
-        && totalConnection.incrementAndGet() <= options.maxPoolSize) {
-      idleConnections.addFirst(pooledConnection);
+    if (poolState.get() == POOL_STATE_OK) {
+      totalConnection.incrementAndGet();
+      connectionBag.add(pooledConnection);
 
       if (logger.isDebugEnabled()) {
         logger.debug(
@@ -240,10 +690,27 @@ public class Pool implements AutoCloseable, PoolMBean {
             getActiveConnections(),
             pendingRequestNumber.get());
       }
-      return;
+      return true;
     }
 
     silentCloseConnection(pooledConnection);
+    return false;
+  }
+
+  /**
+   * Load server @@max_connections, limiting connections of all pools connecting to this server.
+   *
+   * @param connection new connection
+   */
+  private void loadServerMaxConnections(MariaDbConnection connection) {
+    try (Statement stmt = connection.createStatement()) {
+      ResultSet rs = stmt.executeQuery("SELECT @@max_connections");
+      if (rs.next()) {
+        serverBudget.setServerMaxConnections(rs.getInt(1));
+      }
+    } catch (SQLException sqle) {
+      logger.debug("pool {} cannot load server max_connections : {}", poolTag, sqle.getMessage());
+    }
   }
 
   private MariaDbPooledConnection getIdleConnection() throws InterruptedException {
@@ -251,45 +718,39 @@ public class Pool implements AutoCloseable, PoolMBean {
   }
 
   /**
-   * Get an existing idle connection in pool.
+   * Get an existing idle connection in pool. When background keep-alive is enabled, connection is
+   * validated on borrowing thread only if background task has not validated it in time.
    *
    * @return an IDLE connection.
    */
   private MariaDbPooledConnection getIdleConnection(long timeout, TimeUnit timeUnit)
       throws InterruptedException {
 
+    long validationDelay = validationDelay();
+
     while (true) {
-      MariaDbPooledConnection item =
-          (timeout == 0)
-              ? idleConnections.pollFirst()
-              : idleConnections.pollFirst(timeout, timeUnit);
+      MariaDbPooledConnection item = connectionBag.borrow(timeout, timeUnit);
 
       if (item != null) {
-        MariaDbConnection connection = item.getConnection();
-        try {
-          if (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - item.getLastUsed().get())
-              > options.poolValidMinDelay) {
+        if (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - item.getLastValidated())
+            > validationDelay) {
 
-            // validate connection
-            if (connection.isValid(10)) { // 10 seconds timeout
-              item.lastUsedToNow();
-              return item;
-            }
-
-          } else {
-
-            // connection has been retrieved recently -> skip connection validation
+          // validate connection
+          if (validateConnection(item)) {
             item.lastUsedToNow();
             return item;
           }
 
-        } catch (SQLException sqle) {
-          // eat
-        }
+        } else {
 
-        totalConnection.decrementAndGet();
+          // connection has been retrieved recently -> skip connection validation
+          metrics.validationSkipped();
+          item.lastUsedToNow();
+          return item;
+        }
 
         // validation failed
+        removeConnection(item, DiscardReason.VALIDATION_FAILED);
         silentAbortConnection(item);
         addConnectionRequest();
         if (logger.isDebugEnabled()) {
@@ -307,6 +768,52 @@ public class Pool implements AutoCloseable, PoolMBean {
     }
   }
 
+  /**
+   * Delay in milliseconds since last validation after which a borrowed connection is validated.
+   *
+   * @return validation delay
+   */
+  private long validationDelay() {
+    return options.poolKeepAliveTime > 0
+        ? (long) options.poolKeepAliveTime + options.poolValidMinDelay
+        : options.poolValidMinDelay;
+  }
+
+  /**
+   * Validate connection, recording validation time.
+   *
+   * @param item connection
+   * @return true if connection is valid
+   */
+  private boolean validateConnection(MariaDbPooledConnection item) {
+    long start = System.nanoTime();
+    boolean valid;
+    try {
+      valid = item.getConnection().isValid(10); // 10 seconds timeout
+    } catch (SQLException sqle) {
+      valid = false;
+    }
+    metrics.validated(System.nanoTime() - start, valid);
+    return valid;
+  }
+
+  /**
+   * Remove connection from pool.
+   *
+   * @param item connection
+   * @param reason removal reason
+   * @return true if connection was in pool and has been removed by this call
+   */
+  private boolean removeConnection(MariaDbPooledConnection item, DiscardReason reason) {
+    if (connectionBag.remove(item)) {
+      totalConnection.decrementAndGet();
+      releaseBudget();
+      metrics.discarded(reason);
+      return true;
+    }
+    return false;
+  }
+
   private void silentCloseConnection(MariaDbPooledConnection item) {
     try {
       item.close();
@@ -332,18 +839,23 @@ public class Pool implements AutoCloseable, PoolMBean {
           public void connectionClosed(ConnectionEvent event) {
             MariaDbPooledConnection item = (MariaDbPooledConnection) event.getSource();
             if (poolState.get() == POOL_STATE_OK) {
-              try {
-                if (!idleConnections.contains(item)) {
-                  item.getConnection().reset();
-                  idleConnections.addFirst(item);
+              // only a borrowed connection can be given back (reserving avoids double release)
+              if (!item.compareAndSetState(
+                  MariaDbPooledConnection.STATE_IN_USE, MariaDbPooledConnection.STATE_RESERVED)) {
+                return;
+              }
+              metrics.released(System.nanoTime() - item.getLastUsed().get());
+
+              if (connectionResetter != null) {
+                try {
+                  // connection stays reserved, and so not borrowable, until reset is done
+                  connectionResetter.execute(() -> resetConnection(item, true));
+                  return;
+                } catch (RejectedExecutionException rejected) {
+                  // pool is closing
                 }
-              } catch (SQLException sqle) {
-
-                // sql exception during reset, removing connection from pool
-                totalConnection.decrementAndGet();
-                silentCloseConnection(item);
-                logger.debug("connection removed from pool {} due to error during reset", poolTag);
               }
+              resetConnection(item, false);
             } else {
               // pool is closed, should then not be render to pool, but closed.
               try {
@@ -351,7 +863,7 @@ public class Pool implements AutoCloseable, PoolMBean {
               } catch (SQLException sqle) {
                 // eat
               }
-              totalConnection.decrementAndGet();
+              removeConnection(item, DiscardReason.POOL_CLOSED);
             }
           }
 
@@ -359,9 +871,7 @@ public class Pool implements AutoCloseable, PoolMBean {
           public void connectionErrorOccurred(ConnectionEvent event) {
 
             MariaDbPooledConnection item = ((MariaDbPooledConnection) event.getSource());
-            if (idleConnections.remove(item)) {
-              totalConnection.decrementAndGet();
-            }
+            removeConnection(item, DiscardReason.CONNECTION_ERROR);
             silentCloseConnection(item);
             addConnectionRequest();
             logger.debug(
@@ -376,6 +886,51 @@ public class Pool implements AutoCloseable, PoolMBean {
     return pooledConnection;
   }
 
+  /**
+   * Reset a connection given back to pool, then make it available. Connection must be in reserved
+   * state.
+   *
+   * @param item connection
+   * @param validate when reset is done in background, validate connection if needed, so next
+   *     borrower doesn't have to.
+   */
+  private void resetConnection(MariaDbPooledConnection item, boolean validate) {
+    try {
+      long start = System.nanoTime();
+      item.getConnection().reset();
+      metrics.reset(System.nanoTime() - start);
+
+      if (validate
+          && TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - item.getLastValidated())
+              > options.poolValidMinDelay) {
+        if (!validateConnection(item)) {
+          removeConnection(item, DiscardReason.VALIDATION_FAILED);
+          silentAbortConnection(item);
+          addConnectionRequest();
+          return;
+        }
+        item.lastValidatedToNow();
+      }
+
+      if (poolState.get() == POOL_STATE_OK) {
+        connectionBag.requite(item);
+        return;
+      }
+
+      // pool has been closed meanwhile
+      removeConnection(item, DiscardReason.POOL_CLOSED);
+      silentCloseConnection(item);
+
+    } catch (SQLException sqle) {
+
+      // sql exception during reset, removing connection from pool
+      removeConnection(item, DiscardReason.RESET_FAILED);
+      silentCloseConnection(item);
+      addConnectionRequest();
+      logger.debug("connection removed from pool {} due to error during reset", poolTag);
+    }
+  }
+
   /**
    * Retrieve new connection. If possible return idle connection, if not, stack connection query,
    * ask for a connection creation, and loop until a connection become idle / a new connection is
@@ -387,6 +942,7 @@ public class Pool implements AutoCloseable, PoolMBean {
   public MariaDbConnection getConnection() throws SQLException {
 
     pendingRequestNumber.incrementAndGet();
+    long start = System.nanoTime();
 
     MariaDbPooledConnection pooledConnection;
 
@@ -396,6 +952,13 @@ public class Pool implements AutoCloseable, PoolMBean {
       if ((pooledConnection =
               getIdleConnection(totalConnection.get() > 4 ? 0 : 50, TimeUnit.MICROSECONDS))
           != null) {
+        metrics.borrowed(System.nanoTime() - start);
+        return pooledConnection.getConnection();
+      }
+
+      // reuse an idle connection of another credential if permitted
+      if (changeUserEnabled && (pooledConnection = reuseIdleConnection()) != null) {
+        metrics.borrowed(System.nanoTime() - start);
         return pooledConnection.getConnection();
       }
 
@@ -407,9 +970,11 @@ public class Pool implements AutoCloseable, PoolMBean {
               getIdleConnection(
                   TimeUnit.MILLISECONDS.toNanos(options.connectTimeout), TimeUnit.NANOSECONDS))
           != null) {
+        metrics.borrowed(System.nanoTime() - start);
         return pooledConnection.getConnection();
       }
 
+      metrics.timeout(System.nanoTime() - start);
       throw ExceptionFactory.INSTANCE.create(
           String.format(
               "No connection available within the specified time (option 'connectTimeout': %s ms)",
@@ -422,9 +987,298 @@ public class Pool implements AutoCloseable, PoolMBean {
     }
   }
 
+  /**
+   * Retrieve a connection without blocking. If an idle connection not needing validation is
+   * available, returned future is already completed. If not, request is queued and future is
+   * completed by the thread making a connection available (released or newly created connection),
+   * so dependent actions not using an executor run in that thread, except when connection must be
+   * validated, validation being done by pool validator threads. Queued requests are served in FIFO
+   * order, before new requests, and future fails if no connection is available within
+   * "connectTimeout", or immediately if pool is closed.
+   *
+   * @return future connection
+   */
+  public CompletableFuture<Connection> getConnectionAsync() {
+    CompletableFuture<Connection> result = new CompletableFuture<>();
+    if (poolState.get() != POOL_STATE_OK) {
+      result.completeExceptionally(
+          ExceptionFactory.INSTANCE.create("Pool " + poolTag + " is closed", "08000"));
+      return result;
+    }
+
+    long start = System.nanoTime();
+    long deadline = start + TimeUnit.MILLISECONDS.toNanos(options.connectTimeout);
+    pendingRequestNumber.incrementAndGet();
+
+    // requests already queued are served first
+    if (connectionBag.getAsyncWaiterCount() == 0) {
+      MariaDbPooledConnection pooledConnection;
+      try {
+        pooledConnection = connectionBag.borrow(0, TimeUnit.NANOSECONDS);
+      } catch (InterruptedException interrupted) {
+        Thread.currentThread().interrupt();
+        pendingRequestNumber.decrementAndGet();
+        result.completeExceptionally(
+            ExceptionFactory.INSTANCE.create("Thread was interrupted", "70100", interrupted));
+        return result;
+      }
+      if (pooledConnection != null) {
+        acquireAsync(result, pooledConnection, start, deadline);
+        return result;
+      }
+    }
+
+    borrowAsync(result, start, deadline);
+    addConnectionRequest();
+    return result;
+  }
+
+  /**
+   * Queue an asynchronous borrow request, failing it when reaching deadline.
+   *
+   * @param result future connection
+   * @param start request start time
+   * @param deadline request deadline
+   */
+  private void borrowAsync(CompletableFuture<Connection> result, long start, long deadline) {
+    CompletableFuture<MariaDbPooledConnection> borrow = new CompletableFuture<>();
+    ScheduledFuture<?> timeoutTask;
+    try {
+      timeoutTask =
+          poolExecutor.schedule(
+              () -> {
+                if (borrow.completeExceptionally(
+                    ExceptionFactory.INSTANCE.create(
+                        String.format(
+                            "No connection available within the specified time "
+                                + "(option 'connectTimeout': %s ms)",
+                            NumberFormat.getInstance().format(options.connectTimeout))))) {
+                  connectionBag.cancelAsync(borrow);
+                  metrics.timeout(System.nanoTime() - start);
+                }
+              },
+              deadline - System.nanoTime(),
+              TimeUnit.NANOSECONDS);
+    } catch (RejectedExecutionException rejected) {
+      pendingRequestNumber.decrementAndGet();
+      result.completeExceptionally(
+          ExceptionFactory.INSTANCE.create("Pool " + poolTag + " is closed", "08000"));
+      return;
+    }
+
+    borrow.whenComplete(
+        (item, throwable) -> {
+          timeoutTask.cancel(false);
+          if (throwable != null) {
+            pendingRequestNumber.decrementAndGet();
+            result.completeExceptionally(throwable);
+            return;
+          }
+          acquireAsync(result, item, start, deadline);
+        });
+    connectionBag.borrowAsync(borrow);
+
+    // pool closed meanwhile : request may have been registered after pending requests were failed
+    if (poolState.get() != POOL_STATE_OK
+        && borrow.completeExceptionally(
+            ExceptionFactory.INSTANCE.create("Pool " + poolTag + " is closed", "08000"))) {
+      connectionBag.cancelAsync(borrow);
+    }
+  }
+
+  /**
+   * Complete an asynchronous request with a borrowed connection, validating it first if needed.
+   *
+   * @param result future connection
+   * @param item borrowed connection
+   * @param start request start time
+   * @param deadline request deadline
+   */
+  private void acquireAsync(
+      CompletableFuture<Connection> result,
+      MariaDbPooledConnection item,
+      long start,
+      long deadline) {
+    if (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - item.getLastValidated())
+        <= validationDelay()) {
+      metrics.validationSkipped();
+      completeAsyncBorrow(result, item, start);
+      return;
+    }
+
+    // validation is a network exchange : not done in thread requesting or releasing the connection
+    try {
+      connectionValidator.execute(
+          () -> {
+            if (validateConnection(item)) {
+              completeAsyncBorrow(result, item, start);
+            } else {
+              removeConnection(item, DiscardReason.VALIDATION_FAILED);
+              silentAbortConnection(item);
+              addConnectionRequest();
+              // wait for another connection, keeping initial deadline
+              borrowAsync(result, start, deadline);
+            }
+          });
+    } catch (RejectedExecutionException rejected) {
+      pendingRequestNumber.decrementAndGet();
+      connectionBag.requite(item);
+      result.completeExceptionally(
+          ExceptionFactory.INSTANCE.create("Pool " + poolTag + " is closed", "08000"));
+    }
+  }
+
+  private void completeAsyncBorrow(
+      CompletableFuture<Connection> result, MariaDbPooledConnection item, long start) {
+    item.lastUsedToNow();
+    pendingRequestNumber.decrementAndGet();
+    metrics.borrowed(System.nanoTime() - start);
+    if (!result.complete(item.getConnection())) {
+      // request has been cancelled : connection is made available again
+      connectionBag.requite(item);
+    }
+  }
+
+  /**
+   * Take an idle connection of another credential pool, and change its user using COM_CHANGE_USER.
+   * Pools give only connections exceeding their target size, unless "maxPoolSize" is reached.
+   *
+   * @return a connection in use, or null if none could be reused
+   */
+  private MariaDbPooledConnection reuseIdleConnection() {
+    Pool rootPool = getRootPool();
+    boolean limitReached = globalConnections() >= options.maxPoolSize;
+    List<Pool> pools = new ArrayList<>(rootPool.credentialPools.values());
+    pools.add(rootPool);
+
+    for (Pool pool : pools) {
+      if (pool == this || (!limitReached && pool.totalConnection.get() <= pool.targetPoolSize)) {
+        continue;
+      }
+      MariaDbPooledConnection item = pool.detachIdleConnection();
+      if (item != null) {
+        long start = System.nanoTime();
+        try {
+          item.getConnection().changeUser(urlParser.getUsername(), urlParser.getPassword());
+        } catch (SQLException sqle) {
+          pool.metrics.discarded(DiscardReason.RESET_FAILED);
+          releaseBudget();
+          silentAbortConnection(item);
+          logger.debug("pool {} error changing connection user : {}", poolTag, sqle.getMessage());
+          continue;
+        }
+        metrics.reset(System.nanoTime() - start);
+        return adoptConnection(item);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Remove an idle connection from pool without closing it, so another credential pool can use it.
+   *
+   * @return detached connection, or null if pool has no idle connection
+   */
+  private MariaDbPooledConnection detachIdleConnection() {
+    for (MariaDbPooledConnection item : connectionBag.values()) {
+      if (connectionBag.reserve(item) && connectionBag.remove(item)) {
+        totalConnection.decrementAndGet();
+        return item;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Add a connection detached from another credential pool, directly in use.
+   *
+   * @param detached connection detached from another pool
+   * @return connection in use
+   */
+  private MariaDbPooledConnection adoptConnection(MariaDbPooledConnection detached) {
+    MariaDbConnection connection = detached.getConnection();
+    MariaDbPooledConnection item = createPoolConnection(connection);
+    item.setExpirationTime(detached.getExpirationTime());
+    if (defaultTransactionIsolation != null) {
+      connection.setDefaultTransactionIsolation(defaultTransactionIsolation);
+    }
+    item.lastValidatedToNow();
+    item.lastUsedToNow();
+    totalConnection.incrementAndGet();
+    connectionBag.addInUse(item);
+    return item;
+  }
+
+  /**
+   * Get credential sub-pool, creating it if needed. Sub-pools have no minimum size and share
+   * "maxPoolSize" limit with parent pool.
+   *
+   * @param username username
+   * @param password password
+   * @return credential pool
+   * @throws SQLException if pool is closed
+   */
+  private Pool getCredentialPool(String username, String password) throws SQLException {
+    List<String> key = Arrays.asList(username, password);
+    Pool pool = credentialPools.get(key);
+    if (pool == null) {
+      synchronized (credentialPools) {
+        if (poolState.get() != POOL_STATE_OK) {
+          throw ExceptionFactory.INSTANCE.create("Pool " + poolTag + " is closed", "08000");
+        }
+        pool = credentialPools.get(key);
+        if (pool == null) {
+          try {
+            UrlParser tmpUrlParser = (UrlParser) urlParser.clone();
+            tmpUrlParser.setUsername(username);
+            tmpUrlParser.setPassword(password);
+            tmpUrlParser.getOptions().minPoolSize = 0;
+            tmpUrlParser.getOptions().registerJmxPool = false;
+            pool =
+                new Pool(
+                    tmpUrlParser,
+                    this,
+                    poolTag + "-" + (username == null ? "" : username),
+                    poolExecutor);
+            credentialPools.put(key, pool);
+          } catch (CloneNotSupportedException cloneException) {
+            // cannot occur
+            throw new SQLException(
+                "Error getting connection, parameters cannot be cloned", cloneException);
+          }
+        }
+      }
+    }
+    return pool;
+  }
+
+  /**
+   * Number of connections of pool family (pool and its credential sub-pools), limited by
+   * "maxPoolSize".
+   *
+   * @return total number of connections
+   */
+  private int globalConnections() {
+    Pool rootPool = getRootPool();
+    int total = rootPool.totalConnection.get();
+    for (Pool pool : rootPool.credentialPools.values()) {
+      total += pool.totalConnection.get();
+    }
+    return total;
+  }
+
+  Pool getRootPool() {
+    return parentPool != null ? parentPool : this;
+  }
+
+  public long getGlobalConnections() {
+    return globalConnections();
+  }
+
   /**
    * Get new connection from pool if user and password correspond to pool. If username and password
-   * are different from pool, will return a dedicated connection.
+   * are different from pool, will return a connection from the credential sub-pool when option
+   * "poolPerCredential" is set, or a dedicated connection otherwise.
    *
    * @param username username
    * @param password password
@@ -444,6 +1298,10 @@ public class Pool implements AutoCloseable, PoolMBean {
         return getConnection();
       }
 
+      if (options.poolPerCredential) {
+        return getCredentialPool(username, password).getConnection();
+      }
+
       UrlParser tmpUrlParser = (UrlParser) urlParser.clone();
       tmpUrlParser.setUsername(username);
       tmpUrlParser.setPassword(password);
@@ -457,7 +1315,7 @@ public class Pool implements AutoCloseable, PoolMBean {
     }
   }
 
-  private String generatePoolTag(int poolIndex) {
+  private static String generatePoolTag(Options options, int poolIndex) {
     if (options.poolName == null) {
       options.poolName = "MariaDB-pool";
     }
@@ -475,11 +1333,30 @@ public class Pool implements AutoCloseable, PoolMBean {
    */
   public void close() throws InterruptedException {
     synchronized (this) {
-      Pools.remove(this);
-      poolState.set(POOL_STATE_CLOSING);
+      if (parentPool == null) {
+        Pools.remove(this);
+      }
+      synchronized (credentialPools) {
+        poolState.set(POOL_STATE_CLOSING);
+      }
+      connectionBag.failAsyncWaiters(
+          ExceptionFactory.INSTANCE.create("Pool " + poolTag + " is closed", "08000"));
       pendingRequestNumber.set(0);
+      for (Pool pool : credentialPools.values()) {
+        pool.close();
+      }
+      credentialPools.clear();
 
       scheduledFuture.cancel(false);
+      if (keepAliveFuture != null) {
+        keepAliveFuture.cancel(false);
+      }
+      if (adaptiveSizingFuture != null) {
+        adaptiveSizingFuture.cancel(false);
+      }
+      if (rotationFuture != null) {
+        rotationFuture.cancel(false);
+      }
       connectionAppender.shutdown();
 
       try {
@@ -488,6 +1365,23 @@ public class Pool implements AutoCloseable, PoolMBean {
         // eat
       }
 
+      if (connectionResetter != null) {
+        // let pending resets finish, so connections are either idle or closed
+        connectionResetter.shutdown();
+        try {
+          connectionResetter.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException i) {
+          // eat
+        }
+      }
+
+      connectionValidator.shutdown();
+      try {
+        connectionValidator.awaitTermination(10, TimeUnit.SECONDS);
+      } catch (InterruptedException i) {
+        // eat
+      }
+
       if (logger.isInfoEnabled()) {
         logger.info(
             "closing pool {} (total:{}, active:{}, pending:{})",
@@ -509,7 +1403,7 @@ public class Pool implements AutoCloseable, PoolMBean {
       // loop for up to 10 seconds to close not used connection
       long start = System.nanoTime();
       do {
-        closeAll(connectionRemover, idleConnections);
+        closeAll(connectionRemover, false);
         if (totalConnection.get() > 0) {
           Thread.sleep(0, 10_00);
         }
@@ -517,8 +1411,8 @@ public class Pool implements AutoCloseable, PoolMBean {
           && TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 10);
 
       // after having wait for 10 seconds, force removal, even if used connections
-      if (totalConnection.get() > 0 || idleConnections.isEmpty()) {
-        closeAll(connectionRemover, idleConnections);
+      if (totalConnection.get() > 0) {
+        closeAll(connectionRemover, true);
       }
 
       connectionRemover.shutdown();
@@ -531,12 +1425,16 @@ public class Pool implements AutoCloseable, PoolMBean {
     }
   }
 
-  private void closeAll(
-      ExecutorService connectionRemover, Collection<MariaDbPooledConnection> collection) {
-    synchronized (collection) { // synchronized mandatory to iterate Collections.synchronizedList()
-      for (MariaDbPooledConnection item : collection) {
-        collection.remove(item);
-        totalConnection.decrementAndGet();
+  /**
+   * Close pool connections.
+   *
+   * @param connectionRemover executor used to abort connections
+   * @param force if false, only idle connections are closed, if true, used connections too
+   */
+  private void closeAll(ExecutorService connectionRemover, boolean force) {
+    for (MariaDbPooledConnection item : connectionBag.values()) {
+      if ((force || connectionBag.reserve(item))
+          && removeConnection(item, DiscardReason.POOL_CLOSED)) {
         try {
           item.abort(connectionRemover);
         } catch (SQLException ex) {
@@ -623,7 +1521,7 @@ public class Pool implements AutoCloseable, PoolMBean {
 
   @Override
   public long getActiveConnections() {
-    return totalConnection.get() - idleConnections.size();
+    return totalConnection.get() - getIdleConnections();
   }
 
   @Override
@@ -633,13 +1531,147 @@ public class Pool implements AutoCloseable, PoolMBean {
 
   @Override
   public long getIdleConnections() {
-    return idleConnections.size();
+    return connectionBag.getCount(MariaDbPooledConnection.STATE_NOT_IN_USE);
   }
 
   public long getConnectionRequests() {
     return pendingRequestNumber.get();
   }
 
+  @Override
+  public long getTargetPoolSize() {
+    return targetPoolSize;
+  }
+
+  public PoolMetrics getMetrics() {
+    return metrics;
+  }
+
+  @Override
+  public long getBorrowWaitTimeP50() {
+    return metrics.getBorrowWaitTime().getPercentile(50);
+  }
+
+  @Override
+  public long getBorrowWaitTimeP99() {
+    return metrics.getBorrowWaitTime().getPercentile(99);
+  }
+
+  @Override
+  public long getBorrowWaitTimeMax() {
+    return metrics.getBorrowWaitTime().getMax();
+  }
+
+  @Override
+  public long getCreationTimeP50() {
+    return metrics.getCreationTime().getPercentile(50);
+  }
+
+  @Override
+  public long getCreationTimeP99() {
+    return metrics.getCreationTime().getPercentile(99);
+  }
+
+  @Override
+  public long getCreationTimeMax() {
+    return metrics.getCreationTime().getMax();
+  }
+
+  @Override
+  public long getValidationTimeP50() {
+    return metrics.getValidationTime().getPercentile(50);
+  }
+
+  @Override
+  public long getValidationTimeP99() {
+    return metrics.getValidationTime().getPercentile(99);
+  }
+
+  @Override
+  public long getValidationTimeMax() {
+    return metrics.getValidationTime().getMax();
+  }
+
+  @Override
+  public long getResetTimeP50() {
+    return metrics.getResetTime().getPercentile(50);
+  }
+
+  @Override
+  public long getResetTimeP99() {
+    return metrics.getResetTime().getPercentile(99);
+  }
+
+  @Override
+  public long getResetTimeMax() {
+    return metrics.getResetTime().getMax();
+  }
+
+  @Override
+  public long getUsageTimeP50() {
+    return metrics.getUsageTime().getPercentile(50);
+  }
+
+  @Override
+  public long getUsageTimeP99() {
+    return metrics.getUsageTime().getPercentile(99);
+  }
+
+  @Override
+  public long getUsageTimeMax() {
+    return metrics.getUsageTime().getMax();
+  }
+
+  @Override
+  public long getBorrowTimeouts() {
+    return metrics.getTimeouts();
+  }
+
+  @Override
+  public long getValidations() {
+    return metrics.getValidationTime().getCount();
+  }
+
+  @Override
+  public long getValidationsSkipped() {
+    return metrics.getValidationsSkipped();
+  }
+
+  @Override
+  public long getDiscardedIdleTimeout() {
+    return metrics.getDiscarded(DiscardReason.IDLE_TIMEOUT);
+  }
+
+  @Override
+  public long getDiscardedValidationFailed() {
+    return metrics.getDiscarded(DiscardReason.VALIDATION_FAILED);
+  }
+
+  @Override
+  public long getDiscardedResetFailed() {
+    return metrics.getDiscarded(DiscardReason.RESET_FAILED);
+  }
+
+  @Override
+  public long getDiscardedConnectionError() {
+    return metrics.getDiscarded(DiscardReason.CONNECTION_ERROR);
+  }
+
+  @Override
+  public long getDiscardedPoolShrink() {
+    return metrics.getDiscarded(DiscardReason.POOL_SHRINK);
+  }
+
+  @Override
+  public long getDiscardedMaxLifetime() {
+    return metrics.getDiscarded(DiscardReason.MAX_LIFETIME);
+  }
+
+  @Override
+  public long getDiscardedPoolClosed() {
+    return metrics.getDiscarded(DiscardReason.POOL_CLOSED);
+  }
+
   private void registerJmx() throws Exception {
     MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
     String jmxName = poolTag.replace(":", "_");
@@ -667,7 +1699,10 @@ public class Pool implements AutoCloseable, PoolMBean {
    */
   public List<Long> testGetConnectionIdleThreadIds() {
     List<Long> threadIds = new ArrayList<>();
-    for (MariaDbPooledConnection pooledConnection : idleConnections) {
+    for (MariaDbPooledConnection pooledConnection : connectionBag.values()) {
+      if (pooledConnection.getState() != MariaDbPooledConnection.STATE_NOT_IN_USE) {
+        continue;
+      }
       threadIds.add(pooledConnection.getConnection().getServerThreadId());
     }
     return threadIds;
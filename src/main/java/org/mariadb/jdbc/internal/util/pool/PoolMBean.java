@@ -32,5 +32,59 @@ public interface PoolMBean {
 
   long getConnectionRequests();
 
+  long getTargetPoolSize();
+
+  // durations are in microseconds
+
+  long getBorrowWaitTimeP50();
+
+  long getBorrowWaitTimeP99();
+
+  long getBorrowWaitTimeMax();
+
+  long getCreationTimeP50();
+
+  long getCreationTimeP99();
+
+  long getCreationTimeMax();
+
+  long getValidationTimeP50();
+
+  long getValidationTimeP99();
+
+  long getValidationTimeMax();
+
+  long getResetTimeP50();
+
+  long getResetTimeP99();
+
+  long getResetTimeMax();
+
+  long getUsageTimeP50();
+
+  long getUsageTimeP99();
+
+  long getUsageTimeMax();
+
+  long getBorrowTimeouts();
+
+  long getValidations();
+
+  long getValidationsSkipped();
+
+  long getDiscardedIdleTimeout();
+
+  long getDiscardedValidationFailed();
+
+  long getDiscardedResetFailed();
+
+  long getDiscardedConnectionError();
+
+  long getDiscardedPoolShrink();
+
+  long getDiscardedMaxLifetime();
+
+  long getDiscardedPoolClosed();
+
   void resetStaticGlobal();
 }
@@ -0,0 +1,298 @@
+/*
+ *
+ * MariaDB Client for Java
+ *
+ * Copyright (c) 2012-2014 Monty Program Ab.
+ * Copyright (c) 2015-2020 MariaDB Corporation Ab.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this library; if not, write to Monty Program Ab info@montyprogram.com.
+ *
+ * This particular MariaDB Client for Java file is work
+ * derived from a Drizzle-JDBC. Drizzle-JDBC file which is covered by subject to
+ * the following copyright and notice provisions:
+ *
+ * Copyright (c) 2009-2011, Marcus Eriksson
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this list
+ * of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this
+ * list of conditions and the following disclaimer in the documentation and/or
+ * other materials provided with the distribution.
+ *
+ * Neither the name of the driver nor the names of its contributors may not be
+ * used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS  AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package org.mariadb.jdbc.internal.util.pool;
+
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import org.mariadb.jdbc.PoolListener;
+import org.mariadb.jdbc.PoolListener.DiscardReason;
+import org.mariadb.jdbc.internal.logging.Logger;
+import org.mariadb.jdbc.internal.logging.LoggerFactory;
+
+/**
+ * Pool metrics : latency histograms and counters, recorded without lock nor allocation, and
+ * forwarded to registered {@link PoolListener}.
+ */
+public class PoolMetrics {
+
+  private static final Logger logger = LoggerFactory.getLogger(PoolMetrics.class);
+
+  private final String poolTag;
+  private final List<PoolListener> listeners = new CopyOnWriteArrayList<>();
+
+  private final LatencyHistogram borrowWaitTime = new LatencyHistogram();
+  private final LatencyHistogram recentBorrowWaitTime = new LatencyHistogram();
+  private final LatencyHistogram creationTime = new LatencyHistogram();
+  private final LatencyHistogram validationTime = new LatencyHistogram();
+  private final LatencyHistogram resetTime = new LatencyHistogram();
+  private final LatencyHistogram usageTime = new LatencyHistogram();
+
+  private final LongAdder timeouts = new LongAdder();
+  private final LongAdder validationsSkipped = new LongAdder();
+  private final LongAdder[] discarded = new LongAdder[DiscardReason.values().length];
+
+  /**
+   * Constructor. Load listeners declared with ServiceLoader.
+   *
+   * @param poolTag pool name
+   */
+  public PoolMetrics(String poolTag) {
+    this.poolTag = poolTag;
+    for (int i = 0; i < discarded.length; i++) {
+      discarded[i] = new LongAdder();
+    }
+    try {
+      for (PoolListener listener : ServiceLoader.load(PoolListener.class)) {
+        listeners.add(listener);
+      }
+    } catch (Throwable throwable) {
+      logger.error("pool " + poolTag + " : error loading pool listeners", throwable);
+    }
+  }
+
+  public void addListener(PoolListener listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(PoolListener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Record connection borrowing.
+   *
+   * @param waitNanos time waiting for connection
+   */
+  public void borrowed(long waitNanos) {
+    borrowWaitTime.recordNanos(waitNanos);
+    recentBorrowWaitTime.recordNanos(waitNanos);
+    if (!listeners.isEmpty()) {
+      for (PoolListener listener : listeners) {
+        try {
+          listener.connectionBorrowed(poolTag, waitNanos);
+        } catch (Throwable throwable) {
+          listenerError("connectionBorrowed", throwable);
+        }
+      }
+    }
+  }
+
+  /**
+   * Record a connection request that has not been satisfied in time.
+   *
+   * @param waitNanos time waiting for connection
+   */
+  public void timeout(long waitNanos) {
+    timeouts.increment();
+    borrowWaitTime.recordNanos(waitNanos);
+    recentBorrowWaitTime.recordNanos(waitNanos);
+    if (!listeners.isEmpty()) {
+      for (PoolListener listener : listeners) {
+        try {
+          listener.borrowTimeout(poolTag, waitNanos);
+        } catch (Throwable throwable) {
+          listenerError("borrowTimeout", throwable);
+        }
+      }
+    }
+  }
+
+  /**
+   * Record connection given back to pool.
+   *
+   * @param usageNanos time connection has been used
+   */
+  public void released(long usageNanos) {
+    usageTime.recordNanos(usageNanos);
+    if (!listeners.isEmpty()) {
+      for (PoolListener listener : listeners) {
+        try {
+          listener.connectionReleased(poolTag, usageNanos);
+        } catch (Throwable throwable) {
+          listenerError("connectionReleased", throwable);
+        }
+      }
+    }
+  }
+
+  /**
+   * Record connection creation.
+   *
+   * @param creationNanos creation duration
+   */
+  public void created(long creationNanos) {
+    creationTime.recordNanos(creationNanos);
+    if (!listeners.isEmpty()) {
+      for (PoolListener listener : listeners) {
+        try {
+          listener.connectionCreated(poolTag, creationNanos);
+        } catch (Throwable throwable) {
+          listenerError("connectionCreated", throwable);
+        }
+      }
+    }
+  }
+
+  /**
+   * Record connection validation.
+   *
+   * @param validationNanos validation duration
+   * @param valid validation result
+   */
+  public void validated(long validationNanos, boolean valid) {
+    validationTime.recordNanos(validationNanos);
+    if (!listeners.isEmpty()) {
+      for (PoolListener listener : listeners) {
+        try {
+          listener.connectionValidated(poolTag, validationNanos, valid);
+        } catch (Throwable throwable) {
+          listenerError("connectionValidated", throwable);
+        }
+      }
+    }
+  }
+
+  public void validationSkipped() {
+    validationsSkipped.increment();
+  }
+
+  /**
+   * Record connection reset.
+   *
+   * @param resetNanos reset duration
+   */
+  public void reset(long resetNanos) {
+    resetTime.recordNanos(resetNanos);
+    if (!listeners.isEmpty()) {
+      for (PoolListener listener : listeners) {
+        try {
+          listener.connectionReset(poolTag, resetNanos);
+        } catch (Throwable throwable) {
+          listenerError("connectionReset", throwable);
+        }
+      }
+    }
+  }
+
+  /**
+   * Record connection removal.
+   *
+   * @param reason removal reason
+   */
+  public void discarded(DiscardReason reason) {
+    discarded[reason.ordinal()].increment();
+    if (!listeners.isEmpty()) {
+      for (PoolListener listener : listeners) {
+        try {
+          listener.connectionDiscarded(poolTag, reason);
+        } catch (Throwable throwable) {
+          listenerError("connectionDiscarded", throwable);
+        }
+      }
+    }
+  }
+
+  /**
+   * Log an error thrown by a listener. Listener errors are not propagated, since they would
+   * interrupt pool operations (a borrowed connection would never be given to application).
+   *
+   * @param event listener event
+   * @param throwable listener error
+   */
+  private void listenerError(String event, Throwable throwable) {
+    logger.error("pool " + poolTag + " : error in pool listener " + event, throwable);
+  }
+
+  public LatencyHistogram getBorrowWaitTime() {
+    return borrowWaitTime;
+  }
+
+  /**
+   * Borrow wait time since last reset of this histogram, used for adaptive pool sizing.
+   *
+   * @return borrow wait time histogram
+   */
+  public LatencyHistogram getRecentBorrowWaitTime() {
+    return recentBorrowWaitTime;
+  }
+
+  public LatencyHistogram getCreationTime() {
+    return creationTime;
+  }
+
+  public LatencyHistogram getValidationTime() {
+    return validationTime;
+  }
+
+  public LatencyHistogram getResetTime() {
+    return resetTime;
+  }
+
+  public LatencyHistogram getUsageTime() {
+    return usageTime;
+  }
+
+  public long getTimeouts() {
+    return timeouts.sum();
+  }
+
+  public long getValidationsSkipped() {
+    return validationsSkipped.sum();
+  }
+
+  public long getDiscarded(DiscardReason reason) {
+    return discarded[reason.ordinal()].sum();
+  }
+}
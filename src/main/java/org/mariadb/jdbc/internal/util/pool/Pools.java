@@ -22,11 +22,14 @@
 
 package org.mariadb.jdbc.internal.util.pool;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import org.mariadb.jdbc.HostAddress;
 import org.mariadb.jdbc.UrlParser;
 import org.mariadb.jdbc.internal.util.scheduler.MariaDbThreadFactory;
 
@@ -34,6 +37,8 @@ public class Pools {
 
   private static final AtomicInteger poolIndex = new AtomicInteger();
   private static final Map<UrlParser, Pool> poolMap = new ConcurrentHashMap<>();
+  private static final Map<List<HostAddress>, ConnectionBudget> serverBudgets =
+      new ConcurrentHashMap<>();
   private static ScheduledThreadPoolExecutor poolExecutor = null;
 
   /**
@@ -50,6 +55,8 @@ public class Pools {
             poolExecutor =
                 new ScheduledThreadPoolExecutor(
                     1, new MariaDbThreadFactory("MariaDbPool-maxTimeoutIdle-checker"));
+            // asynchronous borrow timeouts are cancelled when connection is obtained
+            poolExecutor.setRemoveOnCancelPolicy(true);
           }
           Pool pool = new Pool(urlParser, poolIndex.incrementAndGet(), poolExecutor);
           poolMap.put(urlParser, pool);
@@ -60,6 +67,17 @@ public class Pools {
     return poolMap.get(urlParser);
   }
 
+  /**
+   * Connection budget shared by all pools connecting to the same hosts.
+   *
+   * @param hostAddresses pool hosts
+   * @return connection budget
+   */
+  static ConnectionBudget serverBudget(List<HostAddress> hostAddresses) {
+    return serverBudgets.computeIfAbsent(
+        new ArrayList<>(hostAddresses), key -> new ConnectionBudget());
+  }
+
   /**
    * Remove pool.
    *
@@ -0,0 +1,93 @@
+/*
+ *
+ * MariaDB Client for Java
+ *
+ * Copyright (c) 2012-2014 Monty Program Ab.
+ * Copyright (c) 2015-2020 MariaDB Corporation Ab.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this library; if not, write to Monty Program Ab info@montyprogram.com.
+ *
+ */
+
+package org.mariadb.jdbc.tls;
+
+import java.util.concurrent.atomic.LongAdder;
+import javax.net.ssl.SSLSession;
+
+/**
+ * TLS handshake counters of all connections, to follow session resumption hit-rate. A resumed
+ * session (TLS 1.2 session id or ticket, TLS 1.3 pre-shared key) avoids the certificate exchange
+ * and the key agreement of a full handshake.
+ */
+public final class TlsStatistics {
+
+  private static final LongAdder handshakes = new LongAdder();
+  private static final LongAdder resumedHandshakes = new LongAdder();
+  private static final LongAdder contextLoads = new LongAdder();
+
+  private TlsStatistics() {
+    // static utility
+  }
+
+  /**
+   * Record a completed handshake. A session created before handshake started has been resumed.
+   *
+   * @param session negotiated session
+   * @param handshakeStartMillis time when handshake started
+   */
+  public static void handshake(SSLSession session, long handshakeStartMillis) {
+    handshakes.increment();
+    if (session.getCreationTime() < handshakeStartMillis) {
+      resumedHandshakes.increment();
+    }
+  }
+
+  /** Record the creation of a SSL context (first use of a TLS configuration, or key change). */
+  public static void contextLoaded() {
+    contextLoads.increment();
+  }
+
+  public static long getHandshakes() {
+    return handshakes.sum();
+  }
+
+  public static long getResumedHandshakes() {
+    return resumedHandshakes.sum();
+  }
+
+  public static long getFullHandshakes() {
+    return handshakes.sum() - resumedHandshakes.sum();
+  }
+
+  public static long getContextLoads() {
+    return contextLoads.sum();
+  }
+
+  /**
+   * Session resumption hit-rate.
+   *
+   * @return resumed handshakes / handshakes, 0 if no handshake
+   */
+  public static double getResumptionRate() {
+    long total = handshakes.sum();
+    return total == 0 ? 0 : (double) resumedHandshakes.sum() / total;
+  }
+
+  /** Reset counters. */
+  public static void reset() {
+    handshakes.reset();
+    resumedHandshakes.reset();
+    contextLoads.reset();
+  }
+}
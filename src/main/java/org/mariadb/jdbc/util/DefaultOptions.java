@@ -280,6 +280,85 @@ public enum DefaultOptions {
       "1.2.0",
       "time in second a server is" + " blacklisted after a connection failure.",
       false),
+  LOAD_BALANCE_LATENCY_AWARE(
+      "loadBalanceLatencyAware",
+      Boolean.FALSE,
+      "2.7.0",
+      "When using replication, choose replica using the observed latency of each host instead of"
+          + " random order.",
+      false),
+  MAX_REPLICATION_LAG(
+      "maxReplicationLag",
+      0,
+      0,
+      "2.7.0",
+      "When using replication, replicas lagging more than this number of seconds behind master"
+          + " are not used. 0 disable the lag check.",
+      false),
+  REPLICATION_LAG_CHECK_INTERVAL(
+      "replicationLagCheckInterval",
+      5,
+      1,
+      "2.7.0",
+      "Interval in seconds between two replication lag checks (see maxReplicationLag).",
+      false),
+  CAUSAL_READS(
+      "causalReads",
+      Boolean.FALSE,
+      "2.7.0",
+      "When using replication, ensure reads on replica see the writes previously done by the"
+          + " connection on master, using GTID.",
+      false),
+  CAUSAL_READS_TIMEOUT(
+      "causalReadsTimeout",
+      500,
+      0,
+      "2.7.0",
+      "Maximum time in milliseconds to wait for replica to apply connection last write (see"
+          + " causalReads). After this time, read is done on master.",
+      false),
+  AUTO_READ_ROUTING(
+      "autoReadRouting",
+      Boolean.FALSE,
+      "2.7.0",
+      "When using replication, execute SELECT queries in autocommit mode on replica even if"
+          + " connection is not in read-only mode. Stored functions called in routed SELECT queries"
+          + " must be free of side effects, since they are executed on replica.",
+      false),
+  PARALLEL_CONNECT_DELAY(
+      "parallelConnectDelay",
+      0,
+      0,
+      "2.7.0",
+      "When searching a host in high availability, delay in milliseconds before trying next host in"
+          + " parallel if current connection attempt has not succeeded. 0 tries hosts one after"
+          + " another.",
+      false),
+  TOPOLOGY_REFRESH_INTERVAL(
+      "topologyRefreshInterval",
+      0,
+      0,
+      "2.7.0",
+      "When using replication or aurora, interval in seconds between two checks of the cluster"
+          + " topology by a monitor shared by all connections to the same hosts. 0 disables the"
+          + " monitor.",
+      false),
+  TRANSACTION_REPLAY(
+      "transactionReplay",
+      Boolean.FALSE,
+      "2.7.0",
+      "When using high availability, record the commands of current transaction, so that on"
+          + " failover, transaction is replayed on the new master instead of throwing an exception."
+          + " Replay fails if a command has a different result than the original execution.",
+      false),
+  TRANSACTION_REPLAY_SIZE(
+      "transactionReplaySize",
+      64,
+      1,
+      "2.7.0",
+      "Maximum number of commands of a transaction recorded for replay (see transactionReplay)."
+          + " A longer transaction is not replayed.",
+      false),
   CACHE_PREP_STMTS(
       "cachePrepStmts",
       Boolean.TRUE,
@@ -336,6 +415,27 @@ public enum DefaultOptions {
           + " prepared on server side, or just faked on client side.\n"
           + "     * if rewriteBatchedStatements is set to true, this options will be set to false.",
       false),
+  PREPARE_THRESHOLD(
+      "prepareThreshold",
+      0,
+      0,
+      "2.7.0",
+      "When useServerPrepStmts is disabled, number of executions of a client side "
+          + "PreparedStatement query on a connection after which new PreparedStatement of the same "
+          + "query will be prepared on server side. 0 disable this adaptive behaviour.\n"
+          + "     * if rewriteBatchedStatements is set to true, this options will be set to 0.",
+      false),
+  SERVER_PREP_MULTI_VALUES_ROWS(
+      "serverPrepMultiValuesRows",
+      0,
+      0,
+      "2.7.0",
+      "Server side PreparedStatement batch of an INSERT that can be rewritten in multi-values "
+          + "will be executed using a server prepared INSERT of this number of rows "
+          + "(\"VALUES (?,?),(?,?),...\"), remaining rows, or all rows of a smaller batch, being sent"
+          + " in a text protocol multi-values query, when "
+          + "COM_STMT_BULK_EXECUTE cannot be used. 0 disable this behaviour",
+      false),
   TRUSTSTORE(
       "trustStore",
       "1.3.0",
@@ -501,6 +601,26 @@ public enum DefaultOptions {
           + "insert when possible. (batch without Statement.RETURN_GENERATED_KEYS and streams) to have faster batch. "
           + "(significant only if server MariaDB >= 10.2.7)",
       false),
+  USE_BATCH_LOAD_DATA(
+      "useBatchLoadData",
+      Boolean.FALSE,
+      "2.7.0",
+      "Send client side PreparedStatement batch of a plain INSERT INTO t (cols) VALUES (?,...) "
+          + "as a LOAD DATA LOCAL INFILE command, streaming batch rows as file content, when batch "
+          + "size reach useBatchLoadDataThreshold. Batch using generated keys, ON DUPLICATE KEY "
+          + "UPDATE, binary or stream parameters keep the usual batch implementation. "
+          + "Option allowLocalInfile must be enabled. LOAD DATA LOCAL skips rows in error "
+          + "(duplicate key, constraint violation) and truncates invalid values with a warning: "
+          + "if inserted rows differ from batch size or any warning is raised, a "
+          + "BatchUpdateException is thrown, rows already loaded being kept (unless rolled back)",
+      false),
+  USE_BATCH_LOAD_DATA_THRESHOLD(
+      "useBatchLoadDataThreshold",
+      1000,
+      1,
+      "2.7.0",
+      "When option useBatchLoadData is active, minimum batch size for using LOAD DATA LOCAL INFILE",
+      false),
   AUTOCOMMIT(
       "autocommit",
       Boolean.TRUE,
@@ -557,6 +677,99 @@ public enum DefaultOptions {
           + " has been borrowed recently avoiding useless verifications in case of frequent reuse of connections. "
           + "0 means validation is done each time the connection is asked.",
       false),
+  POOL_KEEP_ALIVE_TIME(
+      "poolKeepAliveTime",
+      0,
+      0,
+      "2.7.0",
+      "Interval in milliseconds at which idle pool connections are validated by a background task. "
+          + "Borrowed connections are then already validated, and validation on the borrowing thread only "
+          + "occurs if the background task has not validated the connection in time. 0 disables background "
+          + "validation.",
+      false),
+  POOL_CREATION_CONCURRENCY(
+      "poolCreationConcurrency",
+      1,
+      1,
+      "2.7.0",
+      "Maximum number of physical connections the pool creates in parallel, when filling the pool "
+          + "at startup or replacing connections.",
+      false),
+  POOL_CREATION_RATE(
+      "poolCreationRate",
+      0,
+      0,
+      "2.7.0",
+      "Maximum number of physical connections the pool creates per second, avoiding connection storms "
+          + "on server. 0 means no limit.",
+      false),
+  POOL_ASYNC_RESET(
+      "poolAsyncReset",
+      Boolean.FALSE,
+      "2.7.0",
+      "When a connection is given back to pool, reset connection state in a pool thread instead of "
+          + "the thread closing the connection. Connection can be borrowed again only when reset is "
+          + "done. Background reset also validates connection if needed, so next borrower doesn't.",
+      false),
+  POOL_ADAPTIVE_SIZING(
+      "poolAdaptiveSizing",
+      Boolean.FALSE,
+      "2.7.0",
+      "Adapt the number of pool connections, between minPoolSize and maxPoolSize, to demand : pool "
+          + "grows ahead of demand when time waiting for a connection exceeds poolTargetWaitTime or "
+          + "requests are pending, and shrinks gradually when connections stay unused.",
+      false),
+  POOL_TARGET_WAIT_TIME(
+      "poolTargetWaitTime",
+      5,
+      0,
+      "2.7.0",
+      "With poolAdaptiveSizing, 99th percentile of time waiting for a connection (in milliseconds) "
+          + "above which pool grows.",
+      false),
+  POOL_CONNECTION_BUDGET(
+      "poolConnectionBudget",
+      0,
+      0,
+      "2.7.0",
+      "Maximum number of connections of all pools connecting to the same servers, permitting to "
+          + "share server max_connections between pools. Pools never exceed server"
+          + " @@max_connections, read when pool creates its first connection. 0 means no limit"
+          + " other than server @@max_connections.",
+      false),
+  MAX_LIFETIME(
+      "maxLifetime",
+      0,
+      0,
+      "2.7.0",
+      "Maximum lifetime of a pool connection in seconds. Each connection lifetime is reduced by a "
+          + "random jitter of up to 10%, avoiding all connections expiring at the same time. "
+          + "Expired connections are replaced only when not used, permitting to spread load on all "
+          + "servers after topology changes. 0 means no limit.",
+      false),
+  MAX_LIFETIME_ROTATION(
+      "maxLifetimeRotation",
+      1,
+      1,
+      "2.7.0",
+      "Maximum number of expired connections (see maxLifetime) replaced at the same time.",
+      false),
+  POOL_PER_CREDENTIAL(
+      "poolPerCredential",
+      Boolean.FALSE,
+      "2.7.0",
+      "Connections requested with other credentials than pool ones (getConnection(user, password)) "
+          + "are pooled in a dedicated sub-pool per credential, instead of creating a new "
+          + "connection each time. Pool and all its sub-pools share the same maxPoolSize limit.",
+      false),
+  POOL_CHANGE_USER(
+      "poolChangeUser",
+      Boolean.FALSE,
+      "2.7.0",
+      "When option poolPerCredential is set, a request for a credential without idle connection "
+          + "reuses an idle connection of another credential, switching its user with "
+          + "COM_CHANGE_USER, instead of creating a new connection.",
+      false),
   STATIC_GLOBAL(
       "staticGlobal",
       Boolean.FALSE,
@@ -565,6 +778,16 @@ public enum DefaultOptions {
           + "max_allowed_packet, wait_timeout, autocommit, auto_increment_increment, time_zone, system_time_zone and"
           + " tx_isolation) won't be changed, permitting the pool to create new connections faster.",
       false),
+  SESSION_METADATA_CACHE_TTL(
+      "sessionMetadataCacheTtl",
+      0,
+      0,
+      "2.7.0",
+      "Time in seconds the server variables max_allowed_packet, system_time_zone, time_zone and"
+          + " auto_increment_increment read when creating a connection are kept in memory per host,"
+          + " avoiding querying them again on new connections. Cached values are ignored if the"
+          + " server version changes. 0 disables the cache.",
+      false),
   REGISTER_POOL_JMX(
       "registerJmxPool", Boolean.TRUE, "2.2.0", "Register JMX monitoring pools.", false),
   USE_RESET_CONNECTION(
@@ -985,6 +1208,7 @@ public enum DefaultOptions {
     // disable use server prepare id using client rewrite
     if (options.rewriteBatchedStatements) {
       options.useServerPrepStmts = false;
+      options.prepareThreshold = 0;
     }
 
     // pipe cannot use read and write socket simultaneously
@@ -89,6 +89,8 @@ public class Options implements Cloneable {
   public boolean useAffectedRows;
   public boolean maximizeMysqlCompatibility;
   public boolean useServerPrepStmts;
+  public int prepareThreshold;
+  public int serverPrepMultiValuesRows;
   public boolean continueBatchOnError = true;
   public boolean jdbcCompliantTruncation = true;
   public boolean cacheCallableStmts = true;
@@ -99,6 +101,8 @@ public class Options implements Cloneable {
   public Boolean usePipelineAuth;
   public boolean enablePacketDebug;
   public boolean useBulkStmts;
+  public boolean useBatchLoadData;
+  public int useBatchLoadDataThreshold = 1000;
   public boolean disableSslHostnameVerification;
   public boolean autocommit = true;
   public boolean includeInnodbStatusInDeadlockExceptions;
@@ -122,6 +126,16 @@ public class Options implements Cloneable {
   public int validConnectionTimeout;
   public int loadBalanceBlacklistTimeout = 50;
   public int failoverLoopRetries = 120;
+  public boolean loadBalanceLatencyAware;
+  public int maxReplicationLag;
+  public int replicationLagCheckInterval = 5;
+  public boolean causalReads;
+  public int causalReadsTimeout = 500;
+  public boolean autoReadRouting;
+  public int parallelConnectDelay;
+  public int topologyRefreshInterval;
+  public boolean transactionReplay;
+  public int transactionReplaySize = 64;
   public boolean allowMasterDownConnection;
   public String galeraAllowedState;
 
@@ -132,8 +146,20 @@ public class Options implements Cloneable {
   public Integer minPoolSize;
   public int maxIdleTime = 600;
   public boolean staticGlobal;
+  public int sessionMetadataCacheTtl;
   public boolean registerJmxPool = true;
   public int poolValidMinDelay = 1000;
+  public int poolKeepAliveTime;
+  public int poolCreationConcurrency = 1;
+  public int poolCreationRate;
+  public boolean poolAsyncReset;
+  public boolean poolAdaptiveSizing;
+  public int poolTargetWaitTime = 5;
+  public int poolConnectionBudget;
+  public int maxLifetime;
+  public int maxLifetimeRotation = 1;
+  public boolean poolPerCredential;
+  public boolean poolChangeUser;
   public boolean useResetConnection;
   public boolean useReadAheadInput = true;
 
@@ -250,6 +276,12 @@ public class Options implements Cloneable {
     if (useServerPrepStmts != opt.useServerPrepStmts) {
       return false;
     }
+    if (prepareThreshold != opt.prepareThreshold) {
+      return false;
+    }
+    if (serverPrepMultiValuesRows != opt.serverPrepMultiValuesRows) {
+      return false;
+    }
     if (continueBatchOnError != opt.continueBatchOnError) {
       return false;
     }
@@ -277,6 +309,12 @@ public class Options implements Cloneable {
     if (useBulkStmts != opt.useBulkStmts) {
       return false;
     }
+    if (useBatchLoadData != opt.useBatchLoadData) {
+      return false;
+    }
+    if (useBatchLoadDataThreshold != opt.useBatchLoadDataThreshold) {
+      return false;
+    }
     if (disableSslHostnameVerification != opt.disableSslHostnameVerification) {
       return false;
     }
@@ -310,12 +348,45 @@ public class Options implements Cloneable {
     if (failoverLoopRetries != opt.failoverLoopRetries) {
       return false;
     }
+    if (loadBalanceLatencyAware != opt.loadBalanceLatencyAware) {
+      return false;
+    }
+    if (maxReplicationLag != opt.maxReplicationLag) {
+      return false;
+    }
+    if (replicationLagCheckInterval != opt.replicationLagCheckInterval) {
+      return false;
+    }
+    if (causalReads != opt.causalReads) {
+      return false;
+    }
+    if (causalReadsTimeout != opt.causalReadsTimeout) {
+      return false;
+    }
+    if (autoReadRouting != opt.autoReadRouting) {
+      return false;
+    }
+    if (parallelConnectDelay != opt.parallelConnectDelay) {
+      return false;
+    }
+    if (topologyRefreshInterval != opt.topologyRefreshInterval) {
+      return false;
+    }
+    if (transactionReplay != opt.transactionReplay) {
+      return false;
+    }
+    if (transactionReplaySize != opt.transactionReplaySize) {
+      return false;
+    }
     if (pool != opt.pool) {
       return false;
     }
     if (staticGlobal != opt.staticGlobal) {
       return false;
     }
+    if (sessionMetadataCacheTtl != opt.sessionMetadataCacheTtl) {
+      return false;
+    }
     if (registerJmxPool != opt.registerJmxPool) {
       return false;
     }
@@ -334,6 +405,39 @@ public class Options implements Cloneable {
     if (poolValidMinDelay != opt.poolValidMinDelay) {
       return false;
     }
+    if (poolKeepAliveTime != opt.poolKeepAliveTime) {
+      return false;
+    }
+    if (poolCreationConcurrency != opt.poolCreationConcurrency) {
+      return false;
+    }
+    if (poolCreationRate != opt.poolCreationRate) {
+      return false;
+    }
+    if (poolAsyncReset != opt.poolAsyncReset) {
+      return false;
+    }
+    if (poolAdaptiveSizing != opt.poolAdaptiveSizing) {
+      return false;
+    }
+    if (poolTargetWaitTime != opt.poolTargetWaitTime) {
+      return false;
+    }
+    if (poolConnectionBudget != opt.poolConnectionBudget) {
+      return false;
+    }
+    if (maxLifetime != opt.maxLifetime) {
+      return false;
+    }
+    if (maxLifetimeRotation != opt.maxLifetimeRotation) {
+      return false;
+    }
+    if (poolPerCredential != opt.poolPerCredential) {
+      return false;
+    }
+    if (poolChangeUser != opt.poolChangeUser) {
+      return false;
+    }
     if (!Objects.equals(user, opt.user)) {
       return false;
     }
@@ -507,6 +611,8 @@ public class Options implements Cloneable {
     result = 31 * result + (useAffectedRows ? 1 : 0);
     result = 31 * result + (maximizeMysqlCompatibility ? 1 : 0);
     result = 31 * result + (useServerPrepStmts ? 1 : 0);
+    result = 31 * result + prepareThreshold;
+    result = 31 * result + serverPrepMultiValuesRows;
     result = 31 * result + (continueBatchOnError ? 1 : 0);
     result = 31 * result + (jdbcCompliantTruncation ? 1 : 0);
     result = 31 * result + (cacheCallableStmts ? 1 : 0);
@@ -519,6 +625,8 @@ public class Options implements Cloneable {
     result = 31 * result + (includeInnodbStatusInDeadlockExceptions ? 1 : 0);
     result = 31 * result + (includeThreadDumpInDeadlockExceptions ? 1 : 0);
     result = 31 * result + (useBulkStmts ? 1 : 0);
+    result = 31 * result + (useBatchLoadData ? 1 : 0);
+    result = 31 * result + useBatchLoadDataThreshold;
     result = 31 * result + defaultFetchSize;
     result = 31 * result + (disableSslHostnameVerification ? 1 : 0);
     result = 31 * result + (log ? 1 : 0);
@@ -534,17 +642,39 @@ public class Options implements Cloneable {
     result = 31 * result + validConnectionTimeout;
     result = 31 * result + loadBalanceBlacklistTimeout;
     result = 31 * result + failoverLoopRetries;
+    result = 31 * result + (loadBalanceLatencyAware ? 1 : 0);
+    result = 31 * result + maxReplicationLag;
+    result = 31 * result + replicationLagCheckInterval;
+    result = 31 * result + (causalReads ? 1 : 0);
+    result = 31 * result + causalReadsTimeout;
+    result = 31 * result + (autoReadRouting ? 1 : 0);
+    result = 31 * result + parallelConnectDelay;
+    result = 31 * result + topologyRefreshInterval;
+    result = 31 * result + (transactionReplay ? 1 : 0);
+    result = 31 * result + transactionReplaySize;
     result = 31 * result + (pool ? 1 : 0);
     result = 31 * result + (registerJmxPool ? 1 : 0);
     result = 31 * result + (useResetConnection ? 1 : 0);
     result = 31 * result + (useReadAheadInput ? 1 : 0);
     result = 31 * result + (staticGlobal ? 1 : 0);
+    result = 31 * result + sessionMetadataCacheTtl;
     result = 31 * result + (poolName != null ? poolName.hashCode() : 0);
     result = 31 * result + (galeraAllowedState != null ? galeraAllowedState.hashCode() : 0);
     result = 31 * result + maxPoolSize;
     result = 31 * result + (minPoolSize != null ? minPoolSize.hashCode() : 0);
     result = 31 * result + maxIdleTime;
     result = 31 * result + poolValidMinDelay;
+    result = 31 * result + poolKeepAliveTime;
+    result = 31 * result + poolCreationConcurrency;
+    result = 31 * result + poolCreationRate;
+    result = 31 * result + (poolAsyncReset ? 1 : 0);
+    result = 31 * result + (poolAdaptiveSizing ? 1 : 0);
+    result = 31 * result + poolTargetWaitTime;
+    result = 31 * result + poolConnectionBudget;
+    result = 31 * result + maxLifetime;
+    result = 31 * result + maxLifetimeRotation;
+    result = 31 * result + (poolPerCredential ? 1 : 0);
+    result = 31 * result + (poolChangeUser ? 1 : 0);
     result = 31 * result + (autocommit ? 1 : 0);
     result = 31 * result + (credentialType != null ? credentialType.hashCode() : 0);
     result = 31 * result + (nonMappedOptions != null ? nonMappedOptions.hashCode() : 0);
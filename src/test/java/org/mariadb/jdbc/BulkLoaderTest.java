@@ -0,0 +1,196 @@
+/*
+ *
+ * MariaDB Client for Java
+ *
+ * Copyright (c) 2012-2014 Monty Program Ab.
+ * Copyright (c) 2015-2020 MariaDB Corporation Ab.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this library; if not, write to Monty Program Ab info@montyprogram.com.
+ *
+ * This particular MariaDB Client for Java file is work
+ * derived from a Drizzle-JDBC. Drizzle-JDBC file which is covered by subject to
+ * the following copyright and notice provisions:
+ *
+ * Copyright (c) 2009-2011, Marcus Eriksson
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this list
+ * of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this
+ * list of conditions and the following disclaimer in the documentation and/or
+ * other materials provided with the distribution.
+ *
+ * Neither the name of the driver nor the names of its contributors may not be
+ * used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS  AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package org.mariadb.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.sql.*;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class BulkLoaderTest extends BaseTest {
+
+  /**
+   * Initialisation.
+   *
+   * @throws SQLException exception
+   */
+  @BeforeClass()
+  public static void initClass() throws SQLException {
+    createTable("BulkLoaderTest", "id int, test varchar(100), bin varbinary(10)");
+    createTable("`BulkLoader``Test2`", "id int, dt datetime(6)");
+  }
+
+  @Before
+  public void checkLocalInfile() {
+    Assume.assumeFalse(
+        (isMariadbServer() && minVersion(10, 4, 0)) || (!isMariadbServer() && minVersion(8, 0, 3)));
+  }
+
+  @Test
+  public void loadRows() throws SQLException {
+    try (Connection connection = setConnection("&allowLocalInfile=true")) {
+      Statement stmt = connection.createStatement();
+      stmt.execute("TRUNCATE BulkLoaderTest");
+
+      List<Object[]> rows = new ArrayList<>();
+      rows.add(new Object[] {1, "simple", new byte[] {1, 2}});
+      rows.add(new Object[] {2, "tab\tnew line\nbackslash\\ ☃ 😎", new byte[] {0, 9}});
+      rows.add(new Object[] {3, null, null});
+
+      MariaDbBulkLoadResult result =
+          connection
+              .unwrap(MariaDbConnection.class)
+              .bulkLoader("BulkLoaderTest", "id", "test", "bin")
+              .load(rows);
+      assertEquals(3, result.getRowsLoaded());
+      assertEquals(3, result.getRowsSent());
+      assertEquals(0, result.getWarningCount());
+
+      ResultSet rs = stmt.executeQuery("SELECT * FROM BulkLoaderTest ORDER BY id");
+      assertTrue(rs.next());
+      assertEquals("simple", rs.getString(2));
+      assertArrayEquals(new byte[] {1, 2}, rs.getBytes(3));
+      assertTrue(rs.next());
+      assertEquals("tab\tnew line\nbackslash\\ ☃ 😎", rs.getString(2));
+      assertArrayEquals(new byte[] {0, 9}, rs.getBytes(3));
+      assertTrue(rs.next());
+      assertNull(rs.getString(2));
+      assertNull(rs.getBytes(3));
+      assertFalse(rs.next());
+    }
+  }
+
+  @Test
+  public void loadColumns() throws SQLException {
+    try (Connection connection = setConnection("&allowLocalInfile=true")) {
+      Statement stmt = connection.createStatement();
+      stmt.execute("TRUNCATE BulkLoaderTest");
+
+      int[] ids = new int[1000];
+      String[] values = new String[1000];
+      for (int i = 0; i < ids.length; i++) {
+        ids[i] = i;
+        values[i] = "value" + i;
+      }
+      MariaDbBulkLoadResult result =
+          connection
+              .unwrap(MariaDbConnection.class)
+              .bulkLoader("BulkLoaderTest", "id", "test")
+              .loadColumns(ids, values);
+      assertEquals(1000, result.getRowsLoaded());
+
+      ResultSet rs = stmt.executeQuery("SELECT count(*), max(test) FROM BulkLoaderTest");
+      assertTrue(rs.next());
+      assertEquals(1000, rs.getInt(1));
+      assertEquals("value999", rs.getString(2));
+    }
+  }
+
+  @Test
+  public void loadWrongRow() throws SQLException {
+    try (Connection connection = setConnection("&allowLocalInfile=true")) {
+      Statement stmt = connection.createStatement();
+      stmt.execute("TRUNCATE BulkLoaderTest");
+      Iterator<Object[]> rows = Arrays.asList(new Object[] {1, "ok"}, new Object[] {2}).iterator();
+      try {
+        connection
+            .unwrap(MariaDbConnection.class)
+            .bulkLoader("BulkLoaderTest", "id", "test")
+            .load(rows);
+        fail("must have thrown error");
+      } catch (SQLException sqle) {
+        assertTrue(sqle.getMessage().contains("Row 2 has 1 values, expected 2"));
+      }
+
+      // connection must still be usable
+      ResultSet rs = stmt.executeQuery("SELECT count(*) FROM BulkLoaderTest");
+      assertTrue(rs.next());
+      assertEquals(1, rs.getInt(1));
+    }
+  }
+
+  @Test
+  public void loadQuotedTableAndOffsetDateTime() throws SQLException {
+    try (Connection connection =
+        setConnection("&allowLocalInfile=true&serverTimezone=UTC&useLegacyDatetimeCode=false")) {
+      Statement stmt = connection.createStatement();
+      stmt.execute("TRUNCATE `BulkLoader``Test2`");
+
+      List<Object[]> rows = new ArrayList<>();
+      rows.add(
+          new Object[] {1, OffsetDateTime.of(2020, 1, 2, 12, 30, 15, 0, ZoneOffset.ofHours(2))});
+      MariaDbBulkLoadResult result =
+          connection
+              .unwrap(MariaDbConnection.class)
+              .bulkLoader("BulkLoader`Test2", "id", "dt")
+              .load(rows);
+      assertEquals(1, result.getRowsLoaded());
+      assertEquals(0, result.getWarningCount());
+
+      // offset value converted to server time zone
+      ResultSet rs =
+          stmt.executeQuery("SELECT DATE_FORMAT(dt, '%Y-%m-%d %H:%i:%s') FROM `BulkLoader``Test2`");
+      assertTrue(rs.next());
+      assertEquals("2020-01-02 10:30:15", rs.getString(1));
+    }
+  }
+}
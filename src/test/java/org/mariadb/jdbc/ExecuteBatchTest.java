@@ -324,6 +324,67 @@ public class ExecuteBatchTest extends BaseTest {
     assertFalse(resultSet.next());
   }
 
+  @Test
+  public void useBatchLoadData() throws SQLException {
+    Assume.assumeFalse(
+        (isMariadbServer() && minVersion(10, 4, 0)) || (!isMariadbServer() && minVersion(8, 0, 3)));
+    sharedConnection.createStatement().execute("TRUNCATE TABLE ExecuteBatchTest");
+    try (Connection connection =
+        setConnection(
+            "&allowLocalInfile=true&useBatchLoadData=true&useBatchLoadDataThreshold=10&profileSql="
+                + profileSql)) {
+      PreparedStatement preparedStatement =
+          connection.prepareStatement("INSERT INTO ExecuteBatchTest(test, test2) values (?, ?)");
+      addBatchData(preparedStatement, 100, connection);
+    }
+  }
+
+  @Test
+  public void useBatchLoadDataSkippedRows() throws SQLException {
+    Assume.assumeFalse(
+        (isMariadbServer() && minVersion(10, 4, 0)) || (!isMariadbServer() && minVersion(8, 0, 3)));
+    sharedConnection.createStatement().execute("TRUNCATE TABLE ExecuteBatchTest");
+    try (Connection connection =
+        setConnection(
+            "&allowLocalInfile=true&useBatchLoadData=true&useBatchLoadDataThreshold=10")) {
+      PreparedStatement preparedStatement =
+          connection.prepareStatement(
+              "INSERT INTO ExecuteBatchTest(id, test, test2) values (?, ?, ?)");
+      for (int i = 1; i <= 20; i++) {
+        // duplicate key : LOAD DATA LOCAL skips row with only a warning
+        preparedStatement.setInt(1, i == 15 ? 5 : i);
+        preparedStatement.setString(2, "row" + i);
+        preparedStatement.setInt(3, i);
+        preparedStatement.addBatch();
+      }
+      try {
+        preparedStatement.executeBatch();
+        fail("must have thrown BatchUpdateException");
+      } catch (BatchUpdateException e) {
+        assertTrue(e.getMessage().contains("inserted 19 rows for 20 batch rows"));
+        assertEquals(20, e.getUpdateCounts().length);
+        for (int updateCount : e.getUpdateCounts()) {
+          assertEquals(Statement.EXECUTE_FAILED, updateCount);
+        }
+      }
+
+      // truncated value : row inserted, but with a warning
+      for (int i = 21; i <= 40; i++) {
+        preparedStatement.setInt(1, i);
+        preparedStatement.setString(
+            2, i == 30 ? new String(new char[200]).replace('\0', 'a') : "a");
+        preparedStatement.setInt(3, i);
+        preparedStatement.addBatch();
+      }
+      try {
+        preparedStatement.executeBatch();
+        fail("must have thrown BatchUpdateException");
+      } catch (BatchUpdateException e) {
+        assertTrue(e.getMessage().contains("with warnings"));
+      }
+    }
+  }
+
   @Test
   public void useBatchMultiSend() throws Exception {
     Assume.assumeFalse(sharedIsAurora());
@@ -26,17 +26,23 @@ import static org.junit.Assert.*;
 
 import java.lang.management.ManagementFactory;
 import java.sql.*;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.management.MBeanInfo;
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
 import org.junit.Assume;
 import org.junit.Test;
+import org.mariadb.jdbc.internal.protocol.Protocol;
+import org.mariadb.jdbc.internal.util.pool.Pool;
 import org.mariadb.jdbc.internal.util.pool.Pools;
 import org.mariadb.jdbc.internal.util.scheduler.MariaDbThreadFactory;
 
@@ -248,7 +254,7 @@ public class MariaDbPoolDataSourceTest extends BaseTest {
         ObjectName name = objectNames.iterator().next();
 
         MBeanInfo info = server.getMBeanInfo(name);
-        assertEquals(4, info.getAttributes().length);
+        assertEquals(27, info.getAttributes().length);
 
         checkJmxInfo(server, name, 1, 1, 0, 0);
 
@@ -272,7 +278,7 @@ public class MariaDbPoolDataSourceTest extends BaseTest {
         ObjectName name = objectNames.iterator().next();
 
         MBeanInfo info = server.getMBeanInfo(name);
-        assertEquals(4, info.getAttributes().length);
+        assertEquals(27, info.getAttributes().length);
 
         // wait to ensure pool has time to create 5 connections
         try {
@@ -340,7 +346,7 @@ public class MariaDbPoolDataSourceTest extends BaseTest {
         ObjectName name = objectNames.iterator().next();
 
         MBeanInfo info = server.getMBeanInfo(name);
-        assertEquals(4, info.getAttributes().length);
+        assertEquals(27, info.getAttributes().length);
 
         // to ensure pool has time to create minimal connection number
         Thread.sleep(sharedIsAurora() ? 5000 : 500);
@@ -524,4 +530,431 @@ public class MariaDbPoolDataSourceTest extends BaseTest {
       }
     }
   }
+
+  @Test
+  public void parallelBatch() throws SQLException {
+    createTable("parallelBatch", "id int not null primary key, test varchar(20)");
+    try (MariaDbPoolDataSource pool = new MariaDbPoolDataSource(connUri + "&maxPoolSize=4")) {
+      List<Object[]> rows = new ArrayList<>();
+      for (int i = 0; i < 1000; i++) {
+        rows.add(new Object[] {i, "test" + i});
+      }
+
+      MariaDbParallelBatch batch = pool.parallelBatch("INSERT INTO parallelBatch VALUES (?, ?)");
+      batch.setChunkSize(100);
+      batch.setMaxChunksInFlight(3);
+      long[] updateCounts = batch.execute(rows);
+      assertEquals(1000, updateCounts.length);
+      for (long updateCount : updateCounts) {
+        assertTrue(updateCount == 1 || updateCount == Statement.SUCCESS_NO_INFO);
+      }
+
+      try (Connection connection = pool.getConnection()) {
+        ResultSet rs =
+            connection.createStatement().executeQuery("SELECT COUNT(*) FROM parallelBatch");
+        assertTrue(rs.next());
+        assertEquals(1000, rs.getInt(1));
+      }
+
+      // duplicate keys in chunk [200, 300[ : chunk is rolled back
+      rows.clear();
+      for (int i = 1000; i < 1500; i++) {
+        rows.add(new Object[] {i == 1250 ? 0 : i, "test" + i});
+      }
+      batch.setChunkTransaction(true);
+      try {
+        batch.execute(rows);
+        fail("must have thrown error");
+      } catch (BatchUpdateException bue) {
+        long[] counts = bue.getLargeUpdateCounts();
+        assertEquals(500, counts.length);
+        for (int i = 0; i < 500; i++) {
+          if (i >= 200 && i < 300) {
+            assertEquals(Statement.EXECUTE_FAILED, counts[i]);
+          } else {
+            assertNotEquals(Statement.EXECUTE_FAILED, counts[i]);
+          }
+        }
+      }
+
+      try (Connection connection = pool.getConnection()) {
+        ResultSet rs =
+            connection.createStatement().executeQuery("SELECT COUNT(*) FROM parallelBatch");
+        assertTrue(rs.next());
+        assertEquals(1400, rs.getInt(1));
+      }
+    }
+  }
+
+  @Test
+  public void keepAliveValidation() throws Throwable {
+    Assume.assumeTrue(System.getenv("MAXSCALE_VERSION") == null && System.getenv("SKYSQL") == null);
+    try (MariaDbPoolDataSource pool =
+        new MariaDbPoolDataSource(
+            connUri + "&maxPoolSize=2&minPoolSize=2&poolKeepAliveTime=200&poolName=keepAlive")) {
+      try (Connection connection = pool.getConnection()) {
+        connection.isValid(1);
+      }
+      Thread.sleep(500);
+
+      List<Long> threadIds = pool.testGetConnectionIdleThreadIds();
+      assertEquals(2, threadIds.size());
+
+      // kill an idle connection : background validation must replace it
+      try (Statement stmt = sharedConnection.createStatement()) {
+        stmt.execute("KILL " + threadIds.get(0));
+      }
+      Thread.sleep(1_000);
+
+      List<Long> newThreadIds = pool.testGetConnectionIdleThreadIds();
+      assertEquals(2, newThreadIds.size());
+      assertFalse(newThreadIds.contains(threadIds.get(0)));
+      assertTrue(newThreadIds.contains(threadIds.get(1)));
+    }
+  }
+
+  @Test
+  public void parallelPrefill() throws Throwable {
+    try (MariaDbPoolDataSource pool =
+        new MariaDbPoolDataSource(
+            connUri + "&maxPoolSize=10&minPoolSize=6&poolCreationConcurrency=3&poolName=prefill")) {
+      pool.prefill();
+      assertEquals(6, pool.testGetPool().getTotalConnections());
+      assertEquals(6, pool.testGetPool().getIdleConnections());
+
+      // already filled
+      pool.prefill();
+      assertEquals(6, pool.testGetPool().getTotalConnections());
+
+      try (Connection connection = pool.getConnection()) {
+        assertEquals(
+            sharedConnection.getTransactionIsolation(), connection.getTransactionIsolation());
+      }
+    }
+  }
+
+  @Test
+  public void creationRateLimit() throws Throwable {
+    long start = System.nanoTime();
+    try (MariaDbPoolDataSource pool =
+        new MariaDbPoolDataSource(
+            connUri
+                + "&maxPoolSize=4&minPoolSize=4&poolCreationConcurrency=4"
+                + "&poolCreationRate=10&poolName=creationRate")) {
+      pool.prefill();
+      assertEquals(4, pool.testGetPool().getTotalConnections());
+      // 4 connections at 10 per second : at least 300ms
+      assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 300);
+    }
+  }
+
+  @Test
+  public void asyncReset() throws SQLException {
+    try (MariaDbPoolDataSource pool =
+        new MariaDbPoolDataSource(connUri + "&maxPoolSize=1&poolAsyncReset=true")) {
+      long threadId;
+      try (Connection connection = pool.getConnection()) {
+        threadId = connection.unwrap(MariaDbConnection.class).getServerThreadId();
+        connection.setAutoCommit(false);
+        connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+      }
+
+      // same connection, only available once reset
+      try (Connection connection = pool.getConnection()) {
+        assertEquals(
+            threadId, (long) connection.unwrap(MariaDbConnection.class).getServerThreadId());
+        assertTrue(connection.getAutoCommit());
+        assertEquals(
+            sharedConnection.getTransactionIsolation(), connection.getTransactionIsolation());
+      }
+    }
+  }
+
+  @Test
+  public void skipResetWhenSessionUnchanged() throws Throwable {
+    Assume.assumeTrue(
+        isMariadbServer()
+            && (minVersion(10, 3, 13) || (!minVersion(10, 3, 0) && minVersion(10, 2, 22))));
+    try (MariaDbPoolDataSource pool =
+        new MariaDbPoolDataSource(
+            connUri
+                + "&maxPoolSize=1&useResetConnection=true"
+                + "&useServerPrepStmts=true&cachePrepStmts=true")) {
+      int cacheSize;
+      try (Connection connection = pool.getConnection()) {
+        PreparedStatement preparedStatement = connection.prepareStatement("SELECT ?");
+        preparedStatement.setInt(1, 1);
+        preparedStatement.executeQuery();
+        // restored by targeted reset
+        connection.setAutoCommit(false);
+        cacheSize = getProtocolFromConnection(connection).prepareStatementCache().size();
+        assertTrue(cacheSize > 0);
+      }
+
+      // session unchanged : no COM_RESET_CONNECTION, prepared statements are kept
+      try (Connection connection = pool.getConnection()) {
+        Protocol protocol = getProtocolFromConnection(connection);
+        assertEquals(cacheSize, protocol.prepareStatementCache().size());
+        assertTrue(connection.getAutoCommit());
+        connection.createStatement().execute("SET @str = '123'");
+      }
+
+      // user variable changed : session has been reset
+      try (Connection connection = pool.getConnection()) {
+        assertEquals(0, getProtocolFromConnection(connection).prepareStatementCache().size());
+        assertNull(getUserVariableStr(connection.createStatement()));
+      }
+    }
+  }
+
+  @Test
+  public void poolMetrics() throws Exception {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName filter = new ObjectName("org.mariadb.jdbc.pool:type=PoolTestMetrics-*");
+    try (MariaDbPoolDataSource pool =
+        new MariaDbPoolDataSource(
+            connUri
+                + "&maxPoolSize=2&minPoolSize=0&poolValidMinDelay=0&poolName=PoolTestMetrics")) {
+      AtomicInteger borrowed = new AtomicInteger();
+      AtomicInteger released = new AtomicInteger();
+      pool.addPoolListener(
+          new PoolListener() {
+            @Override
+            public void connectionBorrowed(String poolName, long waitNanos) {
+              borrowed.incrementAndGet();
+            }
+
+            @Override
+            public void connectionReleased(String poolName, long usageNanos) {
+              released.incrementAndGet();
+            }
+          });
+
+      for (int i = 0; i < 3; i++) {
+        try (Connection connection = pool.getConnection()) {
+          connection.createStatement().execute("SELECT 1");
+        }
+      }
+      assertEquals(3, borrowed.get());
+      assertEquals(3, released.get());
+
+      ObjectName name = server.queryNames(filter, null).iterator().next();
+      assertEquals(1L, server.getAttribute(name, "TotalConnections"));
+      // each borrowing either validates connection or skips validation
+      assertEquals(
+          3L,
+          (Long) server.getAttribute(name, "Validations")
+              + (Long) server.getAttribute(name, "ValidationsSkipped"));
+      assertTrue((Long) server.getAttribute(name, "CreationTimeMax") > 0);
+      assertTrue(
+          (Long) server.getAttribute(name, "BorrowWaitTimeP99")
+              <= (Long) server.getAttribute(name, "BorrowWaitTimeMax"));
+      assertEquals(0L, server.getAttribute(name, "BorrowTimeouts"));
+    }
+  }
+
+  @Test
+  public void adaptiveSizing() throws Throwable {
+    try (MariaDbPoolDataSource pool =
+        new MariaDbPoolDataSource(
+            connUri
+                + "&maxPoolSize=8&minPoolSize=1&poolAdaptiveSizing=true&poolTargetWaitTime=0"
+                + "&poolName=adaptiveSizing")) {
+      try (Connection connection = pool.getConnection();
+          Connection connection2 = pool.getConnection();
+          Connection connection3 = pool.getConnection()) {
+        assertEquals(3, pool.testGetPool().getTotalConnections());
+
+        // borrowing had to wait : pool grows ahead of demand
+        Thread.sleep(2_000);
+        assertTrue(pool.testGetPool().getTargetPoolSize() > 3);
+        assertTrue(pool.testGetPool().getTotalConnections() > 3);
+        assertTrue(pool.testGetPool().getIdleConnections() > 0);
+      }
+    }
+  }
+
+  @Test
+  public void connectionBudget() throws Throwable {
+    try (MariaDbPoolDataSource pool =
+            new MariaDbPoolDataSource(
+                connUri + "&maxPoolSize=4&minPoolSize=2&poolConnectionBudget=3&poolName=budget1");
+        MariaDbPoolDataSource pool2 =
+            new MariaDbPoolDataSource(
+                connUri + "&maxPoolSize=4&minPoolSize=2&poolConnectionBudget=3&poolName=budget2")) {
+      pool.prefill();
+      pool2.prefill();
+      assertEquals(2, pool.testGetPool().getTotalConnections());
+      // only one connection left in budget
+      assertEquals(1, pool2.testGetPool().getTotalConnections());
+    }
+  }
+
+  @Test
+  public void maxLifetimeRotation() throws Throwable {
+    Assume.assumeTrue(System.getenv("MAXSCALE_VERSION") == null && System.getenv("SKYSQL") == null);
+    try (MariaDbPoolDataSource pool =
+        new MariaDbPoolDataSource(
+            connUri + "&maxPoolSize=2&minPoolSize=2&maxLifetime=2&poolName=maxLifetime")) {
+      pool.prefill();
+      List<Long> initialThreadIds = pool.testGetConnectionIdleThreadIds();
+      assertEquals(2, initialThreadIds.size());
+
+      // used connections are not retired
+      try (Connection connection = pool.getConnection()) {
+        long threadId = connection.unwrap(MariaDbConnection.class).getServerThreadId();
+        Thread.sleep(4_000);
+        assertFalse(connection.isClosed());
+        assertEquals(
+            threadId, (long) connection.unwrap(MariaDbConnection.class).getServerThreadId());
+      }
+
+      Thread.sleep(4_000);
+      List<Long> threadIds = pool.testGetConnectionIdleThreadIds();
+      assertEquals(2, threadIds.size());
+      for (Long initialThread : initialThreadIds) {
+        assertFalse(threadIds.contains(initialThread));
+      }
+    }
+  }
+
+  @Test
+  public void credentialPools() throws Throwable {
+    Assume.assumeTrue(System.getenv("MAXSCALE_VERSION") == null && System.getenv("SKYSQL") == null);
+    Statement stmt = sharedConnection.createStatement();
+    if ((isMariadbServer() && minVersion(10, 2, 0))
+        || (!isMariadbServer() && minVersion(8, 0, 0))) {
+      stmt.execute("CREATE USER 'poolTenant'@'%' IDENTIFIED BY '!Passw0rd3Works'");
+      stmt.execute("GRANT SELECT ON " + database + ".* TO 'poolTenant'@'%'");
+    } else {
+      stmt.execute("CREATE USER 'poolTenant'@'%'");
+      stmt.execute(
+          "GRANT SELECT ON " + database + ".* TO 'poolTenant'@'%' IDENTIFIED BY '!Passw0rd3Works'");
+    }
+
+    try {
+      try (MariaDbPoolDataSource pool =
+          new MariaDbPoolDataSource(
+              connUri + "&maxPoolSize=3&minPoolSize=1&poolPerCredential&poolName=perCredential")) {
+        pool.prefill();
+        long threadId;
+        try (Connection connection = pool.getConnection("poolTenant", "!Passw0rd3Works")) {
+          threadId = connection.unwrap(MariaDbConnection.class).getServerThreadId();
+          assertTrue(currentUser(connection).startsWith("poolTenant@"));
+        }
+        // tenant connection is pooled
+        try (Connection connection = pool.getConnection("poolTenant", "!Passw0rd3Works")) {
+          assertEquals(
+              threadId, (long) connection.unwrap(MariaDbConnection.class).getServerThreadId());
+        }
+        assertEquals(1, pool.testGetPool().getTotalConnections());
+        assertEquals(2, pool.testGetPool().getGlobalConnections());
+      }
+
+      try (MariaDbPoolDataSource pool =
+          new MariaDbPoolDataSource(
+              connUri
+                  + "&maxPoolSize=1&minPoolSize=1&poolPerCredential&poolChangeUser"
+                  + "&poolName=changeUser")) {
+        pool.prefill();
+        long threadId;
+        try (Connection connection = pool.getConnection()) {
+          threadId = connection.unwrap(MariaDbConnection.class).getServerThreadId();
+        }
+
+        // maxPoolSize is reached : idle connection is reused with COM_CHANGE_USER
+        try (Connection connection = pool.getConnection("poolTenant", "!Passw0rd3Works")) {
+          assertEquals(
+              threadId, (long) connection.unwrap(MariaDbConnection.class).getServerThreadId());
+          assertTrue(currentUser(connection).startsWith("poolTenant@"));
+          // a reconnection would use new credentials
+          assertEquals(
+              "poolTenant",
+              connection
+                  .unwrap(MariaDbConnection.class)
+                  .getProtocol()
+                  .getUrlParser()
+                  .getUsername());
+        }
+
+        try (Connection connection = pool.getConnection()) {
+          assertEquals(
+              threadId, (long) connection.unwrap(MariaDbConnection.class).getServerThreadId());
+          assertTrue(currentUser(connection).startsWith(username + "@"));
+        }
+        assertEquals(1, pool.testGetPool().getGlobalConnections());
+      }
+    } finally {
+      stmt.execute("DROP USER 'poolTenant'@'%'");
+    }
+  }
+
+  private String currentUser(Connection connection) throws SQLException {
+    ResultSet rs = connection.createStatement().executeQuery("SELECT CURRENT_USER()");
+    assertTrue(rs.next());
+    return rs.getString(1);
+  }
+
+  @Test
+  public void asyncConnection() throws Throwable {
+    try (MariaDbPoolDataSource pool =
+        new MariaDbPoolDataSource(
+            connUri + "&maxPoolSize=1&minPoolSize=1&connectTimeout=500&poolName=asyncConnection")) {
+      pool.prefill();
+
+      CompletableFuture<Connection> idle = pool.getConnectionAsync();
+      assertTrue(idle.isDone());
+      Connection connection = idle.get();
+      long threadId = connection.unwrap(MariaDbConnection.class).getServerThreadId();
+
+      CompletableFuture<Connection> first = pool.getConnectionAsync();
+      CompletableFuture<Connection> second = pool.getConnectionAsync();
+      assertFalse(first.isDone());
+
+      // waiters are completed in FIFO order, directly on connection release
+      connection.close();
+      assertTrue(first.isDone());
+      assertFalse(second.isDone());
+      try (Connection firstConnection = first.get()) {
+        assertEquals(
+            threadId, (long) firstConnection.unwrap(MariaDbConnection.class).getServerThreadId());
+
+        try {
+          second.get(5, TimeUnit.SECONDS);
+          fail("must have thrown error");
+        } catch (ExecutionException executionException) {
+          assertTrue(executionException.getCause() instanceof SQLException);
+          assertTrue(
+              executionException
+                  .getCause()
+                  .getMessage()
+                  .contains("No connection available within the specified time"));
+        }
+      }
+      assertEquals(1, pool.testGetPool().getBorrowTimeouts());
+    }
+  }
+
+  @Test
+  public void asyncConnectionClosedPool() throws Throwable {
+    Pool internalPool;
+    try (MariaDbPoolDataSource pool =
+        new MariaDbPoolDataSource(
+            connUri
+                + "&maxPoolSize=1&minPoolSize=1&connectTimeout=5000&poolName=asyncConnectionClosed")) {
+      pool.prefill();
+      internalPool = pool.testGetPool();
+    }
+
+    // request is failed immediately, not when reaching "connectTimeout"
+    CompletableFuture<Connection> request = internalPool.getConnectionAsync();
+    assertTrue(request.isDone());
+    try {
+      request.get();
+      fail("must have thrown error");
+    } catch (ExecutionException executionException) {
+      assertTrue(executionException.getCause() instanceof SQLException);
+      assertTrue(executionException.getCause().getMessage().contains("is closed"));
+    }
+  }
 }
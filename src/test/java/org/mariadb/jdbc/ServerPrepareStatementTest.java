@@ -170,6 +170,111 @@ public class ServerPrepareStatementTest extends BaseTest {
     }
   }
 
+  @Test
+  public void prepareThreshold() throws Throwable {
+    try (Connection connection =
+        setConnection("&useServerPrepStmts=false&prepareThreshold=3&prepStmtCacheSize=10")) {
+      for (int i = 0; i < 3; i++) {
+        PreparedStatement preparedStatement = connection.prepareStatement("SELECT ?");
+        assertTrue(preparedStatement instanceof ClientSidePreparedStatement);
+        preparedStatement.setInt(1, i);
+        preparedStatement.execute();
+        preparedStatement.close();
+      }
+
+      // threshold reached : query is now prepared on server
+      PreparedStatement preparedStatement = connection.prepareStatement("SELECT ?");
+      assertTrue(preparedStatement instanceof ServerSidePreparedStatement);
+      preparedStatement.setInt(1, 5);
+      ResultSet rs = preparedStatement.executeQuery();
+      assertTrue(rs.next());
+      assertEquals(5, rs.getInt(1));
+
+      // other queries stay client side
+      assertTrue(connection.prepareStatement("SELECT ?, 1") instanceof ClientSidePreparedStatement);
+
+      // least recently used queries are evicted
+      for (int i = 0; i < 10; i++) {
+        connection.prepareStatement("SELECT " + i).execute();
+      }
+      assertTrue(connection.prepareStatement("SELECT ?") instanceof ClientSidePreparedStatement);
+    }
+  }
+
+  @Test
+  public void serverPrepMultiValuesRows() throws Throwable {
+    createTable("serverPrepMultiValuesRows", "id int, test varchar(10)");
+    try (Connection connection =
+        setConnection(
+            "&useServerPrepStmts=true&useBulkStmts=false&useBatchMultiSend=false"
+                + "&serverPrepMultiValuesRows=10")) {
+      PreparedStatement preparedStatement =
+          connection.prepareStatement("INSERT INTO serverPrepMultiValuesRows VALUES (?, ?)");
+      for (int i = 0; i < 25; i++) {
+        preparedStatement.setInt(1, i);
+        preparedStatement.setString(2, "test" + i);
+        preparedStatement.addBatch();
+      }
+      int[] updateCounts = preparedStatement.executeBatch();
+      assertEquals(25, updateCounts.length);
+      for (int updateCount : updateCounts) {
+        assertEquals(Statement.SUCCESS_NO_INFO, updateCount);
+      }
+
+      ResultSet rs =
+          connection
+              .createStatement()
+              .executeQuery("SELECT * FROM serverPrepMultiValuesRows ORDER BY id");
+      for (int i = 0; i < 25; i++) {
+        assertTrue(rs.next());
+        assertEquals(i, rs.getInt(1));
+        assertEquals("test" + i, rs.getString(2));
+      }
+      assertFalse(rs.next());
+
+      // only 10 rows statement is prepared, 5 remaining rows are sent with text protocol
+      Protocol protocol = getProtocolFromConnection(connection);
+      if (protocol.prepareStatementCache() != null) {
+        for (String key : protocol.prepareStatementCache().keySet()) {
+          assertFalse(key, key.endsWith("VALUES (?, ?),(?, ?),(?, ?),(?, ?),(?, ?)"));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void serverPrepMultiValuesRowsSmallBatch() throws Throwable {
+    createTable("serverPrepMultiValuesSmall", "id int, test varchar(10)");
+    try (Connection connection =
+        setConnection(
+            "&useServerPrepStmts=true&useBulkStmts=false&useBatchMultiSend=false"
+                + "&serverPrepMultiValuesRows=10")) {
+      PreparedStatement preparedStatement =
+          connection.prepareStatement("INSERT INTO serverPrepMultiValuesSmall VALUES (?, ?)");
+      for (int batch = 0; batch < 2; batch++) {
+        for (int i = 0; i < 4; i++) {
+          preparedStatement.setInt(1, batch * 4 + i);
+          preparedStatement.setString(2, "test" + i);
+          preparedStatement.addBatch();
+        }
+        // batch smaller than serverPrepMultiValuesRows is sent as one multi-values query,
+        // not executed row by row
+        int[] updateCounts = preparedStatement.executeBatch();
+        assertEquals(4, updateCounts.length);
+        for (int updateCount : updateCounts) {
+          assertEquals(Statement.SUCCESS_NO_INFO, updateCount);
+        }
+      }
+
+      ResultSet rs =
+          connection
+              .createStatement()
+              .executeQuery("SELECT COUNT(*) FROM serverPrepMultiValuesSmall");
+      assertTrue(rs.next());
+      assertEquals(8, rs.getInt(1));
+    }
+  }
+
   @Test
   public void prepStmtCacheSize() throws Throwable {
     Assume.assumeTrue(sharedOptions().useServerPrepStmts);
@@ -55,6 +55,7 @@ package org.mariadb.jdbc.failover;
 import static org.junit.Assert.*;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -122,6 +123,77 @@ public class ReplicationFailoverTest extends BaseReplication {
     }
   }
 
+  @Test
+  public void causalReads() throws SQLException {
+    try (Connection connection = getNewConnection("&causalReads=true", false)) {
+      Statement stmt = connection.createStatement();
+      stmt.execute("drop table if exists causalReads" + jobId);
+      stmt.execute("create table causalReads" + jobId + " (id int not null primary key)");
+      for (int i = 1; i <= 10; i++) {
+        connection.setReadOnly(false);
+        stmt.execute("insert into causalReads" + jobId + " values (" + i + ")");
+        connection.setReadOnly(true);
+        ResultSet rs = stmt.executeQuery("select count(*) from causalReads" + jobId);
+        assertTrue(rs.next());
+        assertEquals(i, rs.getInt(1));
+      }
+    }
+  }
+
+  @Test
+  public void causalReadsTimeoutStayOnMaster() throws Throwable {
+    try (Connection replica = getNewConnection(false);
+        Connection connection =
+            getNewConnection("&causalReads=true&causalReadsTimeout=100", false)) {
+      replica.setReadOnly(true);
+      Assume.assumeTrue(hasSuperPrivilege(replica, "causalReadsTimeoutStayOnMaster"));
+      Statement stmt = connection.createStatement();
+      final int masterServerId = getServerId(connection);
+      stmt.execute("drop table if exists causalReadsTimeout" + jobId);
+      stmt.execute("create table causalReadsTimeout" + jobId + " (id int not null primary key)");
+
+      // replica stops applying events: last write cannot be seen on replica
+      replica.createStatement().execute("STOP SLAVE SQL_THREAD");
+      try {
+        stmt.execute("insert into causalReadsTimeout" + jobId + " values (1)");
+        connection.setReadOnly(true);
+        assertEquals(masterServerId, getServerId(connection));
+        ResultSet rs = stmt.executeQuery("select count(*) from causalReadsTimeout" + jobId);
+        assertTrue(rs.next());
+        assertEquals(1, rs.getInt(1));
+      } finally {
+        replica.createStatement().execute("START SLAVE SQL_THREAD");
+      }
+    }
+  }
+
+  @Test
+  public void autoReadRoutingPinnedByPreparedSet() throws SQLException {
+    try (Connection connection =
+        getNewConnection("&autoReadRouting=true&useServerPrepStmts=true", false)) {
+      try (PreparedStatement prep = connection.prepareStatement("SET @routing = ?")) {
+        prep.setInt(1, 42);
+        prep.execute();
+      }
+      // variable only exists on master connection: SELECT must not be routed to replica anymore
+      ResultSet rs = connection.createStatement().executeQuery("SELECT @routing");
+      assertTrue(rs.next());
+      assertEquals(42, rs.getInt(1));
+    }
+  }
+
+  @Test
+  public void autoReadRoutingPinnedByBatch() throws SQLException {
+    try (Connection connection = getNewConnection("&autoReadRouting=true", false)) {
+      Statement stmt = connection.createStatement();
+      stmt.addBatch("SET @routingBatch = 43");
+      stmt.executeBatch();
+      ResultSet rs = stmt.executeQuery("SELECT @routingBatch");
+      assertTrue(rs.next());
+      assertEquals(43, rs.getInt(1));
+    }
+  }
+
   @Test
   public void pingReconnectAfterFailover() throws Throwable {
     try (Connection connection =
@@ -254,4 +326,91 @@ public class ReplicationFailoverTest extends BaseReplication {
       assertEquals(rs.getInt(1), 2);
     }
   }
+
+  @Test
+  public void transactionReplayed() throws Throwable {
+    try (Connection connection =
+            getNewConnection(
+                "&transactionReplay=true&retriesAllDown=6&connectTimeout=1000&socketTimeout=1000",
+                true);
+        Connection checkConnection = getNewConnection(false)) {
+      Statement st = connection.createStatement();
+      st.execute("drop table if exists transactionReplayed" + jobId);
+      st.execute(
+          "create table transactionReplayed"
+              + jobId
+              + " (id int not null primary key, amount int not null) ENGINE = InnoDB");
+      final int masterServerId = getServerId(connection);
+
+      connection.setAutoCommit(false);
+      st.execute("INSERT INTO transactionReplayed" + jobId + " VALUES (1, 10), (2, 20)");
+      ResultSet rs = st.executeQuery("SELECT SUM(amount) FROM transactionReplayed" + jobId);
+      assertTrue(rs.next());
+      assertEquals(30, rs.getInt(1));
+
+      // master connection is killed : transaction is replayed, then failing insert is relaunched
+      stopProxy(masterServerId, 2);
+      st.execute("INSERT INTO transactionReplayed" + jobId + " VALUES (3, 30)");
+      assertEquals(masterServerId, getServerId(connection));
+      connection.commit();
+
+      rs =
+          checkConnection
+              .createStatement()
+              .executeQuery("SELECT COUNT(*), SUM(amount) FROM transactionReplayed" + jobId);
+      assertTrue(rs.next());
+      assertEquals(3, rs.getInt(1));
+      assertEquals(60, rs.getInt(2));
+      checkConnection.createStatement().execute("drop table if exists transactionReplayed" + jobId);
+    }
+  }
+
+  @Test
+  public void transactionReplayAborted() throws Throwable {
+    try (Connection connection =
+            getNewConnection(
+                "&transactionReplay=true&retriesAllDown=6&connectTimeout=1000&socketTimeout=1000",
+                true);
+        Connection otherConnection = getNewConnection(false)) {
+      Statement st = connection.createStatement();
+      st.execute("drop table if exists transactionReplayAborted" + jobId);
+      st.execute(
+          "create table transactionReplayAborted"
+              + jobId
+              + " (id int not null primary key, amount int not null) ENGINE = InnoDB");
+      final int masterServerId = getServerId(connection);
+
+      connection.setAutoCommit(false);
+      st.execute("INSERT INTO transactionReplayAborted" + jobId + " VALUES (1, 10), (2, 20)");
+      ResultSet rs = st.executeQuery("SELECT SUM(amount) FROM transactionReplayAborted" + jobId);
+      assertTrue(rs.next());
+      assertEquals(30, rs.getInt(1));
+
+      // data read by transaction changes : replayed SELECT has a different result
+      otherConnection
+          .createStatement()
+          .execute("INSERT INTO transactionReplayAborted" + jobId + " VALUES (100, 1000)");
+
+      stopProxy(masterServerId, 2);
+      try {
+        st.execute("INSERT INTO transactionReplayAborted" + jobId + " VALUES (3, 30)");
+        fail("must have thrown error");
+      } catch (SQLException e) {
+        assertEquals("25S03", e.getSQLState());
+      }
+
+      // replayed part of transaction has been rolled back
+      connection.commit();
+      rs =
+          otherConnection
+              .createStatement()
+              .executeQuery("SELECT COUNT(*), SUM(amount) FROM transactionReplayAborted" + jobId);
+      assertTrue(rs.next());
+      assertEquals(1, rs.getInt(1));
+      assertEquals(1000, rs.getInt(2));
+      otherConnection
+          .createStatement()
+          .execute("drop table if exists transactionReplayAborted" + jobId);
+    }
+  }
 }
@@ -0,0 +1,111 @@
+/*
+ *
+ * MariaDB Client for Java
+ *
+ * Copyright (c) 2012-2014 Monty Program Ab.
+ * Copyright (c) 2015-2020 MariaDB Corporation Ab.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this library; if not, write to Monty Program Ab info@montyprogram.com.
+ *
+ * This particular MariaDB Client for Java file is work
+ * derived from a Drizzle-JDBC. Drizzle-JDBC file which is covered by subject to
+ * the following copyright and notice provisions:
+ *
+ * Copyright (c) 2009-2011, Marcus Eriksson
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this list
+ * of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this
+ * list of conditions and the following disclaimer in the documentation and/or
+ * other materials provided with the distribution.
+ *
+ * Neither the name of the driver nor the names of its contributors may not be
+ * used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS  AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package org.mariadb.jdbc.internal.com.send;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.mariadb.jdbc.internal.com.send.parameters.IntParameter;
+import org.mariadb.jdbc.internal.com.send.parameters.ParameterHolder;
+import org.mariadb.jdbc.internal.com.send.parameters.StringParameter;
+import org.mariadb.jdbc.internal.io.output.StandardPacketOutputStream;
+import org.mariadb.jdbc.util.Options;
+
+public class ComQueryTest {
+
+  private static String repeat(char character, int length) {
+    char[] chars = new char[length];
+    Arrays.fill(chars, character);
+    return new String(chars);
+  }
+
+  @Test
+  public void loadDataRowsSequence() throws Exception {
+    // second row is bigger than a packet, third row doesn't fit in remaining packet space
+    String big = repeat('x', 17 * 1024 * 1024);
+    String medium = repeat('y', 6 * 1024 * 1024);
+    List<ParameterHolder[]> rows =
+        Arrays.asList(
+            new ParameterHolder[] {new IntParameter(1), new StringParameter("a", false)},
+            new ParameterHolder[] {new IntParameter(2), new StringParameter(big, false)},
+            new ParameterHolder[] {new IntParameter(3), new StringParameter(medium, false)},
+            new ParameterHolder[] {new IntParameter(4), new StringParameter("b", false)});
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ComQuery.sendLoadDataRows(new StandardPacketOutputStream(out, new Options(), 1), 2, rows);
+
+    byte[] bytes = out.toByteArray();
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+    int position = 0;
+    int expectedSeq = 2;
+    int length = -1;
+    while (position < bytes.length) {
+      length =
+          (bytes[position] & 0xff)
+              + ((bytes[position + 1] & 0xff) << 8)
+              + ((bytes[position + 2] & 0xff) << 16);
+      assertEquals(expectedSeq++ & 0xff, bytes[position + 3] & 0xff);
+      content.write(bytes, position + 4, length);
+      position += 4 + length;
+    }
+    // content ends with an empty packet
+    assertEquals(0, length);
+    assertEquals(
+        "1,'a'\n2,'" + big + "'\n3,'" + medium + "'\n4,'b'\n",
+        new String(content.toByteArray(), StandardCharsets.UTF_8));
+  }
+}
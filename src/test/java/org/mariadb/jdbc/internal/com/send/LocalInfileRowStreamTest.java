@@ -0,0 +1,123 @@
+/*
+ *
+ * MariaDB Client for Java
+ *
+ * Copyright (c) 2012-2014 Monty Program Ab.
+ * Copyright (c) 2015-2020 MariaDB Corporation Ab.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this library; if not, write to Monty Program Ab info@montyprogram.com.
+ *
+ * This particular MariaDB Client for Java file is work
+ * derived from a Drizzle-JDBC. Drizzle-JDBC file which is covered by subject to
+ * the following copyright and notice provisions:
+ *
+ * Copyright (c) 2009-2011, Marcus Eriksson
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this list
+ * of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this
+ * list of conditions and the following disclaimer in the documentation and/or
+ * other materials provided with the distribution.
+ *
+ * Neither the name of the driver nor the names of its contributors may not be
+ * used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS  AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package org.mariadb.jdbc.internal.com.send;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Date;
+import org.junit.Test;
+
+public class LocalInfileRowStreamTest {
+
+  private static String encode(ZoneId zoneId, Object[]... rows) throws Exception {
+    LocalInfileRowStream stream =
+        new LocalInfileRowStream(Arrays.asList(rows).iterator(), rows[0].length, zoneId);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buf = new byte[16];
+    int len;
+    while ((len = stream.read(buf, 0, buf.length)) != -1) {
+      out.write(buf, 0, len);
+    }
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void instantsInSessionZone() throws Exception {
+    Instant instant = Instant.parse("2020-01-15T10:20:30.123456789Z");
+    Timestamp timestamp = Timestamp.from(instant);
+    Date date = Date.from(instant);
+    assertEquals(
+        "2020-01-15 11:20:30.123456\t2020-01-15 11:20:30.123000\n",
+        encode(ZoneId.of("Europe/Paris"), new Object[] {timestamp, date}));
+    assertEquals(
+        "2020-01-15 05:20:30.123456\n", encode(ZoneOffset.ofHours(-5), new Object[] {timestamp}));
+  }
+
+  @Test
+  public void offsetTime() throws Exception {
+    OffsetTime time = OffsetTime.parse("10:20:30+01:00");
+    assertEquals("11:20:30.000000\n", encode(ZoneOffset.ofHours(2), new Object[] {time}));
+    assertEquals("09:20:30.000000\n", encode(ZoneId.of("UTC"), new Object[] {time}));
+  }
+
+  @Test
+  public void offsetTimeNonFixedZone() throws Exception {
+    OffsetTime time = OffsetTime.parse("10:20:30+01:00");
+    LocalInfileRowStream stream =
+        new LocalInfileRowStream(
+            Arrays.asList(new Object[] {"a", "b"}, new Object[] {"c", time}).iterator(),
+            2,
+            ZoneId.of("Europe/Paris"));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    int value;
+    while ((value = stream.read()) != -1) {
+      out.write(value);
+    }
+
+    // failing row is not partially sent
+    assertEquals("a\tb\n", new String(out.toByteArray(), StandardCharsets.UTF_8));
+    assertEquals(1, stream.getRowCounter());
+    assertNotNull(stream.getException());
+    assertTrue(stream.getException().getMessage().contains("has no fixed offset"));
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ *
+ * MariaDB Client for Java
+ *
+ * Copyright (c) 2012-2014 Monty Program Ab.
+ * Copyright (c) 2015-2020 MariaDB Corporation Ab.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this library; if not, write to Monty Program Ab info@montyprogram.com.
+ *
+ * This particular MariaDB Client for Java file is work
+ * derived from a Drizzle-JDBC. Drizzle-JDBC file which is covered by subject to
+ * the following copyright and notice provisions:
+ *
+ * Copyright (c) 2009-2011, Marcus Eriksson
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this list
+ * of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this
+ * list of conditions and the following disclaimer in the documentation and/or
+ * other materials provided with the distribution.
+ *
+ * Neither the name of the driver nor the names of its contributors may not be
+ * used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS  AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package org.mariadb.jdbc.internal.failover.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.mariadb.jdbc.UrlParser;
+import org.mariadb.jdbc.internal.util.pool.GlobalStateInfo;
+
+public class MastersSlavesListenerTest {
+
+  @Test
+  public void gtidWaitQuery() {
+    assertEquals(
+        "SELECT MASTER_GTID_WAIT('0-1-42,1-2-3',0.5)",
+        MastersSlavesListener.gtidWaitQuery("0-1-42,1-2-3", true, 500));
+    assertEquals(
+        "SELECT WAIT_FOR_EXECUTED_GTID_SET('3e11fa47-71ca-11e1-9e33-c80aa9429562:1-5',0.02)",
+        MastersSlavesListener.gtidWaitQuery("3e11fa47-71ca-11e1-9e33-c80aa9429562:1-5", false, 20));
+    // zero timeout: only check if already applied
+    assertEquals(
+        "SELECT MASTER_GTID_WAIT('0-1-42',0.0)",
+        MastersSlavesListener.gtidWaitQuery("0-1-42", true, 0));
+  }
+
+  @Test
+  public void invalidGtidNotSent() {
+    assertNull(MastersSlavesListener.gtidWaitQuery("0-1-42') OR SLEEP(10) #", true, 500));
+    assertNull(MastersSlavesListener.gtidWaitQuery("abc'def", false, 500));
+  }
+
+  @Test
+  public void readRoutingPin() {
+    assertTrue(MastersSlavesListener.pinsReadRouting("SET @a = ?"));
+    assertTrue(MastersSlavesListener.pinsReadRouting("  set session sql_mode = ''"));
+    assertTrue(MastersSlavesListener.pinsReadRouting("CREATE TEMPORARY TABLE t (id int)"));
+    assertTrue(MastersSlavesListener.pinsReadRouting("/* comment */ SET @a = 1"));
+    assertTrue(MastersSlavesListener.pinsReadRouting("-- comment\nSET @a = 1"));
+    assertTrue(
+        MastersSlavesListener.pinsReadRouting("# comment\n  create temporary table t (a int)"));
+    assertTrue(MastersSlavesListener.pinsReadRouting("/* a */ -- b\n# c\n--\nSET @a = 1"));
+    // multi-statement query
+    assertTrue(MastersSlavesListener.pinsReadRouting("INSERT INTO t VALUES (1); SET @a = 1"));
+    assertTrue(
+        MastersSlavesListener.pinsReadRouting("SELECT 1;\ncreate temporary table t (a int)"));
+
+    assertFalse(MastersSlavesListener.pinsReadRouting("SELECT * FROM t"));
+    assertFalse(MastersSlavesListener.pinsReadRouting("UPDATE t SET a = 1"));
+    assertFalse(MastersSlavesListener.pinsReadRouting("CREATE TABLE t (id int)"));
+    assertFalse(MastersSlavesListener.pinsReadRouting("SET autocommit = 0"));
+    assertFalse(MastersSlavesListener.pinsReadRouting("SET SESSION TRANSACTION READ ONLY"));
+    assertFalse(MastersSlavesListener.pinsReadRouting(null));
+    // "--" not followed by a space is not a comment
+    assertFalse(MastersSlavesListener.pinsReadRouting("--1\nSET @a = 1"));
+    assertFalse(MastersSlavesListener.pinsReadRouting("-- SET @a = 1\nSELECT 1"));
+  }
+
+  @Test
+  public void readRoutingPinClearedOnSessionReset() throws Exception {
+    MastersSlavesListener listener =
+        new MastersSlavesListener(
+            UrlParser.parse(
+                "jdbc:mariadb:replication://localhost:1,localhost:2/testj?autoReadRouting"),
+            new GlobalStateInfo());
+    listener.checkReadRoutingPin("SELECT 1");
+    assertFalse(listener.isReadRoutingPinned());
+    listener.checkReadRoutingPin("SET @a = 1");
+    assertTrue(listener.isReadRoutingPinned());
+
+    listener.reset();
+    assertFalse(listener.isReadRoutingPinned());
+
+    listener.checkReadRoutingPin("CREATE TEMPORARY TABLE t (id int)");
+    assertTrue(listener.isReadRoutingPinned());
+    listener.changeCredentials("otherUser", "otherPassword");
+    assertFalse(listener.isReadRoutingPinned());
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ *
+ * MariaDB Client for Java
+ *
+ * Copyright (c) 2012-2014 Monty Program Ab.
+ * Copyright (c) 2015-2020 MariaDB Corporation Ab.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this library; if not, write to Monty Program Ab info@montyprogram.com.
+ *
+ * This particular MariaDB Client for Java file is work
+ * derived from a Drizzle-JDBC. Drizzle-JDBC file which is covered by subject to
+ * the following copyright and notice provisions:
+ *
+ * Copyright (c) 2009-2011, Marcus Eriksson
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this list
+ * of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this
+ * list of conditions and the following disclaimer in the documentation and/or
+ * other materials provided with the distribution.
+ *
+ * Neither the name of the driver nor the names of its contributors may not be
+ * used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS  AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package org.mariadb.jdbc.internal.failover.thread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import org.junit.Test;
+import org.mariadb.jdbc.HostAddress;
+import org.mariadb.jdbc.UrlParser;
+import org.mariadb.jdbc.internal.failover.tools.ClusterTopology;
+
+public class ClusterMonitorTest {
+
+  private static final String URL =
+      "jdbc:mariadb:replication://localhost:1,localhost:2/testj?connectTimeout=100"
+          + "&maxReplicationLag=5&replicationLagCheckInterval=60";
+
+  private final HostAddress master = new HostAddress("localhost", 1);
+  private final HostAddress replica = new HostAddress("localhost", 2);
+
+  @Test
+  public void keyIncludeCredentials() throws SQLException {
+    UrlParser user1 = UrlParser.parse(URL + "&user=user1&password=pwd1");
+    assertEquals(
+        ClusterMonitor.key(user1),
+        ClusterMonitor.key(UrlParser.parse(URL + "&user=user1&password=pwd1")));
+    assertFalse(
+        ClusterMonitor.key(user1)
+            .equals(ClusterMonitor.key(UrlParser.parse(URL + "&user=user2&password=pwd1"))));
+    assertFalse(
+        ClusterMonitor.key(user1)
+            .equals(ClusterMonitor.key(UrlParser.parse(URL + "&user=user1&password=pwd2"))));
+    assertFalse(ClusterMonitor.key(user1).toString().contains("pwd1"));
+  }
+
+  @Test
+  public void lagPerMonitor() throws SQLException {
+    UrlParser urlParser = UrlParser.parse(URL + "&user=user1&password=pwd1");
+    ClusterMonitor monitor1 = new ClusterMonitor(ClusterMonitor.key(urlParser), urlParser);
+    ClusterMonitor monitor2 = new ClusterMonitor(ClusterMonitor.key(urlParser), urlParser);
+
+    assertEquals(-1, monitor1.getLag(replica));
+    assertFalse(monitor1.isLagging(replica, 5));
+
+    monitor1.setLag(master, 0);
+    monitor1.setLag(replica, 10);
+    assertTrue(monitor1.isLagging(replica, 5));
+    assertFalse(monitor1.isLagging(replica, 10));
+    assertFalse(monitor1.isLagging(master, 5));
+    assertEquals(-1, monitor2.getLag(replica));
+
+    monitor2.setLag(replica, ClusterMonitor.REPLICATION_STOPPED);
+    assertTrue(monitor2.isLagging(replica, Integer.MAX_VALUE));
+    assertEquals(10, monitor1.getLag(replica));
+
+    // failed check: lag is unknown again
+    monitor1.setLag(replica, -1);
+    assertEquals(-1, monitor1.getLag(replica));
+    assertFalse(monitor1.isLagging(replica, 5));
+  }
+
+  @Test
+  public void topologyPublishedWhenEveryHostChecked() throws SQLException {
+    UrlParser urlParser = UrlParser.parse(URL + "&user=user1&password=pwd1");
+    ClusterMonitor monitor = new ClusterMonitor(ClusterMonitor.key(urlParser), urlParser);
+
+    monitor.hostChecked(master, Boolean.TRUE);
+    assertNull(monitor.getTopology());
+
+    monitor.hostChecked(replica, Boolean.FALSE);
+    ClusterTopology topology = monitor.getTopology();
+    assertEquals(master, topology.getWriter());
+    assertEquals(new LinkedHashSet<>(Arrays.asList(master, replica)), topology.getReachable());
+    assertTrue(topology.getUnreachable().isEmpty());
+    assertTrue(topology.hasReachableReader());
+
+    // same state: topology is not published again
+    monitor.hostChecked(master, Boolean.TRUE);
+    assertSame(topology, monitor.getTopology());
+
+    monitor.hostChecked(replica, null);
+    topology = monitor.getTopology();
+    assertEquals(master, topology.getWriter());
+    assertEquals(new LinkedHashSet<>(Arrays.asList(replica)), topology.getUnreachable());
+    assertFalse(topology.hasReachableReader());
+  }
+
+  @Test
+  public void registration() throws SQLException {
+    UrlParser user1 = UrlParser.parse(URL + "&user=user1&password=pwd1");
+    UrlParser user2 = UrlParser.parse(URL + "&user=user2&password=pwd2");
+    ClusterMonitor monitor1 = ClusterMonitor.register(user1, null);
+    ClusterMonitor shared =
+        ClusterMonitor.register(UrlParser.parse(URL + "&user=user1&password=pwd1"), null);
+    ClusterMonitor monitor2 = ClusterMonitor.register(user2, null);
+    try {
+      assertSame(monitor1, shared);
+      assertNotSame(monitor1, monitor2);
+
+      monitor1.unregister(user1, null);
+      assertFalse(shared.isClosed());
+
+      shared.unregister(user1, null);
+      assertTrue(monitor1.isClosed());
+      assertFalse(monitor2.isClosed());
+
+      // closed monitor doesn't keep lag published by a check still running
+      monitor1.setLag(replica, 10);
+      assertEquals(-1, monitor1.getLag(replica));
+    } finally {
+      monitor2.unregister(user2, null);
+    }
+    assertTrue(monitor2.isClosed());
+  }
+
+  @Test
+  public void lagAndTopologyShareMonitor() throws Exception {
+    UrlParser lagOnly = UrlParser.parse(URL + "&user=user3&password=pwd3");
+    UrlParser topologyOnly =
+        UrlParser.parse(
+            "jdbc:mariadb:replication://localhost:1,localhost:2/testj?connectTimeout=100"
+                + "&topologyRefreshInterval=60&user=user3&password=pwd3");
+    CountDownLatch published = new CountDownLatch(1);
+    AtomicReference<ClusterTopology> received = new AtomicReference<>();
+    Consumer<ClusterTopology> consumer =
+        topology -> {
+          received.set(topology);
+          published.countDown();
+        };
+
+    ClusterMonitor monitor = ClusterMonitor.register(lagOnly, null);
+    try {
+      assertSame(monitor, ClusterMonitor.register(topologyOnly, consumer));
+      try {
+        // no server listen on these ports: both hosts are reported unreachable
+        assertTrue(published.await(10, TimeUnit.SECONDS));
+        assertNull(received.get().getWriter());
+        assertEquals(
+            new LinkedHashSet<>(Arrays.asList(master, replica)), received.get().getUnreachable());
+        assertSame(received.get(), monitor.getTopology());
+      } finally {
+        monitor.unregister(topologyOnly, consumer);
+      }
+      assertFalse(monitor.isClosed());
+    } finally {
+      monitor.unregister(lagOnly, null);
+    }
+    assertTrue(monitor.isClosed());
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ *
+ * MariaDB Client for Java
+ *
+ * Copyright (c) 2012-2014 Monty Program Ab.
+ * Copyright (c) 2015-2020 MariaDB Corporation Ab.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this library; if not, write to Monty Program Ab info@montyprogram.com.
+ *
+ * This particular MariaDB Client for Java file is work
+ * derived from a Drizzle-JDBC. Drizzle-JDBC file which is covered by subject to
+ * the following copyright and notice provisions:
+ *
+ * Copyright (c) 2009-2011, Marcus Eriksson
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this list
+ * of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this
+ * list of conditions and the following disclaimer in the documentation and/or
+ * other materials provided with the distribution.
+ *
+ * Neither the name of the driver nor the names of its contributors may not be
+ * used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS  AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package org.mariadb.jdbc.internal.failover.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+import org.mariadb.jdbc.HostAddress;
+
+public class ClusterTopologyTest {
+
+  private final HostAddress master = new HostAddress("master", 3306);
+  private final HostAddress replica = new HostAddress("replica", 3306);
+
+  private static Set<HostAddress> set(HostAddress... hostAddresses) {
+    return new HashSet<>(Arrays.asList(hostAddresses));
+  }
+
+  @Test
+  public void equality() {
+    ClusterTopology topology =
+        new ClusterTopology(
+            master, set(master), set(replica), "instance-1", Arrays.asList("instance-1"));
+    ClusterTopology same =
+        new ClusterTopology(
+            master, set(master), set(replica), "instance-1", Arrays.asList("instance-1"));
+    assertEquals(topology, same);
+    assertEquals(topology.hashCode(), same.hashCode());
+
+    assertFalse(
+        topology.equals(
+            new ClusterTopology(
+                null, set(master), set(replica), "instance-1", Arrays.asList("instance-1"))));
+    assertFalse(
+        topology.equals(
+            new ClusterTopology(
+                master, set(master, replica), set(), "instance-1", Arrays.asList("instance-1"))));
+    assertFalse(
+        topology.equals(
+            new ClusterTopology(
+                master,
+                set(master),
+                set(replica),
+                "instance-2",
+                Arrays.asList("instance-1", "instance-2"))));
+  }
+
+  @Test
+  public void reachableReader() {
+    assertTrue(
+        new ClusterTopology(
+                master, set(master, replica), set(), null, Collections.<String>emptyList())
+            .hasReachableReader());
+    assertFalse(
+        new ClusterTopology(
+                master, set(master), set(replica), null, Collections.<String>emptyList())
+            .hasReachableReader());
+    // no writer: any reachable host can be used as reader
+    assertTrue(
+        new ClusterTopology(null, set(master), set(replica), null, Collections.<String>emptyList())
+            .hasReachableReader());
+    assertFalse(
+        new ClusterTopology(
+                null, set(), set(master, replica), null, Collections.<String>emptyList())
+            .hasReachableReader());
+  }
+
+  @Test
+  public void immutable() {
+    Set<HostAddress> reachable = set(master);
+    ClusterTopology topology =
+        new ClusterTopology(master, reachable, set(), null, Collections.<String>emptyList());
+    reachable.add(replica);
+    assertEquals(set(master), topology.getReachable());
+  }
+}
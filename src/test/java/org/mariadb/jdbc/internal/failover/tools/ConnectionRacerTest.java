@@ -0,0 +1,238 @@
+/*
+ *
+ * MariaDB Client for Java
+ *
+ * Copyright (c) 2012-2014 Monty Program Ab.
+ * Copyright (c) 2015-2020 MariaDB Corporation Ab.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this library; if not, write to Monty Program Ab info@montyprogram.com.
+ *
+ * This particular MariaDB Client for Java file is work
+ * derived from a Drizzle-JDBC. Drizzle-JDBC file which is covered by subject to
+ * the following copyright and notice provisions:
+ *
+ * Copyright (c) 2009-2011, Marcus Eriksson
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this list
+ * of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this
+ * list of conditions and the following disclaimer in the documentation and/or
+ * other materials provided with the distribution.
+ *
+ * Neither the name of the driver nor the names of its contributors may not be
+ * used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS  AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package org.mariadb.jdbc.internal.failover.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mariadb.jdbc.HostAddress;
+import org.mariadb.jdbc.UrlParser;
+import org.mariadb.jdbc.internal.failover.AbstractMastersListener;
+import org.mariadb.jdbc.internal.failover.impl.MastersSlavesListener;
+import org.mariadb.jdbc.internal.protocol.MasterProtocol;
+import org.mariadb.jdbc.internal.util.pool.GlobalStateInfo;
+
+public class ConnectionRacerTest {
+
+  private final HostAddress host1 = new HostAddress("localhost", 1);
+  private final HostAddress host2 = new HostAddress("localhost", 2);
+  private final HostAddress host3 = new HostAddress("localhost", 3);
+
+  // connection duration in ms by host, negative for a failure
+  private final Map<HostAddress, Integer> durations = new HashMap<>();
+  private final List<HostAddress> started = new CopyOnWriteArrayList<>();
+  private final List<HostAddress> closed = new CopyOnWriteArrayList<>();
+
+  private UrlParser urlParser;
+  private MastersSlavesListener listener;
+
+  @Before
+  public void before() throws SQLException {
+    AbstractMastersListener.clearBlacklist();
+    urlParser = UrlParser.parse("jdbc:mariadb:replication://localhost:1,localhost:2/testj");
+    listener = new MastersSlavesListener(urlParser, new GlobalStateInfo());
+  }
+
+  @After
+  public void after() {
+    AbstractMastersListener.clearBlacklist();
+  }
+
+  private FakeProtocol protocol(HostAddress host) {
+    FakeProtocol protocol = new FakeProtocol(urlParser);
+    protocol.setHostAddress(host);
+    return protocol;
+  }
+
+  private ConnectionRacer<FakeProtocol> racer(long delay, HostAddress skipped) {
+    return new ConnectionRacer<>(listener, this::protocol, delay, host -> host.equals(skipped));
+  }
+
+  @Test
+  public void attemptsInFlightAreKept() throws SQLException {
+    durations.put(host1, 300);
+    durations.put(host2, 0);
+    durations.put(host3, -1);
+    ConnectionRacer<FakeProtocol> racer = racer(50, null);
+    Deque<HostAddress> loopHosts = new ArrayDeque<>(Arrays.asList(host2, host3));
+    try {
+      assertEquals(host2, racer.connect(protocol(host1), loopHosts).getHostAddress());
+      // remaining hosts belong to racer: search loop must not attempt them again
+      assertTrue(loopHosts.isEmpty());
+      assertTrue(racer.hasAttempts());
+
+      // host1 still connecting: waited for, even if host3 fails meanwhile
+      assertEquals(host1, racer.next().getHostAddress());
+      assertFalse(racer.hasAttempts());
+      assertEquals(Arrays.asList(host1, host2, host3), started);
+      assertTrue(listener.getBlacklistKeys().contains(host3));
+      assertFalse(listener.getBlacklistKeys().contains(host1));
+    } finally {
+      racer.close();
+    }
+  }
+
+  @Test
+  public void allAttemptsFail() {
+    durations.put(host1, -20);
+    durations.put(host2, -1);
+    ConnectionRacer<FakeProtocol> racer = racer(1000, null);
+    try {
+      racer.connect(protocol(host1), new ArrayDeque<>(Collections.singletonList(host2)));
+      fail("must have thrown exception");
+    } catch (SQLException sqle) {
+      // next host started immediately after failure, without waiting for delay
+      assertEquals(Arrays.asList(host1, host2), started);
+      assertTrue(listener.getBlacklistKeys().containsAll(Arrays.asList(host1, host2)));
+      assertFalse(racer.hasAttempts());
+    } finally {
+      racer.close();
+    }
+  }
+
+  @Test
+  public void skippedHostNotAttempted() throws SQLException {
+    durations.put(host1, -1);
+    durations.put(host2, 0);
+    durations.put(host3, 0);
+    ConnectionRacer<FakeProtocol> racer = racer(1000, host2);
+    try {
+      FakeProtocol protocol =
+          racer.connect(protocol(host1), new ArrayDeque<>(Arrays.asList(host2, host3)));
+      assertEquals(host3, protocol.getHostAddress());
+      assertFalse(racer.hasAttempts());
+      assertEquals(Arrays.asList(host1, host3), started);
+    } finally {
+      racer.close();
+    }
+  }
+
+  @Test
+  public void closeLateConnections() throws Exception {
+    durations.put(host1, 200);
+    durations.put(host2, 0);
+    ConnectionRacer<FakeProtocol> racer = racer(10, null);
+    FakeProtocol protocol =
+        racer.connect(protocol(host1), new ArrayDeque<>(Collections.singletonList(host2)));
+    assertEquals(host2, protocol.getHostAddress());
+    racer.close();
+
+    long end = System.currentTimeMillis() + 5000;
+    while (closed.isEmpty() && System.currentTimeMillis() < end) {
+      Thread.sleep(10);
+    }
+    assertEquals(Collections.singletonList(host1), closed);
+  }
+
+  @Test
+  public void removedHostNotAttempted() throws SQLException {
+    durations.put(host1, 0);
+    durations.put(host2, 0);
+    durations.put(host3, 0);
+    ConnectionRacer<FakeProtocol> racer = racer(1000, null);
+    try {
+      FakeProtocol protocol = protocol(host1);
+      assertSame(protocol, racer.connect(protocol, new ArrayDeque<>(Arrays.asList(host2, host3))));
+      racer.removeHost(host2);
+      assertTrue(racer.hasAttempts());
+      assertEquals(host3, racer.next().getHostAddress());
+      assertFalse(racer.hasAttempts());
+      assertEquals(Arrays.asList(host1, host3), started);
+    } finally {
+      racer.close();
+    }
+  }
+
+  private class FakeProtocol extends MasterProtocol {
+
+    private FakeProtocol(UrlParser urlParser) {
+      super(urlParser, new GlobalStateInfo(), new ReentrantLock(), null);
+    }
+
+    @Override
+    public void connect() throws SQLException {
+      HostAddress host = getHostAddress();
+      started.add(host);
+      int duration = durations.get(host);
+      try {
+        Thread.sleep(Math.abs(duration));
+      } catch (InterruptedException interrupted) {
+        throw new SQLException("interrupted");
+      }
+      if (duration < 0) {
+        throw new SQLException("Could not connect to " + host);
+      }
+    }
+
+    @Override
+    public void close() {
+      closed.add(getHostAddress());
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ *
+ * MariaDB Client for Java
+ *
+ * Copyright (c) 2012-2014 Monty Program Ab.
+ * Copyright (c) 2015-2020 MariaDB Corporation Ab.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this library; if not, write to Monty Program Ab info@montyprogram.com.
+ *
+ * This particular MariaDB Client for Java file is work
+ * derived from a Drizzle-JDBC. Drizzle-JDBC file which is covered by subject to
+ * the following copyright and notice provisions:
+ *
+ * Copyright (c) 2009-2011, Marcus Eriksson
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this list
+ * of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this
+ * list of conditions and the following disclaimer in the documentation and/or
+ * other materials provided with the distribution.
+ *
+ * Neither the name of the driver nor the names of its contributors may not be
+ * used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS  AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package org.mariadb.jdbc.internal.failover.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.Test;
+import org.mariadb.jdbc.HostAddress;
+
+public class HostLatencyTrackerTest {
+
+  private final HostAddress fast = new HostAddress("fast", 3306);
+  private final HostAddress slow = new HostAddress("slow", 3306);
+  private final HostAddress slowest = new HostAddress("slowest", 3306);
+
+  @After
+  public void clear() {
+    HostLatencyTracker.clear();
+  }
+
+  @Test
+  public void movingAverage() {
+    assertEquals(0, HostLatencyTracker.latency(fast), 0);
+    HostLatencyTracker.record(fast, 1000);
+    assertEquals(1000, HostLatencyTracker.latency(fast), 1);
+    HostLatencyTracker.record(fast, 2000);
+    assertEquals(1200, HostLatencyTracker.latency(fast), 1);
+  }
+
+  @Test
+  public void powerOfTwoChoices() {
+    HostLatencyTracker.record(fast, 1_000_000);
+    HostLatencyTracker.record(slow, 5_000_000);
+    HostLatencyTracker.record(slowest, 50_000_000);
+
+    int fastFirst = 0;
+    for (int i = 0; i < 1000; i++) {
+      List<HostAddress> hosts = new ArrayList<>(Arrays.asList(slowest, slow, fast));
+      HostLatencyTracker.order(hosts);
+      assertEquals(3, hosts.size());
+      assertTrue(hosts.containsAll(Arrays.asList(fast, slow, slowest)));
+      // slowest host always loses against the other one drawn
+      assertEquals(2, hosts.indexOf(slowest));
+      if (hosts.get(0).equals(fast)) {
+        fastFirst++;
+      }
+    }
+    // fast host is first unless drawn pair is (slow, slowest): probability 2/3
+    assertTrue(fastFirst > 550 && fastFirst < 800);
+  }
+}
@@ -0,0 +1,218 @@
+/*
+ *
+ * MariaDB Client for Java
+ *
+ * Copyright (c) 2012-2014 Monty Program Ab.
+ * Copyright (c) 2015-2020 MariaDB Corporation Ab.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this library; if not, write to Monty Program Ab info@montyprogram.com.
+ *
+ * This particular MariaDB Client for Java file is work
+ * derived from a Drizzle-JDBC. Drizzle-JDBC file which is covered by subject to
+ * the following copyright and notice provisions:
+ *
+ * Copyright (c) 2009-2011, Marcus Eriksson
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this list
+ * of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this
+ * list of conditions and the following disclaimer in the documentation and/or
+ * other materials provided with the distribution.
+ *
+ * Neither the name of the driver nor the names of its contributors may not be
+ * used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS  AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package org.mariadb.jdbc.internal.failover.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+import java.util.concurrent.locks.ReentrantLock;
+import org.junit.Before;
+import org.junit.Test;
+import org.mariadb.jdbc.UrlParser;
+import org.mariadb.jdbc.internal.ColumnType;
+import org.mariadb.jdbc.internal.com.read.dao.Results;
+import org.mariadb.jdbc.internal.com.read.resultset.SelectResultSet;
+import org.mariadb.jdbc.internal.protocol.MasterProtocol;
+import org.mariadb.jdbc.internal.protocol.Protocol;
+import org.mariadb.jdbc.internal.util.pool.GlobalStateInfo;
+
+public class TransactionReplayBufferTest {
+
+  private static final Method EXECUTE_QUERY;
+
+  static {
+    try {
+      EXECUTE_QUERY =
+          Protocol.class.getMethod("executeQuery", boolean.class, Results.class, String.class);
+    } catch (NoSuchMethodException noSuchMethodException) {
+      throw new IllegalStateException(noSuchMethodException);
+    }
+  }
+
+  private UrlParser urlParser;
+
+  @Before
+  public void before() throws SQLException {
+    urlParser = UrlParser.parse("jdbc:mariadb://localhost:1/testj");
+  }
+
+  private static void record(TransactionReplayBuffer buffer, FakeProtocol protocol, String sql)
+      throws SQLException {
+    Results results = new Results();
+    protocol.executeQuery(true, results, sql);
+    buffer.record(protocol, EXECUTE_QUERY, new Object[] {true, results, sql});
+  }
+
+  private static boolean isReplaySafe(String sql) {
+    return TransactionReplayBuffer.isReplaySafe(EXECUTE_QUERY, new Object[] {true, null, sql});
+  }
+
+  @Test
+  public void replaySameResults() throws SQLException {
+    TransactionReplayBuffer buffer = new TransactionReplayBuffer(10);
+    FakeProtocol protocol = new FakeProtocol(urlParser, 5, "a");
+    record(buffer, protocol, "INSERT INTO t(v) VALUES ('a')");
+    record(buffer, protocol, "SELECT v FROM t");
+    record(buffer, protocol, "SELECT LAST_INSERT_ID()");
+    assertTrue(buffer.isReplayable());
+    assertEquals(3, buffer.size());
+
+    FakeProtocol newProtocol = new FakeProtocol(urlParser, 5, "a");
+    assertTrue(buffer.replay(newProtocol));
+    assertEquals(3, newProtocol.executed);
+  }
+
+  @Test
+  public void replayDifferentGeneratedKeys() throws SQLException {
+    TransactionReplayBuffer buffer = new TransactionReplayBuffer(10);
+    record(buffer, new FakeProtocol(urlParser, 5, "a"), "INSERT INTO t(v) VALUES ('a')");
+
+    assertFalse(buffer.replay(new FakeProtocol(urlParser, 6, "a")));
+  }
+
+  @Test
+  public void replayDifferentResultSet() throws SQLException {
+    TransactionReplayBuffer buffer = new TransactionReplayBuffer(10);
+    FakeProtocol protocol = new FakeProtocol(urlParser, 5, "a");
+    record(buffer, protocol, "SELECT v FROM t");
+    record(buffer, protocol, "UPDATE t SET v = 'b'");
+
+    FakeProtocol newProtocol = new FakeProtocol(urlParser, 5, "b");
+    assertFalse(buffer.replay(newProtocol));
+    // replay stops at first mismatch
+    assertEquals(1, newProtocol.executed);
+  }
+
+  @Test
+  public void nonComparableCommands() throws SQLException {
+    FakeProtocol protocol = new FakeProtocol(urlParser, 5, "a");
+    TransactionReplayBuffer buffer = new TransactionReplayBuffer(10);
+    record(buffer, protocol, "UPDATE t SET v = LAST_INSERT_ID()");
+    assertFalse(buffer.isReplayable());
+    assertFalse(buffer.replay(new FakeProtocol(urlParser, 5, "a")));
+
+    buffer = new TransactionReplayBuffer(10);
+    Results results = new Results();
+    results.addStats(1, 0, true);
+    results.addStats(1, 0, false);
+    buffer.record(protocol, EXECUTE_QUERY, new Object[] {true, results, "UPDATE t SET v = 'c'"});
+    assertFalse(buffer.isReplayable());
+
+    buffer = new TransactionReplayBuffer(1);
+    record(buffer, protocol, "SELECT v FROM t");
+    assertTrue(buffer.isReplayable());
+    record(buffer, protocol, "SELECT v FROM t");
+    assertFalse(buffer.isReplayable());
+  }
+
+  @Test
+  public void replaySafe() {
+    assertTrue(isReplaySafe("INSERT INTO t(v) VALUES ('a')"));
+    assertTrue(isReplaySafe(" select v from t;\n"));
+    assertTrue(isReplaySafe("UPDATE t SET v = 'a'\nWHERE id = 1"));
+    assertTrue(isReplaySafe("SAVEPOINT s1"));
+
+    assertFalse(isReplaySafe("INSERT INTO t(v) VALUES ('a'); COMMIT"));
+    assertFalse(isReplaySafe("INSERT INTO t(v) VALUES ('a');COMMIT;"));
+    assertFalse(isReplaySafe("UPDATE t SET v = 'a' /* ; */"));
+    assertFalse(isReplaySafe("COMMIT"));
+    assertFalse(isReplaySafe("CREATE TABLE t2 (id int)"));
+    assertFalse(isReplaySafe("SELECT LAST_INSERT_ID()"));
+    assertFalse(isReplaySafe("INSERT INTO t(id) VALUES (last_insert_id ())"));
+    assertFalse(TransactionReplayBuffer.isReplaySafe(EXECUTE_QUERY, new Object[] {"SELECT 1"}));
+  }
+
+  /** Protocol returning given results, without server. */
+  private static class FakeProtocol extends MasterProtocol {
+
+    private final long insertId;
+    private final String value;
+    private int executed;
+
+    private FakeProtocol(UrlParser urlParser, long insertId, String value) {
+      super(urlParser, new GlobalStateInfo(), new ReentrantLock(), null);
+      this.insertId = insertId;
+      this.value = value;
+    }
+
+    @Override
+    public void executeQuery(boolean mustExecuteOnMaster, Results results, String sql) {
+      executed++;
+      if (sql.startsWith("SELECT")) {
+        results.addResultSet(
+            (SelectResultSet)
+                SelectResultSet.createResultSet(
+                    new String[] {"v"},
+                    new ColumnType[] {ColumnType.VARSTRING},
+                    new String[][] {{value}},
+                    null),
+            false);
+      } else {
+        results.addStats(1, sql.startsWith("INSERT") ? insertId : 0, false);
+      }
+    }
+
+    @Override
+    public boolean inTransaction() {
+      return true;
+    }
+
+    @Override
+    public int getAutoIncrementIncrement() {
+      return 1;
+    }
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ *
+ * MariaDB Client for Java
+ *
+ * Copyright (c) 2012-2014 Monty Program Ab.
+ * Copyright (c) 2015-2020 MariaDB Corporation Ab.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this library; if not, write to Monty Program Ab info@montyprogram.com.
+ *
+ * This particular MariaDB Client for Java file is work
+ * derived from a Drizzle-JDBC. Drizzle-JDBC file which is covered by subject to
+ * the following copyright and notice provisions:
+ *
+ * Copyright (c) 2009-2011, Marcus Eriksson
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this list
+ * of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this
+ * list of conditions and the following disclaimer in the documentation and/or
+ * other materials provided with the distribution.
+ *
+ * Neither the name of the driver nor the names of its contributors may not be
+ * used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS  AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package org.mariadb.jdbc.internal.protocol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.concurrent.locks.ReentrantLock;
+import org.junit.Test;
+import org.mariadb.jdbc.UrlParser;
+import org.mariadb.jdbc.internal.MariaDbServerCapabilities;
+import org.mariadb.jdbc.internal.com.read.Buffer;
+import org.mariadb.jdbc.internal.com.read.dao.Results;
+import org.mariadb.jdbc.internal.util.constant.StateChange;
+import org.mariadb.jdbc.internal.util.pool.GlobalStateInfo;
+import org.mariadb.jdbc.util.Options;
+
+public class SessionTrackingTest {
+
+  private static Options options(String parameters) throws SQLException {
+    return UrlParser.parse("jdbc:mariadb://localhost/testj?" + parameters).getOptions();
+  }
+
+  private static byte[] lengthEncoded(byte[] value) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write(value.length);
+    out.write(value, 0, value.length);
+    return out.toByteArray();
+  }
+
+  private static byte[] lengthEncoded(String value) {
+    return lengthEncoded(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static byte[] concat(byte[]... values) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (byte[] value : values) {
+      out.write(value, 0, value.length);
+    }
+    return out.toByteArray();
+  }
+
+  private static byte[] stateChange(int type, byte[] data) {
+    return lengthEncoded(concat(new byte[] {(byte) type}, lengthEncoded(data)));
+  }
+
+  private static MasterProtocol protocol() throws SQLException {
+    return new MasterProtocol(
+        UrlParser.parse("jdbc:mariadb://localhost/testj?causalReads=true"),
+        new GlobalStateInfo(),
+        new ReentrantLock(),
+        null);
+  }
+
+  @Test
+  public void causalReadsSessionOptions() throws SQLException {
+    long sessionTrack = MariaDbServerCapabilities.CLIENT_SESSION_TRACK;
+
+    String mariaDb =
+        AbstractConnectProtocol.sessionOptions(options("causalReads"), sessionTrack, true);
+    assertTrue(mariaDb, mariaDb.contains("session_track_system_variables='last_gtid'"));
+    assertFalse(mariaDb, mariaDb.contains("session_track_gtids"));
+
+    String rewrite =
+        AbstractConnectProtocol.sessionOptions(
+            options("causalReads&rewriteBatchedStatements"), sessionTrack, true);
+    assertTrue(
+        rewrite,
+        rewrite.contains("session_track_system_variables='auto_increment_increment,last_gtid'"));
+
+    String mysql =
+        AbstractConnectProtocol.sessionOptions(options("causalReads"), sessionTrack, false);
+    assertTrue(mysql, mysql.contains("session_track_gtids=OWN_GTID"));
+    assertFalse(mysql, mysql.contains("last_gtid"));
+
+    // no tracking without option or when server doesn't support session tracking
+    String disabled = AbstractConnectProtocol.sessionOptions(options(""), sessionTrack, true);
+    assertFalse(disabled, disabled.contains("gtid"));
+    String noTrack = AbstractConnectProtocol.sessionOptions(options("causalReads"), 0, true);
+    assertFalse(noTrack, noTrack.contains("session_track"));
+  }
+
+  @Test
+  public void mariaDbLastGtid() throws SQLException {
+    MasterProtocol protocol = protocol();
+    assertNull(protocol.getLastGtid());
+
+    byte[] variable = concat(lengthEncoded("last_gtid"), lengthEncoded("0-1-42"));
+    byte[] schema = lengthEncoded("testj");
+    protocol.handleStateChange(
+        new Buffer(
+            concat(
+                lengthEncoded(""),
+                stateChange(StateChange.SESSION_TRACK_SCHEMA, schema),
+                stateChange(StateChange.SESSION_TRACK_SYSTEM_VARIABLES, variable))),
+        new Results());
+    assertEquals("0-1-42", protocol.getLastGtid());
+    assertEquals("testj", protocol.getDatabase());
+  }
+
+  @Test
+  public void mysqlOwnGtid() throws SQLException {
+    MasterProtocol protocol = protocol();
+    String gtid = "3e11fa47-71ca-11e1-9e33-c80aa9429562:1-5";
+
+    // first byte is the encoding specification
+    byte[] gtids = concat(new byte[] {0}, lengthEncoded(gtid));
+    protocol.handleStateChange(
+        new Buffer(concat(lengthEncoded(""), stateChange(StateChange.SESSION_TRACK_GTIDS, gtids))),
+        new Results());
+    assertEquals(gtid, protocol.getLastGtid());
+
+    // unknown state change type is skipped
+    protocol.handleStateChange(
+        new Buffer(
+            concat(
+                lengthEncoded(""),
+                stateChange(StateChange.SESSION_TRACK_STATE_CHANGE, lengthEncoded("1")))),
+        new Results());
+    assertEquals(gtid, protocol.getLastGtid());
+  }
+}
@@ -0,0 +1,146 @@
+package org.mariadb.jdbc.internal.protocol.tls;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLSocketFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mariadb.jdbc.tls.TlsStatistics;
+import org.mariadb.jdbc.util.Options;
+
+public class DefaultTlsSocketPluginTest {
+
+  private final DefaultTlsSocketPlugin plugin = new DefaultTlsSocketPlugin();
+
+  @Before
+  @After
+  public void clear() {
+    DefaultTlsSocketPlugin.clearCache();
+    TlsStatistics.reset();
+  }
+
+  @Test
+  public void sharedContext() throws Exception {
+    Options options = new Options();
+    options.trustServerCertificate = true;
+    Options sameOptions = new Options();
+    sameOptions.trustServerCertificate = true;
+
+    SSLSocketFactory factory = plugin.getSocketFactory(options);
+    assertSame(factory, plugin.getSocketFactory(sameOptions));
+    assertEquals(1, TlsStatistics.getContextLoads());
+
+    Options otherOptions = new Options();
+    otherOptions.trustServerCertificate = true;
+    otherOptions.keyStoreType = "PKCS12";
+    assertNotSame(factory, plugin.getSocketFactory(otherOptions));
+    assertEquals(2, TlsStatistics.getContextLoads());
+  }
+
+  @Test
+  public void reloadOnTrustStoreChange() throws Exception {
+    File trustStore = File.createTempFile("truststore", ".jks");
+    trustStore.deleteOnExit();
+    writeEmptyKeyStore(trustStore);
+
+    Options options = new Options();
+    options.trustStore = trustStore.getAbsolutePath();
+    options.trustStorePassword = "password";
+
+    SSLSocketFactory factory = plugin.getSocketFactory(options);
+    assertSame(factory, plugin.getSocketFactory(options));
+
+    writeEmptyKeyStore(trustStore);
+    assertTrue(trustStore.setLastModified(trustStore.lastModified() + 10_000));
+    SSLSocketFactory reloaded = plugin.getSocketFactory(options);
+    assertNotSame(factory, reloaded);
+    assertSame(reloaded, plugin.getSocketFactory(options));
+    assertEquals(2, TlsStatistics.getContextLoads());
+  }
+
+  @Test
+  public void leastRecentlyUsedContextRemoved() throws Exception {
+    SSLSocketFactory first = plugin.getSocketFactory(options(0));
+    for (int i = 1; i < DefaultTlsSocketPlugin.MAX_CONTEXTS; i++) {
+      plugin.getSocketFactory(options(i));
+    }
+    assertEquals(DefaultTlsSocketPlugin.MAX_CONTEXTS, TlsStatistics.getContextLoads());
+
+    // first context recently used: second one is removed when cache is full
+    assertSame(first, plugin.getSocketFactory(options(0)));
+    plugin.getSocketFactory(options(DefaultTlsSocketPlugin.MAX_CONTEXTS));
+    assertSame(first, plugin.getSocketFactory(options(0)));
+    assertEquals(DefaultTlsSocketPlugin.MAX_CONTEXTS + 1, TlsStatistics.getContextLoads());
+
+    plugin.getSocketFactory(options(1));
+    assertEquals(DefaultTlsSocketPlugin.MAX_CONTEXTS + 2, TlsStatistics.getContextLoads());
+  }
+
+  @Test
+  public void concurrentLoading() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<SSLSocketFactory>> futures = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      futures.add(
+          executor.submit(
+              () -> {
+                start.await();
+                return plugin.getSocketFactory(options(0));
+              }));
+    }
+    start.countDown();
+    SSLSocketFactory factory = futures.get(0).get(10, TimeUnit.SECONDS);
+    for (Future<SSLSocketFactory> future : futures) {
+      assertSame(factory, future.get(10, TimeUnit.SECONDS));
+    }
+    executor.shutdown();
+    assertEquals(1, TlsStatistics.getContextLoads());
+  }
+
+  @Test
+  public void systemKeyStoreFailureNotCached() throws Exception {
+    String initialKeyStore = System.getProperty("javax.net.ssl.keyStore");
+    System.setProperty("javax.net.ssl.keyStore", "/non-existing-keystore.jks");
+    try {
+      // error is logged, context without client key material is used but not cached
+      assertNotSame(plugin.getSocketFactory(options(0)), plugin.getSocketFactory(options(0)));
+      assertEquals(2, TlsStatistics.getContextLoads());
+    } finally {
+      if (initialKeyStore == null) {
+        System.clearProperty("javax.net.ssl.keyStore");
+      } else {
+        System.setProperty("javax.net.ssl.keyStore", initialKeyStore);
+      }
+    }
+  }
+
+  private static Options options(int index) {
+    Options options = new Options();
+    options.trustServerCertificate = true;
+    options.keyStorePassword = "password" + index;
+    return options;
+  }
+
+  private static void writeEmptyKeyStore(File file) throws Exception {
+    KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+    keyStore.load(null, null);
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      keyStore.store(out, "password".toCharArray());
+    }
+  }
+}
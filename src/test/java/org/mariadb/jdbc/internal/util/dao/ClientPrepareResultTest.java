@@ -52,7 +52,9 @@
 
 package org.mariadb.jdbc.internal.util.dao;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
@@ -94,6 +96,69 @@ public class ClientPrepareResultTest {
     assertTrue(checkRewritable("INSERT INTO TABLE //SELECT"));
   }
 
+  /** Only plain INSERT with parameters values can be converted to LOAD DATA. */
+  @Test
+  public void loadDataConversion() {
+    assertEquals(
+        "LOAD DATA LOCAL INFILE 'batch' INTO TABLE MyTable CHARACTER SET utf8mb4 FIELDS TERMINATED "
+            + "BY ',' OPTIONALLY ENCLOSED BY '''' (a, `b c`)",
+        ClientPrepareResult.rewritableParts("INSERT INTO MyTable (a, `b c`) VALUES (?, ?)", false)
+            .getLoadDataSql(false));
+    assertEquals(
+        "LOAD DATA LOCAL INFILE 'batch' INTO TABLE `db`.`My Table` CHARACTER SET utf8mb4 FIELDS "
+            + "TERMINATED BY ',' OPTIONALLY ENCLOSED BY '''' ESCAPED BY ''",
+        ClientPrepareResult.rewritableParts("insert ignore `db`.`My Table` values(?,?)", true)
+            .getLoadDataSql(true));
+    assertNull(loadDataSql("INSERT INTO MyTable (a, b) VALUES (?, ?) ON DUPLICATE KEY UPDATE a=1"));
+    assertNull(loadDataSql("INSERT INTO MyTable (a, b) VALUES (?, 1)"));
+    assertNull(loadDataSql("INSERT INTO MyTable (a, b) VALUES (?, now())"));
+    assertNull(loadDataSql("INSERT INTO MyTable PARTITION (p1) (a) VALUES (?)"));
+    assertNull(loadDataSql("INSERT INTO MyTable (a) SELECT ?"));
+    assertNull(loadDataSql("UPDATE MyTable SET a = ?"));
+    assertNull(
+        ClientPrepareResult.parameterParts("INSERT INTO MyTable (a) VALUES (?)", false)
+            .getLoadDataSql(false));
+  }
+
+  /** Multi-values form of INSERT. */
+  @Test
+  public void multiValuesSql() {
+    assertEquals(
+        "INSERT INTO MyTable (a, b) VALUES (?, now(), ?), (?, now(), ?) ON DUPLICATE KEY UPDATE"
+            + " b=VALUES(b)",
+        ClientPrepareResult.rewritableParts(
+                "INSERT INTO MyTable (a, b) VALUES (?, now(), ?) ON DUPLICATE KEY UPDATE"
+                    + " b=VALUES(b)",
+                false)
+            .getMultiValuesSql(2));
+    assertNull(
+        ClientPrepareResult.rewritableParts("UPDATE MyTable SET a = ?", false)
+            .getMultiValuesSql(2));
+  }
+
+  /** Only pure SELECT can be routed to a replica. */
+  @Test
+  public void readOnlySelect() {
+    assertTrue(ClientPrepareResult.isReadOnlySelect("SELECT * FROM MyTable WHERE a = ?", false));
+    assertTrue(ClientPrepareResult.isReadOnlySelect("/* hint */ select a FROM MyTable;", false));
+    assertTrue(ClientPrepareResult.isReadOnlySelect("SELECT 'FOR UPDATE', `into`, \"@a\"", false));
+    assertTrue(ClientPrepareResult.isReadOnlySelect("SELECT a -- FOR UPDATE\n FROM t", false));
+    assertTrue(ClientPrepareResult.isReadOnlySelect("SELECT 'it\\'s @a'", false));
+    assertFalse(ClientPrepareResult.isReadOnlySelect("SELECT 'it\\'s @a'", true));
+    assertFalse(ClientPrepareResult.isReadOnlySelect("INSERT INTO t SELECT * FROM t2", false));
+    assertFalse(ClientPrepareResult.isReadOnlySelect("SELECT * FROM t FOR UPDATE", false));
+    assertFalse(ClientPrepareResult.isReadOnlySelect("SELECT * FROM t LOCK IN SHARE MODE", false));
+    assertFalse(ClientPrepareResult.isReadOnlySelect("SELECT a INTO @b FROM t", false));
+    assertFalse(ClientPrepareResult.isReadOnlySelect("SELECT @@session.time_zone", false));
+    assertFalse(ClientPrepareResult.isReadOnlySelect("SELECT last_insert_id()", false));
+    assertFalse(ClientPrepareResult.isReadOnlySelect("SELECT 1; DELETE FROM t", false));
+    assertFalse(ClientPrepareResult.isReadOnlySelect("", false));
+  }
+
+  private String loadDataSql(String query) {
+    return ClientPrepareResult.rewritableParts(query, false).getLoadDataSql(false);
+  }
+
   private boolean checkRewritable(String query) {
     return ClientPrepareResult.rewritableParts(query, true).isQueryMultiValuesRewritable();
   }
@@ -0,0 +1,306 @@
+/*
+ *
+ * MariaDB Client for Java
+ *
+ * Copyright (c) 2012-2014 Monty Program Ab.
+ * Copyright (c) 2015-2020 MariaDB Corporation Ab.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this library; if not, write to Monty Program Ab info@montyprogram.com.
+ *
+ * This particular MariaDB Client for Java file is work
+ * derived from a Drizzle-JDBC. Drizzle-JDBC file which is covered by subject to
+ * the following copyright and notice provisions:
+ *
+ * Copyright (c) 2009-2011, Marcus Eriksson
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this list
+ * of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this
+ * list of conditions and the following disclaimer in the documentation and/or
+ * other materials provided with the distribution.
+ *
+ * Neither the name of the driver nor the names of its contributors may not be
+ * used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS  AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package org.mariadb.jdbc.internal.util.pool;
+
+import static org.junit.Assert.*;
+import static org.mariadb.jdbc.MariaDbPooledConnection.STATE_IN_USE;
+import static org.mariadb.jdbc.MariaDbPooledConnection.STATE_NOT_IN_USE;
+import static org.mariadb.jdbc.MariaDbPooledConnection.STATE_REMOVED;
+import static org.mariadb.jdbc.MariaDbPooledConnection.STATE_RESERVED;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import org.junit.Before;
+import org.junit.Test;
+import org.mariadb.jdbc.MariaDbConnection;
+import org.mariadb.jdbc.MariaDbPooledConnection;
+import org.mariadb.jdbc.UrlParser;
+import org.mariadb.jdbc.internal.protocol.MasterProtocol;
+
+public class ConnectionBagTest {
+
+  private UrlParser urlParser;
+
+  @Before
+  public void init() throws SQLException {
+    urlParser = UrlParser.parse("jdbc:mariadb://localhost:1/testj");
+  }
+
+  private MariaDbPooledConnection newConnection() {
+    return new MariaDbPooledConnection(
+        new MariaDbConnection(
+            new MasterProtocol(urlParser, new GlobalStateInfo(), new ReentrantLock(), null)));
+  }
+
+  @Test
+  public void stateTransitions() throws Exception {
+    ConnectionBag bag = new ConnectionBag();
+    MariaDbPooledConnection item = newConnection();
+    bag.add(item);
+    assertEquals(STATE_NOT_IN_USE, item.getState());
+    assertEquals(1, bag.size());
+
+    // borrow
+    assertSame(item, bag.borrow(0, TimeUnit.NANOSECONDS));
+    assertEquals(STATE_IN_USE, item.getState());
+    assertNull(bag.borrow(0, TimeUnit.NANOSECONDS));
+    assertFalse(bag.reserve(item));
+
+    // requite
+    bag.requite(item);
+    assertEquals(STATE_NOT_IN_USE, item.getState());
+    assertEquals(1, bag.getCount(STATE_NOT_IN_USE));
+
+    // reserve
+    assertTrue(bag.reserve(item));
+    assertEquals(STATE_RESERVED, item.getState());
+    assertFalse(bag.reserve(item));
+    assertNull(bag.borrow(0, TimeUnit.NANOSECONDS));
+    bag.unreserve(item);
+    assertEquals(STATE_NOT_IN_USE, item.getState());
+
+    // remove, whatever the state
+    assertSame(item, bag.borrow(0, TimeUnit.NANOSECONDS));
+    assertTrue(bag.remove(item));
+    assertEquals(STATE_REMOVED, item.getState());
+    assertFalse(bag.remove(item));
+    assertEquals(0, bag.size());
+
+    // a removed connection given back is not made available again
+    bag.requite(item);
+    bag.unreserve(item);
+    assertEquals(STATE_REMOVED, item.getState());
+    assertNull(bag.borrow(0, TimeUnit.NANOSECONDS));
+  }
+
+  @Test
+  public void asyncRequests() throws Exception {
+    ConnectionBag bag = new ConnectionBag();
+    CompletableFuture<MariaDbPooledConnection> first = new CompletableFuture<>();
+    CompletableFuture<MariaDbPooledConnection> cancelled = new CompletableFuture<>();
+    CompletableFuture<MariaDbPooledConnection> second = new CompletableFuture<>();
+    bag.borrowAsync(first);
+    bag.borrowAsync(cancelled);
+    bag.borrowAsync(second);
+    assertEquals(3, bag.getAsyncWaiterCount());
+
+    // new connection is directly given to the oldest request
+    MariaDbPooledConnection item = newConnection();
+    bag.add(item);
+    assertSame(item, first.getNow(null));
+    assertEquals(STATE_IN_USE, item.getState());
+
+    // completed requests are skipped
+    cancelled.completeExceptionally(new SQLException("timeout"));
+    bag.requite(item);
+    assertSame(item, second.getNow(null));
+    assertEquals(STATE_IN_USE, item.getState());
+    assertEquals(0, bag.getAsyncWaiterCount());
+
+    // reserved connection is given to a request when made available again
+    bag.requite(item);
+    assertTrue(bag.reserve(item));
+    CompletableFuture<MariaDbPooledConnection> third = new CompletableFuture<>();
+    bag.borrowAsync(third);
+    assertFalse(third.isDone());
+    bag.unreserve(item);
+    assertSame(item, third.getNow(null));
+
+    // failing pending requests
+    CompletableFuture<MariaDbPooledConnection> fourth = new CompletableFuture<>();
+    bag.borrowAsync(fourth);
+    bag.failAsyncWaiters(new SQLException("closed"));
+    assertTrue(fourth.isCompletedExceptionally());
+    assertEquals(0, bag.getAsyncWaiterCount());
+  }
+
+  @Test
+  public void concurrentBorrowers() throws Exception {
+    ConnectionBag bag = new ConnectionBag();
+    List<MariaDbPooledConnection> items = new ArrayList<>();
+    ConcurrentHashMap<MariaDbPooledConnection, AtomicBoolean> leased = new ConcurrentHashMap<>();
+    for (int i = 0; i < 2; i++) {
+      MariaDbPooledConnection item = newConnection();
+      items.add(item);
+      leased.put(item, new AtomicBoolean());
+      bag.add(item);
+    }
+
+    AtomicInteger doubleLeases = new AtomicInteger();
+    AtomicInteger lostHandoffs = new AtomicInteger();
+
+    // connections are given back by another thread than borrowing ones
+    BlockingQueue<MariaDbPooledConnection> released = new LinkedBlockingQueue<>();
+    Thread requiter =
+        new Thread(
+            () -> {
+              try {
+                while (true) {
+                  MariaDbPooledConnection item = released.take();
+                  if (!leased.get(item).compareAndSet(true, false)) {
+                    doubleLeases.incrementAndGet();
+                  }
+                  bag.requite(item);
+                }
+              } catch (InterruptedException interrupted) {
+                // end
+              }
+            });
+    requiter.start();
+
+    int threads = 8;
+    int loops = 2_000;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      futures.add(
+          executor.submit(
+              () -> {
+                start.await();
+                for (int j = 0; j < loops; j++) {
+                  MariaDbPooledConnection item = bag.borrow(10, TimeUnit.SECONDS);
+                  if (item == null) {
+                    lostHandoffs.incrementAndGet();
+                    continue;
+                  }
+                  if (item.getState() != STATE_IN_USE
+                      || !leased.get(item).compareAndSet(false, true)) {
+                    doubleLeases.incrementAndGet();
+                    continue;
+                  }
+                  released.add(item);
+                }
+                return null;
+              }));
+    }
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get(60, TimeUnit.SECONDS);
+    }
+    executor.shutdown();
+    while (!released.isEmpty()) {
+      Thread.sleep(1);
+    }
+    requiter.interrupt();
+    requiter.join();
+
+    assertEquals(0, doubleLeases.get());
+    assertEquals(0, lostHandoffs.get());
+    assertEquals(0, bag.getWaitingThreadCount());
+    for (MariaDbPooledConnection item : items) {
+      assertSame(item, bag.borrow(1, TimeUnit.SECONDS));
+    }
+  }
+
+  @Test
+  public void asyncRequestBeforeSyncBorrowers() throws Exception {
+    ConnectionBag bag = new ConnectionBag();
+    MariaDbPooledConnection item = newConnection();
+    bag.add(item);
+    assertSame(item, bag.borrow(0, TimeUnit.NANOSECONDS));
+
+    // threads continuously trying to borrow, without waiting
+    AtomicBoolean stop = new AtomicBoolean();
+    AtomicInteger overtaken = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      futures.add(
+          executor.submit(
+              () -> {
+                while (!stop.get()) {
+                  MariaDbPooledConnection borrowed = bag.borrow(0, TimeUnit.NANOSECONDS);
+                  if (borrowed != null) {
+                    overtaken.incrementAndGet();
+                    bag.requite(borrowed);
+                  }
+                }
+                return null;
+              }));
+    }
+
+    try {
+      for (int i = 0; i < 10_000; i++) {
+        CompletableFuture<MariaDbPooledConnection> request = new CompletableFuture<>();
+        bag.borrowAsync(request);
+        bag.requite(item);
+        // queued request is served first : connection must never be available to sync borrowers
+        assertSame(item, request.getNow(null));
+      }
+    } finally {
+      stop.set(true);
+      for (Future<?> future : futures) {
+        future.get(10, TimeUnit.SECONDS);
+      }
+      executor.shutdown();
+    }
+    assertEquals(0, overtaken.get());
+
+    // sync borrower waiting is served once no asynchronous request is pending
+    ExecutorService borrower = Executors.newSingleThreadExecutor();
+    Future<MariaDbPooledConnection> waiting =
+        borrower.submit(() -> bag.borrow(10, TimeUnit.SECONDS));
+    while (bag.getWaitingThreadCount() == 0) {
+      Thread.sleep(1);
+    }
+    bag.requite(item);
+    assertSame(item, waiting.get(10, TimeUnit.SECONDS));
+    borrower.shutdown();
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ *
+ * MariaDB Client for Java
+ *
+ * Copyright (c) 2012-2014 Monty Program Ab.
+ * Copyright (c) 2015-2020 MariaDB Corporation Ab.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this library; if not, write to Monty Program Ab info@montyprogram.com.
+ *
+ * This particular MariaDB Client for Java file is work
+ * derived from a Drizzle-JDBC. Drizzle-JDBC file which is covered by subject to
+ * the following copyright and notice provisions:
+ *
+ * Copyright (c) 2009-2011, Marcus Eriksson
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this list
+ * of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this
+ * list of conditions and the following disclaimer in the documentation and/or
+ * other materials provided with the distribution.
+ *
+ * Neither the name of the driver nor the names of its contributors may not be
+ * used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS  AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package org.mariadb.jdbc.internal.util.pool;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.mariadb.jdbc.PoolListener;
+import org.mariadb.jdbc.PoolListener.DiscardReason;
+
+public class PoolMetricsTest {
+
+  @Test
+  public void failingListener() {
+    PoolMetrics metrics = new PoolMetrics("test-pool");
+    AtomicInteger borrowed = new AtomicInteger();
+    metrics.addListener(
+        new PoolListener() {
+          @Override
+          public void connectionBorrowed(String poolName, long waitNanos) {
+            throw new IllegalStateException("listener failure");
+          }
+
+          @Override
+          public void connectionDiscarded(String poolName, DiscardReason reason) {
+            throw new IllegalStateException("listener failure");
+          }
+        });
+    metrics.addListener(
+        new PoolListener() {
+          @Override
+          public void connectionBorrowed(String poolName, long waitNanos) {
+            borrowed.incrementAndGet();
+          }
+        });
+
+    // listener errors must not be propagated, and following listeners are still called
+    metrics.borrowed(1000);
+    metrics.discarded(DiscardReason.POOL_SHRINK);
+    metrics.discarded(DiscardReason.MAX_LIFETIME);
+    metrics.discarded(DiscardReason.MAX_LIFETIME);
+
+    assertEquals(1, borrowed.get());
+    assertEquals(1, metrics.getBorrowWaitTime().getCount());
+    assertEquals(1, metrics.getDiscarded(DiscardReason.POOL_SHRINK));
+    assertEquals(2, metrics.getDiscarded(DiscardReason.MAX_LIFETIME));
+    assertEquals(0, metrics.getDiscarded(DiscardReason.POOL_CLOSED));
+  }
+}